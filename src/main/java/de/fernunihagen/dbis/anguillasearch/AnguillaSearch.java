@@ -3,7 +3,12 @@ package de.fernunihagen.dbis.anguillasearch;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -15,7 +20,11 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 
 import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.AnalysisCache;
+import de.fernunihagen.dbis.anguillasearch.searching.ScoredDocument;
 import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+import de.fernunihagen.dbis.anguillasearch.server.SearchServer;
 import de.fernunihagen.dbis.anguillasearch.util.Utils;
 
 /**
@@ -29,11 +38,55 @@ public final class AnguillaSearch {
     private static final Logger LOGGER = LoggerFactory.getLogger(
             AnguillaSearch.class);
     /**
-     * A Searchengine which gets immediately initialized with the seed urls
-     * from the parsed json files.
+     * The file in which the analyzed website contents are cached between
+     * two runs of the program.
      */
-    private static SearchEngine searchEngine = new SearchEngine(getSeedUrls(
-            parseJsons()), 1024);
+    private static final Path ANALYSIS_CACHE_FILE = Paths.get("index",
+            "analysis-cache.bin");
+    /**
+     * The file in which the index of the crawled websites is stored between
+     * two runs of the program.
+     */
+    private static final Path INDEX_FILE = Paths.get("index",
+            "anguilla.idx");
+    /**
+     * Command line argument that forces a new crawl even if an index file
+     * exists.
+     */
+    private static final String REBUILD_ARGUMENT = "--rebuild";
+    /**
+     * Command line argument that starts the HTTP search server instead of
+     * the input loop, optionally followed by {@code =<port>}.
+     */
+    private static final String SERVE_ARGUMENT = "--serve";
+    /**
+     * The port of the HTTP search server if none is given.
+     */
+    private static final int DEFAULT_PORT = 8080;
+    /**
+     * The amount of requests per worker thread that can wait for a worker
+     * of the HTTP search server.
+     */
+    private static final int QUEUED_REQUESTS_PER_WORKER = 16;
+    /**
+     * The longest time a request may wait for a worker of the HTTP search
+     * server before it is shed.
+     */
+    private static final Duration MAX_QUEUE_WAIT = Duration.ofMillis(200);
+    /**
+     * The time a search of the HTTP search server may take.
+     */
+    private static final Duration SEARCH_TIMEOUT = Duration.ofMillis(500);
+    /**
+     * The maximum amount of search results that are printed for a query.
+     */
+    private static final int RESULTS_PER_PAGE = 10;
+    /**
+     * A Searchengine which gets initialized at the start of the program,
+     * either from the index file or with the seed urls from the parsed json
+     * files.
+     */
+    private static SearchEngine searchEngine;
     // ============================constructors===========================//
 
     private AnguillaSearch() {
@@ -43,7 +96,10 @@ public final class AnguillaSearch {
     /**
      * Main method.
      *
-     * @param args Command line arguments
+     * @param args Command line arguments, {@code --rebuild} crawls the
+     *             websites again instead of opening the stored index,
+     *             {@code --serve[=port]} answers searches over HTTP
+     *             instead of reading them from the console.
      */
     public static void main(final String[] args) {
 
@@ -64,6 +120,17 @@ public final class AnguillaSearch {
             LOGGER.info("Java awt GraphicsEnvironment headless: {}",
                     java.awt.GraphicsEnvironment.isHeadless());
         }
+        searchEngine = createSearchEngine(Arrays.asList(args).contains(
+                REBUILD_ARGUMENT));
+        for (String argument : args) {
+            if (argument.equals(SERVE_ARGUMENT)
+                    || argument.startsWith(SERVE_ARGUMENT + "=")) {
+                serve(argument.equals(SERVE_ARGUMENT) ? DEFAULT_PORT
+                        : Integer.parseInt(argument.substring(
+                                SERVE_ARGUMENT.length() + 1)));
+                return;
+            }
+        }
         /*
          * start the input loop
          */
@@ -71,6 +138,35 @@ public final class AnguillaSearch {
 
     }
 
+    /**
+     * Starts the HTTP search server with one worker per processor. The
+     * server runs until the program is terminated, then the statistics of
+     * the server, the caches and the search latencies are logged.
+     *
+     * @param port the port to listen on.
+     */
+    private static void serve(final int port) {
+        int workerThreads = Runtime.getRuntime().availableProcessors();
+        try {
+            SearchServer server = new SearchServer(searchEngine,
+                    new InetSocketAddress(port), workerThreads,
+                    workerThreads * QUEUED_REQUESTS_PER_WORKER,
+                    MAX_QUEUE_WAIT, SEARCH_TIMEOUT);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                searchEngine.getQueryAnalyzer().logStatistics();
+                searchEngine.getResultCache().logStatistics();
+                searchEngine.getMetrics().logStatistics();
+            }));
+            server.start();
+        } catch (IOException e) {
+            if (LOGGER.isErrorEnabled()) {
+                LOGGER.error(String.format("Failed to start search server on "
+                        + "port %s: %s", port, e.getMessage()));
+            }
+        }
+    }
+
     /**
      * This Method will start an input loop reading user input from the
      * console. It will make sure the user selects a program mode first:
@@ -137,6 +233,10 @@ public final class AnguillaSearch {
                     if (LOGGER.isInfoEnabled()) {
                         LOGGER.info("Exiting Anguillasearch");
                     }
+                    /* report the use of the caches and the search latencies */
+                    searchEngine.getQueryAnalyzer().logStatistics();
+                    searchEngine.getResultCache().logStatistics();
+                    searchEngine.getMetrics().logStatistics();
                     break;
                 }
                 /*
@@ -178,26 +278,28 @@ public final class AnguillaSearch {
          * for the search result
          */
         List<String> queryTokensList = Arrays.asList(queryTokens);
-        List<String> searchResults;
+        SearchMode searchMode;
         /*
-         * switch over the program modes and call the appropriate
-         * method on the search engine. (default needed or else
-         * field searchResults might not be initialized)
+         * switch over the program modes and select the appropriate
+         * search mode. (default needed or else
+         * field searchMode might not be initialized)
          */
         switch (programMode) {
             case "1":
-                searchResults = searchEngine.searchQuery(queryTokens);
+                searchMode = SearchMode.TFIDF;
                 break;
             case "2":
-                searchResults = searchEngine.searchQueryCosine(queryTokens);
+                searchMode = SearchMode.COSINE;
                 break;
             default:
-                searchResults = searchEngine.
-                searchQueryPageRankAndCosine(queryTokens);
+                searchMode = SearchMode.COSINE_PAGERANK;
         }
+        /* only the first page of results is selected and printed */
+        List<ScoredDocument> searchResults = searchEngine.search(queryTokens,
+                searchMode, 0, RESULTS_PER_PAGE);
 
         if (LOGGER.isInfoEnabled()) {
-            LOGGER.info(String.format("___Search Results___: found"
+            LOGGER.info(String.format("___Search Results___: top"
                     + " %s results", searchResults.size()));
         }
         /*
@@ -211,13 +313,13 @@ public final class AnguillaSearch {
                         searchQuery));
             }
         } else {
-            for (String url : searchResults) {
+            for (ScoredDocument result : searchResults) {
+                String url = result.getUrl();
                 /*
                  * gets WebsiteData object with all content
                  * for the url
                  */
-                WebsiteData websiteData = searchEngine.getCrawledData().
-                get(url);
+                WebsiteData websiteData = searchEngine.getDocument(url);
                 /* print title, url and part of the website */
                 if (LOGGER.isInfoEnabled()) {
                     LOGGER.info(String.format("-> %s", url));
@@ -226,7 +328,7 @@ public final class AnguillaSearch {
                     /*
                      * creates snippet from webpage and prints it
                      */
-                    String text = SearchEngine.createTextForSearchResult(
+                    String text = searchEngine.createSnippet(
                             websiteData, queryTokensList);
                     LOGGER.info(String.format("%s", text));
                     LOGGER.info("******************************");
@@ -237,6 +339,51 @@ public final class AnguillaSearch {
 
     }
 
+    /**
+     * Creates the search engine. If an index file exists it is opened and
+     * no website has to be crawled. Otherwise the search engine crawls the
+     * seed urls of the parsed json files, the content of websites that
+     * didn't change since the last run is taken from the analysis cache.
+     * Afterwards the cache and the index are saved for the next run.
+     *
+     * @param rebuild true if the websites shall be crawled even if an index
+     *                file exists.
+     * @return the initialized search engine.
+     */
+    private static SearchEngine createSearchEngine(final boolean rebuild) {
+        if (!rebuild && Files.exists(INDEX_FILE)) {
+            try {
+                return SearchEngine.open(INDEX_FILE);
+            } catch (IOException | IllegalStateException e) {
+                /* a broken index is built again */
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn(String.format("Ignoring index %s: %s",
+                            INDEX_FILE, e.getMessage()));
+                }
+            }
+        }
+        AnalysisCache analysisCache = AnalysisCache.open(ANALYSIS_CACHE_FILE);
+        SearchEngine engine = new SearchEngine(getSeedUrls(parseJsons()),
+                1024, analysisCache);
+        try {
+            analysisCache.save();
+        } catch (IOException e) {
+            if (LOGGER.isErrorEnabled()) {
+                LOGGER.error(String.format("Failed to save analysis cache: %s",
+                        e.getMessage()));
+            }
+        }
+        try {
+            engine.writeIndex(INDEX_FILE);
+        } catch (IOException e) {
+            if (LOGGER.isErrorEnabled()) {
+                LOGGER.error(String.format("Failed to save index: %s",
+                        e.getMessage()));
+            }
+        }
+        return engine;
+    }
+
     /**
      * Parses a predefined json file int a {@link List} of {@link JsonObject}.
      *
@@ -0,0 +1,429 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.util.CacheStats;
+import de.fernunihagen.dbis.anguillasearch.util.StringTokenizer;
+import de.fernunihagen.dbis.anguillasearch.util.VarInt;
+
+/**
+ * The {@code AnalysisCache} class remembers the tokenized and lemmatized
+ * content of websites across index builds.
+ *
+ * <p>
+ * The key of an entry is the SHA-256 hash of the title, header and body of
+ * a website, the value is the list of its tokens stored as term ids of a
+ * small term dictionary. A website whose text didn't change since the last
+ * build is therefore found in the cache and doesn't have to be processed
+ * by the StanfordCoreNLP pipeline again, even if its url changed. The file
+ * stores the {@link StringTokenizer#ANALYZER_VERSION} it was written with,
+ * a cache of another version of the analysis is dropped when it is opened.
+ * </p>
+ *
+ * <p>
+ * The cache is kept in a binary file on the local disk. It is loaded with
+ * {@link #open(Path)} and written back with {@link #save()}. Only the
+ * entries that were used since the cache was opened are written, so pages
+ * that disappeared from the crawl don't pile up in the file.
+ * </p>
+ */
+public final class AnalysisCache {
+
+    /**
+     * Logger for the output or info or error messages.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            AnalysisCache.class);
+
+    /**
+     * Marks the start of a cache file ("ANAC").
+     */
+    private static final int MAGIC = 0x414E4143;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Length of a SHA-256 hash in bytes.
+     */
+    private static final int HASH_LENGTH = 32;
+
+    /**
+     * Separates title, header and body before hashing so that text can't
+     * move from one part to another without changing the hash.
+     */
+    private static final byte SEPARATOR = 0;
+
+    /**
+     * The file the cache is loaded from and saved to.
+     */
+    private final Path file;
+
+    /**
+     * The term dictionary, term id -> term.
+     */
+    private final List<String> terms;
+
+    /**
+     * The reverse term dictionary, term -> term id.
+     */
+    private final Map<String, Integer> termIds;
+
+    /**
+     * The cached analysis results, content hash -> term ids of the tokens.
+     */
+    private final Map<ContentHash, int[]> entries;
+
+    /**
+     * The content hashes that were used since the cache was opened.
+     */
+    private final Set<ContentHash> usedEntries;
+
+    /**
+     * Amount of websites that were found in the cache.
+     */
+    private final LongAdder hits;
+
+    /**
+     * Amount of websites that had to be processed by the pipeline.
+     */
+    private final LongAdder misses;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new empty {@code AnalysisCache} for the given file.
+     *
+     * @param cacheFile the file the cache is saved to.
+     */
+    private AnalysisCache(final Path cacheFile) {
+        this.file = cacheFile;
+        this.terms = new ArrayList<>();
+        this.termIds = new HashMap<>();
+        this.entries = new ConcurrentHashMap<>();
+        this.usedEntries = ConcurrentHashMap.newKeySet();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Opens the cache stored in the given file. If the file doesn't exist,
+     * can't be read or was written by another version of the analysis an
+     * empty cache is returned which will be written to that file on
+     * {@link #save()}.
+     *
+     * @param cacheFile the file of the cache.
+     * @return the loaded cache.
+     */
+    public static AnalysisCache open(final Path cacheFile) {
+        AnalysisCache cache = new AnalysisCache(cacheFile);
+        if (Files.exists(cacheFile)) {
+            try {
+                cache.load();
+            } catch (IOException | IllegalStateException e) {
+                /* a broken cache is only a performance problem */
+                cache.terms.clear();
+                cache.termIds.clear();
+                cache.entries.clear();
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn(String.format("Ignoring analysis cache %s: %s",
+                            cacheFile, e.getMessage()));
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the tokenized and lemmatized content of the website. The
+     * tokens are taken from the cache if the content of the website was
+     * processed before, otherwise the website is processed by
+     * {@link StringTokenizer#tokenizeAndLemmatize(WebsiteData)} and the
+     * result is added to the cache.
+     *
+     * @param data the {@link WebsiteData} object which shall be processed.
+     * @return a list of processed words (tokens).
+     */
+    public List<String> tokenizeAndLemmatize(final WebsiteData data) {
+        ContentHash hash = hash(data);
+        usedEntries.add(hash);
+        int[] ids = entries.get(hash);
+        if (ids != null) {
+            hits.increment();
+            return resolve(ids);
+        }
+        misses.increment();
+        List<String> tokens = StringTokenizer.tokenizeAndLemmatize(data);
+        entries.put(hash, intern(tokens));
+        return tokens;
+    }
+
+    /**
+     * Writes all entries used since the cache was opened to the cache file.
+     * The file is written to a temporary file first and then moved, so an
+     * interrupted save never leaves a broken cache behind. The temporary
+     * file is deleted if the save fails.
+     *
+     * @throws IOException if the file can't be written.
+     */
+    public synchronized void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        /* collect the used entries and renumber the terms they reference */
+        List<String> savedTerms = new ArrayList<>();
+        Map<Integer, Integer> newIds = new HashMap<>();
+        Map<ContentHash, int[]> savedEntries = new HashMap<>();
+        for (ContentHash hash : usedEntries) {
+            int[] ids = entries.get(hash);
+            if (ids == null) {
+                continue;
+            }
+            int[] remapped = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                Integer newId = newIds.get(ids[i]);
+                if (newId == null) {
+                    newId = savedTerms.size();
+                    newIds.put(ids[i], newId);
+                    savedTerms.add(terms.get(ids[i]));
+                }
+                remapped[i] = newId;
+            }
+            savedEntries.put(hash, remapped);
+        }
+
+        Path tempFile = Files.createTempFile(parent, "analysis", ".tmp");
+        /* a failed save doesn't leave the temporary file behind */
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(
+                            Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(StringTokenizer.ANALYZER_VERSION);
+                VarInt.write(out, savedTerms.size());
+                for (String term : savedTerms) {
+                    out.writeUTF(term);
+                }
+                VarInt.write(out, savedEntries.size());
+                for (Map.Entry<ContentHash, int[]> entry : savedEntries
+                        .entrySet()) {
+                    out.write(entry.getKey().bytes);
+                    int[] ids = entry.getValue();
+                    VarInt.write(out, ids.length);
+                    for (int id : ids) {
+                        VarInt.write(out, id);
+                    }
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException deleteFailure) {
+                e.addSuppressed(deleteFailure);
+            }
+            throw e;
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format("Saved analysis cache with %d pages "
+                    + "and %d terms to %s (%s)", savedEntries.size(),
+                    savedTerms.size(), file, getStats()));
+        }
+    }
+
+    /**
+     * Reads the term dictionary and the entries from the cache file.
+     *
+     * @throws IOException if the file can't be read.
+     */
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IllegalStateException("unknown file format");
+            }
+            int analyzerVersion = in.readInt();
+            if (analyzerVersion != StringTokenizer.ANALYZER_VERSION) {
+                throw new IllegalStateException(String.format(
+                        "written by analyzer version %d, expected %d",
+                        analyzerVersion, StringTokenizer.ANALYZER_VERSION));
+            }
+            int termCount = VarInt.read(in);
+            for (int i = 0; i < termCount; i++) {
+                String term = in.readUTF();
+                termIds.put(term, terms.size());
+                terms.add(term);
+            }
+            int entryCount = VarInt.read(in);
+            for (int i = 0; i < entryCount; i++) {
+                byte[] hash = new byte[HASH_LENGTH];
+                in.readFully(hash);
+                int[] ids = new int[VarInt.read(in)];
+                for (int j = 0; j < ids.length; j++) {
+                    ids[j] = VarInt.read(in);
+                    if (ids[j] >= termCount) {
+                        throw new IllegalStateException(
+                                "term id out of range");
+                    }
+                }
+                entries.put(new ContentHash(hash), ids);
+            }
+        }
+    }
+
+    /**
+     * Translates a list of tokens into term ids and adds unknown tokens to
+     * the term dictionary.
+     *
+     * @param tokens the tokens of a website.
+     * @return the term ids of the tokens in the same order.
+     */
+    private synchronized int[] intern(final List<String> tokens) {
+        int[] ids = new int[tokens.size()];
+        for (int i = 0; i < ids.length; i++) {
+            String token = tokens.get(i);
+            Integer id = termIds.get(token);
+            if (id == null) {
+                id = terms.size();
+                termIds.put(token, id);
+                terms.add(token);
+            }
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Translates term ids back into their tokens.
+     *
+     * @param ids the term ids of a website.
+     * @return the tokens of the website in the same order.
+     */
+    private synchronized List<String> resolve(final int[] ids) {
+        List<String> tokens = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            tokens.add(terms.get(id));
+        }
+        return tokens;
+    }
+
+    /**
+     * Calculates the SHA-256 hash of the title, header and body of a
+     * website.
+     *
+     * @param data the website to hash.
+     * @return the hash of the content of the website.
+     */
+    private static ContentHash hash(final WebsiteData data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, data.getTitle());
+            digest.update(SEPARATOR);
+            update(digest, data.getHeader());
+            digest.update(SEPARATOR);
+            update(digest, data.getBody());
+            return new ContentHash(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Feeds a part of the website content into the digest.
+     *
+     * @param digest the digest to update.
+     * @param text   the text, may be null.
+     */
+    private static void update(final MessageDigest digest, final String
+     text) {
+        if (text != null) {
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns a snapshot of the hit and miss counters of this cache.
+     *
+     * @return the current {@link CacheStats} of the cache.
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), 0);
+    }
+
+    /**
+     * Returns the amount of websites held in the cache.
+     *
+     * @return the amount of cached websites.
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * A SHA-256 hash that can be used as the key of a map.
+     */
+    private static final class ContentHash {
+
+        /**
+         * The bytes of the hash.
+         */
+        private final byte[] bytes;
+
+        /**
+         * The hash code of the bytes, calculated once.
+         */
+        private final int hashCode;
+
+        /**
+         * Creates a new {@code ContentHash} for the given hash bytes.
+         *
+         * @param hashBytes the bytes of the hash.
+         */
+        ContentHash(final byte[] hashBytes) {
+            this.bytes = hashBytes;
+            this.hashCode = Arrays.hashCode(hashBytes);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof ContentHash
+                    && Arrays.equals(bytes, ((ContentHash) other).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
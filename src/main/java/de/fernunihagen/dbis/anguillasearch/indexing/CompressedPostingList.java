@@ -0,0 +1,432 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import de.fernunihagen.dbis.anguillasearch.util.VarInt;
+
+/**
+ * The {@code CompressedPostingList} class is a read only view on the
+ * compressed postings of one token. The postings are stored in blocks of
+ * {@link #BLOCK_SIZE} postings.
+ *
+ * <p>
+ * Encoded format:
+ * </p>
+ *
+ * <pre>
+ * skip table: for every block (lastDocId int, blockOffset int,
+ *             maxFrequency int, maxLength int)
+ * blocks:     for every posting (docId gap varint, frequency varint)
+ * </pre>
+ *
+ * <p>
+ * The document ids are stored as gaps to the previous document id (the
+ * first gap of a block refers to the last document id of the previous
+ * block) in the variable byte format, see {@link VarInt}. The skip table
+ * has a fixed width, so {@link PostingIterator#advance(int)} can jump over
+ * whole blocks without decoding them. An iterator only ever decodes the
+ * block it is positioned in.
+ * </p>
+ *
+ * <p>
+ * The skip table also holds the frequency and the document length of the
+ * posting with the highest term frequency (frequency / length of the
+ * document) of every block. Its weight is the highest weight in the block,
+ * which lets a search skip blocks that can't reach its top results, see
+ * {@link PostingIterator#blockMaxWeight()}.
+ * </p>
+ *
+ * <p>
+ * Instead of the TFIDF weight the frequency of the token in the document is
+ * stored. The weight is calculated while reading from the frequency, the
+ * length of the document and the IDF score of the token, the same way the
+ * {@link IndexBuilder} calculates it.
+ * </p>
+ */
+public final class CompressedPostingList {
+
+    /**
+     * Amount of postings per block.
+     */
+    public static final int BLOCK_SIZE = 128;
+
+    /**
+     * Size of an entry of the skip table in bytes.
+     */
+    private static final int SKIP_ENTRY_BYTES = Integer.BYTES * 4;
+
+    /**
+     * The encoded postings, position 0 is the start of the skip table.
+     */
+    private final ByteBuffer data;
+
+    /**
+     * The amount of postings, which is the document frequency of the token.
+     */
+    private final int size;
+
+    /**
+     * The amount of blocks.
+     */
+    private final int blockCount;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new view on encoded postings.
+     *
+     * @param encoded           the encoded postings, starting at position 0.
+     * @param documentFrequency the amount of encoded postings.
+     */
+    public CompressedPostingList(final ByteBuffer encoded,
+            final int documentFrequency) {
+        this.data = encoded;
+        this.size = documentFrequency;
+        this.blockCount = (documentFrequency + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Encodes postings in the format of this class.
+     *
+     * @param docIds      the document ids in ascending order.
+     * @param frequencies the frequencies of the token in the documents.
+     * @param docLengths  the amount of tokens per document, indexed by
+     *                    document id.
+     * @param length      the amount of postings to encode.
+     * @return the encoded postings.
+     */
+    public static byte[] encode(final int[] docIds, final int[] frequencies,
+            final int[] docLengths, final int length) {
+        int blocks = (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ByteArrayOutputStream blockBytes = new ByteArrayOutputStream();
+        ByteBuffer skipTable = ByteBuffer.allocate(blocks * SKIP_ENTRY_BYTES);
+        try (DataOutputStream out = new DataOutputStream(blockBytes)) {
+            int previousDocId = 0;
+            for (int i = 0; i < length; i++) {
+                if (i % BLOCK_SIZE == 0) {
+                    /* the skip entry of the block starting here */
+                    int lastInBlock = Math.min(i + BLOCK_SIZE, length) - 1;
+                    skipTable.putInt(docIds[lastInBlock]);
+                    skipTable.putInt(out.size());
+                    int max = maxTermFrequencyPosting(docIds, frequencies,
+                            docLengths, i, lastInBlock + 1);
+                    skipTable.putInt(frequencies[max]);
+                    skipTable.putInt(docLengths[docIds[max]]);
+                }
+                VarInt.write(out, docIds[i] - previousDocId);
+                VarInt.write(out, frequencies[i]);
+                previousDocId = docIds[i];
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] encoded = new byte[skipTable.capacity() + blockBytes.size()];
+        System.arraycopy(skipTable.array(), 0, encoded, 0,
+                skipTable.capacity());
+        System.arraycopy(blockBytes.toByteArray(), 0, encoded,
+                skipTable.capacity(), blockBytes.size());
+        return encoded;
+    }
+
+    /**
+     * Finds the posting with the highest term frequency (frequency / length
+     * of the document) in a range of postings.
+     *
+     * @param docIds      the document ids.
+     * @param frequencies the frequencies of the token in the documents.
+     * @param docLengths  the amount of tokens per document.
+     * @param from        the first posting of the range.
+     * @param to          the end of the range, exclusive.
+     * @return the position of the posting.
+     */
+    private static int maxTermFrequencyPosting(final int[] docIds,
+            final int[] frequencies, final int[] docLengths, final int from,
+            final int to) {
+        int max = from;
+        for (int i = from + 1; i < to; i++) {
+            if ((double) frequencies[i] / docLengths[docIds[i]]
+                    > (double) frequencies[max] / docLengths[docIds[max]]) {
+                max = i;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Creates a new iterator over the postings. The weight of a posting is
+     * frequency / length of the document * idf.
+     *
+     * @param idf        the IDF score of the token.
+     * @param docLengths the amount of tokens per document, indexed by
+     *                   document id.
+     * @return a {@link PostingIterator} positioned before the first posting.
+     */
+    public PostingIterator iterator(final double idf,
+            final IntBuffer docLengths) {
+        return new BlockPostingIterator(idf, docLengths);
+    }
+
+    /**
+     * Returns the last document id of a block from the skip table.
+     *
+     * @param block the number of the block.
+     * @return the last document id in that block.
+     */
+    private int lastDocIdOfBlock(final int block) {
+        return data.getInt(block * SKIP_ENTRY_BYTES);
+    }
+
+    /**
+     * Returns the highest term frequency of a block from the skip table.
+     *
+     * @param block the number of the block.
+     * @return the highest term frequency (frequency / length) in that
+     *         block.
+     */
+    private double maxTermFrequencyOfBlock(final int block) {
+        int position = block * SKIP_ENTRY_BYTES + 2 * Integer.BYTES;
+        return (double) data.getInt(position)
+                / data.getInt(position + Integer.BYTES);
+    }
+
+    /**
+     * Returns the position of the first byte of a block.
+     *
+     * @param block the number of the block.
+     * @return the position of the block in the encoded data.
+     */
+    private int positionOfBlock(final int block) {
+        return blockCount * SKIP_ENTRY_BYTES
+                + data.getInt(block * SKIP_ENTRY_BYTES + Integer.BYTES);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the amount of postings, which is the document frequency of the
+     * token.
+     *
+     * @return the amount of postings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the size of the encoded postings in bytes.
+     *
+     * @return the amount of bytes including the skip table.
+     */
+    public int getByteSize() {
+        return data.limit();
+    }
+
+    /**
+     * A {@link PostingIterator} that decodes one block at a time into
+     * primitive buffers.
+     */
+    private final class BlockPostingIterator implements PostingIterator {
+
+        /**
+         * The IDF score of the token.
+         */
+        private final double idf;
+
+        /**
+         * The amount of tokens per document.
+         */
+        private final IntBuffer docLengths;
+
+        /**
+         * A view of the data with an own position.
+         */
+        private final ByteBuffer in;
+
+        /**
+         * The decoded document ids of the current block.
+         */
+        private final int[] docBuffer = new int[BLOCK_SIZE];
+
+        /**
+         * The decoded frequencies of the current block.
+         */
+        private final int[] frequencyBuffer = new int[BLOCK_SIZE];
+
+        /**
+         * The number of the decoded block, -1 before the first one.
+         */
+        private int block = -1;
+
+        /**
+         * The amount of postings in the decoded block.
+         */
+        private int blockLength;
+
+        /**
+         * The position of the current posting in the decoded block.
+         */
+        private int index;
+
+        /**
+         * The current document id.
+         */
+        private int doc = -1;
+
+        /**
+         * The upper bound of all weights, calculated on the first call of
+         * {@link #maxWeight()}, NaN before.
+         */
+        private float maxWeight = Float.NaN;
+
+        /**
+         * Creates a new iterator positioned before the first posting.
+         *
+         * @param idfScore   the IDF score of the token.
+         * @param lengths    the amount of tokens per document.
+         */
+        BlockPostingIterator(final double idfScore, final IntBuffer lengths) {
+            this.idf = idfScore;
+            this.docLengths = lengths;
+            this.in = data.duplicate();
+        }
+
+        @Override
+        public int docId() {
+            return doc;
+        }
+
+        @Override
+        public int next() {
+            if (doc == NO_MORE_DOCS) {
+                return doc;
+            }
+            if (index + 1 < blockLength) {
+                index++;
+            } else if (block + 1 < blockCount) {
+                decodeBlock(block + 1);
+                index = 0;
+            } else {
+                doc = NO_MORE_DOCS;
+                return doc;
+            }
+            doc = docBuffer[index];
+            return doc;
+        }
+
+        @Override
+        public int advance(final int target) {
+            if (doc == NO_MORE_DOCS) {
+                return doc;
+            }
+            if (block < 0 || lastDocIdOfBlock(block) < target) {
+                /* binary search of the first block that can hold target */
+                int low = block + 1;
+                int high = blockCount - 1;
+                while (low <= high) {
+                    int middle = (low + high) >>> 1;
+                    if (lastDocIdOfBlock(middle) < target) {
+                        low = middle + 1;
+                    } else {
+                        high = middle - 1;
+                    }
+                }
+                if (low >= blockCount) {
+                    doc = NO_MORE_DOCS;
+                    return doc;
+                }
+                decodeBlock(low);
+                index = 0;
+            } else {
+                index++;
+            }
+            /* the block holds a document id >= target, scan to it */
+            while (docBuffer[index] < target) {
+                index++;
+            }
+            doc = docBuffer[index];
+            return doc;
+        }
+
+        @Override
+        public float weight() {
+            double tfScore = (double) frequencyBuffer[index]
+                    / docLengths.get(doc);
+            return (float) (tfScore * idf);
+        }
+
+        @Override
+        public int cost() {
+            return size;
+        }
+
+        @Override
+        public float maxWeight() {
+            if (Float.isNaN(maxWeight)) {
+                double maxTermFrequency = 0.0;
+                for (int i = 0; i < blockCount; i++) {
+                    maxTermFrequency = Math.max(maxTermFrequency,
+                            maxTermFrequencyOfBlock(i));
+                }
+                maxWeight = weightOf(maxTermFrequency);
+            }
+            return maxWeight;
+        }
+
+        @Override
+        public int blockLastDocId() {
+            if (block < 0 || doc == NO_MORE_DOCS) {
+                return NO_MORE_DOCS;
+            }
+            return lastDocIdOfBlock(block);
+        }
+
+        @Override
+        public float blockMaxWeight() {
+            if (block < 0 || doc == NO_MORE_DOCS) {
+                return maxWeight();
+            }
+            return weightOf(maxTermFrequencyOfBlock(block));
+        }
+
+        /**
+         * Calculates the weight of a posting with the given term frequency
+         * the same way as {@link #weight()}, so the weight of the highest
+         * term frequency is the highest weight.
+         *
+         * @param termFrequency the term frequency (frequency / length).
+         * @return the weight.
+         */
+        private float weightOf(final double termFrequency) {
+            return (float) (termFrequency * idf);
+        }
+
+        /**
+         * Decodes a block into the buffers.
+         *
+         * @param newBlock the number of the block to decode.
+         */
+        private void decodeBlock(final int newBlock) {
+            in.position(positionOfBlock(newBlock));
+            int previousDocId;
+            if (newBlock == 0) {
+                previousDocId = 0;
+            } else {
+                previousDocId = lastDocIdOfBlock(newBlock - 1);
+            }
+            blockLength = Math.min(BLOCK_SIZE, size - newBlock * BLOCK_SIZE);
+            for (int i = 0; i < blockLength; i++) {
+                previousDocId += VarInt.read(in);
+                docBuffer[i] = previousDocId;
+                frequencyBuffer[i] = VarInt.read(in);
+            }
+            block = newBlock;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The {@code DocumentVector} class is a sparse vector of TFIDF weights. Only
+ * the tokens with a weight different from 0.0 are stored, as two parallel
+ * primitive arrays of term ids (see {@link TermDictionary}) and weights which
+ * are sorted by term id. The euclidean norm is calculated once when the
+ * vector is created.
+ *
+ * <p>
+ * The memory of a vector therefore grows with the amount of distinct tokens
+ * of a website and not with the size of the whole vocabulary, and the dot
+ * product only has to look at the tokens both vectors have in common.
+ * </p>
+ */
+public final class DocumentVector {
+
+    /**
+     * The vector without any entries.
+     */
+    public static final DocumentVector EMPTY = new DocumentVector(
+            new int[0], new double[0]);
+
+    /**
+     * The term ids of the entries in ascending order.
+     */
+    private final int[] termIds;
+
+    /**
+     * The weights of the entries, weights[i] belongs to termIds[i].
+     */
+    private final double[] weights;
+
+    /**
+     * The euclidean norm of the vector.
+     */
+    private final double norm;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code DocumentVector} from two parallel arrays. The
+     * arrays are taken over without a copy and must not be changed
+     * afterwards.
+     *
+     * @param sortedTermIds the term ids in strictly ascending order.
+     * @param termWeights   the weights of the term ids.
+     * @throws IllegalArgumentException if the arrays differ in length or
+     *                                  the term ids are not sorted.
+     */
+    DocumentVector(final int[] sortedTermIds, final double[] termWeights) {
+        if (sortedTermIds.length != termWeights.length) {
+            throw new IllegalArgumentException(
+                    "term ids and weights must have the same length");
+        }
+        double squareSum = 0.0;
+        for (int i = 0; i < sortedTermIds.length; i++) {
+            if (i > 0 && sortedTermIds[i - 1] >= sortedTermIds[i]) {
+                throw new IllegalArgumentException(
+                        "term ids must be sorted in ascending order");
+            }
+            squareSum += termWeights[i] * termWeights[i];
+        }
+        this.termIds = sortedTermIds;
+        this.weights = termWeights;
+        this.norm = Math.sqrt(squareSum);
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Creates a new {@code DocumentVector} from a map of term ids and
+     * weights. Entries with a weight of 0.0 are left out.
+     *
+     * @param weightPerTermId a map of term ids and their weights.
+     * @return the sparse vector of the map.
+     */
+    public static DocumentVector of(final Map<Integer, Double>
+     weightPerTermId) {
+        int[] ids = weightPerTermId.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0.0)
+                .mapToInt(Map.Entry::getKey)
+                .sorted()
+                .toArray();
+        double[] values = new double[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = weightPerTermId.get(ids[i]);
+        }
+        return new DocumentVector(ids, values);
+    }
+
+    /**
+     * Calculates the dot product of this vector and another vector. Both
+     * entry arrays are walked through once in parallel (merge join), so only
+     * the non-zero entries are touched.
+     *
+     * @param other the second vector.
+     * @return the dot product of both vectors.
+     */
+    public double dot(final DocumentVector other) {
+        double dotProduct = 0.0;
+        int i = 0;
+        int j = 0;
+        while (i < termIds.length && j < other.termIds.length) {
+            int idA = termIds[i];
+            int idB = other.termIds[j];
+            if (idA == idB) {
+                dotProduct += weights[i] * other.weights[j];
+                i++;
+                j++;
+            } else if (idA < idB) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return dotProduct;
+    }
+
+    /**
+     * Calculates the cosine similarity of this vector and another vector.
+     *
+     * <pre>
+     * Formula:
+     * cosine similarity = (a·b) / (||a|| * ||b||).
+     * </pre>
+     *
+     * @param other the second vector.
+     * @return the cosine similarity, or 0.0 if one of the vectors has a
+     *         norm of zero.
+     */
+    public double cosineSimilarity(final DocumentVector other) {
+        if (norm == 0.0 || other.norm == 0.0) {
+            return 0.0;
+        }
+        return dot(other) / (norm * other.norm);
+    }
+
+    /**
+     * Returns the weight of the given term id.
+     *
+     * @param termId the term id to look up.
+     * @return the weight of the term or 0.0 if it isn't part of the vector.
+     */
+    public double getWeight(final int termId) {
+        int position = Arrays.binarySearch(termIds, termId);
+        if (position < 0) {
+            return 0.0;
+        }
+        return weights[position];
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the amount of non-zero entries.
+     *
+     * @return the amount of entries of the vector.
+     */
+    public int size() {
+        return termIds.length;
+    }
+
+    /**
+     * Returns the term id of the entry at the given position.
+     *
+     * @param position the position of the entry (0 to size - 1).
+     * @return the term id of the entry.
+     */
+    public int getTermIdAt(final int position) {
+        return termIds[position];
+    }
+
+    /**
+     * Returns the weight of the entry at the given position.
+     *
+     * @param position the position of the entry (0 to size - 1).
+     * @return the weight of the entry.
+     */
+    public double getWeightAt(final int position) {
+        return weights[position];
+    }
+
+    /**
+     * Returns the euclidean norm of the vector.
+     *
+     * @return the norm of the vector.
+     */
+    public double getNorm() {
+        return norm;
+    }
+}
@@ -1,12 +1,23 @@
 package de.fernunihagen.dbis.anguillasearch.indexing;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
 import de.fernunihagen.dbis.anguillasearch.util.StringTokenizer;
@@ -20,14 +31,63 @@ import de.fernunihagen.dbis.anguillasearch.util.StringTokenizer;
  * <ul>
  * <li>Calculates the forward index, which maps each website url to a list
  * of its tokenized and lemmatized website content.</li>
- * <li>Calculates the reverse index without TFIDF scores, and maps each token
- * to the set of website urls where it occurs.</li>
- * <li>Calculates the TFIDF scores for all tokens in the reverse index and
- * puts them into a new map.</li>
+ * <li>Counts in one pass over every token list how often each token occurs
+ * on the website (term frequencies).</li>
+ * <li>Assigns every website a document id and collects for each token the
+ * ids of the websites where it occurs.</li>
+ * <li>Compresses the postings of all tokens into an {@link InvertedIndex},
+ * which calculates the TFIDF scores from the stored frequencies.</li>
+ * <li>Creates a sparse {@link DocumentVector} of the TFIDF scores for every
+ * website on request, which only holds the tokens that occur on the
+ * website.</li>
  * </ul>
  *
  * <p>
- * The indices are constructed at initialization.
+ * The websites given to the constructor are indexed at initialization.
+ * Afterwards single websites can be added, replaced and deleted with
+ * {@link #addDocument(WebsiteData)}, {@link #replaceDocument(WebsiteData)}
+ * and {@link #deleteDocument(String)}. An update only touches the tokens of
+ * the changed website: the postings store the frequencies of the tokens and
+ * the document frequencies are counted along, every weight that depends on
+ * the IDF scores is calculated when it is read. A deleted website keeps its
+ * document id, a replaced website gets a new one.
+ *
+ * <p>
+ * The compressed {@link InvertedIndex}, the {@link TermDictionary} and the
+ * document vectors are published as an immutable {@link IndexSnapshot}.
+ * {@link #refresh()} creates a new snapshot after updates and makes it
+ * visible with a single atomic reference swap. It only compresses the
+ * postings of the tokens that changed since the last snapshot again, the
+ * compressed postings of all other tokens are shared with it. The document
+ * ids and the term ids of the snapshots are the ones of the builder: the id
+ * of a deleted website stays unused and a token keeps its id while it
+ * doesn't occur on any website. The norms, the document vectors and the
+ * forward index of a snapshot are calculated on their first use.
+ * {@link #getSnapshot()} returns the last published snapshot without
+ * locking, so searches on other threads never wait for an update and keep
+ * the snapshot they started with. The getters of the indexes refresh the
+ * snapshot first and return its unmodifiable maps without copying them.
+ *
+ * <p>
+ * {@link #getSearchIndex()} returns a {@link SearchIndex} whose methods
+ * read the current state of the builder, they must only be called by the
+ * thread that updates the builder. Its {@link SearchIndex#snapshot()} is the
+ * index of the last published snapshot, so a search on it only sees the
+ * updates published by {@link #refresh()}. Updates and refreshes are
+ * synchronized.
+ *
+ * <p>
+ * A {@link RefreshListener} is told about every published snapshot along
+ * with the tokens whose postings changed since the previous one, e.g. to
+ * invalidate cached search results of those tokens only.
+ *
+ * <p>
+ * With a {@link ForkJoinPool} the websites given to the constructor are
+ * indexed in parallel: they are split into {@link IndexShard}s of
+ * consecutive websites, which are tokenized and counted on the pool and
+ * appended to each other in their order. Since every website keeps its
+ * position as document id, the result is the same as the one of a
+ * sequential build.
  *
  * <p>
  * Exceptions are thrown if the input list is null or empty, or if an error
@@ -36,45 +96,154 @@ import de.fernunihagen.dbis.anguillasearch.util.StringTokenizer;
 public class IndexBuilder {
 
     /**
-     * the forward index (a map of urls mapped to a list of tokens which are
-     * the tokenized and lemmatized content of the corresponding site
-     * (title,header,body)).
+     * Logger for the output or info or error messages.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            IndexBuilder.class);
+
+    /**
+     * Capacity of the arrays per document id of a new builder.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The compressed postings of a token that doesn't occur anymore.
+     */
+    private static final ByteBuffer NO_POSTINGS = ByteBuffer.allocate(0)
+            .asReadOnlyBuffer();
+
+    /**
+     * the forward index (document id -> list of tokens which are the
+     * tokenized and lemmatized content of the corresponding site
+     * (title,header,body), null if the site was deleted).
+     */
+    private final List<List<String>> forwardIndex;
+
+    /**
+     * the term frequencies (stores for each document id a mapping from the
+     * token to the amount of its occurences on the corresponding site, null
+     * if the site was deleted). A map is never changed after it was added.
+     */
+    private final List<Map<String, Integer>> termFrequencies;
+
+    /**
+     * the reverse index without TFIDF scores (a token gets mapped to the
+     * document ids and frequencies of the sites the token occurs on). It
+     * may still hold postings of deleted sites.
+     */
+    private final Map<String, PostingListBuilder> reverseIndexHelper;
+
+    /**
+     * the document frequencies (a token gets mapped to the amount of sites
+     * it occurs on that are not deleted).
+     */
+    private final Map<String, Integer> documentFrequencies;
+
+    /**
+     * the url table, document id -> url (null if the site was deleted).
+     */
+    private final List<String> urls;
+
+    /**
+     * the indexed websites, document id -> website (null if the site was
+     * deleted).
+     */
+    private final List<WebsiteData> websites;
+
+    /**
+     * the reverse url table, url -> document id of the sites that are not
+     * deleted.
+     */
+    private final Map<String, Integer> docIds;
+
+    /**
+     * the document ids of the deleted sites.
+     */
+    private final BitSet deletedDocs;
+
+    /**
+     * Cache of already analyzed website contents, may be null if every
+     * website shall be processed by the {@link StringTokenizer}.
      */
-    private Map<String, List<String>> forwardIndex;
+    private final AnalysisCache analysisCache;
 
     /**
-     * the forward index with TFIDF scores (stores for each url a mapping from
-     * the token to the
-     * TFIDF score for that url).
+     * The pool the initial websites are processed on, null for a sequential
+     * build.
      */
+    private final ForkJoinPool pool;
 
-    private Map<String, Map<String, Double>> forwardIndexTfIdf;
     /**
-     * the reverse index without TFIDF scores(a token gets mapped to a set of
-     * urls on which sites the token occurs).
+     * The view of the current state as {@link SearchIndex}.
      */
-    private Map<String, Set<String>> reverseIndexHelper;
+    private final SearchIndex searchIndex;
 
     /**
-     * the reverse index (stores for each token a mapping from the url to the
-     * TFIDF score for that token).
+     * the amount of tokens per site, document id -> length.
      */
-    private Map<String, Map<String, Double>> reverseIndex;
+    private int[] docLengths;
 
     /**
-     * total number of indexed websites.
+     * the norms of the TFIDF vectors of the sites, valid if the version in
+     * {@link #normVersions} is the current {@link #modificationCount}.
+     */
+    private double[] norms;
+
+    /**
+     * the {@link #modificationCount} at which each norm was calculated.
+     */
+    private long[] normVersions;
+
+    /**
+     * the term table of the published snapshots, term id -> token. Only
+     * the ids after the ones of the last snapshot are written.
+     */
+    private String[] terms;
+
+    /**
+     * the term ids of the published snapshots, token -> term id. It is read
+     * by the dictionaries of the snapshots while it grows.
+     */
+    private final Map<String, Integer> termIds;
+
+    /**
+     * the compressed postings of the last published snapshot, term id ->
+     * postings. The array is shared with the snapshot and never changed.
+     */
+    private ByteBuffer[] publishedPostings;
+
+    /**
+     * the document frequencies of the last published snapshot, term id ->
+     * amount of sites. The array is shared with the snapshot and never
+     * changed.
+     */
+    private int[] publishedFrequencies;
+
+    /**
+     * total number of indexed websites that are not deleted.
      */
     private int totalWebsites;
 
     /**
-     * list of website data to be indexed.
+     * counts every change of the indexed websites.
+     */
+    private long modificationCount;
+
+    /**
+     * the last published snapshot of the compressed reverse index, the
+     * document vectors and the forward index.
      */
-    private List<WebsiteData> dataToIndex;
+    private final AtomicReference<IndexSnapshot> snapshot;
 
     /**
-     * Set of all Tokens that occur in the indexed data.
+     * the tokens whose postings changed since the last published snapshot.
      */
-    private Set<String> setOfAllTokens;
+    private final Set<String> changedTokens;
+
+    /**
+     * the listeners that are told about every published snapshot.
+     */
+    private final List<RefreshListener> refreshListeners;
 
     // ============================constructors===========================//
 
@@ -89,28 +258,97 @@ public class IndexBuilder {
      *                                  of the indexes and score calculation.
      */
     public IndexBuilder(final List<WebsiteData> data) {
+        this(data, null);
+    }
+
+    /**
+     * Constructs an {@code IndexBuilder} instance for the list of
+     * {@code WebsiteData}. Websites whose content is found in the given
+     * {@link AnalysisCache} are not processed by the {@link StringTokenizer}
+     * again.
+     *
+     * @param data  a list of {@code WebsiteData} objects with the websites
+     *              to index and calculate the TFIDF score for.
+     * @param cache the cache of analyzed website contents, or null to
+     *              process every website.
+     * @throws IllegalArgumentException if the provided list is null or empty.
+     * @throws IllegalStateException    if an error occurs during the building
+     *                                  of the indexes and score calculation.
+     */
+    public IndexBuilder(final List<WebsiteData> data,
+            final AnalysisCache cache) {
+        this(data, cache, null);
+    }
+
+    /**
+     * Constructs an {@code IndexBuilder} instance for the list of
+     * {@code WebsiteData} like {@link #IndexBuilder(List, AnalysisCache)},
+     * but builds the indexes in parallel on the given pool.
+     *
+     * @param data       a list of {@code WebsiteData} objects with the
+     *                   websites to index and calculate the TFIDF score
+     *                   for.
+     * @param cache      the cache of analyzed website contents, or null to
+     *                   process every website.
+     * @param workerPool the pool to build the indexes on, or null for a
+     *                   sequential build.
+     * @throws IllegalArgumentException if the provided list is null or empty.
+     * @throws IllegalStateException    if an error occurs during the building
+     *                                  of the indexes and score calculation.
+     */
+    public IndexBuilder(final List<WebsiteData> data,
+            final AnalysisCache cache, final ForkJoinPool workerPool) {
         if (data == null || data.isEmpty()) {
             throw new IllegalArgumentException(
                     "the provided List can not be empty");
         }
         /* initialization of fields */
-        this.dataToIndex = new ArrayList<>(data);
-        this.forwardIndex = new HashMap<>();
+        this.forwardIndex = new ArrayList<>();
+        this.termFrequencies = new ArrayList<>();
         this.reverseIndexHelper = new HashMap<>();
-        this.reverseIndex = new HashMap<>();
-        this.totalWebsites = data.size();
-        this.forwardIndexTfIdf = new HashMap<>();
-        this.setOfAllTokens = new HashSet<>();
+        this.documentFrequencies = new HashMap<>();
+        this.urls = new ArrayList<>();
+        this.websites = new ArrayList<>();
+        this.docIds = new HashMap<>();
+        this.deletedDocs = new BitSet();
+        this.docLengths = new int[INITIAL_CAPACITY];
+        this.norms = new double[INITIAL_CAPACITY];
+        this.normVersions = new long[INITIAL_CAPACITY];
+        this.terms = new String[INITIAL_CAPACITY];
+        this.termIds = new ConcurrentHashMap<>();
+        this.publishedPostings = new ByteBuffer[0];
+        this.publishedFrequencies = new int[0];
+        this.analysisCache = cache;
+        this.pool = workerPool;
+        this.searchIndex = new LiveIndex();
+        this.snapshot = new AtomicReference<>();
+        this.changedTokens = new HashSet<>();
+        this.refreshListeners = new CopyOnWriteArrayList<>();
         /*
          * calculation of indexes, try catch in case something goes
          * wrong. Mitigation of half initialized object.
          */
         try {
-            calculateForwardIndex();
-            calculateReverseIndex();
-            calculateTFIDFScore();
-            setOfAllTokens.addAll(reverseIndexHelper.keySet());
-            calculateForwardIndexTfIdf();
+            /*
+             * websites with the same url are only indexed once, at the
+             * position of the first and with the content of the last one
+             */
+            Map<String, WebsiteData> websitesPerUrl = new LinkedHashMap<>();
+            for (WebsiteData website : data) {
+                websitesPerUrl.put(website.getUrlOfSite(), website);
+            }
+            if (pool == null) {
+                for (WebsiteData website : websitesPerUrl.values()) {
+                    indexDocument(website);
+                }
+            } else {
+                List<WebsiteData> uniqueWebsites = new ArrayList<>(
+                        websitesPerUrl.values());
+                addShard(pool.invoke(new IndexShard.BuildTask(
+                        uniqueWebsites, 0, uniqueWebsites.size(),
+                        this::tokenize)));
+            }
+            refresh();
         } catch (Exception e) {
             throw new IllegalStateException(
                     "IndexBuilder could not be initialized",
@@ -121,88 +359,274 @@ public class IndexBuilder {
     // ==============================methods==============================//
 
     /**
-     * Calculates the forward index, which maps each website url to a list of
-     * its tokenized and lemmatized website content.
+     * Adds a website to the index.
+     *
+     * @param data the website to add.
+     * @throws IllegalArgumentException if a website with the same url is
+     *                                  already indexed.
      */
-    private void calculateForwardIndex() {
-        for (WebsiteData data : dataToIndex) {
-            forwardIndex.put(
-                    data.getUrlOfSite(),
-                    StringTokenizer.tokenizeAndLemmatize(data));
+    public synchronized void addDocument(final WebsiteData data) {
+        if (docIds.containsKey(data.getUrlOfSite())) {
+            throw new IllegalArgumentException(
+                    "url is already indexed: " + data.getUrlOfSite());
         }
+        indexDocument(data);
     }
 
     /**
-     * Calculates the reverse index without TFIDF scores, and maps each token
-     * to the set of website urls where it occurs.
-     */
-    private void calculateReverseIndex() {
-        for (Map.Entry<String, List<String>> entry : forwardIndex.entrySet()) {
-            String forwardKey = entry.getKey();
-            List<String> forwardValues = entry.getValue();
-
-            // Iteriere über die Liste der Strings im forwardIndex
-            for (String value : forwardValues) {
-                /*
-                 * Prüfe, ob der String bereits als Key im reverseIndex
-                 * existiert
-                 */
-                reverseIndexHelper.computeIfAbsent(
-                        value, val -> new HashSet<>());
-                /*
-                 * Füge den aktuellen Key des forwardIndex zur Liste im
-                 * reverseIndex hinzu
-                 */
-                reverseIndexHelper.get(value).add(forwardKey);
+     * Replaces the indexed website with the same url by the given website.
+     * If the url isn't indexed yet the website is added.
+     *
+     * @param data the new content of the website.
+     * @return true if an indexed website was replaced, false if it was
+     *         added.
+     */
+    public synchronized boolean replaceDocument(final WebsiteData data) {
+        boolean replaced = deleteDocument(data.getUrlOfSite());
+        indexDocument(data);
+        return replaced;
+    }
+
+    /**
+     * Deletes a website from the index. Only the postings of the tokens of
+     * the website are touched, the posting list of a token is cleaned up
+     * once more than half of its postings belong to deleted websites.
+     *
+     * @param url the url of the website to delete.
+     * @return true if the website was deleted, false if it wasn't indexed.
+     */
+    public synchronized boolean deleteDocument(final String url) {
+        Integer docId = docIds.remove(url);
+        if (docId == null) {
+            return false;
+        }
+        Map<String, Integer> counts = termFrequencies.set(docId, null);
+        forwardIndex.set(docId, null);
+        deletedDocs.set(docId);
+        urls.set(docId, null);
+        websites.set(docId, null);
+        changedTokens.addAll(counts.keySet());
+        for (String token : counts.keySet()) {
+            int documentFrequency = documentFrequencies.merge(token, -1,
+                    Integer::sum);
+            if (documentFrequency == 0) {
+                documentFrequencies.remove(token);
+                reverseIndexHelper.remove(token);
+            } else {
+                PostingListBuilder postings = reverseIndexHelper.get(token);
+                if (postings.size() > 2 * documentFrequency) {
+                    postings.removeDocuments(deletedDocs);
+                }
             }
         }
+        totalWebsites--;
+        modificationCount++;
+        return true;
     }
 
     /**
-     * Calculates the TFIDF scores for all tokens in the reverse index.
+     * Tokenizes a website, assigns it the next document id and adds its
+     * tokens to the forward index, the term frequencies and the postings.
+     * If an {@link AnalysisCache} is present an unchanged website is taken
+     * from it.
+     *
+     * @param data the website to index, its url must not be indexed.
      */
-    private void calculateTFIDFScore() {
-        // retrieve Set of all Tokens
-        Set<String> tokens = reverseIndexHelper.keySet();
-        if (!tokens.isEmpty()) {
-            // iterate over all tokens and calculate the TFIDF score for every
-            // url where that token appears
-            for (String token : tokens) {
-                calculateTFIDFScoreHelper(token);
-            }
+    private void indexDocument(final WebsiteData data) {
+        String url = data.getUrlOfSite();
+        List<String> tokens = tokenize(data);
+        /*
+         * counts how often every token occurs on the website, the token
+         * list is only read once
+         */
+        Map<String, Integer> counts = new HashMap<>();
+        for (String token : tokens) {
+            counts.merge(token, 1, Integer::sum);
+        }
+
+        int docId = addWebsite(data, tokens, counts);
+        changedTokens.addAll(counts.keySet());
+        /*
+         * every distinct token of the site only has to be added once, the
+         * new id is the highest so every posting list stays sorted
+         */
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            reverseIndexHelper.computeIfAbsent(entry.getKey(),
+                    val -> new PostingListBuilder()).add(docId,
+                            entry.getValue());
+            documentFrequencies.merge(entry.getKey(), 1, Integer::sum);
         }
     }
 
     /**
-     * Helper method to calculate the TFIDF score for a token for the
-     * reverse index.
+     * Assigns a website the next document id and adds it to the url table,
+     * the forward index and the term frequencies. The postings are not
+     * touched.
      *
-     * @param token the token for which the score shall be calculated.
-     */
-    private void calculateTFIDFScoreHelper(final String token) {
-        List<String> urlsWhereTokenOccurs;
-        Double idfScore;
-        // if token exists in the reverse index helper
-        if (reverseIndexHelper.containsKey(token)) {
-            // calculate IDF score for that token
-            idfScore = calculateIDFScore(token);
-            // get all urls where the token occurs
-            urlsWhereTokenOccurs = new ArrayList<>(
-                    reverseIndexHelper.get(token));
-            // iterate over all urls
-            for (String url : urlsWhereTokenOccurs) {
-                /*
-                 * calculate tf and idf scores for the url in combination with
-                 * the token
-                 */
-                Double tfScore = calculateTFScore(token, url);
-                Double tfIdfScore = tfScore * idfScore;
-                // initialize a new map for the token if it doesn't exist yet
-                reverseIndex.computeIfAbsent(token, val -> new HashMap<>());
-                // add the url and corresponding score to the map for the token
-                reverseIndex.get(token).put(url, tfIdfScore);
+     * @param data   the website, its url must not be indexed.
+     * @param tokens the tokens of the website.
+     * @param counts the amount of occurences of every token.
+     * @return the document id of the website.
+     */
+    private int addWebsite(final WebsiteData data, final List<String> tokens,
+            final Map<String, Integer> counts) {
+        String url = data.getUrlOfSite();
+        int docId = urls.size();
+        if (docId == docLengths.length) {
+            docLengths = Arrays.copyOf(docLengths, docId * 2);
+            norms = Arrays.copyOf(norms, docId * 2);
+            normVersions = Arrays.copyOf(normVersions, docId * 2);
+        }
+        urls.add(url);
+        websites.add(data);
+        docIds.put(url, docId);
+        docLengths[docId] = tokens.size();
+        forwardIndex.add(tokens);
+        termFrequencies.add(counts);
+        totalWebsites++;
+        modificationCount++;
+        return docId;
+    }
+
+    /**
+     * Takes over the websites and postings of a shard that was built from
+     * the initial websites. The builder must not hold any website yet, the
+     * document ids of the shard start at 0.
+     *
+     * @param shard the shard of all initial websites.
+     */
+    private void addShard(final IndexShard shard) {
+        for (int i = 0; i < shard.getWebsites().size(); i++) {
+            addWebsite(shard.getWebsites().get(i), shard.getTokens().get(i),
+                    shard.getTermFrequencies().get(i));
+        }
+        reverseIndexHelper.putAll(shard.getPostings());
+        changedTokens.addAll(shard.getPostings().keySet());
+        for (Map.Entry<String, PostingListBuilder> entry : shard
+                .getPostings().entrySet()) {
+            documentFrequencies.put(entry.getKey(), entry.getValue().size());
+        }
+    }
+
+    /**
+     * Tokenizes and lemmatizes a website. If an {@link AnalysisCache} is
+     * present an unchanged website is taken from it. Can be called from
+     * several threads.
+     *
+     * @param data the website to tokenize.
+     * @return the tokens of the website.
+     */
+    private List<String> tokenize(final WebsiteData data) {
+        if (analysisCache != null) {
+            return analysisCache.tokenizeAndLemmatize(data);
+        }
+        return StringTokenizer.tokenizeAndLemmatize(data);
+    }
+
+    /**
+     * Publishes a new {@link IndexSnapshot} if a website was changed since
+     * the last one was created. Only the postings of the tokens that changed
+     * since then are compressed again. Searches that hold the old snapshot
+     * keep reading it, new searches get the new one. The registered
+     * {@link RefreshListener}s are told about the new snapshot after it was
+     * published.
+     *
+     * @return the current snapshot.
+     */
+    public synchronized IndexSnapshot refresh() {
+        IndexSnapshot published = snapshot.get();
+        if (published != null && published.getVersion() == modificationCount) {
+            return published;
+        }
+        published = new IndexSnapshot(modificationCount, updateInvertedIndex(),
+                new ArrayList<>(forwardIndex));
+        IndexSnapshot previous = snapshot.getAndSet(published);
+        Set<String> changed = Set.copyOf(changedTokens);
+        changedTokens.clear();
+        for (RefreshListener listener : refreshListeners) {
+            listener.refreshed(previous, published, changed);
+        }
+        return published;
+    }
+
+    /**
+     * Registers a listener that is told about every snapshot published
+     * after this call.
+     *
+     * @param listener the listener to register.
+     */
+    public void addRefreshListener(final RefreshListener listener) {
+        refreshListeners.add(listener);
+    }
+
+    /**
+     * Creates the {@link InvertedIndex} of the current state from the one of
+     * the last published snapshot. The TFIDF scores are not stored but
+     * calculated by the index from the frequencies, the lengths of the
+     * websites and the IDF scores of the tokens, so only the postings of the
+     * changed tokens are compressed again, without the deleted websites.
+     * Tokens that are new since the last snapshot get the next term ids in
+     * lexicographic order.
+     *
+     * @return the compressed reverse index.
+     */
+    private InvertedIndex updateInvertedIndex() {
+        List<String> newTokens = new ArrayList<>();
+        for (String token : changedTokens) {
+            if (!termIds.containsKey(token)
+                    && documentFrequencies.containsKey(token)) {
+                newTokens.add(token);
             }
         }
+        Collections.sort(newTokens);
+        int termCount = termIds.size() + newTokens.size();
+        if (termCount > terms.length) {
+            terms = Arrays.copyOf(terms, Math.max(termCount,
+                    terms.length * 2));
+        }
+        for (String token : newTokens) {
+            /* the term is written before its id can be looked up */
+            int termId = termIds.size();
+            terms[termId] = token;
+            termIds.put(token, termId);
+        }
+        ByteBuffer[] postingLists = Arrays.copyOf(publishedPostings,
+                termCount);
+        int[] frequencies = Arrays.copyOf(publishedFrequencies, termCount);
+        for (String token : changedTokens) {
+            Integer termId = termIds.get(token);
+            if (termId == null) {
+                /* added and deleted again since the last snapshot */
+                continue;
+            }
+            PostingListBuilder postings = reverseIndexHelper.get(token);
+            if (postings == null) {
+                postingLists[termId] = NO_POSTINGS;
+                frequencies[termId] = 0;
+            } else {
+                postings.removeDocuments(deletedDocs);
+                postingLists[termId] = ByteBuffer.wrap(
+                        CompressedPostingList.encode(postings.toDocIdArray(),
+                                postings.toFrequencyArray(), docLengths,
+                                postings.size())).asReadOnlyBuffer();
+                frequencies[termId] = postings.size();
+            }
+        }
+        publishedPostings = postingLists;
+        publishedFrequencies = frequencies;
+        InvertedIndex reverseIndex = new InvertedIndex(new TermDictionary(
+                terms, termIds, termCount), postingLists, frequencies,
+                Arrays.copyOf(docLengths, urls.size()),
+                urls.toArray(new String[0]),
+                websites.toArray(new WebsiteData[0]),
+                new ArrayList<>(termFrequencies));
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format("Published %d websites with %d tokens, "
+                    + "compressed the postings of %d changed tokens",
+                    totalWebsites, documentFrequencies.size(),
+                    changedTokens.size()));
+        }
+        return reverseIndex;
     }
 
     /**
@@ -220,12 +644,10 @@ public class IndexBuilder {
      *                                  the documents that got indexed.
      */
     public Double calculateIDFScore(final String token) {
-        if (reverseIndexHelper.containsKey(token)
-                && !reverseIndexHelper.get(token).isEmpty()) {
+        int documentFrequency = documentFrequencies.getOrDefault(token, 0);
+        if (documentFrequency > 0) {
             // calculate and return the score
-            return Math.log(
-                    (double) totalWebsites / reverseIndexHelper.get(
-                            token).size());
+            return calculateIDFScore(totalWebsites, documentFrequency);
         } else {
             throw new IllegalArgumentException(
                     "Token doesn't exist in any document");
@@ -233,80 +655,57 @@ public class IndexBuilder {
     }
 
     /**
-     * Calculates the TF score for a token on a website.
+     * Calculates the IDF score log(N / df).
      *
-     * Formula:
-     * TF(token, website) = frequency of token in website / total number of
-     * tokens in website.
-     *
-     * @param token   the token for which the TF score shall be calculated.
-     * @param website the website in which the TF score shall be calculated.
-     * @return the TF score as a double. Returns 0.0 if the website does not
-     *         exist in the forward index or if the token does not exist in
-     *         website.
-     */
-    private double calculateTFScore(final String token, final String website) {
-        // get all tokens for the webiste
-        List<String> tokensInWebsite = forwardIndex.get(website);
-        // if the website doesn't exist or the token isn't contained inside
-        // return 0.0 as score
-        if (tokensInWebsite == null || !tokensInWebsite.contains(token)) {
-            return 0.0;
-        }
-        // count how often the token occurs in the website
-        int frequency = Collections.frequency(tokensInWebsite, token);
-        // calculate the Score
-        return (double) frequency / tokensInWebsite.size();
+     * @param totalDocuments    the total number of documents (N).
+     * @param documentFrequency the number of documents containing the token.
+     * @return the IDF value.
+     */
+    private static double calculateIDFScore(final int totalDocuments,
+            final int documentFrequency) {
+        return Math.log((double) totalDocuments / documentFrequency);
     }
 
     /**
-     * Maps the TFIDF scores from the reverse index to the forward index
-     * with TFIDF. For every url a Map of (token -> TFIDF) is created
-     * and filled accordingly.
+     * Calculates the norm of the TFIDF vector of a website from its term
+     * frequencies and the current IDF scores, with the same weights the
+     * postings return.
+     *
+     * @param docId the document id of a website that is not deleted.
+     * @return the norm of the TFIDF vector.
      */
-    private void calculateForwardIndexTfIdf() {
-        /* iterates over all urls in the forwardindex */
-        for (String url : forwardIndex.keySet()) {
-            /*
-             * initializes a map for the vector of TFIDF scores for the
-             * current url. (token -> TFIDF)
-             */
-            Map<String, Double> urlVector = new HashMap<>();
-            /*
-             * iterates over the set of all occuring tokens in the indexed
-             * data
-             */
-            for (String token : setOfAllTokens) {
-                /*
-                 * if the token exists for this url put the value mapped to
-                 * the token into the urlVector else map a 0.0 to that token
-                 */
-                Double tfIdf = reverseIndex.get(token).get(url);
-                if (tfIdf != null) {
-                    urlVector.put(token, tfIdf);
-                } else {
-                    urlVector.put(token, 0.0);
-                }
-
-            }
-
-            /*
-             * map the urlvector to the corresponding url in the forward
-             * index
-             */
-            forwardIndexTfIdf.put(url, urlVector);
+    private double calculateNorm(final int docId) {
+        double squareSum = 0.0;
+        for (Map.Entry<String, Integer> entry : termFrequencies.get(docId)
+                .entrySet()) {
+            double tfScore = (double) entry.getValue() / docLengths[docId];
+            double weight = (float) (tfScore * calculateIDFScore(
+                    totalWebsites, documentFrequencies.get(entry.getKey())));
+            squareSum += weight * weight;
         }
+        return Math.sqrt(squareSum);
     }
 
     // ===========================getter/setter===========================//
 
+    /**
+     * Returns the last published snapshot without waiting for updates. It
+     * doesn't contain updates made after the last {@link #refresh()}.
+     *
+     * @return the last published {@link IndexSnapshot}.
+     */
+    public IndexSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
     /**
      * Returns the forward index.
      *
-     * @return the map with the forward index of all processed data.
+     * @return the unmodifiable map with the forward index of all processed
+     *         data.
      */
     public Map<String, List<String>> getForwardIndex() {
-        return new HashMap<>(forwardIndex);
+        return refresh().getForwardIndex();
     }
 
     /**
@@ -314,41 +713,189 @@ public class IndexBuilder {
      *
      * @return the total number processed websites.
      */
-    public int getTotalWebsites() {
+    public synchronized int getTotalWebsites() {
         return totalWebsites;
     }
 
     /**
-     * Returns the reverse index with TFIDF scores.
+     * Returns the reverse index with TFIDF scores. The maps are created from
+     * the posting lists of the {@link InvertedIndex} once per snapshot.
      *
-     * @return the map with the tokens mapped to urls and their corresponding
-     *         TFIDF scores.
+     * @return the unmodifiable map with the tokens mapped to urls and their
+     *         corresponding TFIDF scores.
      *         (Token ->(url->TFIDF)).
      */
     public Map<String, Map<String, Double>> getReverseIndex() {
-        return new HashMap<>(reverseIndex);
+        return refresh().getReverseIndex();
     }
 
     /**
-     * Returns a Set of all tokens of the crawled and indexed websites.
+     * Returns the reverse index with TFIDF scores as compressed posting
+     * lists. Its document ids are the ones of {@link #getSearchIndex()}, the
+     * ids of deleted websites are unused.
      *
-     * @return the map with the tokens mapped to urls and their corresponding
-     *         TFIDF scores.
-     *         (Token ->(url->TFIDF)).
+     * @return the {@link InvertedIndex} of the processed data.
      */
+    public InvertedIndex getInvertedIndex() {
+        return refresh().getInvertedIndex();
+    }
+
+    /**
+     * Returns a {@link SearchIndex} that reads the current state of this
+     * builder. Its methods see the updates of the builder immediately, the
+     * TFIDF weights and the norms are calculated from the current document
+     * frequencies. Its {@link SearchIndex#snapshot()}, which every search
+     * reads, is the index of the last published snapshot, so updates are
+     * only searched after {@link #refresh()}. A refresh only compresses the
+     * postings of the tokens that changed since the last one again.
+     *
+     * @return the live {@link SearchIndex} of the processed data.
+     */
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
 
+    /**
+     * Returns a Set of all tokens of the crawled and indexed websites.
+     *
+     * @return the unmodifiable set of all tokens.
+     */
     public Set<String> getSetOfAllTokens() {
-        return new HashSet<>(setOfAllTokens);
+        return refresh().getTokens();
     }
 
     /**
-     * Returns the forward index with TFIDF scores.
+     * Returns the forward index with TFIDF scores. The maps are created from
+     * the sparse document vectors once per snapshot, so tokens that don't
+     * occur on a site are not part of its map.
      *
-     * @return the map with the urls mapped to tokens and their corresponding
-     *         TFIDF scores.
+     * @return the unmodifiable map with the urls mapped to tokens and their
+     *         corresponding TFIDF scores.
      *         (url ->(Token->TFIDF)).
      */
     public Map<String, Map<String, Double>> getForwardIndexTfIdf() {
-        return new HashMap<>(forwardIndexTfIdf);
+        return refresh().getForwardIndexTfIdf();
+    }
+
+    /**
+     * Returns the forward index with TFIDF scores as sparse vectors. The
+     * vectors are created once per snapshot.
+     *
+     * @return the unmodifiable map with the urls mapped to their
+     *         {@link DocumentVector}.
+     */
+    public Map<String, DocumentVector> getDocumentVectors() {
+        return refresh().getDocumentVectors();
+    }
+
+    /**
+     * Returns the dictionary of the term ids used in the document vectors.
+     *
+     * @return the {@link TermDictionary} of the indexed data.
+     */
+    public TermDictionary getTermDictionary() {
+        return refresh().getTermDictionary();
+    }
+
+    /**
+     * A listener that is told about every {@link IndexSnapshot} published
+     * by {@link #refresh()}. It is called while the builder is locked, so it
+     * must not update the builder and should return quickly.
+     */
+    @FunctionalInterface
+    public interface RefreshListener {
+
+        /**
+         * Called after a new snapshot was published.
+         *
+         * @param previous      the snapshot that was replaced, null for the
+         *                      first snapshot of the builder.
+         * @param current       the published snapshot.
+         * @param changedTokens the tokens whose postings changed since the
+         *                      previous snapshot, including the tokens of
+         *                      deleted websites.
+         */
+        void refreshed(IndexSnapshot previous, IndexSnapshot current,
+                Set<String> changedTokens);
+    }
+
+    /**
+     * The {@link SearchIndex} view of the current state of the builder. The
+     * postings are read from the uncompressed posting lists.
+     */
+    private final class LiveIndex implements SearchIndex {
+
+        @Override
+        public PostingIterator postings(final String token) {
+            PostingListBuilder postings = reverseIndexHelper.get(token);
+            if (postings == null) {
+                return PostingList.EMPTY.iterator();
+            }
+            int documentFrequency = documentFrequencies.get(token);
+            double idf = IndexBuilder.calculateIDFScore(totalWebsites,
+                    documentFrequency);
+            return postings.iterator(idf, docLengths, deletedDocs,
+                    documentFrequency);
+        }
+
+        @Override
+        public int getDocumentFrequency(final String token) {
+            return documentFrequencies.getOrDefault(token, 0);
+        }
+
+        @Override
+        public int getDocumentCount() {
+            return totalWebsites;
+        }
+
+        @Override
+        public int getDocIdBound() {
+            return urls.size();
+        }
+
+        @Override
+        public String getUrl(final int docId) {
+            return urls.get(docId);
+        }
+
+        @Override
+        public int getDocId(final String url) {
+            return docIds.getOrDefault(url, -1);
+        }
+
+        @Override
+        public int getDocumentLength(final int docId) {
+            return docLengths[docId];
+        }
+
+        @Override
+        public double getDocumentNorm(final int docId) {
+            if (deletedDocs.get(docId)) {
+                return 0.0;
+            }
+            /* the norm is calculated again after every change */
+            if (normVersions[docId] != modificationCount) {
+                norms[docId] = calculateNorm(docId);
+                normVersions[docId] = modificationCount;
+            }
+            return norms[docId];
+        }
+
+        @Override
+        public WebsiteData getDocument(final int docId) {
+            return websites.get(docId);
+        }
+
+        /**
+         * Returns the compressed index of the last published snapshot, it
+         * doesn't contain the updates made after the last
+         * {@link #refresh()}.
+         *
+         * @return the {@link InvertedIndex} of {@link #getSnapshot()}.
+         */
+        @Override
+        public SearchIndex snapshot() {
+            return getSnapshot().getInvertedIndex();
+        }
     }
 }
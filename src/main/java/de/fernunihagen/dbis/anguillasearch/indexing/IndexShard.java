@@ -0,0 +1,225 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+
+/**
+ * The {@code IndexShard} class holds the forward index, the term
+ * frequencies and the postings of a consecutive range of websites. It is
+ * used by the parallel build of the {@link IndexBuilder}: every shard is
+ * built on its own thread and the shards are appended to each other in the
+ * order of their ranges.
+ *
+ * <p>
+ * The websites of a shard get the document ids their position in the whole
+ * list of websites, so the postings of a following shard only hold greater
+ * ids and can be appended to the posting lists without sorting. The result
+ * is the same as if all websites were indexed one after another.
+ * </p>
+ */
+final class IndexShard {
+
+    /**
+     * The amount of websites up to which a shard is built on one thread.
+     */
+    static final int SHARD_SIZE = 64;
+
+    /**
+     * The websites of the shard in the order of their document ids.
+     */
+    private final List<WebsiteData> websites;
+
+    /**
+     * The tokens of every website, in the order of {@link #websites}.
+     */
+    private final List<List<String>> tokens;
+
+    /**
+     * The amount of occurences of every token per website, in the order of
+     * {@link #websites}.
+     */
+    private final List<Map<String, Integer>> termFrequencies;
+
+    /**
+     * The postings of every token of the shard.
+     */
+    private final Map<String, PostingListBuilder> postings;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new empty {@code IndexShard}.
+     */
+    private IndexShard() {
+        this.websites = new ArrayList<>();
+        this.tokens = new ArrayList<>();
+        this.termFrequencies = new ArrayList<>();
+        this.postings = new HashMap<>();
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Builds the shard of a range of websites on the current thread.
+     *
+     * @param data      all websites to index.
+     * @param from      the first website of the shard (its document id).
+     * @param to        the end of the range, exclusive.
+     * @param tokenizer tokenizes and lemmatizes a website.
+     * @return the shard of the websites.
+     */
+    static IndexShard build(final List<WebsiteData> data, final int from,
+            final int to, final Function<WebsiteData, List<String>>
+            tokenizer) {
+        IndexShard shard = new IndexShard();
+        for (int docId = from; docId < to; docId++) {
+            WebsiteData website = data.get(docId);
+            List<String> websiteTokens = tokenizer.apply(website);
+            Map<String, Integer> counts = new HashMap<>();
+            for (String token : websiteTokens) {
+                counts.merge(token, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                shard.postings.computeIfAbsent(entry.getKey(),
+                        val -> new PostingListBuilder()).add(docId,
+                                entry.getValue());
+            }
+            shard.websites.add(website);
+            shard.tokens.add(websiteTokens);
+            shard.termFrequencies.add(counts);
+        }
+        return shard;
+    }
+
+    /**
+     * Appends the websites and postings of the shard of the following
+     * range to this shard.
+     *
+     * @param next the shard that starts where this one ends.
+     */
+    void append(final IndexShard next) {
+        websites.addAll(next.websites);
+        tokens.addAll(next.tokens);
+        termFrequencies.addAll(next.termFrequencies);
+        for (Map.Entry<String, PostingListBuilder> entry : next.postings
+                .entrySet()) {
+            PostingListBuilder postingList = postings.get(entry.getKey());
+            if (postingList == null) {
+                postings.put(entry.getKey(), entry.getValue());
+            } else {
+                postingList.addAll(entry.getValue());
+            }
+        }
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the websites of the shard.
+     *
+     * @return the websites in the order of their document ids.
+     */
+    List<WebsiteData> getWebsites() {
+        return websites;
+    }
+
+    /**
+     * Returns the tokens of every website.
+     *
+     * @return the tokens in the order of the websites.
+     */
+    List<List<String>> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Returns the amount of occurences of every token per website.
+     *
+     * @return the counts in the order of the websites.
+     */
+    List<Map<String, Integer>> getTermFrequencies() {
+        return termFrequencies;
+    }
+
+    /**
+     * Returns the postings of every token of the shard.
+     *
+     * @return the posting lists per token.
+     */
+    Map<String, PostingListBuilder> getPostings() {
+        return postings;
+    }
+
+    /**
+     * A fork/join task that builds the shard of a range of websites. Ranges
+     * with more than {@link #SHARD_SIZE} websites are split in half, the
+     * halves are built in parallel and the second one is appended to the
+     * first one.
+     */
+    static final class BuildTask extends RecursiveTask<IndexShard> {
+
+        /**
+         * Version of the serialized form.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * All websites to index.
+         */
+        private final transient List<WebsiteData> data;
+
+        /**
+         * The first website of the range.
+         */
+        private final int from;
+
+        /**
+         * The end of the range, exclusive.
+         */
+        private final int to;
+
+        /**
+         * Tokenizes and lemmatizes a website.
+         */
+        private final transient Function<WebsiteData, List<String>>
+                tokenizer;
+
+        /**
+         * Creates a new task for a range of websites.
+         *
+         * @param websites all websites to index.
+         * @param start    the first website of the range.
+         * @param end      the end of the range, exclusive.
+         * @param tokenize tokenizes and lemmatizes a website.
+         */
+        BuildTask(final List<WebsiteData> websites, final int start,
+                final int end,
+                final Function<WebsiteData, List<String>> tokenize) {
+            this.data = websites;
+            this.from = start;
+            this.to = end;
+            this.tokenizer = tokenize;
+        }
+
+        @Override
+        protected IndexShard compute() {
+            if (to - from <= SHARD_SIZE) {
+                return build(data, from, to, tokenizer);
+            }
+            int middle = (from + to) >>> 1;
+            BuildTask first = new BuildTask(data, from, middle, tokenizer);
+            first.fork();
+            IndexShard second = new BuildTask(data, middle, to, tokenizer)
+                    .compute();
+            IndexShard shard = first.join();
+            shard.append(second);
+            return shard;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@code IndexSnapshot} class is the immutable state of an
+ * {@link IndexBuilder} at one point in time. It holds the compressed
+ * {@link InvertedIndex}, the document vectors and the forward index of the
+ * websites that were indexed when it was created.
+ *
+ * <p>
+ * A snapshot never changes, so it can be read by any number of threads
+ * without locking and its getters return unmodifiable views instead of
+ * copies. The set of tokens, the forward index, the document vectors and
+ * the maps of the reverse index and of the forward index with TFIDF scores
+ * are created from the compressed index and the tokens of the websites on
+ * their first access and kept afterwards, so publishing a snapshot doesn't
+ * depend on them. Changes of the builder are published as a new snapshot,
+ * a search that holds an older one keeps reading a consistent state.
+ * </p>
+ */
+public final class IndexSnapshot {
+
+    /**
+     * The modification count of the builder this snapshot was created at.
+     */
+    private final long version;
+
+    /**
+     * The compressed reverse index.
+     */
+    private final InvertedIndex invertedIndex;
+
+    /**
+     * The tokens of every website, document id -> tokens (null if
+     * deleted).
+     */
+    private final List<List<String>> tokensPerDoc;
+
+    /**
+     * The forward index with TFIDF scores as sparse vectors, created on the
+     * first access. (url -> vector)
+     */
+    private volatile Map<String, DocumentVector> documentVectors;
+
+    /**
+     * The forward index, created on the first access. (url -> tokens of the
+     * website)
+     */
+    private volatile Map<String, List<String>> forwardIndex;
+
+    /**
+     * All tokens of the indexed websites, created on the first access.
+     */
+    private volatile Set<String> tokens;
+
+    /**
+     * The reverse index with TFIDF scores, created on the first access.
+     * (Token -> (url -> TFIDF))
+     */
+    private volatile Map<String, Map<String, Double>> reverseIndex;
+
+    /**
+     * The forward index with TFIDF scores, created on the first access.
+     * (url -> (Token -> TFIDF))
+     */
+    private volatile Map<String, Map<String, Double>> forwardIndexTfIdf;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code IndexSnapshot}. The list is taken over without a
+     * copy and must not be changed afterwards.
+     *
+     * @param modificationCount the modification count of the builder.
+     * @param index             the compressed reverse index.
+     * @param tokensOfDocs      the tokens of every website, indexed by the
+     *                          document ids of the index.
+     */
+    IndexSnapshot(final long modificationCount, final InvertedIndex index,
+            final List<List<String>> tokensOfDocs) {
+        this.version = modificationCount;
+        this.invertedIndex = index;
+        this.tokensPerDoc = tokensOfDocs;
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Creates the reverse index with TFIDF scores from the posting lists of
+     * the {@link InvertedIndex}.
+     *
+     * @return the unmodifiable map (Token -> (url -> TFIDF)).
+     */
+    private Map<String, Map<String, Double>> createReverseIndex() {
+        Map<String, Map<String, Double>> reverseIndexMap = new HashMap<>();
+        for (String token : getTokens()) {
+            PostingList postings = invertedIndex.getPostingList(token);
+            Map<String, Double> scoresPerUrl = new HashMap<>();
+            for (int i = 0; i < postings.size(); i++) {
+                scoresPerUrl.put(invertedIndex.getUrl(postings.getDocIdAt(i)),
+                        (double) postings.getWeightAt(i));
+            }
+            reverseIndexMap.put(token,
+                    Collections.unmodifiableMap(scoresPerUrl));
+        }
+        return Collections.unmodifiableMap(reverseIndexMap);
+    }
+
+    /**
+     * Creates the set of the tokens that occur on at least one website.
+     *
+     * @return the unmodifiable set of tokens.
+     */
+    private Set<String> createTokens() {
+        TermDictionary dictionary = invertedIndex.getTermDictionary();
+        List<String> terms = new ArrayList<>(dictionary.size());
+        for (int termId = 0; termId < dictionary.size(); termId++) {
+            String token = dictionary.getTerm(termId);
+            if (invertedIndex.getDocumentFrequency(token) > 0) {
+                terms.add(token);
+            }
+        }
+        return Set.copyOf(terms);
+    }
+
+    /**
+     * Creates the forward index in the order of the document ids.
+     *
+     * @return the unmodifiable map (url -> tokens of the website).
+     */
+    private Map<String, List<String>> createForwardIndex() {
+        Map<String, List<String>> forwardIndexMap = new LinkedHashMap<>();
+        for (int docId = 0; docId < tokensPerDoc.size(); docId++) {
+            if (tokensPerDoc.get(docId) != null) {
+                forwardIndexMap.put(invertedIndex.getUrl(docId),
+                        tokensPerDoc.get(docId));
+            }
+        }
+        return Collections.unmodifiableMap(forwardIndexMap);
+    }
+
+    /**
+     * Creates the sparse {@link DocumentVector} of (term id -> TFIDF) of
+     * every website from its term frequencies.
+     *
+     * @return the unmodifiable map (url -> {@link DocumentVector}).
+     */
+    private Map<String, DocumentVector> createDocumentVectors() {
+        TermDictionary dictionary = invertedIndex.getTermDictionary();
+        Map<String, DocumentVector> vectors = new HashMap<>();
+        for (int docId = 0; docId < invertedIndex.getDocIdBound(); docId++) {
+            Map<String, Integer> counts = invertedIndex.getTermFrequencies(
+                    docId);
+            if (counts == null) {
+                continue;
+            }
+            Map<Integer, Double> urlVector = new HashMap<>();
+            for (Map.Entry<String, Integer> token : counts.entrySet()) {
+                double tfScore = (double) token.getValue()
+                        / invertedIndex.getDocumentLength(docId);
+                urlVector.put(dictionary.getId(token.getKey()), tfScore
+                        * invertedIndex.calculateIDFScore(token.getKey()));
+            }
+            vectors.put(invertedIndex.getUrl(docId),
+                    DocumentVector.of(urlVector));
+        }
+        return Collections.unmodifiableMap(vectors);
+    }
+
+    /**
+     * Creates the forward index with TFIDF scores from the document
+     * vectors.
+     *
+     * @return the unmodifiable map (url -> (Token -> TFIDF)).
+     */
+    private Map<String, Map<String, Double>> createForwardIndexTfIdf() {
+        TermDictionary dictionary = invertedIndex.getTermDictionary();
+        Map<String, Map<String, Double>> forwardIndexMap = new HashMap<>();
+        for (Map.Entry<String, DocumentVector> entry : getDocumentVectors()
+                .entrySet()) {
+            DocumentVector vector = entry.getValue();
+            Map<String, Double> urlVector = new HashMap<>();
+            for (int i = 0; i < vector.size(); i++) {
+                urlVector.put(dictionary.getTerm(vector.getTermIdAt(i)),
+                        vector.getWeightAt(i));
+            }
+            forwardIndexMap.put(entry.getKey(),
+                    Collections.unmodifiableMap(urlVector));
+        }
+        return Collections.unmodifiableMap(forwardIndexMap);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the modification count of the builder this snapshot was
+     * created at.
+     *
+     * @return the version of the snapshot.
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the compressed reverse index. Its document ids are the ones of
+     * the builder, the ids of deleted websites are unused.
+     *
+     * @return the {@link InvertedIndex} of the snapshot.
+     */
+    public InvertedIndex getInvertedIndex() {
+        return invertedIndex;
+    }
+
+    /**
+     * Returns the reverse index with TFIDF scores. It is created on the
+     * first call, two threads calling at the same time may both create it.
+     *
+     * @return the unmodifiable map (Token -> (url -> TFIDF)).
+     */
+    public Map<String, Map<String, Double>> getReverseIndex() {
+        Map<String, Map<String, Double>> result = reverseIndex;
+        if (result == null) {
+            result = createReverseIndex();
+            reverseIndex = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the forward index with TFIDF scores. It is created on the
+     * first call, two threads calling at the same time may both create it.
+     *
+     * @return the unmodifiable map (url -> (Token -> TFIDF)).
+     */
+    public Map<String, Map<String, Double>> getForwardIndexTfIdf() {
+        Map<String, Map<String, Double>> result = forwardIndexTfIdf;
+        if (result == null) {
+            result = createForwardIndexTfIdf();
+            forwardIndexTfIdf = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the forward index with TFIDF scores as sparse vectors. It is
+     * created on the first call, two threads calling at the same time may
+     * both create it.
+     *
+     * @return the unmodifiable map (url -> {@link DocumentVector}).
+     */
+    public Map<String, DocumentVector> getDocumentVectors() {
+        Map<String, DocumentVector> result = documentVectors;
+        if (result == null) {
+            result = createDocumentVectors();
+            documentVectors = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the forward index. It is created on the first call, two
+     * threads calling at the same time may both create it.
+     *
+     * @return the unmodifiable map (url -> tokens of the website).
+     */
+    public Map<String, List<String>> getForwardIndex() {
+        Map<String, List<String>> result = forwardIndex;
+        if (result == null) {
+            result = createForwardIndex();
+            forwardIndex = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns all tokens of the indexed websites. The set is created on the
+     * first call, two threads calling at the same time may both create it.
+     *
+     * @return the unmodifiable set of tokens.
+     */
+    public Set<String> getTokens() {
+        Set<String> result = tokens;
+        if (result == null) {
+            result = createTokens();
+            tokens = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the dictionary of the term ids used in the document vectors.
+     * It can hold tokens that don't occur on any website anymore.
+     *
+     * @return the {@link TermDictionary} of the snapshot.
+     */
+    public TermDictionary getTermDictionary() {
+        return invertedIndex.getTermDictionary();
+    }
+}
@@ -0,0 +1,502 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+
+/**
+ * The {@code InvertedIndex} class is the compact reverse index of the
+ * indexed websites. Every website gets a document id (its position in the
+ * url table) and every token a term id (see {@link TermDictionary}). For
+ * each term id the index holds the postings of the token, compressed in the
+ * format of {@link CompressedPostingList}, in a buffer of its own.
+ *
+ * <p>
+ * The postings of a token are read with a {@link PostingIterator}, see
+ * {@link #postings(String)}. The TFIDF weight of a posting is calculated
+ * from the stored frequency, the length of the document and the IDF score of
+ * the token. An instance is immutable once created.
+ * </p>
+ *
+ * <p>
+ * Besides the postings the index holds the norms of the TFIDF vectors of
+ * the documents, which are calculated from the same weights the iterators
+ * return, and the indexed websites themselves. It can be written to a file
+ * with {@link MappedIndex#write(java.nio.file.Path, InvertedIndex,
+ * double[])}.
+ * </p>
+ *
+ * <p>
+ * The {@link IndexBuilder} publishes every state as a new index that
+ * shares the compressed postings of the unchanged tokens with the previous
+ * one. Its document ids are the ones of the builder, the ids of deleted
+ * websites stay unused, and the norms are calculated on their first use
+ * from the term frequencies of the websites.
+ * </p>
+ */
+public final class InvertedIndex implements SearchIndex {
+
+    /**
+     * Marks a calculated norm in {@link #norms}, norms are never negative so
+     * the sign bit of their bits is free.
+     */
+    private static final long CALCULATED = Long.MIN_VALUE;
+
+    /**
+     * The dictionary of the term ids.
+     */
+    private final TermDictionary termDictionary;
+
+    /**
+     * The compressed postings of every token, term id -> read only buffer
+     * starting at position 0.
+     */
+    private final ByteBuffer[] postingLists;
+
+    /**
+     * The size of the compressed postings of all tokens in bytes.
+     */
+    private final long postingsByteSize;
+
+    /**
+     * The document frequencies, term id -> amount of documents.
+     */
+    private final int[] documentFrequencies;
+
+    /**
+     * The amount of tokens per document, document id -> length.
+     */
+    private final IntBuffer docLengths;
+
+    /**
+     * The bits of the euclidean norms of the TFIDF vectors or'ed with
+     * {@link #CALCULATED}, 0 for a norm that isn't calculated yet.
+     */
+    private final AtomicLongArray norms;
+
+    /**
+     * The amount of occurences of every token per document, null if the
+     * norms were calculated when the index was created.
+     */
+    private final List<Map<String, Integer>> termFrequencies;
+
+    /**
+     * The indexed websites, document id -> website (null if deleted).
+     */
+    private final WebsiteData[] documents;
+
+    /**
+     * The url table, document id -> url (null if deleted).
+     */
+    private final String[] urls;
+
+    /**
+     * The amount of documents that are not deleted.
+     */
+    private final int documentCount;
+
+    /**
+     * The reverse url table, url -> document id, created on the first
+     * access.
+     */
+    private volatile Map<String, Integer> docIds;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code InvertedIndex}. The arrays and the list are taken
+     * over without a copy and must not be changed afterwards.
+     *
+     * @param dictionary        the dictionary of the term ids.
+     * @param postingBuffers    the compressed postings of every term id.
+     * @param frequencies       the document frequencies, indexed by term id.
+     * @param documentLengths   the amount of tokens per document, indexed
+     *                          by document id.
+     * @param urlTable          the urls of the documents, indexed by
+     *                          document id, null for deleted documents.
+     * @param websites          the indexed websites, indexed by document
+     *                          id, null for deleted documents.
+     * @param frequenciesPerDoc the amount of occurences of every token per
+     *                          document to calculate the norms from, or
+     *                          null if they are set by the caller.
+     * @throws IllegalArgumentException if the arrays don't fit to the
+     *                                  dictionary or the url table.
+     */
+    InvertedIndex(final TermDictionary dictionary,
+            final ByteBuffer[] postingBuffers, final int[] frequencies,
+            final int[] documentLengths, final String[] urlTable,
+            final WebsiteData[] websites,
+            final List<Map<String, Integer>> frequenciesPerDoc) {
+        if (postingBuffers.length != dictionary.size()
+                || frequencies.length != dictionary.size()) {
+            throw new IllegalArgumentException(
+                    "every term needs exactly one posting list");
+        }
+        if (documentLengths.length != urlTable.length
+                || websites.length != urlTable.length
+                || frequenciesPerDoc != null
+                        && frequenciesPerDoc.size() != urlTable.length) {
+            throw new IllegalArgumentException(
+                    "every document needs exactly one length, website and "
+                    + "set of term frequencies");
+        }
+        this.termDictionary = dictionary;
+        this.postingLists = postingBuffers;
+        this.documentFrequencies = frequencies;
+        this.docLengths = IntBuffer.wrap(documentLengths).asReadOnlyBuffer();
+        this.norms = new AtomicLongArray(urlTable.length);
+        this.termFrequencies = frequenciesPerDoc;
+        this.urls = urlTable;
+        this.documents = websites;
+        long byteSize = 0;
+        for (ByteBuffer postingList : postingBuffers) {
+            byteSize += postingList.limit();
+        }
+        this.postingsByteSize = byteSize;
+        int liveDocuments = 0;
+        for (String url : urlTable) {
+            if (url != null) {
+                liveDocuments++;
+            }
+        }
+        this.documentCount = liveDocuments;
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Creates a new {@code InvertedIndex} from the collected postings of the
+     * tokens by compressing them one after another into one buffer.
+     * Afterwards the norms of the documents are summed up from the weights
+     * of all postings.
+     *
+     * @param dictionary      the dictionary of the term ids.
+     * @param postingLists    the collected postings, indexed by term id.
+     * @param documentLengths the amount of tokens per document, indexed by
+     *                        document id.
+     * @param urlTable        the urls of the documents, indexed by document
+     *                        id.
+     * @param websites        the indexed websites, indexed by document id.
+     * @return the new index.
+     */
+    static InvertedIndex fromPostings(final TermDictionary dictionary,
+            final PostingListBuilder[] postingLists,
+            final int[] documentLengths, final String[] urlTable,
+            final WebsiteData[] websites) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int[] postingOffsets = new int[postingLists.length + 1];
+        int[] frequencies = new int[postingLists.length];
+        for (int termId = 0; termId < postingLists.length; termId++) {
+            PostingListBuilder postingList = postingLists[termId];
+            postingOffsets[termId] = out.size();
+            frequencies[termId] = postingList.size();
+            out.writeBytes(CompressedPostingList.encode(
+                    postingList.toDocIdArray(),
+                    postingList.toFrequencyArray(), documentLengths,
+                    postingList.size()));
+        }
+        postingOffsets[postingLists.length] = out.size();
+        ByteBuffer postings = ByteBuffer.wrap(out.toByteArray())
+                .asReadOnlyBuffer();
+        ByteBuffer[] postingBuffers = new ByteBuffer[postingLists.length];
+        for (int termId = 0; termId < postingLists.length; termId++) {
+            postings.limit(postingOffsets[termId + 1]);
+            postings.position(postingOffsets[termId]);
+            postingBuffers[termId] = postings.slice();
+        }
+        InvertedIndex index = new InvertedIndex(dictionary, postingBuffers,
+                frequencies, documentLengths, urlTable, websites, null);
+        double[] squareSums = new double[urlTable.length];
+        for (int termId = 0; termId < postingLists.length; termId++) {
+            PostingIterator iterator = index.postings(termId);
+            while (iterator.next() != PostingIterator.NO_MORE_DOCS) {
+                double weight = iterator.weight();
+                squareSums[iterator.docId()] += weight * weight;
+            }
+        }
+        for (int docId = 0; docId < squareSums.length; docId++) {
+            index.norms.set(docId, Double.doubleToLongBits(
+                    Math.sqrt(squareSums[docId])) | CALCULATED);
+        }
+        return index;
+    }
+
+    /**
+     * Returns an iterator over the postings of a token.
+     *
+     * @param token the token to look up.
+     * @return a {@link PostingIterator} over the postings of the token, which
+     *         is empty if the token doesn't occur in any document.
+     */
+    @Override
+    public PostingIterator postings(final String token) {
+        int termId = termDictionary.getId(token);
+        if (termId == TermDictionary.UNKNOWN_TERM
+                || documentFrequencies[termId] == 0) {
+            return PostingList.EMPTY.iterator();
+        }
+        return postings(termId);
+    }
+
+    /**
+     * Returns an iterator over the postings of a token whose weights are
+     * calculated with the given IDF score instead of the one of this index.
+     * A {@link SegmentedIndex} uses it to weight the postings of a segment
+     * with the document frequencies of all segments.
+     *
+     * @param token the token to look up.
+     * @param idf   the IDF score of the token.
+     * @return a {@link PostingIterator} over the postings of the token, which
+     *         is empty if the token doesn't occur in any document.
+     */
+    PostingIterator postings(final String token, final double idf) {
+        int termId = termDictionary.getId(token);
+        if (termId == TermDictionary.UNKNOWN_TERM
+                || documentFrequencies[termId] == 0) {
+            return PostingList.EMPTY.iterator();
+        }
+        return getCompressedPostingList(termId).iterator(idf, docLengths);
+    }
+
+    /**
+     * Returns an iterator over the postings of a term id.
+     *
+     * @param termId the term id.
+     * @return a {@link PostingIterator} over the postings of the term.
+     */
+    private PostingIterator postings(final int termId) {
+        return getCompressedPostingList(termId).iterator(
+                calculateIDFScore(termId), docLengths);
+    }
+
+    /**
+     * Decodes all postings of a token into a {@link PostingList}.
+     *
+     * @param token the token to look up.
+     * @return the postings of the token, or {@link PostingList#EMPTY} if
+     *         the token doesn't occur in any document.
+     */
+    public PostingList getPostingList(final String token) {
+        PostingIterator iterator = postings(token);
+        int[] ids = new int[iterator.cost()];
+        float[] weights = new float[iterator.cost()];
+        for (int i = 0; iterator.next() != PostingIterator.NO_MORE_DOCS;
+                i++) {
+            ids[i] = iterator.docId();
+            weights[i] = iterator.weight();
+        }
+        return new PostingList(ids, weights);
+    }
+
+    /**
+     * Returns the compressed postings of a term id.
+     *
+     * @param termId the term id.
+     * @return a view on the compressed postings.
+     */
+    private CompressedPostingList getCompressedPostingList(final int termId) {
+        return new CompressedPostingList(getPostingBytes(termId),
+                documentFrequencies[termId]);
+    }
+
+    /**
+     * Returns the compressed postings of a term id in the format of
+     * {@link CompressedPostingList}.
+     *
+     * @param termId the term id.
+     * @return a read only buffer of the postings, starting at position 0.
+     */
+    ByteBuffer getPostingBytes(final int termId) {
+        return postingLists[termId].duplicate();
+    }
+
+    /**
+     * Calculates the IDF score log(N / df) of a term id.
+     *
+     * @param termId the term id.
+     * @return the IDF score.
+     */
+    private double calculateIDFScore(final int termId) {
+        return Math.log((double) documentCount
+                / documentFrequencies[termId]);
+    }
+
+    /**
+     * Returns the amount of documents a token occurs in.
+     *
+     * @param token the token to look up.
+     * @return the document frequency of the token.
+     */
+    @Override
+    public int getDocumentFrequency(final String token) {
+        int termId = termDictionary.getId(token);
+        if (termId == TermDictionary.UNKNOWN_TERM) {
+            return 0;
+        }
+        return documentFrequencies[termId];
+    }
+
+    /**
+     * Returns the url of a document.
+     *
+     * @param docId the id of the document.
+     * @return the url of the document.
+     */
+    @Override
+    public String getUrl(final int docId) {
+        return urls[docId];
+    }
+
+    /**
+     * Returns the document id of an url.
+     *
+     * @param url the url to look up.
+     * @return the id of the document or -1 if the url isn't indexed.
+     */
+    @Override
+    public int getDocId(final String url) {
+        Map<String, Integer> ids = docIds;
+        if (ids == null) {
+            /* two threads calling at the same time may both create it */
+            ids = new HashMap<>(documentCount * 2);
+            for (int docId = 0; docId < urls.length; docId++) {
+                if (urls[docId] != null) {
+                    ids.put(urls[docId], docId);
+                }
+            }
+            docIds = ids;
+        }
+        return ids.getOrDefault(url, -1);
+    }
+
+    /**
+     * Returns the amount of tokens of a document.
+     *
+     * @param docId the id of the document.
+     * @return the length of the document.
+     */
+    @Override
+    public int getDocumentLength(final int docId) {
+        return docLengths.get(docId);
+    }
+
+    @Override
+    public double getDocumentNorm(final int docId) {
+        if (urls[docId] == null) {
+            return 0.0;
+        }
+        long bits = norms.get(docId);
+        if (bits != 0) {
+            return Double.longBitsToDouble(bits & ~CALCULATED);
+        }
+        double norm = calculateNorm(docId);
+        norms.set(docId, Double.doubleToLongBits(norm) | CALCULATED);
+        return norm;
+    }
+
+    /**
+     * Calculates the norm of the TFIDF vector of a document from its term
+     * frequencies, with the same weights the postings return.
+     *
+     * @param docId the id of a document that is not deleted.
+     * @return the norm of the TFIDF vector.
+     */
+    private double calculateNorm(final int docId) {
+        double squareSum = 0.0;
+        for (Map.Entry<String, Integer> entry : termFrequencies.get(docId)
+                .entrySet()) {
+            double tfScore = (double) entry.getValue() / docLengths.get(docId);
+            double weight = (float) (tfScore * calculateIDFScore(
+                    termDictionary.getId(entry.getKey())));
+            squareSum += weight * weight;
+        }
+        return Math.sqrt(squareSum);
+    }
+
+    @Override
+    public WebsiteData getDocument(final int docId) {
+        return documents[docId];
+    }
+
+    /**
+     * Returns the total amount of postings of all tokens.
+     *
+     * @return the amount of postings in the index.
+     */
+    public long getPostingCount() {
+        long count = 0;
+        for (int documentFrequency : documentFrequencies) {
+            count += documentFrequency;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the average size of a posting in bytes including the skip
+     * tables.
+     *
+     * @return the bytes per posting, 0.0 for an empty index.
+     */
+    public double getBytesPerPosting() {
+        long postingCount = getPostingCount();
+        if (postingCount == 0) {
+            return 0.0;
+        }
+        return (double) getPostingsByteSize() / postingCount;
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the size of the compressed postings of all tokens.
+     *
+     * @return the amount of bytes of all postings.
+     */
+    public long getPostingsByteSize() {
+        return postingsByteSize;
+    }
+
+    /**
+     * Returns the amount of indexed documents that are not deleted.
+     *
+     * @return the amount of documents.
+     */
+    @Override
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    @Override
+    public int getDocIdBound() {
+        return urls.length;
+    }
+
+    /**
+     * Returns the amount of occurences of every token of a document.
+     *
+     * @param docId the id of the document.
+     * @return the term frequencies, null if the document is deleted or the
+     *         index doesn't keep them.
+     */
+    Map<String, Integer> getTermFrequencies(final int docId) {
+        if (termFrequencies == null) {
+            return null;
+        }
+        return termFrequencies.get(docId);
+    }
+
+    /**
+     * Returns the dictionary of the term ids.
+     *
+     * @return the {@link TermDictionary} of the index.
+     */
+    public TermDictionary getTermDictionary() {
+        return termDictionary;
+    }
+}
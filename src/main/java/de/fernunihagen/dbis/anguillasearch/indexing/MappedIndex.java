@@ -0,0 +1,796 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.util.VarInt;
+
+/**
+ * The {@code MappedIndex} class is a {@link SearchIndex} that is read
+ * directly from an index file with memory mapped file I/O. Opening an index
+ * only maps the sections of the file, nothing is parsed or copied, so it
+ * takes the same few milliseconds no matter how big the index is. The pages
+ * of the file are loaded by the operating system when a query touches them.
+ *
+ * <p>
+ * An index file is written from an {@link InvertedIndex} with
+ * {@link #write(Path, InvertedIndex, double[])} and opened with
+ * {@link #open(Path)}. It consists of a header followed by the sections:
+ * </p>
+ *
+ * <pre>
+ * header:               magic int, version int, documents int, document
+ *                       id bound int, terms int, start of every section
+ *                       and end of the last (long)
+ * terms:                record table of the terms in ascending order
+ * posting offsets:      start of the postings of every term id (int)
+ * document frequencies: document frequency of every term id (int)
+ * postings:             postings in the format of CompressedPostingList
+ * document lengths:     amount of tokens of every document (int)
+ * norms:                norm of the TFIDF vector of every document (double)
+ * page ranks:           page rank of every document (double)
+ * urls:                 record table of the urls
+ * url order:            ids of the documents that are not deleted sorted
+ *                       by url (int)
+ * documents:            record table of the websites
+ * </pre>
+ *
+ * <p>
+ * A record table stores its records one after another followed by the
+ * start of every record and the end of the last one (int). Strings are
+ * stored as length + 1 (varint, 0 for null) followed by their UTF-8 bytes.
+ * The url and the website of a deleted document are stored as null, the
+ * terms that don't occur in any document are left out.
+ * Every section is mapped on its own and can be up to 2 GB in size, the
+ * whole file can be larger.
+ * </p>
+ */
+public final class MappedIndex implements SearchIndex {
+
+    /**
+     * Logger for the output or info or error messages.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            MappedIndex.class);
+
+    /**
+     * Marks the start of an index file ("ANIX").
+     */
+    private static final int MAGIC = 0x414E4958;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 3;
+
+    /**
+     * Number of the section of the terms.
+     */
+    private static final int TERMS = 0;
+
+    /**
+     * Number of the section of the posting offsets.
+     */
+    private static final int POSTING_OFFSETS = 1;
+
+    /**
+     * Number of the section of the document frequencies.
+     */
+    private static final int DOCUMENT_FREQUENCIES = 2;
+
+    /**
+     * Number of the section of the postings.
+     */
+    private static final int POSTINGS = 3;
+
+    /**
+     * Number of the section of the document lengths.
+     */
+    private static final int DOCUMENT_LENGTHS = 4;
+
+    /**
+     * Number of the section of the document norms.
+     */
+    private static final int NORMS = 5;
+
+    /**
+     * Number of the section of the page ranks.
+     */
+    private static final int PAGE_RANKS = 6;
+
+    /**
+     * Number of the section of the urls.
+     */
+    private static final int URLS = 7;
+
+    /**
+     * Number of the section of the document ids sorted by url.
+     */
+    private static final int URL_ORDER = 8;
+
+    /**
+     * Number of the section of the websites.
+     */
+    private static final int DOCUMENTS = 9;
+
+    /**
+     * Amount of sections of an index file.
+     */
+    private static final int SECTION_COUNT = 10;
+
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_BYTES = 5 * Integer.BYTES
+            + (SECTION_COUNT + 1) * Long.BYTES;
+
+    /**
+     * The amount of indexed documents that are not deleted.
+     */
+    private final int documentCount;
+
+    /**
+     * The upper bound of the document ids.
+     */
+    private final int docIdBound;
+
+    /**
+     * The amount of terms.
+     */
+    private final int termCount;
+
+    /**
+     * The terms in ascending order, term id -> term.
+     */
+    private final RecordTable terms;
+
+    /**
+     * The start of the postings of every term id in {@link #postings}.
+     */
+    private final IntBuffer postingOffsets;
+
+    /**
+     * The document frequencies, term id -> amount of documents.
+     */
+    private final IntBuffer documentFrequencies;
+
+    /**
+     * The compressed postings of all terms.
+     */
+    private final ByteBuffer postings;
+
+    /**
+     * The amount of tokens per document, document id -> length.
+     */
+    private final IntBuffer docLengths;
+
+    /**
+     * The norms of the TFIDF vectors, document id -> norm.
+     */
+    private final DoubleBuffer norms;
+
+    /**
+     * The page ranks, document id -> page rank.
+     */
+    private final DoubleBuffer pageRanks;
+
+    /**
+     * The url table, document id -> url.
+     */
+    private final RecordTable urls;
+
+    /**
+     * The document ids sorted by their url.
+     */
+    private final IntBuffer urlOrder;
+
+    /**
+     * The stored websites, document id -> website.
+     */
+    private final RecordTable documents;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code MappedIndex} from the mapped sections of an index
+     * file.
+     *
+     * @param docs         the amount of documents that are not deleted.
+     * @param bound        the upper bound of the document ids.
+     * @param termsInIndex the amount of terms.
+     * @param sections     the mapped sections, indexed by section number.
+     * @throws IllegalStateException if a section doesn't have the expected
+     *                               size.
+     */
+    private MappedIndex(final int docs, final int bound,
+            final int termsInIndex, final ByteBuffer[] sections) {
+        this.documentCount = docs;
+        this.docIdBound = bound;
+        this.termCount = termsInIndex;
+        this.terms = new RecordTable(sections[TERMS], termsInIndex);
+        this.postingOffsets = intSection(sections[POSTING_OFFSETS],
+                termsInIndex + 1);
+        this.documentFrequencies = intSection(sections[DOCUMENT_FREQUENCIES],
+                termsInIndex);
+        this.postings = sections[POSTINGS];
+        this.docLengths = intSection(sections[DOCUMENT_LENGTHS], bound);
+        this.norms = doubleSection(sections[NORMS], bound);
+        this.pageRanks = doubleSection(sections[PAGE_RANKS], bound);
+        this.urls = new RecordTable(sections[URLS], bound);
+        this.urlOrder = intSection(sections[URL_ORDER], docs);
+        this.documents = new RecordTable(sections[DOCUMENTS], bound);
+        if (postingOffsets.get(termsInIndex) != postings.limit()) {
+            throw new IllegalStateException("postings are incomplete");
+        }
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Writes an index to a file. The file is written to a temporary file
+     * first and then moved, so an interrupted write never leaves a broken
+     * index behind. The terms are written in ascending order, whatever the
+     * order of their ids in the index is.
+     *
+     * @param file      the file to write.
+     * @param index     the index to write.
+     * @param pageRanks the page ranks of the documents, indexed by document
+     *                  id, 0.0 for deleted documents.
+     * @throws IOException              if the file can't be written.
+     * @throws IllegalArgumentException if there isn't exactly one page rank
+     *                                  per document.
+     * @throws IllegalStateException    if a section would exceed 2 GB.
+     */
+    public static void write(final Path file, final InvertedIndex index,
+            final double[] pageRanks) throws IOException {
+        int documentCount = index.getDocumentCount();
+        int docIdBound = index.getDocIdBound();
+        if (pageRanks.length != docIdBound) {
+            throw new IllegalArgumentException(
+                    "every document needs exactly one page rank");
+        }
+        TermDictionary dictionary = index.getTermDictionary();
+        /* the term ids of the index in the order of the terms */
+        int[] termOrder = IntStream.range(0, dictionary.size())
+                .filter(termId -> index.getDocumentFrequency(
+                        dictionary.getTerm(termId)) > 0)
+                .boxed()
+                .sorted(Comparator.comparing(dictionary::getTerm))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tempFile = Files.createTempFile(parent, "index", ".tmp");
+        long[] bounds = new long[SECTION_COUNT + 1];
+        /* a failed write doesn't leave the temporary file behind */
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile,
+                    StandardOpenOption.WRITE);
+                    DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(Channels.newOutputStream(
+                                    channel.position(HEADER_BYTES))))) {
+                bounds[TERMS] = HEADER_BYTES;
+                writeRecords(out, termOrder.length,
+                        i -> encode(dictionary.getTerm(termOrder[i])));
+                bounds[POSTING_OFFSETS] = position(out, channel);
+                int postingOffset = 0;
+                for (int termId : termOrder) {
+                    out.writeInt(postingOffset);
+                    postingOffset = checkedAdd(postingOffset,
+                            index.getPostingBytes(termId).remaining());
+                }
+                out.writeInt(postingOffset);
+                bounds[DOCUMENT_FREQUENCIES] = position(out, channel);
+                for (int termId : termOrder) {
+                    out.writeInt(index.getDocumentFrequency(
+                            dictionary.getTerm(termId)));
+                }
+                bounds[POSTINGS] = position(out, channel);
+                for (int termId : termOrder) {
+                    ByteBuffer bytes = index.getPostingBytes(termId);
+                    byte[] copy = new byte[bytes.remaining()];
+                    bytes.get(copy);
+                    out.write(copy);
+                }
+                bounds[DOCUMENT_LENGTHS] = position(out, channel);
+                for (int docId = 0; docId < docIdBound; docId++) {
+                    out.writeInt(index.getDocumentLength(docId));
+                }
+                bounds[NORMS] = position(out, channel);
+                for (int docId = 0; docId < docIdBound; docId++) {
+                    out.writeDouble(index.getDocumentNorm(docId));
+                }
+                bounds[PAGE_RANKS] = position(out, channel);
+                for (double pageRank : pageRanks) {
+                    out.writeDouble(pageRank);
+                }
+                bounds[URLS] = position(out, channel);
+                writeRecords(out, docIdBound,
+                        docId -> encode(index.getUrl(docId)));
+                bounds[URL_ORDER] = position(out, channel);
+                Integer[] sortedDocIds = new Integer[documentCount];
+                int liveDocuments = 0;
+                for (int docId = 0; docId < docIdBound; docId++) {
+                    if (index.getUrl(docId) != null) {
+                        sortedDocIds[liveDocuments++] = docId;
+                    }
+                }
+                Arrays.sort(sortedDocIds, Comparator.comparing(index::getUrl));
+                for (Integer docId : sortedDocIds) {
+                    out.writeInt(docId);
+                }
+                bounds[DOCUMENTS] = position(out, channel);
+                writeRecords(out, docIdBound,
+                        docId -> encode(index.getDocument(docId)));
+                bounds[SECTION_COUNT] = position(out, channel);
+
+                /* the header is written last, when the sections are known */
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putInt(documentCount)
+                        .putInt(docIdBound).putInt(termOrder.length);
+                for (long bound : bounds) {
+                    header.putLong(bound);
+                }
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(false);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException deleteFailure) {
+                e.addSuppressed(deleteFailure);
+            }
+            throw e;
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format("Wrote index with %d websites and %d "
+                    + "tokens to %s (%d bytes)", documentCount,
+                    termOrder.length, file, bounds[SECTION_COUNT]));
+        }
+    }
+
+    /**
+     * Opens an index file. The sections of the file are mapped into memory
+     * but not read.
+     *
+     * @param file the index file to open.
+     * @return the opened index.
+     * @throws IOException           if the file can't be read.
+     * @throws IllegalStateException if the file isn't a valid index file.
+     */
+    public static MappedIndex open(final Path file) throws IOException {
+        long start = System.nanoTime();
+        MappedIndex index;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IllegalStateException("unknown file format");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IllegalStateException("unknown file format");
+            }
+            int documents = header.getInt();
+            int bound = header.getInt();
+            int termsInIndex = header.getInt();
+            long[] bounds = new long[SECTION_COUNT + 1];
+            for (int i = 0; i < bounds.length; i++) {
+                bounds[i] = header.getLong();
+            }
+            ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+            for (int section = 0; section < SECTION_COUNT; section++) {
+                long length = bounds[section + 1] - bounds[section];
+                if (bounds[section] < HEADER_BYTES || length < 0
+                        || length > Integer.MAX_VALUE
+                        || bounds[section + 1] > size) {
+                    throw new IllegalStateException(
+                            "broken section " + section);
+                }
+                /*
+                 * mapped buffers are not accessed after the channel is
+                 * closed, the mapping stays valid
+                 */
+                sections[section] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        bounds[section], length);
+            }
+            index = new MappedIndex(documents, bound, termsInIndex,
+                    sections);
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format("Opened index %s with %d websites and "
+                    + "%d tokens in %.1f ms", file, index.documentCount,
+                    index.termCount, (System.nanoTime() - start) / 1e6));
+        }
+        return index;
+    }
+
+    @Override
+    public PostingIterator postings(final String token) {
+        int termId = getTermId(token);
+        if (termId == TermDictionary.UNKNOWN_TERM) {
+            return PostingList.EMPTY.iterator();
+        }
+        int documentFrequency = documentFrequencies.get(termId);
+        ByteBuffer slice = postings.duplicate();
+        slice.position(postingOffsets.get(termId));
+        slice.limit(postingOffsets.get(termId + 1));
+        double idf = Math.log((double) documentCount / documentFrequency);
+        return new CompressedPostingList(slice.slice(), documentFrequency)
+                .iterator(idf, docLengths);
+    }
+
+    @Override
+    public int getDocumentFrequency(final String token) {
+        int termId = getTermId(token);
+        if (termId == TermDictionary.UNKNOWN_TERM) {
+            return 0;
+        }
+        return documentFrequencies.get(termId);
+    }
+
+    @Override
+    public String getUrl(final int docId) {
+        return decodeString(urls.get(docId));
+    }
+
+    @Override
+    public int getDocId(final String url) {
+        /* binary search over the document ids sorted by url */
+        int low = 0;
+        int high = documentCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int docId = urlOrder.get(middle);
+            int comparison = getUrl(docId).compareTo(url);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return docId;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getDocumentLength(final int docId) {
+        return docLengths.get(docId);
+    }
+
+    @Override
+    public double getDocumentNorm(final int docId) {
+        return norms.get(docId);
+    }
+
+    @Override
+    public WebsiteData getDocument(final int docId) {
+        ByteBuffer record = documents.get(docId);
+        String url = decodeString(record);
+        if (url == null) {
+            return null;
+        }
+        WebsiteData data = new WebsiteData(url);
+        data.setTitle(decodeString(record));
+        data.setHeader(decodeString(record));
+        data.setBody(decodeString(record));
+        int links = VarInt.read(record);
+        for (int i = 0; i < links; i++) {
+            data.addLink(decodeString(record));
+        }
+        return data;
+    }
+
+    /**
+     * Looks up the term id of a token with a binary search over the sorted
+     * terms.
+     *
+     * @param token the token to look up.
+     * @return the term id or {@link TermDictionary#UNKNOWN_TERM}.
+     */
+    private int getTermId(final String token) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = decodeString(terms.get(middle)).compareTo(token);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return TermDictionary.UNKNOWN_TERM;
+    }
+
+    /**
+     * Flushes the output and returns the position in the file.
+     *
+     * @param out     the output of the file.
+     * @param channel the channel of the file.
+     * @return the amount of bytes written to the file.
+     * @throws IOException if the output can't be flushed.
+     */
+    private static long position(final DataOutputStream out,
+            final FileChannel channel) throws IOException {
+        out.flush();
+        return channel.position();
+    }
+
+    /**
+     * Writes a record table.
+     *
+     * @param out     the output to write to.
+     * @param count   the amount of records.
+     * @param records the encoded record of every number.
+     * @throws IOException if the output can't be written.
+     */
+    private static void writeRecords(final DataOutputStream out,
+            final int count, final IntFunction<byte[]> records)
+            throws IOException {
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            byte[] record = records.apply(i);
+            out.write(record);
+            offsets[i + 1] = checkedAdd(offsets[i], record.length);
+        }
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+    }
+
+    /**
+     * Adds a length to an offset within a section.
+     *
+     * @param offset the offset.
+     * @param length the length to add.
+     * @return the new offset.
+     * @throws IllegalStateException if the section would exceed 2 GB.
+     */
+    private static int checkedAdd(final int offset, final int length) {
+        long sum = (long) offset + length;
+        if (sum > Integer.MAX_VALUE) {
+            throw new IllegalStateException(
+                    "a section of the index can't exceed 2 GB");
+        }
+        return (int) sum;
+    }
+
+    /**
+     * Encodes a string as record.
+     *
+     * @param text the string, may be null.
+     * @return the encoded string.
+     */
+    private static byte[] encode(final String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            encodeString(out, text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes a website as record.
+     *
+     * @param data the website, null for a deleted document.
+     * @return the encoded website.
+     */
+    private static byte[] encode(final WebsiteData data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            if (data == null) {
+                /* a deleted document only has a null url */
+                encodeString(out, null);
+            } else {
+                encodeString(out, data.getUrlOfSite());
+                encodeString(out, data.getTitle());
+                encodeString(out, data.getHeader());
+                encodeString(out, data.getBody());
+                List<String> links = List.copyOf(data.getLinks());
+                VarInt.write(out, links.size());
+                for (String link : links) {
+                    encodeString(out, link);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a string as length + 1 followed by its UTF-8 bytes.
+     *
+     * @param out  the output to write to.
+     * @param text the string, may be null.
+     * @throws IOException if the output can't be written.
+     */
+    private static void encodeString(final DataOutputStream out,
+            final String text) throws IOException {
+        if (text == null) {
+            VarInt.write(out, 0);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        VarInt.write(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #encodeString(DataOutputStream,
+     * String)} at the position of the buffer and moves the position behind
+     * it.
+     *
+     * @param buffer the buffer to read from.
+     * @return the string, may be null.
+     */
+    private static String decodeString(final ByteBuffer buffer) {
+        int length = VarInt.read(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a section of ints after checking its size.
+     *
+     * @param section the mapped section.
+     * @param count   the expected amount of ints.
+     * @return the ints of the section.
+     */
+    private static IntBuffer intSection(final ByteBuffer section,
+            final int count) {
+        if (section.limit() != (long) count * Integer.BYTES) {
+            throw new IllegalStateException("broken section size");
+        }
+        return section.asIntBuffer();
+    }
+
+    /**
+     * Returns a section of doubles after checking its size.
+     *
+     * @param section the mapped section.
+     * @param count   the expected amount of doubles.
+     * @return the doubles of the section.
+     */
+    private static DoubleBuffer doubleSection(final ByteBuffer section,
+            final int count) {
+        if (section.limit() != (long) count * Double.BYTES) {
+            throw new IllegalStateException("broken section size");
+        }
+        return section.asDoubleBuffer();
+    }
+
+    // ============================getter/setter============================//
+
+    @Override
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    @Override
+    public int getDocIdBound() {
+        return docIdBound;
+    }
+
+    /**
+     * Returns the page rank of a document.
+     *
+     * @param docId the id of the document.
+     * @return the page rank of the document.
+     */
+    public double getPageRank(final int docId) {
+        return pageRanks.get(docId);
+    }
+
+    /**
+     * Returns the page ranks of all documents.
+     *
+     * @return a copy of the page ranks, indexed by document id.
+     */
+    public double[] getPageRanks() {
+        double[] copy = new double[docIdBound];
+        pageRanks.get(0, copy);
+        return copy;
+    }
+
+    /**
+     * Returns the amount of terms in the index.
+     *
+     * @return the amount of terms.
+     */
+    public int getTermCount() {
+        return termCount;
+    }
+
+    /**
+     * A table of variable length records stored one after another and
+     * followed by the start of every record.
+     */
+    private static final class RecordTable {
+
+        /**
+         * The records, position 0 is the start of the first one.
+         */
+        private final ByteBuffer data;
+
+        /**
+         * The start of every record and the end of the last one.
+         */
+        private final IntBuffer offsets;
+
+        /**
+         * Creates a view on a mapped record table.
+         *
+         * @param section the mapped section of the table.
+         * @param count   the amount of records.
+         */
+        RecordTable(final ByteBuffer section, final int count) {
+            long tableBytes = (long) (count + 1) * Integer.BYTES;
+            if (tableBytes > section.limit()) {
+                throw new IllegalStateException("broken record table");
+            }
+            int tableStart = section.limit() - (int) tableBytes;
+            ByteBuffer table = section.duplicate();
+            table.position(tableStart);
+            this.offsets = table.slice().asIntBuffer();
+            ByteBuffer records = section.duplicate();
+            records.limit(tableStart);
+            this.data = records.slice();
+            if (offsets.get(count) != tableStart) {
+                throw new IllegalStateException("broken record table");
+            }
+        }
+
+        /**
+         * Returns a record.
+         *
+         * @param number the number of the record.
+         * @return a buffer of the record with an own position.
+         */
+        ByteBuffer get(final int number) {
+            ByteBuffer record = data.duplicate();
+            record.limit(offsets.get(number + 1));
+            record.position(offsets.get(number));
+            return record;
+        }
+    }
+}
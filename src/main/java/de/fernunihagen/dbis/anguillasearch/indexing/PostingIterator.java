@@ -0,0 +1,104 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+/**
+ * A {@code PostingIterator} walks through the posting list of one token in
+ * ascending order of the document ids. Every posting consists of the id of a
+ * document the token occurs in and the TFIDF weight of the token in that
+ * document.
+ *
+ * <p>
+ * A new iterator is positioned before the first posting, so {@link #next()}
+ * or {@link #advance(int)} has to be called first. Once the postings are
+ * exhausted both methods return {@link #NO_MORE_DOCS}.
+ * </p>
+ *
+ * <p>
+ * An iterator can tell upper bounds of its weights, for all postings and
+ * for the block of postings it is positioned in. A search for the best
+ * results uses them to skip documents that can't reach a high enough
+ * score.
+ * </p>
+ */
+public interface PostingIterator {
+
+    /**
+     * The document id that is returned once all postings were read.
+     */
+    int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    /**
+     * Returns the document id of the current posting.
+     *
+     * @return the current document id, -1 if the iterator wasn't moved yet
+     *         or {@link #NO_MORE_DOCS} if it is exhausted.
+     */
+    int docId();
+
+    /**
+     * Moves to the next posting.
+     *
+     * @return the document id of the next posting or {@link #NO_MORE_DOCS}.
+     */
+    int next();
+
+    /**
+     * Moves to the first posting whose document id is greater than or equal
+     * to the target. Postings in between are skipped without being read
+     * one by one where the format allows it.
+     *
+     * @param target the document id to move to, must be greater than the
+     *               current document id.
+     * @return the document id of the posting that was moved to or
+     *         {@link #NO_MORE_DOCS}.
+     */
+    int advance(int target);
+
+    /**
+     * Returns the TFIDF weight of the token in the current document.
+     *
+     * @return the weight of the current posting.
+     */
+    float weight();
+
+    /**
+     * Returns the total amount of postings of this iterator, which is the
+     * document frequency of the token.
+     *
+     * @return the amount of postings.
+     */
+    int cost();
+
+    /**
+     * Returns an upper bound of the weights of all postings. An iterator
+     * that doesn't know its weights in advance returns
+     * {@link Float#POSITIVE_INFINITY}.
+     *
+     * @return the upper bound of the weights.
+     */
+    default float maxWeight() {
+        return Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the last document id the bound of {@link #blockMaxWeight()}
+     * applies to. The block starts at the current posting.
+     *
+     * @return the last document id of the current block or
+     *         {@link #NO_MORE_DOCS} if the bound applies to all remaining
+     *         postings.
+     */
+    default int blockLastDocId() {
+        return NO_MORE_DOCS;
+    }
+
+    /**
+     * Returns an upper bound of the weights of the postings from the current
+     * one up to {@link #blockLastDocId()}. It is never higher than
+     * {@link #maxWeight()} and only valid once the iterator was moved.
+     *
+     * @return the upper bound of the weights in the current block.
+     */
+    default float blockMaxWeight() {
+        return maxWeight();
+    }
+}
@@ -0,0 +1,187 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+/**
+ * The {@code PostingList} class stores the postings of one token as two
+ * parallel primitive arrays: the ids of the documents the token occurs in,
+ * sorted in ascending order, and the TFIDF weights of the token in those
+ * documents.
+ *
+ * <p>
+ * Compared to a map of urls and boxed scores a posting only needs eight
+ * bytes and can be read sequentially, see {@link #iterator()}.
+ * </p>
+ */
+public final class PostingList {
+
+    /**
+     * The posting list without any postings.
+     */
+    public static final PostingList EMPTY = new PostingList(new int[0],
+            new float[0]);
+
+    /**
+     * The document ids in ascending order.
+     */
+    private final int[] docIds;
+
+    /**
+     * The weights of the postings, weights[i] belongs to docIds[i].
+     */
+    private final float[] weights;
+
+    /**
+     * The highest weight of the postings, 0.0 without postings.
+     */
+    private final float maxWeight;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code PostingList} from two parallel arrays. The arrays
+     * are taken over without a copy and must not be changed afterwards.
+     *
+     * @param sortedDocIds the document ids in strictly ascending order.
+     * @param docWeights   the weights of the postings.
+     * @throws IllegalArgumentException if the arrays differ in length or
+     *                                  the document ids are not sorted.
+     */
+    public PostingList(final int[] sortedDocIds, final float[] docWeights) {
+        if (sortedDocIds.length != docWeights.length) {
+            throw new IllegalArgumentException(
+                    "document ids and weights must have the same length");
+        }
+        for (int i = 1; i < sortedDocIds.length; i++) {
+            if (sortedDocIds[i - 1] >= sortedDocIds[i]) {
+                throw new IllegalArgumentException(
+                        "document ids must be sorted in ascending order");
+            }
+        }
+        this.docIds = sortedDocIds;
+        this.weights = docWeights;
+        float max = 0.0f;
+        for (float weight : docWeights) {
+            max = Math.max(max, weight);
+        }
+        this.maxWeight = max;
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Creates a new iterator over the postings of this list.
+     *
+     * @return a {@link PostingIterator} positioned before the first posting.
+     */
+    public PostingIterator iterator() {
+        return new ArrayPostingIterator();
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the amount of postings, which is the document frequency of the
+     * token.
+     *
+     * @return the amount of postings.
+     */
+    public int size() {
+        return docIds.length;
+    }
+
+    /**
+     * Returns the document id of the posting at the given position.
+     *
+     * @param position the position of the posting (0 to size - 1).
+     * @return the document id.
+     */
+    public int getDocIdAt(final int position) {
+        return docIds[position];
+    }
+
+    /**
+     * Returns the weight of the posting at the given position.
+     *
+     * @param position the position of the posting (0 to size - 1).
+     * @return the weight.
+     */
+    public float getWeightAt(final int position) {
+        return weights[position];
+    }
+
+    /**
+     * A {@link PostingIterator} over the arrays of the posting list.
+     * {@link #advance(int)} gallops forward from the current position and
+     * then searches binary, so skipping far ahead only costs a logarithmic
+     * amount of steps.
+     */
+    private final class ArrayPostingIterator implements PostingIterator {
+
+        /**
+         * The position of the current posting in the arrays.
+         */
+        private int position = -1;
+
+        @Override
+        public int docId() {
+            if (position < 0) {
+                return -1;
+            }
+            if (position >= docIds.length) {
+                return NO_MORE_DOCS;
+            }
+            return docIds[position];
+        }
+
+        @Override
+        public int next() {
+            if (position < docIds.length) {
+                position++;
+            }
+            return docId();
+        }
+
+        @Override
+        public int advance(final int target) {
+            int low = position + 1;
+            if (low >= docIds.length) {
+                position = docIds.length;
+                return NO_MORE_DOCS;
+            }
+            /* gallop until a document id >= target is passed */
+            int step = 1;
+            int high = low;
+            while (high < docIds.length && docIds[high] < target) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            /* binary search in the last interval */
+            high = Math.min(high, docIds.length - 1);
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (docIds[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            position = low;
+            return docId();
+        }
+
+        @Override
+        public float weight() {
+            return weights[position];
+        }
+
+        @Override
+        public float maxWeight() {
+            return maxWeight;
+        }
+
+        @Override
+        public int cost() {
+            return docIds.length;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The {@code PostingListBuilder} class collects the postings of one token
+ * while the index is built. Every posting consists of a document id and the
+ * amount of occurences of the token in that document. The postings are
+ * kept in growing primitive arrays and have to be added in ascending order
+ * of the document ids.
+ *
+ * <p>
+ * The {@link IndexBuilder} keeps the builders after the build so documents
+ * can be added and deleted. The postings of deleted documents stay in the
+ * arrays until they are removed with {@link #removeDocuments(BitSet)}, an
+ * iterator skips them.
+ * </p>
+ */
+final class PostingListBuilder {
+
+    /**
+     * Capacity of the arrays of a new builder.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * The document ids of the postings.
+     */
+    private int[] docIds;
+
+    /**
+     * The frequencies of the token, frequencies[i] belongs to docIds[i].
+     */
+    private int[] frequencies;
+
+    /**
+     * Amount of postings added so far.
+     */
+    private int size;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new empty {@code PostingListBuilder}.
+     */
+    PostingListBuilder() {
+        this.docIds = new int[INITIAL_CAPACITY];
+        this.frequencies = new int[INITIAL_CAPACITY];
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Adds a posting.
+     *
+     * @param docId     the document id, greater than the last added one.
+     * @param frequency the amount of occurences of the token in the
+     *                  document.
+     */
+    void add(final int docId, final int frequency) {
+        if (size > 0 && docIds[size - 1] >= docId) {
+            throw new IllegalArgumentException(
+                    "postings must be added in ascending order");
+        }
+        if (size == docIds.length) {
+            docIds = Arrays.copyOf(docIds, size * 2);
+            frequencies = Arrays.copyOf(frequencies, size * 2);
+        }
+        docIds[size] = docId;
+        frequencies[size] = frequency;
+        size++;
+    }
+
+    /**
+     * Appends all postings of another builder.
+     *
+     * @param other the postings to append, their document ids must be
+     *              greater than the last added one.
+     */
+    void addAll(final PostingListBuilder other) {
+        if (other.size == 0) {
+            return;
+        }
+        if (size > 0 && docIds[size - 1] >= other.docIds[0]) {
+            throw new IllegalArgumentException(
+                    "postings must be added in ascending order");
+        }
+        int newSize = size + other.size;
+        if (newSize > docIds.length) {
+            int capacity = Math.max(newSize, docIds.length * 2);
+            docIds = Arrays.copyOf(docIds, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+        }
+        System.arraycopy(other.docIds, 0, docIds, size, other.size);
+        System.arraycopy(other.frequencies, 0, frequencies, size,
+                other.size);
+        size = newSize;
+    }
+
+    /**
+     * Removes the postings of deleted documents and keeps the order of the
+     * others.
+     *
+     * @param deletedDocs the ids of the deleted documents.
+     */
+    void removeDocuments(final BitSet deletedDocs) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!deletedDocs.get(docIds[i])) {
+                docIds[kept] = docIds[i];
+                frequencies[kept] = frequencies[i];
+                kept++;
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * Creates a new iterator over the postings of the documents that are not
+     * deleted. The weight of a posting is frequency / length of the document
+     * * idf, calculated the same way as by
+     * {@link CompressedPostingList#iterator(double, java.nio.IntBuffer)}.
+     *
+     * @param idf         the IDF score of the token.
+     * @param docLengths  the amount of tokens per document, indexed by
+     *                    document id.
+     * @param deletedDocs the ids of the deleted documents.
+     * @param liveCount   the amount of postings of documents that are not
+     *                    deleted.
+     * @return a {@link PostingIterator} positioned before the first posting.
+     */
+    PostingIterator iterator(final double idf, final int[] docLengths,
+            final BitSet deletedDocs, final int liveCount) {
+        return new BuilderPostingIterator(idf, docLengths, deletedDocs,
+                liveCount);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the amount of postings added so far.
+     *
+     * @return the amount of postings.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the document id of the posting at the given position.
+     *
+     * @param position the position of the posting (0 to size - 1).
+     * @return the document id.
+     */
+    int getDocIdAt(final int position) {
+        return docIds[position];
+    }
+
+    /**
+     * Returns the frequency of the posting at the given position.
+     *
+     * @param position the position of the posting (0 to size - 1).
+     * @return the amount of occurences of the token in the document.
+     */
+    int getFrequencyAt(final int position) {
+        return frequencies[position];
+    }
+
+    /**
+     * Returns a copy of the document ids of all postings.
+     *
+     * @return the document ids in ascending order.
+     */
+    int[] toDocIdArray() {
+        return Arrays.copyOf(docIds, size);
+    }
+
+    /**
+     * Returns a copy of the frequencies of all postings.
+     *
+     * @return the frequencies in the order of the document ids.
+     */
+    int[] toFrequencyArray() {
+        return Arrays.copyOf(frequencies, size);
+    }
+
+    /**
+     * A {@link PostingIterator} over the arrays of the builder that skips
+     * deleted documents.
+     */
+    private final class BuilderPostingIterator implements PostingIterator {
+
+        /**
+         * The IDF score of the token.
+         */
+        private final double idf;
+
+        /**
+         * The amount of tokens per document.
+         */
+        private final int[] docLengths;
+
+        /**
+         * The ids of the deleted documents.
+         */
+        private final BitSet deletedDocs;
+
+        /**
+         * The amount of postings of documents that are not deleted.
+         */
+        private final int liveCount;
+
+        /**
+         * The position of the current posting, -1 before the first one.
+         */
+        private int index = -1;
+
+        /**
+         * The current document id.
+         */
+        private int doc = -1;
+
+        /**
+         * Creates a new iterator positioned before the first posting.
+         *
+         * @param idfScore the IDF score of the token.
+         * @param lengths  the amount of tokens per document.
+         * @param deleted  the ids of the deleted documents.
+         * @param live     the amount of postings of documents that are not
+         *                 deleted.
+         */
+        BuilderPostingIterator(final double idfScore, final int[] lengths,
+                final BitSet deleted, final int live) {
+            this.idf = idfScore;
+            this.docLengths = lengths;
+            this.deletedDocs = deleted;
+            this.liveCount = live;
+        }
+
+        @Override
+        public int docId() {
+            return doc;
+        }
+
+        @Override
+        public int next() {
+            if (doc == NO_MORE_DOCS) {
+                return doc;
+            }
+            return skipDeleted(index + 1);
+        }
+
+        @Override
+        public int advance(final int target) {
+            if (doc == NO_MORE_DOCS) {
+                return doc;
+            }
+            /* binary search of the first posting with a document >= target */
+            int low = index + 1;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (docIds[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return skipDeleted(low);
+        }
+
+        @Override
+        public float weight() {
+            double tfScore = (double) frequencies[index] / docLengths[doc];
+            return (float) (tfScore * idf);
+        }
+
+        @Override
+        public int cost() {
+            return liveCount;
+        }
+
+        /**
+         * Moves to the first posting at or after a position whose document
+         * isn't deleted.
+         *
+         * @param position the position to start at.
+         * @return the document id of that posting or {@link #NO_MORE_DOCS}.
+         */
+        private int skipDeleted(final int position) {
+            index = position;
+            while (index < size && deletedDocs.get(docIds[index])) {
+                index++;
+            }
+            if (index >= size) {
+                doc = NO_MORE_DOCS;
+            } else {
+                doc = docIds[index];
+            }
+            return doc;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+
+/**
+ * A {@code SearchIndex} is the read only view of an index that a search is
+ * performed on. It gives access to the postings of the tokens, the
+ * statistics needed for the TFIDF and cosine scores and the stored
+ * websites.
+ *
+ * <p>
+ * The index can be held in memory ({@link InvertedIndex}), be read
+ * directly from a memory mapped file ({@link MappedIndex}) or be split into
+ * segments that change while it is searched ({@link SegmentedIndex}). A
+ * search that reads the index more than once takes a {@link #snapshot()}
+ * first, so every read sees the same documents and ids.
+ * </p>
+ */
+public interface SearchIndex {
+
+    /**
+     * Returns an iterator over the postings of a token.
+     *
+     * @param token the token to look up.
+     * @return a {@link PostingIterator} over the postings of the token, which
+     *         is empty if the token doesn't occur in any document.
+     */
+    PostingIterator postings(String token);
+
+    /**
+     * Returns the amount of documents a token occurs in.
+     *
+     * @param token the token to look up.
+     * @return the document frequency of the token, 0 if it doesn't occur.
+     */
+    int getDocumentFrequency(String token);
+
+    /**
+     * Returns the amount of indexed documents.
+     *
+     * @return the amount of documents.
+     */
+    int getDocumentCount();
+
+    /**
+     * Returns the upper bound of the document ids, all ids are between 0 and
+     * this value - 1. It is greater than {@link #getDocumentCount()} if the
+     * index has ids of deleted documents.
+     *
+     * @return the upper bound of the document ids.
+     */
+    default int getDocIdBound() {
+        return getDocumentCount();
+    }
+
+    /**
+     * Returns the url of a document.
+     *
+     * @param docId the id of the document.
+     * @return the url of the document or null if it was deleted.
+     */
+    String getUrl(int docId);
+
+    /**
+     * Returns the document id of an url.
+     *
+     * @param url the url to look up.
+     * @return the id of the document or -1 if the url isn't indexed.
+     */
+    int getDocId(String url);
+
+    /**
+     * Returns the amount of tokens of a document.
+     *
+     * @param docId the id of the document.
+     * @return the length of the document.
+     */
+    int getDocumentLength(int docId);
+
+    /**
+     * Returns the euclidean norm of the TFIDF vector of a document.
+     *
+     * @param docId the id of the document.
+     * @return the norm of the document vector.
+     */
+    double getDocumentNorm(int docId);
+
+    /**
+     * Returns the stored content of a document.
+     *
+     * @param docId the id of the document.
+     * @return the {@link WebsiteData} of the document.
+     */
+    WebsiteData getDocument(int docId);
+
+    /**
+     * Calculates the IDF score of a token.
+     *
+     * Formula: IDF(token) = log(N / df(token))
+     *
+     * @param token the token for which the IDF score shall be calculated.
+     * @return the IDF score of the token or 0.0 if the token doesn't occur
+     *         in any document.
+     */
+    default double calculateIDFScore(final String token) {
+        int documentFrequency = getDocumentFrequency(token);
+        if (documentFrequency == 0) {
+            return 0.0;
+        }
+        return Math.log((double) getDocumentCount() / documentFrequency);
+    }
+
+    /**
+     * Returns a view of the current state of the index that doesn't change
+     * anymore. The document ids of a snapshot are only valid for that
+     * snapshot. An index that never changes returns itself.
+     *
+     * @return the current state of the index.
+     */
+    default SearchIndex snapshot() {
+        return this;
+    }
+}
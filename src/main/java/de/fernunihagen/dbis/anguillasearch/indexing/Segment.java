@@ -0,0 +1,262 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+
+/**
+ * The {@code Segment} class is an immutable part of a
+ * {@link SegmentedIndex}. The postings of its websites are compressed in an
+ * {@link InvertedIndex} whose document ids start at 0 in every segment.
+ *
+ * <p>
+ * Besides the postings a segment keeps the term ids and frequencies of the
+ * tokens of every website (its forward index). They are needed to correct
+ * the document frequencies when a website of the segment is deleted, to
+ * calculate the norms with the IDF scores of all segments and to merge
+ * segments without tokenizing the websites again.
+ * </p>
+ */
+final class Segment {
+
+    /**
+     * The compressed postings and the websites of the segment.
+     */
+    private final InvertedIndex index;
+
+    /**
+     * The start of the tokens of every document in {@link #termIds}, the
+     * tokens of document i end at forwardOffsets[i + 1].
+     */
+    private final int[] forwardOffsets;
+
+    /**
+     * The term ids of the tokens of all documents, one after another.
+     */
+    private final int[] termIds;
+
+    /**
+     * The frequencies of the tokens, frequencies[i] belongs to termIds[i].
+     */
+    private final int[] frequencies;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code Segment}. The arrays are taken over without a
+     * copy.
+     *
+     * @param invertedIndex    the compressed postings of the segment.
+     * @param offsets          the start of the tokens of every document
+     *                         plus the end of the last one.
+     * @param tokenIds         the term ids of the tokens of all documents.
+     * @param tokenFrequencies the frequencies of the tokens.
+     */
+    private Segment(final InvertedIndex invertedIndex, final int[] offsets,
+            final int[] tokenIds, final int[] tokenFrequencies) {
+        this.index = invertedIndex;
+        this.forwardOffsets = offsets;
+        this.termIds = tokenIds;
+        this.frequencies = tokenFrequencies;
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Creates a new segment of the given websites. The websites get the
+     * document ids in the order of the list.
+     *
+     * @param entries the analyzed websites, every url only once.
+     * @return the new segment.
+     */
+    static Segment build(final List<Entry> entries) {
+        Set<String> tokens = new HashSet<>();
+        int postingCount = 0;
+        for (Entry entry : entries) {
+            tokens.addAll(entry.getCounts().keySet());
+            postingCount += entry.getCounts().size();
+        }
+        TermDictionary dictionary = new TermDictionary(tokens);
+        PostingListBuilder[] postingLists = new PostingListBuilder[
+                dictionary.size()];
+        for (int termId = 0; termId < postingLists.length; termId++) {
+            postingLists[termId] = new PostingListBuilder();
+        }
+
+        int[] offsets = new int[entries.size() + 1];
+        int[] tokenIds = new int[postingCount];
+        int[] tokenFrequencies = new int[postingCount];
+        int[] docLengths = new int[entries.size()];
+        String[] urls = new String[entries.size()];
+        WebsiteData[] websites = new WebsiteData[entries.size()];
+        int position = 0;
+        for (int docId = 0; docId < entries.size(); docId++) {
+            Entry entry = entries.get(docId);
+            offsets[docId] = position;
+            urls[docId] = entry.getWebsite().getUrlOfSite();
+            websites[docId] = entry.getWebsite();
+            docLengths[docId] = entry.getLength();
+            for (Map.Entry<String, Integer> count : entry.getCounts()
+                    .entrySet()) {
+                int termId = dictionary.getId(count.getKey());
+                postingLists[termId].add(docId, count.getValue());
+                tokenIds[position] = termId;
+                tokenFrequencies[position] = count.getValue();
+                position++;
+            }
+        }
+        offsets[entries.size()] = position;
+        InvertedIndex invertedIndex = InvertedIndex.fromPostings(dictionary,
+                postingLists, docLengths, urls, websites);
+        return new Segment(invertedIndex, offsets, tokenIds,
+                tokenFrequencies);
+    }
+
+    /**
+     * Restores the analyzed website of a document from the forward index,
+     * so it can be put into a merged segment.
+     *
+     * @param docId the document id in this segment.
+     * @return the website and the frequencies of its tokens.
+     */
+    Entry toEntry(final int docId) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = forwardOffsets[docId]; i < forwardOffsets[docId + 1];
+                i++) {
+            counts.put(index.getTermDictionary().getTerm(termIds[i]),
+                    frequencies[i]);
+        }
+        return new Entry(index.getDocument(docId), counts);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the compressed postings and the websites of the segment.
+     *
+     * @return the {@link InvertedIndex} of the segment.
+     */
+    InvertedIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the amount of documents of the segment, including the ones
+     * that were deleted later on.
+     *
+     * @return the amount of documents.
+     */
+    int size() {
+        return index.getDocumentCount();
+    }
+
+    /**
+     * Returns the position of the first token of a document in the forward
+     * index.
+     *
+     * @param docId the document id in this segment.
+     * @return the position of the first token.
+     */
+    int getForwardStart(final int docId) {
+        return forwardOffsets[docId];
+    }
+
+    /**
+     * Returns the position after the last token of a document in the
+     * forward index.
+     *
+     * @param docId the document id in this segment.
+     * @return the end of the tokens of the document.
+     */
+    int getForwardEnd(final int docId) {
+        return forwardOffsets[docId + 1];
+    }
+
+    /**
+     * Returns the term id of a token in the forward index.
+     *
+     * @param position the position in the forward index.
+     * @return the term id in the dictionary of this segment.
+     */
+    int getTermIdAt(final int position) {
+        return termIds[position];
+    }
+
+    /**
+     * Returns the frequency of a token in the forward index.
+     *
+     * @param position the position in the forward index.
+     * @return the amount of occurences of the token in its document.
+     */
+    int getFrequencyAt(final int position) {
+        return frequencies[position];
+    }
+
+    /**
+     * An analyzed website that waits to be written into a segment.
+     */
+    static final class Entry {
+
+        /**
+         * The website.
+         */
+        private final WebsiteData website;
+
+        /**
+         * The amount of occurences of every token on the website.
+         */
+        private final Map<String, Integer> counts;
+
+        /**
+         * The amount of tokens of the website.
+         */
+        private final int length;
+
+        /**
+         * Creates a new {@code Entry}.
+         *
+         * @param data        the website.
+         * @param tokenCounts the amount of occurences of every token.
+         */
+        Entry(final WebsiteData data, final Map<String, Integer> tokenCounts) {
+            this.website = data;
+            this.counts = tokenCounts;
+            int tokens = 0;
+            for (int count : tokenCounts.values()) {
+                tokens += count;
+            }
+            this.length = tokens;
+        }
+
+        /**
+         * Returns the website.
+         *
+         * @return the website.
+         */
+        WebsiteData getWebsite() {
+            return website;
+        }
+
+        /**
+         * Returns the amount of occurences of every token on the website.
+         *
+         * @return the counts per token.
+         */
+        Map<String, Integer> getCounts() {
+            return counts;
+        }
+
+        /**
+         * Returns the amount of tokens of the website.
+         *
+         * @return the length of the website.
+         */
+        int getLength() {
+            return length;
+        }
+    }
+}
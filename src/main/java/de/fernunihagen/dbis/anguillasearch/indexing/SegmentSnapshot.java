@@ -0,0 +1,564 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+
+/**
+ * The {@code SegmentSnapshot} class is the state of a {@link SegmentedIndex}
+ * at one point in time: a list of immutable {@link Segment}s and the
+ * documents of every segment that are deleted. A snapshot never changes,
+ * every change of the index creates a new one, so a search can read it
+ * without any locking.
+ *
+ * <p>
+ * The document ids of the segments are numbered one after another, a
+ * document has the id base of its segment + its id in the segment. The
+ * document frequency of a token is the sum over all segments without the
+ * deleted documents, so the IDF scores are the same as if all documents
+ * were in one index. The norms depend on these IDF scores and are
+ * calculated on their first use.
+ * </p>
+ */
+final class SegmentSnapshot implements SearchIndex {
+
+    /**
+     * The snapshot of an index without segments.
+     */
+    static final SegmentSnapshot EMPTY = new SegmentSnapshot(new Segment[0],
+            new BitSet[0], new int[0][]);
+
+    /**
+     * Marks a calculated norm in {@link #norms}, norms are never negative so
+     * the sign bit of their bits is free.
+     */
+    private static final long CALCULATED = Long.MIN_VALUE;
+
+    /**
+     * The segments in the order of their document ids.
+     */
+    private final Segment[] segments;
+
+    /**
+     * The deleted documents of every segment, by the ids in the segment.
+     */
+    private final BitSet[] deletedDocs;
+
+    /**
+     * The amount of deleted documents per term id of every segment, null
+     * for a segment without deleted documents.
+     */
+    private final int[][] deletedFrequencies;
+
+    /**
+     * The first document id of every segment plus the document id bound.
+     */
+    private final int[] docBases;
+
+    /**
+     * The amount of documents that are not deleted.
+     */
+    private final int documentCount;
+
+    /**
+     * The document frequencies of all segments that were already summed up.
+     */
+    private final Map<String, Integer> documentFrequencies;
+
+    /**
+     * The bits of the calculated norms or'ed with {@link #CALCULATED},
+     * created on the first use.
+     */
+    private volatile AtomicLongArray norms;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code SegmentSnapshot}. The arrays are taken over
+     * without a copy and must not be changed afterwards.
+     *
+     * @param segmentArray the segments.
+     * @param deleted      the deleted documents of every segment.
+     * @param deletedDf    the amount of deleted documents per term id of
+     *                     every segment, null entries for segments without
+     *                     deleted documents.
+     */
+    private SegmentSnapshot(final Segment[] segmentArray,
+            final BitSet[] deleted, final int[][] deletedDf) {
+        this.segments = segmentArray;
+        this.deletedDocs = deleted;
+        this.deletedFrequencies = deletedDf;
+        this.docBases = new int[segmentArray.length + 1];
+        int liveDocuments = 0;
+        for (int i = 0; i < segmentArray.length; i++) {
+            docBases[i + 1] = docBases[i] + segmentArray[i].size();
+            liveDocuments += segmentArray[i].size() - deleted[i].cardinality();
+        }
+        this.documentCount = liveDocuments;
+        this.documentFrequencies = new ConcurrentHashMap<>();
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Creates the snapshot with a new segment after the existing ones.
+     *
+     * @param segment the new segment.
+     * @return the new snapshot.
+     */
+    SegmentSnapshot withSegment(final Segment segment) {
+        int count = segments.length;
+        Segment[] newSegments = Arrays.copyOf(segments, count + 1);
+        BitSet[] newDeleted = Arrays.copyOf(deletedDocs, count + 1);
+        int[][] newDeletedDf = Arrays.copyOf(deletedFrequencies, count + 1);
+        newSegments[count] = segment;
+        newDeleted[count] = new BitSet();
+        return new SegmentSnapshot(newSegments, newDeleted, newDeletedDf);
+    }
+
+    /**
+     * Creates the snapshot with one more deleted document. Only the deleted
+     * documents of its segment are copied.
+     *
+     * @param docId the id of a document that is not deleted.
+     * @return the new snapshot.
+     */
+    SegmentSnapshot withDeletion(final int docId) {
+        int segmentIndex = segmentOf(docId);
+        int localId = docId - docBases[segmentIndex];
+        Segment segment = segments[segmentIndex];
+        BitSet deleted = (BitSet) deletedDocs[segmentIndex].clone();
+        deleted.set(localId);
+        int[] deletedDf = deletedFrequencies[segmentIndex];
+        if (deletedDf == null) {
+            deletedDf = new int[segment.getIndex().getTermDictionary()
+                    .size()];
+        } else {
+            deletedDf = deletedDf.clone();
+        }
+        for (int i = segment.getForwardStart(localId);
+                i < segment.getForwardEnd(localId); i++) {
+            deletedDf[segment.getTermIdAt(i)]++;
+        }
+        BitSet[] newDeleted = deletedDocs.clone();
+        int[][] newDeletedDf = deletedFrequencies.clone();
+        newDeleted[segmentIndex] = deleted;
+        newDeletedDf[segmentIndex] = deletedDf;
+        return new SegmentSnapshot(segments, newDeleted, newDeletedDf);
+    }
+
+    /**
+     * Creates the snapshot in which some segments are replaced by the
+     * segment they were merged into. The merged segment holds the documents
+     * of the segments that were not deleted in the snapshot the merge
+     * started from, in their order. Documents that were deleted since are
+     * deleted in the merged segment as well. It takes the place of the
+     * first replaced segment, an empty merged segment is left out.
+     *
+     * @param replaced the merged segments, all part of this snapshot.
+     * @param merged   the segment they were merged into.
+     * @param origin   the snapshot the merge started from.
+     * @return the new snapshot.
+     */
+    SegmentSnapshot withMerge(final List<Segment> replaced,
+            final Segment merged, final SegmentSnapshot origin) {
+        BitSet deleted = new BitSet();
+        int[] deletedDf = null;
+        int mergedId = 0;
+        for (Segment segment : replaced) {
+            BitSet before = origin.deletedDocs[origin.indexOf(segment)];
+            BitSet now = deletedDocs[indexOf(segment)];
+            for (int localId = 0; localId < segment.size(); localId++) {
+                if (before.get(localId)) {
+                    continue;
+                }
+                if (now.get(localId)) {
+                    deleted.set(mergedId);
+                }
+                mergedId++;
+            }
+        }
+        if (!deleted.isEmpty()) {
+            deletedDf = new int[merged.getIndex().getTermDictionary().size()];
+            for (int docId = deleted.nextSetBit(0); docId >= 0;
+                    docId = deleted.nextSetBit(docId + 1)) {
+                for (int i = merged.getForwardStart(docId);
+                        i < merged.getForwardEnd(docId); i++) {
+                    deletedDf[merged.getTermIdAt(i)]++;
+                }
+            }
+        }
+
+        List<Segment> newSegments = new ArrayList<>();
+        List<BitSet> newDeleted = new ArrayList<>();
+        List<int[]> newDeletedDf = new ArrayList<>();
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i] == replaced.get(0) && merged.size() > 0) {
+                newSegments.add(merged);
+                newDeleted.add(deleted);
+                newDeletedDf.add(deletedDf);
+            } else if (!replaced.contains(segments[i])) {
+                newSegments.add(segments[i]);
+                newDeleted.add(deletedDocs[i]);
+                newDeletedDf.add(deletedFrequencies[i]);
+            }
+        }
+        return new SegmentSnapshot(newSegments.toArray(new Segment[0]),
+                newDeleted.toArray(new BitSet[0]),
+                newDeletedDf.toArray(new int[0][]));
+    }
+
+    /**
+     * Returns the position of a segment in this snapshot.
+     *
+     * @param segment the segment.
+     * @return its position.
+     * @throws IllegalArgumentException if the segment isn't part of this
+     *                                  snapshot.
+     */
+    private int indexOf(final Segment segment) {
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i] == segment) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("segment is not part of the index");
+    }
+
+    /**
+     * Returns the position of the segment that holds a document id.
+     *
+     * @param docId the document id.
+     * @return the position of the segment.
+     */
+    private int segmentOf(final int docId) {
+        if (docId < 0 || docId >= getDocIdBound()) {
+            throw new IndexOutOfBoundsException("no document id: " + docId);
+        }
+        int position = Arrays.binarySearch(docBases, docId);
+        if (position < 0) {
+            return -position - 2;
+        }
+        /* segments without documents share their base with the next one */
+        while (docBases[position + 1] == docId) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Checks if a document is deleted.
+     *
+     * @param docId the document id.
+     * @return true if the document is deleted.
+     */
+    private boolean isDeleted(final int docId) {
+        int segmentIndex = segmentOf(docId);
+        return deletedDocs[segmentIndex].get(docId - docBases[segmentIndex]);
+    }
+
+    @Override
+    public PostingIterator postings(final String token) {
+        int documentFrequency = getDocumentFrequency(token);
+        if (documentFrequency == 0) {
+            return PostingList.EMPTY.iterator();
+        }
+        double idf = calculateIDFScore(token);
+        List<PostingIterator> iterators = new ArrayList<>();
+        List<Integer> segmentIndexes = new ArrayList<>();
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].getIndex().getDocumentFrequency(token) > 0) {
+                iterators.add(segments[i].getIndex().postings(token, idf));
+                segmentIndexes.add(i);
+            }
+        }
+        return new SegmentPostingIterator(iterators, segmentIndexes,
+                documentFrequency);
+    }
+
+    @Override
+    public int getDocumentFrequency(final String token) {
+        return documentFrequencies.computeIfAbsent(token, key -> {
+            int documentFrequency = 0;
+            for (int i = 0; i < segments.length; i++) {
+                InvertedIndex index = segments[i].getIndex();
+                int termId = index.getTermDictionary().getId(key);
+                if (termId != TermDictionary.UNKNOWN_TERM) {
+                    documentFrequency += index.getDocumentFrequency(key);
+                    if (deletedFrequencies[i] != null) {
+                        documentFrequency -= deletedFrequencies[i][termId];
+                    }
+                }
+            }
+            return documentFrequency;
+        });
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    @Override
+    public int getDocIdBound() {
+        return docBases[segments.length];
+    }
+
+    @Override
+    public String getUrl(final int docId) {
+        if (isDeleted(docId)) {
+            return null;
+        }
+        int segmentIndex = segmentOf(docId);
+        return segments[segmentIndex].getIndex().getUrl(
+                docId - docBases[segmentIndex]);
+    }
+
+    @Override
+    public int getDocId(final String url) {
+        for (int i = 0; i < segments.length; i++) {
+            int localId = segments[i].getIndex().getDocId(url);
+            if (localId >= 0 && !deletedDocs[i].get(localId)) {
+                return docBases[i] + localId;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getDocumentLength(final int docId) {
+        int segmentIndex = segmentOf(docId);
+        return segments[segmentIndex].getIndex().getDocumentLength(
+                docId - docBases[segmentIndex]);
+    }
+
+    @Override
+    public double getDocumentNorm(final int docId) {
+        if (isDeleted(docId)) {
+            return 0.0;
+        }
+        AtomicLongArray calculatedNorms = norms;
+        if (calculatedNorms == null) {
+            synchronized (this) {
+                if (norms == null) {
+                    norms = new AtomicLongArray(getDocIdBound());
+                }
+                calculatedNorms = norms;
+            }
+        }
+        long bits = calculatedNorms.get(docId);
+        if (bits != 0) {
+            return Double.longBitsToDouble(bits & ~CALCULATED);
+        }
+        double norm = calculateNorm(docId);
+        calculatedNorms.set(docId, Double.doubleToLongBits(norm) | CALCULATED);
+        return norm;
+    }
+
+    /**
+     * Calculates the norm of the TFIDF vector of a document from the
+     * forward index of its segment, with the same weights the postings
+     * return.
+     *
+     * @param docId the id of a document that is not deleted.
+     * @return the norm of the TFIDF vector.
+     */
+    private double calculateNorm(final int docId) {
+        int segmentIndex = segmentOf(docId);
+        int localId = docId - docBases[segmentIndex];
+        Segment segment = segments[segmentIndex];
+        int docLength = segment.getIndex().getDocumentLength(localId);
+        TermDictionary dictionary = segment.getIndex().getTermDictionary();
+        double squareSum = 0.0;
+        for (int i = segment.getForwardStart(localId);
+                i < segment.getForwardEnd(localId); i++) {
+            double tfScore = (double) segment.getFrequencyAt(i) / docLength;
+            double weight = (float) (tfScore * calculateIDFScore(
+                    dictionary.getTerm(segment.getTermIdAt(i))));
+            squareSum += weight * weight;
+        }
+        return Math.sqrt(squareSum);
+    }
+
+    @Override
+    public WebsiteData getDocument(final int docId) {
+        if (isDeleted(docId)) {
+            return null;
+        }
+        int segmentIndex = segmentOf(docId);
+        return segments[segmentIndex].getIndex().getDocument(
+                docId - docBases[segmentIndex]);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the segments of the snapshot.
+     *
+     * @return the segments in the order of their document ids.
+     */
+    List<Segment> getSegments() {
+        return List.of(segments);
+    }
+
+    /**
+     * Returns the deleted documents of a segment.
+     *
+     * @param segmentIndex the position of the segment.
+     * @return the ids in the segment of its deleted documents, must not be
+     *         changed.
+     */
+    BitSet getDeletedDocs(final int segmentIndex) {
+        return deletedDocs[segmentIndex];
+    }
+
+    /**
+     * A {@link PostingIterator} over the postings of a token in several
+     * segments, which returns them one segment after another with the
+     * document ids of the snapshot and skips deleted documents.
+     */
+    private final class SegmentPostingIterator implements PostingIterator {
+
+        /**
+         * The iterators over the postings in the segments that hold the
+         * token.
+         */
+        private final List<PostingIterator> iterators;
+
+        /**
+         * The positions of the segments of the iterators.
+         */
+        private final List<Integer> segmentIndexes;
+
+        /**
+         * The amount of postings of documents that are not deleted.
+         */
+        private final int liveCount;
+
+        /**
+         * The position of the current iterator.
+         */
+        private int current;
+
+        /**
+         * The current document id.
+         */
+        private int doc = -1;
+
+        /**
+         * Creates a new iterator positioned before the first posting.
+         *
+         * @param segmentIterators the iterators over the postings in the
+         *                         segments.
+         * @param indexes          the positions of their segments.
+         * @param live             the amount of postings of documents that
+         *                         are not deleted.
+         */
+        SegmentPostingIterator(final List<PostingIterator> segmentIterators,
+                final List<Integer> indexes, final int live) {
+            this.iterators = segmentIterators;
+            this.segmentIndexes = indexes;
+            this.liveCount = live;
+        }
+
+        @Override
+        public int docId() {
+            return doc;
+        }
+
+        @Override
+        public int next() {
+            if (doc == NO_MORE_DOCS) {
+                return doc;
+            }
+            return skipDeleted(iterators.get(current).next());
+        }
+
+        @Override
+        public int advance(final int target) {
+            if (doc == NO_MORE_DOCS) {
+                return doc;
+            }
+            /* the segments before the one of target are skipped */
+            while (current + 1 < iterators.size()
+                    && docBases[segmentIndexes.get(current + 1)] <= target) {
+                current++;
+            }
+            int base = docBases[segmentIndexes.get(current)];
+            return skipDeleted(iterators.get(current).advance(
+                    Math.max(target - base, 0)));
+        }
+
+        @Override
+        public float weight() {
+            return iterators.get(current).weight();
+        }
+
+        @Override
+        public int cost() {
+            return liveCount;
+        }
+
+        @Override
+        public float maxWeight() {
+            float max = 0.0f;
+            for (PostingIterator iterator : iterators) {
+                max = Math.max(max, iterator.maxWeight());
+            }
+            return max;
+        }
+
+        @Override
+        public int blockLastDocId() {
+            if (doc == NO_MORE_DOCS) {
+                return NO_MORE_DOCS;
+            }
+            /* the block of the segment iterator ends with the segment */
+            int segment = segmentIndexes.get(current);
+            int lastLocalId = Math.min(iterators.get(current)
+                    .blockLastDocId(), segments[segment].size() - 1);
+            return docBases[segment] + lastLocalId;
+        }
+
+        @Override
+        public float blockMaxWeight() {
+            if (doc == -1 || doc == NO_MORE_DOCS) {
+                return maxWeight();
+            }
+            return iterators.get(current).blockMaxWeight();
+        }
+
+        /**
+         * Moves to the first document at or after a document of the current
+         * segment that isn't deleted, continuing with the next segments if
+         * the current one has no more postings.
+         *
+         * @param localId the id in the current segment to start at.
+         * @return the document id of that posting or {@link #NO_MORE_DOCS}.
+         */
+        private int skipDeleted(final int localId) {
+            int id = localId;
+            while (true) {
+                if (id == NO_MORE_DOCS) {
+                    if (current + 1 == iterators.size()) {
+                        doc = NO_MORE_DOCS;
+                        return doc;
+                    }
+                    current++;
+                    id = iterators.get(current).next();
+                } else if (deletedDocs[segmentIndexes.get(current)].get(id)) {
+                    id = iterators.get(current).next();
+                } else {
+                    doc = docBases[segmentIndexes.get(current)] + id;
+                    return doc;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.util.StringTokenizer;
+
+/**
+ * The {@code SegmentedIndex} class is an index for continuous indexing. It
+ * is split into immutable {@link Segment}s, which hold the compressed
+ * postings of their websites like an {@link InvertedIndex}.
+ *
+ * <p>
+ * New websites are tokenized and collected in an in-memory buffer. Once the
+ * buffer holds {@code flushThreshold} websites it is written into a new
+ * segment, {@link #flush()} does so earlier. Websites in the buffer are not
+ * searchable yet. A deleted website of a segment is only marked as deleted,
+ * the segment itself doesn't change.
+ * </p>
+ *
+ * <p>
+ * A background thread merges segments with a tiered merge policy: segments
+ * are put into tiers by their amount of websites (up to
+ * {@code flushThreshold}, up to {@code flushThreshold * mergeFactor}, ...)
+ * and as soon as a tier holds {@code mergeFactor} segments they are merged
+ * into one segment of the next tier. A segment of which more than half of
+ * the websites are deleted is merged on its own. A merge leaves out the
+ * deleted websites, so the amount of segments a search has to read stays
+ * logarithmic in the amount of websites and deleted websites don't pile up.
+ * </p>
+ *
+ * <p>
+ * Every change creates a new {@link SearchIndex} snapshot of the segments,
+ * which is published with a single volatile write. The document frequencies
+ * of a snapshot are summed up over all segments, so the IDF scores are the
+ * same as for a single index of all searchable websites. The methods of
+ * {@link SearchIndex} read the current snapshot, a search that reads the
+ * index several times has to use {@link #snapshot()} because the document
+ * ids change when segments are merged. Changes are synchronized, searches
+ * never wait for them. The index has to be closed to stop the merge thread.
+ * </p>
+ */
+public final class SegmentedIndex implements SearchIndex, Closeable {
+
+    /**
+     * Logger for the output or info or error messages.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            SegmentedIndex.class);
+
+    /**
+     * The default amount of websites in the buffer before it's flushed.
+     */
+    public static final int DEFAULT_FLUSH_THRESHOLD = 1000;
+
+    /**
+     * The default amount of segments of a tier that are merged.
+     */
+    public static final int DEFAULT_MERGE_FACTOR = 10;
+
+    /**
+     * The amount of websites in the buffer before it's flushed.
+     */
+    private final int flushThreshold;
+
+    /**
+     * The amount of segments of a tier that are merged.
+     */
+    private final int mergeFactor;
+
+    /**
+     * Cache of already analyzed website contents, may be null if every
+     * website shall be processed by the {@link StringTokenizer}.
+     */
+    private final AnalysisCache analysisCache;
+
+    /**
+     * The analyzed websites that are not flushed yet, url -> website.
+     */
+    private final Map<String, Segment.Entry> buffer;
+
+    /**
+     * The thread that merges segments.
+     */
+    private final ExecutorService mergeExecutor;
+
+    /**
+     * The current state of the segments.
+     */
+    private volatile SegmentSnapshot current;
+
+    /**
+     * The merge that is running or waiting, null if there is none.
+     */
+    private Future<?> pendingMerge;
+
+    /**
+     * True once the index is closed.
+     */
+    private boolean closed;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new empty {@code SegmentedIndex} with the default flush
+     * threshold and merge factor.
+     */
+    public SegmentedIndex() {
+        this(DEFAULT_FLUSH_THRESHOLD, DEFAULT_MERGE_FACTOR, null);
+    }
+
+    /**
+     * Creates a new empty {@code SegmentedIndex}.
+     *
+     * @param bufferSize      the amount of websites in the buffer before
+     *                        it's flushed into a segment.
+     * @param segmentsPerTier the amount of segments of a tier that are
+     *                        merged.
+     * @param cache           the cache of analyzed website contents, or null
+     *                        to process every website.
+     * @throws IllegalArgumentException if the buffer size is less than 1 or
+     *                                  less than 2 segments shall be merged.
+     */
+    public SegmentedIndex(final int bufferSize, final int segmentsPerTier,
+            final AnalysisCache cache) {
+        if (bufferSize < 1 || segmentsPerTier < 2) {
+            throw new IllegalArgumentException(
+                    "the buffer needs at least 1 website and a merge at "
+                    + "least 2 segments");
+        }
+        this.flushThreshold = bufferSize;
+        this.mergeFactor = segmentsPerTier;
+        this.analysisCache = cache;
+        this.buffer = new LinkedHashMap<>();
+        this.current = SegmentSnapshot.EMPTY;
+        this.mergeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "segment-merge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Adds a website to the buffer. The website is tokenized before the
+     * index is locked.
+     *
+     * @param data the website to add.
+     * @throws IllegalArgumentException if a website with the same url is
+     *                                  already indexed.
+     */
+    public void addDocument(final WebsiteData data) {
+        Segment.Entry entry = analyze(data);
+        synchronized (this) {
+            if (buffer.containsKey(data.getUrlOfSite())
+                    || current.getDocId(data.getUrlOfSite()) >= 0) {
+                throw new IllegalArgumentException(
+                        "url is already indexed: " + data.getUrlOfSite());
+            }
+            buffer.put(data.getUrlOfSite(), entry);
+            flushIfFull();
+        }
+    }
+
+    /**
+     * Replaces the indexed website with the same url by the given website.
+     * If the url isn't indexed yet the website is added.
+     *
+     * @param data the new content of the website.
+     * @return true if an indexed website was replaced, false if it was
+     *         added.
+     */
+    public boolean replaceDocument(final WebsiteData data) {
+        Segment.Entry entry = analyze(data);
+        synchronized (this) {
+            boolean replaced = deleteDocument(data.getUrlOfSite());
+            buffer.put(data.getUrlOfSite(), entry);
+            flushIfFull();
+            return replaced;
+        }
+    }
+
+    /**
+     * Deletes a website from the buffer or marks it as deleted in its
+     * segment.
+     *
+     * @param url the url of the website to delete.
+     * @return true if the website was deleted, false if it wasn't indexed.
+     */
+    public synchronized boolean deleteDocument(final String url) {
+        if (buffer.remove(url) != null) {
+            return true;
+        }
+        int docId = current.getDocId(url);
+        if (docId < 0) {
+            return false;
+        }
+        current = current.withDeletion(docId);
+        scheduleMerge();
+        return true;
+    }
+
+    /**
+     * Writes the websites of the buffer into a new segment, which makes
+     * them searchable.
+     */
+    public synchronized void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        Segment segment = Segment.build(new ArrayList<>(buffer.values()));
+        buffer.clear();
+        current = current.withSegment(segment);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Flushed %d websites into segment %d",
+                    segment.size(), current.getSegments().size()));
+        }
+        scheduleMerge();
+    }
+
+    /**
+     * Waits until the merge thread has no more segments to merge.
+     *
+     * @throws InterruptedException  if the thread is interrupted while
+     *                               waiting.
+     * @throws IllegalStateException if a merge failed.
+     */
+    public void awaitMerges() throws InterruptedException {
+        while (true) {
+            Future<?> merge;
+            synchronized (this) {
+                merge = pendingMerge;
+            }
+            if (merge == null) {
+                return;
+            }
+            try {
+                merge.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("segments could not be "
+                        + "merged", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Stops the merge thread after the running merge. Websites in the
+     * buffer are not flushed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        mergeExecutor.shutdown();
+        try {
+            mergeExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Tokenizes a website and counts how often every token occurs on it.
+     * If an {@link AnalysisCache} is present an unchanged website is taken
+     * from it.
+     *
+     * @param data the website to analyze.
+     * @return the analyzed website.
+     */
+    private Segment.Entry analyze(final WebsiteData data) {
+        List<String> tokens;
+        if (analysisCache != null) {
+            tokens = analysisCache.tokenizeAndLemmatize(data);
+        } else {
+            tokens = StringTokenizer.tokenizeAndLemmatize(data);
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        for (String token : tokens) {
+            counts.merge(token, 1, Integer::sum);
+        }
+        return new Segment.Entry(data, counts);
+    }
+
+    /**
+     * Flushes the buffer if it holds {@link #flushThreshold} websites.
+     */
+    private void flushIfFull() {
+        if (buffer.size() >= flushThreshold) {
+            flush();
+        }
+    }
+
+    /**
+     * Starts a merge on the merge thread if the merge policy selects
+     * segments and no other merge is pending. Must be called while holding
+     * the lock of the index.
+     */
+    private void scheduleMerge() {
+        if (closed || pendingMerge != null) {
+            return;
+        }
+        SegmentSnapshot origin = current;
+        List<Segment> segments = selectMerge(origin);
+        if (!segments.isEmpty()) {
+            pendingMerge = mergeExecutor.submit(() -> merge(origin,
+                    segments));
+        }
+    }
+
+    /**
+     * Selects the segments to merge next. A segment of which more than half
+     * of the websites are deleted comes first, otherwise the first
+     * {@link #mergeFactor} segments of the lowest tier that has enough of
+     * them.
+     *
+     * @param snapshot the current state of the segments.
+     * @return the segments to merge, empty if no merge is needed.
+     */
+    private List<Segment> selectMerge(final SegmentSnapshot snapshot) {
+        List<Segment> segments = snapshot.getSegments();
+        Map<Integer, List<Segment>> tiers = new TreeMap<>();
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            int liveDocuments = segment.size()
+                    - snapshot.getDeletedDocs(i).cardinality();
+            if (liveDocuments * 2 < segment.size()) {
+                return List.of(segment);
+            }
+            tiers.computeIfAbsent(tierOf(liveDocuments),
+                    tier -> new ArrayList<>()).add(segment);
+        }
+        for (List<Segment> tier : tiers.values()) {
+            if (tier.size() >= mergeFactor) {
+                return new ArrayList<>(tier.subList(0, mergeFactor));
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Returns the tier of a segment: 0 up to {@link #flushThreshold}
+     * websites, 1 up to flushThreshold * {@link #mergeFactor} websites and
+     * so on.
+     *
+     * @param liveDocuments the amount of websites of the segment that are
+     *                      not deleted.
+     * @return the tier of the segment.
+     */
+    private int tierOf(final int liveDocuments) {
+        int tier = 0;
+        long bound = flushThreshold;
+        while (liveDocuments > bound) {
+            bound *= mergeFactor;
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Merges segments into one without their deleted websites and replaces
+     * them in the current snapshot. Runs on the merge thread, only the
+     * replacement locks the index. Afterwards the next merge is scheduled.
+     *
+     * @param origin   the snapshot the segments were selected from.
+     * @param segments the segments to merge.
+     */
+    private void merge(final SegmentSnapshot origin,
+            final List<Segment> segments) {
+        boolean merged = false;
+        try {
+            List<Segment> allSegments = origin.getSegments();
+            List<Segment.Entry> entries = new ArrayList<>();
+            int purged = 0;
+            for (Segment segment : segments) {
+                BitSet deleted = origin.getDeletedDocs(
+                        allSegments.indexOf(segment));
+                for (int docId = 0; docId < segment.size(); docId++) {
+                    if (deleted.get(docId)) {
+                        purged++;
+                    } else {
+                        entries.add(segment.toEntry(docId));
+                    }
+                }
+            }
+            Segment mergedSegment = Segment.build(entries);
+            synchronized (this) {
+                current = current.withMerge(segments, mergedSegment, origin);
+            }
+            merged = true;
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info(String.format("Merged %d segments into one with "
+                        + "%d websites, %d deleted websites purged",
+                        segments.size(), entries.size(), purged));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Segments could not be merged", e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                pendingMerge = null;
+                if (merged) {
+                    scheduleMerge();
+                }
+            }
+        }
+    }
+
+    @Override
+    public SearchIndex snapshot() {
+        return current;
+    }
+
+    @Override
+    public PostingIterator postings(final String token) {
+        return current.postings(token);
+    }
+
+    @Override
+    public int getDocumentFrequency(final String token) {
+        return current.getDocumentFrequency(token);
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return current.getDocumentCount();
+    }
+
+    @Override
+    public int getDocIdBound() {
+        return current.getDocIdBound();
+    }
+
+    @Override
+    public String getUrl(final int docId) {
+        return current.getUrl(docId);
+    }
+
+    @Override
+    public int getDocId(final String url) {
+        return current.getDocId(url);
+    }
+
+    @Override
+    public int getDocumentLength(final int docId) {
+        return current.getDocumentLength(docId);
+    }
+
+    @Override
+    public double getDocumentNorm(final int docId) {
+        return current.getDocumentNorm(docId);
+    }
+
+    @Override
+    public WebsiteData getDocument(final int docId) {
+        return current.getDocument(docId);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the amount of segments of the current snapshot.
+     *
+     * @return the amount of segments.
+     */
+    public int getSegmentCount() {
+        return current.getSegments().size();
+    }
+
+    /**
+     * Returns the amount of websites in the buffer, which are not
+     * searchable yet.
+     *
+     * @return the amount of buffered websites.
+     */
+    public synchronized int getBufferedDocumentCount() {
+        return buffer.size();
+    }
+}
@@ -0,0 +1,122 @@
+package de.fernunihagen.dbis.anguillasearch.indexing;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The {@code TermDictionary} class assigns every token of the indexed data
+ * a dense integer id. The ids are assigned in the lexicographic order of the
+ * tokens, so the same set of tokens always gets the same ids.
+ *
+ * <p>
+ * The ids are used to store vectors and posting lists as primitive arrays
+ * instead of maps with {@link String} keys.
+ * </p>
+ *
+ * <p>
+ * The {@link IndexBuilder} keeps the term ids of its snapshots stable: the
+ * tokens of its first snapshot get their ids in lexicographic order, tokens
+ * that are indexed later get the following ids. All dictionaries of a
+ * builder share one growing term table and only see the first
+ * {@link #size()} terms of it, see
+ * {@link #TermDictionary(String[], Map, int)}.
+ * </p>
+ */
+public final class TermDictionary {
+
+    /**
+     * The id that is returned for tokens that are not in the dictionary.
+     */
+    public static final int UNKNOWN_TERM = -1;
+
+    /**
+     * The tokens, term id -> token.
+     */
+    private final String[] terms;
+
+    /**
+     * A map of the tokens and their ids, token -> term id.
+     */
+    private final Map<String, Integer> termIds;
+
+    /**
+     * The amount of tokens, higher ids of a shared term table are not part
+     * of this dictionary.
+     */
+    private final int size;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code TermDictionary} for the given tokens.
+     *
+     * @param tokens the distinct tokens of the indexed data.
+     */
+    public TermDictionary(final Collection<String> tokens) {
+        this.terms = tokens.toArray(new String[0]);
+        Arrays.sort(terms);
+        this.termIds = new HashMap<>(terms.length * 2);
+        for (int id = 0; id < terms.length; id++) {
+            termIds.put(terms[id], id);
+        }
+        this.size = terms.length;
+    }
+
+    /**
+     * Creates a new {@code TermDictionary} of the first terms of a term
+     * table that grows while the dictionary is read. Only terms with ids
+     * from {@code termCount} on may be added to the table afterwards, and
+     * the map must allow reads while it is changed.
+     *
+     * @param termTable the tokens, term id -> token.
+     * @param ids       the term ids of the tokens, token -> term id.
+     * @param termCount the amount of tokens of this dictionary.
+     */
+    TermDictionary(final String[] termTable, final Map<String, Integer> ids,
+            final int termCount) {
+        this.terms = termTable;
+        this.termIds = ids;
+        this.size = termCount;
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Returns the id of a token.
+     *
+     * @param token the token to look up.
+     * @return the id of the token or {@link #UNKNOWN_TERM} if the token
+     *         doesn't occur in the indexed data.
+     */
+    public int getId(final String token) {
+        Integer id = termIds.get(token);
+        if (id == null || id >= size) {
+            return UNKNOWN_TERM;
+        }
+        return id;
+    }
+
+    /**
+     * Returns the token with the given id.
+     *
+     * @param id the id of the token.
+     * @return the token.
+     * @throws IndexOutOfBoundsException if the id is not part of this
+     *                                   dictionary.
+     */
+    public String getTerm(final int id) {
+        return terms[Objects.checkIndex(id, size)];
+    }
+
+    /**
+     * Returns the amount of tokens in the dictionary.
+     *
+     * @return the size of the dictionary.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,98 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code BatchResponse} class is the immutable result of a batch of
+ * searches: one {@link SearchResponse} per query in the order of the
+ * queries, together with the time the whole batch took and the amount of
+ * posting lists that were decoded for it.
+ */
+public final class BatchResponse {
+
+    /**
+     * The responses in the order of the queries.
+     */
+    private final List<SearchResponse> responses;
+
+    /**
+     * The time the batch took in nanoseconds.
+     */
+    private final long elapsedNanos;
+
+    /**
+     * The amount of distinct tokens whose postings were decoded.
+     */
+    private final int decodedTokens;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code BatchResponse}.
+     *
+     * @param queryResponses the responses in the order of the queries.
+     * @param nanos          the time the batch took in nanoseconds.
+     * @param tokens         the amount of decoded posting lists.
+     */
+    BatchResponse(final List<SearchResponse> queryResponses,
+            final long nanos, final int tokens) {
+        this.responses = List.copyOf(queryResponses);
+        this.elapsedNanos = nanos;
+        this.decodedTokens = tokens;
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Returns the throughput of the batch.
+     *
+     * @return the amount of queries per second, 0.0 for an empty batch.
+     */
+    public double queriesPerSecond() {
+        if (responses.isEmpty()) {
+            return 0.0;
+        }
+        return responses.size() * (double) TimeUnit.SECONDS.toNanos(1)
+                / Math.max(1L, elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queries=%d, decodedTokens=%d, elapsed=%.3fms, "
+                + "queriesPerSecond=%.1f", responses.size(), decodedTokens,
+                elapsedNanos / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                queriesPerSecond());
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the responses of the queries.
+     *
+     * @return the unmodifiable list of the responses in the order of the
+     *         queries.
+     */
+    public List<SearchResponse> getResponses() {
+        return responses;
+    }
+
+    /**
+     * Returns the time the batch took.
+     *
+     * @return the elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the amount of distinct tokens whose postings were decoded
+     * once for all queries of the batch.
+     *
+     * @return the amount of decoded posting lists.
+     */
+    public int getDecodedTokenCount() {
+        return decodedTokens;
+    }
+}
@@ -0,0 +1,320 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingIterator;
+import de.fernunihagen.dbis.anguillasearch.indexing.SearchIndex;
+
+/**
+ * The {@code BlockMaxWand} class finds the websites with the highest added
+ * up TFIDF scores for a query without scoring every posting of the query
+ * tokens (Block-Max WAND).
+ *
+ * <p>
+ * The iterators over the postings of the query tokens are kept sorted by
+ * their current document id. Adding up the upper bounds of their weights
+ * ({@link PostingIterator#maxWeight()}) in that order gives the first
+ * document (the pivot) that can score higher than the lowest of the best
+ * scores found so far, all documents before it are skipped. Before the
+ * pivot is scored the bounds of the blocks the iterators are positioned in
+ * ({@link PostingIterator#blockMaxWeight()}) are checked, so whole blocks
+ * that can't reach the best scores are skipped as well.
+ * </p>
+ *
+ * <p>
+ * The scores of the documents that are scored are added up in the order of
+ * the query tokens, exactly like an exhaustive search does it, and a
+ * document only enters the best scores with a higher score than the lowest
+ * one. Since the documents are scored in ascending order of their ids this
+ * gives the same best results, including the order of equal scores.
+ * </p>
+ */
+final class BlockMaxWand {
+
+    /**
+     * Logger for the amount of scored documents.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            BlockMaxWand.class);
+
+    /**
+     * The index to search.
+     */
+    private final SearchIndex index;
+
+    /**
+     * The iterators of the distinct query tokens, sorted by document id.
+     */
+    private final Cursor[] cursors;
+
+    /**
+     * The cursor of every query token in the order of the query, a token
+     * that occurs twice has its cursor twice.
+     */
+    private final Cursor[] cursorPerQueryToken;
+
+    /**
+     * The amount of best results to find.
+     */
+    private final int topN;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code BlockMaxWand} for a query.
+     *
+     * @param searchIndex the index to search.
+     * @param queryTokens the tokens of the query.
+     * @param resultCount the amount of best results to find.
+     */
+    BlockMaxWand(final SearchIndex searchIndex,
+            final List<String> queryTokens, final int resultCount) {
+        this.index = searchIndex;
+        this.topN = resultCount;
+        Map<String, Cursor> cursorPerToken = new HashMap<>();
+        List<Cursor> queryCursors = new ArrayList<>();
+        for (String token : queryTokens) {
+            Cursor cursor = cursorPerToken.get(token);
+            if (cursor == null) {
+                PostingIterator postings = searchIndex.postings(token);
+                /* tokens without postings or weights never add a score */
+                if (postings.maxWeight() == 0.0f
+                        || postings.next() == PostingIterator.NO_MORE_DOCS) {
+                    continue;
+                }
+                cursor = new Cursor(postings);
+                cursorPerToken.put(token, cursor);
+            }
+            cursor.occurrences++;
+            queryCursors.add(cursor);
+        }
+        this.cursors = cursorPerToken.values().toArray(new Cursor[0]);
+        this.cursorPerQueryToken = queryCursors.toArray(new Cursor[0]);
+        for (Cursor cursor : cursors) {
+            cursor.maxWeight = (double) cursor.postings.maxWeight()
+                    * cursor.occurrences;
+        }
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Scores the documents that can be among the best results. Every scored
+     * document is added to the returned accumulator, documents that are
+     * skipped can't be among the best results.
+     *
+     * @return the scores of the documents that were scored.
+     */
+    ScoreAccumulator score() {
+        ScoreAccumulator scores = new ScoreAccumulator(
+                index.getDocIdBound());
+        if (topN == 0) {
+            return scores;
+        }
+        /* the best scores found so far, the lowest one at the head */
+        PriorityQueue<Double> bestScores = new PriorityQueue<>();
+        double threshold = 0.0;
+        int scoredDocuments = 0;
+        int activeCursors = cursors.length;
+        while (true) {
+            sortCursors(activeCursors);
+            while (activeCursors > 0 && cursors[activeCursors - 1]
+                    .postings.docId() == PostingIterator.NO_MORE_DOCS) {
+                activeCursors--;
+            }
+            int pivot = findPivot(activeCursors, threshold);
+            if (pivot < 0) {
+                break;
+            }
+            int pivotDoc = cursors[pivot].postings.docId();
+            /* all cursors on the pivot document take part */
+            while (pivot + 1 < activeCursors
+                    && cursors[pivot + 1].postings.docId() == pivotDoc) {
+                pivot++;
+            }
+            if (cursors[0].postings.docId() != pivotDoc) {
+                /* documents before the pivot can't reach the threshold */
+                for (int i = 0; i < pivot
+                        && cursors[i].postings.docId() < pivotDoc; i++) {
+                    cursors[i].postings.advance(pivotDoc);
+                }
+                continue;
+            }
+            if (!exceeds(blockBound(pivot), pivot + 1, threshold)) {
+                /* the blocks of the cursors can't reach the threshold */
+                int target = nextTarget(pivot, activeCursors);
+                for (int i = 0; i <= pivot; i++) {
+                    cursors[i].postings.advance(target);
+                }
+                continue;
+            }
+            double score = scoreDocument(scores, pivotDoc);
+            scoredDocuments++;
+            if (score > threshold) {
+                bestScores.add(score);
+                if (bestScores.size() > topN) {
+                    bestScores.poll();
+                }
+                if (bestScores.size() == topN) {
+                    threshold = bestScores.peek();
+                }
+            }
+            for (int i = 0; i <= pivot; i++) {
+                cursors[i].postings.next();
+            }
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Scored %s documents for the best %s",
+                    scoredDocuments, topN));
+        }
+        return scores;
+    }
+
+    /**
+     * Adds up the weights of a document in the order of the query tokens.
+     *
+     * @param scores the accumulator to add the weights to.
+     * @param docId  the document id, all cursors on it are positioned.
+     * @return the score of the document.
+     */
+    private double scoreDocument(final ScoreAccumulator scores,
+            final int docId) {
+        for (Cursor cursor : cursorPerQueryToken) {
+            if (cursor.postings.docId() == docId) {
+                scores.add(docId, cursor.postings.weight());
+            }
+        }
+        return scores.getScore(docId);
+    }
+
+    /**
+     * Finds the first cursor at which the added up upper bounds of the
+     * cursors exceed the threshold.
+     *
+     * @param activeCursors the amount of cursors that are not exhausted.
+     * @param threshold     the lowest of the best scores.
+     * @return the position of the pivot cursor or -1 if no document can
+     *         exceed the threshold anymore.
+     */
+    private int findPivot(final int activeCursors, final double threshold) {
+        double bound = 0.0;
+        for (int i = 0; i < activeCursors; i++) {
+            bound += cursors[i].maxWeight;
+            if (exceeds(bound, i + 1, threshold)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds up the block bounds of the cursors on the pivot document.
+     *
+     * @param pivot the position of the last cursor on the pivot document.
+     * @return the upper bound of the scores in the current blocks.
+     */
+    private double blockBound(final int pivot) {
+        double bound = 0.0;
+        for (int i = 0; i <= pivot; i++) {
+            bound += (double) cursors[i].postings.blockMaxWeight()
+                    * cursors[i].occurrences;
+        }
+        return bound;
+    }
+
+    /**
+     * Returns the first document after the current blocks of the cursors on
+     * the pivot document, or the document of the next cursor if it comes
+     * first.
+     *
+     * @param pivot         the position of the last cursor on the pivot
+     *                      document.
+     * @param activeCursors the amount of cursors that are not exhausted.
+     * @return the document id to move the cursors to.
+     */
+    private int nextTarget(final int pivot, final int activeCursors) {
+        long target = PostingIterator.NO_MORE_DOCS;
+        for (int i = 0; i <= pivot; i++) {
+            target = Math.min(target,
+                    (long) cursors[i].postings.blockLastDocId() + 1);
+        }
+        if (pivot + 1 < activeCursors) {
+            target = Math.min(target, cursors[pivot + 1].postings.docId());
+        }
+        return (int) target;
+    }
+
+    /**
+     * Sorts the active cursors by their document id. The amount of cursors
+     * is the amount of distinct query tokens, so insertion sort is used.
+     *
+     * @param activeCursors the amount of cursors to sort.
+     */
+    private void sortCursors(final int activeCursors) {
+        for (int i = 1; i < activeCursors; i++) {
+            Cursor cursor = cursors[i];
+            int j = i - 1;
+            while (j >= 0 && cursors[j].postings.docId() > cursor.postings
+                    .docId()) {
+                cursors[j + 1] = cursors[j];
+                j--;
+            }
+            cursors[j + 1] = cursor;
+        }
+    }
+
+    /**
+     * Checks if an upper bound can exceed the threshold. The bounds of the
+     * tokens are added up in another order than the weights of a score,
+     * which can change the last bit of the sum for every further token, so
+     * the bound gets that much tolerance. A bound of a single token is
+     * compared exactly.
+     *
+     * @param bound     the added up upper bounds of the tokens.
+     * @param terms     the amount of added up bounds.
+     * @param threshold the lowest of the best scores.
+     * @return true if a document with that bound has to be looked at.
+     */
+    private static boolean exceeds(final double bound, final int terms,
+            final double threshold) {
+        return bound + 2.0 * (terms - 1) * Math.ulp(bound) > threshold;
+    }
+
+    /**
+     * The iterator over the postings of one distinct query token.
+     */
+    private static final class Cursor {
+
+        /**
+         * The iterator over the postings of the token.
+         */
+        private final PostingIterator postings;
+
+        /**
+         * The upper bound of the weights of the token in the query, which
+         * is the bound of the postings times the occurrences of the token.
+         */
+        private double maxWeight;
+
+        /**
+         * How often the token occurs in the query.
+         */
+        private int occurrences;
+
+        /**
+         * Creates a new cursor on the first posting of a token.
+         *
+         * @param iterator the iterator over the postings of the token.
+         */
+        Cursor(final PostingIterator iterator) {
+            this.postings = iterator;
+        }
+    }
+}
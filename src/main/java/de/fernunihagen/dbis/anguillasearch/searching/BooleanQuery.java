@@ -0,0 +1,757 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingIterator;
+import de.fernunihagen.dbis.anguillasearch.indexing.SearchIndex;
+
+/**
+ * The {@code BooleanQuery} class is a parsed query of the boolean query
+ * language. A query consists of words combined with the operators
+ * {@code AND}, {@code OR} and {@code NOT} and grouped with parentheses, e.g.
+ * {@code house AND (garden OR pool) NOT swim}. Words next to each other
+ * without an operator are combined with {@code AND}. {@code NOT} binds
+ * strongest, then {@code AND}, then {@code OR}. The operators have to be
+ * written in upper case, everything else is a word.
+ *
+ * <p>
+ * Every word is analyzed like a normal search query. A word that is
+ * analyzed to several tokens requires all of them, a stop word is left
+ * out. A {@code NOT} clause only excludes websites from the websites that
+ * match the other clauses of its {@code AND} group, so every group needs at
+ * least one clause without {@code NOT}.
+ * </p>
+ *
+ * <p>
+ * The websites that match the query are found by walking through the
+ * postings of the tokens. An {@code AND} group is driven by its clause
+ * with the fewest postings, the other clauses are moved to its documents
+ * with {@link PostingIterator#advance(int)}, which skips postings with
+ * galloping search or the skip entries of compressed postings instead of
+ * reading them one by one. An {@code OR} group merges the documents of its
+ * clauses.
+ * </p>
+ */
+final class BooleanQuery {
+
+    /**
+     * The operator that requires both clauses.
+     */
+    private static final String AND = "AND";
+
+    /**
+     * The operator that requires one of the clauses.
+     */
+    private static final String OR = "OR";
+
+    /**
+     * The operator that excludes the clause.
+     */
+    private static final String NOT = "NOT";
+
+    /**
+     * The root clause, null if the query has no tokens.
+     */
+    private final Clause root;
+
+    /**
+     * The tokens that are not excluded, in the order of the query.
+     */
+    private final List<String> scoredTokens;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code BooleanQuery} from its root clause.
+     *
+     * @param rootClause the root clause, or null.
+     */
+    private BooleanQuery(final Clause rootClause) {
+        this.root = rootClause;
+        List<String> tokens = new ArrayList<>();
+        if (rootClause != null) {
+            rootClause.collectScoredTokens(tokens);
+        }
+        this.scoredTokens = List.copyOf(tokens);
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Parses a query of the boolean query language.
+     *
+     * @param query    the query to parse.
+     * @param analyzer the analyzer of the words of the query.
+     * @return the parsed query, an empty query matches no websites.
+     * @throws IllegalArgumentException if the query isn't valid.
+     */
+    static BooleanQuery parse(final String query,
+            final QueryAnalyzer analyzer) {
+        List<String> lexemes = lex(query);
+        if (lexemes.isEmpty()) {
+            return new BooleanQuery(null);
+        }
+        Parser parser = new Parser(lexemes, analyzer);
+        Clause root = parser.parseOr();
+        if (parser.position < parser.lexemes.size()) {
+            throw new IllegalArgumentException(String.format(
+                    "Unexpected '%s' in query: %s",
+                    parser.lexemes.get(parser.position), query));
+        }
+        if (root != null && root.isNegated()) {
+            throw new IllegalArgumentException(String.format(
+                    "Query without a clause to match: %s", query));
+        }
+        return new BooleanQuery(root);
+    }
+
+    /**
+     * Splits a query into parentheses and the words and operators between
+     * whitespace.
+     *
+     * @param query the query to split.
+     * @return the lexemes of the query.
+     */
+    private static List<String> lex(final String query) {
+        List<String> lexemes = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < query.length(); i++) {
+            char character = query.charAt(i);
+            if (Character.isWhitespace(character) || character == '('
+                    || character == ')') {
+                if (word.length() > 0) {
+                    lexemes.add(word.toString());
+                    word.setLength(0);
+                }
+                if (!Character.isWhitespace(character)) {
+                    lexemes.add(String.valueOf(character));
+                }
+            } else {
+                word.append(character);
+            }
+        }
+        if (word.length() > 0) {
+            lexemes.add(word.toString());
+        }
+        return lexemes;
+    }
+
+    /**
+     * Creates an iterator over the ids of the documents of an index that
+     * match the query, in ascending order.
+     *
+     * @param index the snapshot of the index to search.
+     * @return the iterator over the matching documents, positioned before
+     *         the first one.
+     */
+    PostingIterator matches(final SearchIndex index) {
+        if (root == null) {
+            return new DisjunctionIterator(List.of());
+        }
+        return root.matches(index);
+    }
+
+    @Override
+    public String toString() {
+        return root == null ? "" : root.toString();
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the tokens of the clauses that are not excluded, which score
+     * the matching websites.
+     *
+     * @return the unmodifiable list of the tokens in the order of the query.
+     */
+    List<String> getScoredTokens() {
+        return scoredTokens;
+    }
+
+    /**
+     * A recursive descent parser of the lexemes of a query.
+     */
+    private static final class Parser {
+
+        /**
+         * The lexemes of the query.
+         */
+        private final List<String> lexemes;
+
+        /**
+         * The analyzer of the words.
+         */
+        private final QueryAnalyzer analyzer;
+
+        /**
+         * The position of the next lexeme.
+         */
+        private int position;
+
+        /**
+         * Creates a new parser.
+         *
+         * @param queryLexemes  the lexemes of the query.
+         * @param queryAnalyzer the analyzer of the words.
+         */
+        Parser(final List<String> queryLexemes,
+                final QueryAnalyzer queryAnalyzer) {
+            this.lexemes = queryLexemes;
+            this.analyzer = queryAnalyzer;
+        }
+
+        /**
+         * Parses clauses combined with {@code OR}.
+         *
+         * @return the clause, or null if it has no tokens.
+         */
+        Clause parseOr() {
+            List<Clause> clauses = new ArrayList<>();
+            addClause(clauses, parseAnd());
+            while (accept(OR)) {
+                addClause(clauses, parseAnd());
+            }
+            for (Clause clause : clauses) {
+                if (clause.isNegated() && clauses.size() > 1) {
+                    throw new IllegalArgumentException(
+                            "NOT needs a clause to exclude from in its "
+                                    + "AND group");
+                }
+            }
+            if (clauses.size() <= 1) {
+                return clauses.isEmpty() ? null : clauses.get(0);
+            }
+            return new Or(clauses);
+        }
+
+        /**
+         * Parses clauses combined with {@code AND} or written next to each
+         * other.
+         *
+         * @return the clause, or null if it has no tokens.
+         */
+        Clause parseAnd() {
+            List<Clause> clauses = new ArrayList<>();
+            addClause(clauses, parseNot());
+            while (position < lexemes.size() && !OR.equals(peek())
+                    && !")".equals(peek())) {
+                accept(AND);
+                addClause(clauses, parseNot());
+            }
+            List<Clause> required = new ArrayList<>();
+            List<Clause> excluded = new ArrayList<>();
+            for (Clause clause : clauses) {
+                if (clause.isNegated()) {
+                    excluded.add(((Not) clause).clause);
+                } else {
+                    required.add(clause);
+                }
+            }
+            if (clauses.size() <= 1) {
+                return clauses.isEmpty() ? null : clauses.get(0);
+            }
+            if (required.isEmpty()) {
+                /* NOT a NOT b is NOT (a OR b), checked by the outer group */
+                return new Not(new Or(excluded));
+            }
+            return new And(required, excluded);
+        }
+
+        /**
+         * Parses a clause with any amount of {@code NOT} before it.
+         *
+         * @return the clause, or null if it has no tokens.
+         */
+        Clause parseNot() {
+            if (accept(NOT)) {
+                Clause clause = parseNot();
+                if (clause == null) {
+                    return null;
+                }
+                /* NOT NOT cancels out */
+                return clause.isNegated() ? ((Not) clause).clause
+                        : new Not(clause);
+            }
+            return parsePrimary();
+        }
+
+        /**
+         * Parses a word or a clause in parentheses.
+         *
+         * @return the clause, or null if it has no tokens.
+         */
+        Clause parsePrimary() {
+            if (position >= lexemes.size()) {
+                throw new IllegalArgumentException(
+                        "Unexpected end of query");
+            }
+            String lexeme = lexemes.get(position++);
+            if ("(".equals(lexeme)) {
+                Clause clause = parseOr();
+                if (!accept(")")) {
+                    throw new IllegalArgumentException(
+                            "Missing ')' in query");
+                }
+                return clause;
+            }
+            if (")".equals(lexeme) || AND.equals(lexeme)
+                    || OR.equals(lexeme)) {
+                throw new IllegalArgumentException(String.format(
+                        "Unexpected '%s' in query", lexeme));
+            }
+            List<String> tokens = analyzer.analyze(lexeme);
+            if (tokens.isEmpty()) {
+                return null;
+            }
+            if (tokens.size() == 1) {
+                return new Term(tokens.get(0));
+            }
+            List<Clause> terms = new ArrayList<>();
+            for (String token : tokens) {
+                terms.add(new Term(token));
+            }
+            return new And(terms, List.of());
+        }
+
+        /**
+         * Adds a clause with tokens to a list.
+         *
+         * @param clauses the list of clauses.
+         * @param clause  the clause, or null if it has no tokens.
+         */
+        private void addClause(final List<Clause> clauses,
+                final Clause clause) {
+            if (clause != null) {
+                clauses.add(clause);
+            }
+        }
+
+        /**
+         * Returns the next lexeme without consuming it.
+         *
+         * @return the next lexeme.
+         */
+        private String peek() {
+            return lexemes.get(position);
+        }
+
+        /**
+         * Consumes the next lexeme if it is the expected one.
+         *
+         * @param expected the expected lexeme.
+         * @return true if the lexeme was consumed.
+         */
+        private boolean accept(final String expected) {
+            if (position < lexemes.size() && expected.equals(peek())) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A clause of a query.
+     */
+    private abstract static class Clause {
+
+        /**
+         * Creates an iterator over the documents that match the clause.
+         *
+         * @param index the snapshot of the index to search.
+         * @return the iterator, positioned before the first document.
+         */
+        abstract PostingIterator matches(SearchIndex index);
+
+        /**
+         * Adds the tokens of the clause that are not excluded.
+         *
+         * @param tokens the list to add the tokens to.
+         */
+        abstract void collectScoredTokens(List<String> tokens);
+
+        /**
+         * Returns whether the clause excludes documents.
+         *
+         * @return true for a {@code NOT} clause.
+         */
+        boolean isNegated() {
+            return false;
+        }
+    }
+
+    /**
+     * A clause that matches the documents a token occurs in.
+     */
+    private static final class Term extends Clause {
+
+        /**
+         * The analyzed token.
+         */
+        private final String token;
+
+        /**
+         * Creates a new term.
+         *
+         * @param analyzedToken the analyzed token.
+         */
+        Term(final String analyzedToken) {
+            this.token = analyzedToken;
+        }
+
+        @Override
+        PostingIterator matches(final SearchIndex index) {
+            return index.postings(token);
+        }
+
+        @Override
+        void collectScoredTokens(final List<String> tokens) {
+            tokens.add(token);
+        }
+
+        @Override
+        public String toString() {
+            return token;
+        }
+    }
+
+    /**
+     * A clause that excludes the documents of another clause.
+     */
+    private static final class Not extends Clause {
+
+        /**
+         * The excluded clause.
+         */
+        private final Clause clause;
+
+        /**
+         * Creates a new negated clause.
+         *
+         * @param excluded the excluded clause.
+         */
+        Not(final Clause excluded) {
+            this.clause = excluded;
+        }
+
+        @Override
+        PostingIterator matches(final SearchIndex index) {
+            throw new IllegalStateException(
+                    "a NOT clause is only matched within its AND group");
+        }
+
+        @Override
+        void collectScoredTokens(final List<String> tokens) {
+            /* excluded tokens don't occur on the matching websites */
+        }
+
+        @Override
+        boolean isNegated() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return NOT + " " + clause;
+        }
+    }
+
+    /**
+     * A clause that matches the documents of all required clauses and of
+     * none of the excluded clauses.
+     */
+    private static final class And extends Clause {
+
+        /**
+         * The required clauses, not empty.
+         */
+        private final List<Clause> required;
+
+        /**
+         * The excluded clauses.
+         */
+        private final List<Clause> excluded;
+
+        /**
+         * Creates a new conjunction.
+         *
+         * @param requiredClauses the required clauses.
+         * @param excludedClauses the excluded clauses.
+         */
+        And(final List<Clause> requiredClauses,
+                final List<Clause> excludedClauses) {
+            this.required = List.copyOf(requiredClauses);
+            this.excluded = List.copyOf(excludedClauses);
+        }
+
+        @Override
+        PostingIterator matches(final SearchIndex index) {
+            List<PostingIterator> requiredIterators = new ArrayList<>();
+            for (Clause clause : required) {
+                requiredIterators.add(clause.matches(index));
+            }
+            List<PostingIterator> excludedIterators = new ArrayList<>();
+            for (Clause clause : excluded) {
+                excludedIterators.add(clause.matches(index));
+            }
+            return new ConjunctionIterator(requiredIterators,
+                    excludedIterators);
+        }
+
+        @Override
+        void collectScoredTokens(final List<String> tokens) {
+            for (Clause clause : required) {
+                clause.collectScoredTokens(tokens);
+            }
+        }
+
+        @Override
+        public String toString() {
+            List<String> parts = new ArrayList<>();
+            for (Clause clause : required) {
+                parts.add(clause.toString());
+            }
+            for (Clause clause : excluded) {
+                parts.add(NOT + " " + clause);
+            }
+            return "(" + String.join(" " + AND + " ", parts) + ")";
+        }
+    }
+
+    /**
+     * A clause that matches the documents of any of its clauses.
+     */
+    private static final class Or extends Clause {
+
+        /**
+         * The clauses, none of them negated.
+         */
+        private final List<Clause> clauses;
+
+        /**
+         * Creates a new disjunction.
+         *
+         * @param orClauses the clauses.
+         */
+        Or(final List<Clause> orClauses) {
+            this.clauses = List.copyOf(orClauses);
+        }
+
+        @Override
+        PostingIterator matches(final SearchIndex index) {
+            List<PostingIterator> iterators = new ArrayList<>();
+            for (Clause clause : clauses) {
+                iterators.add(clause.matches(index));
+            }
+            return new DisjunctionIterator(iterators);
+        }
+
+        @Override
+        void collectScoredTokens(final List<String> tokens) {
+            for (Clause clause : clauses) {
+                clause.collectScoredTokens(tokens);
+            }
+        }
+
+        @Override
+        public String toString() {
+            List<String> parts = new ArrayList<>();
+            for (Clause clause : clauses) {
+                parts.add(clause.toString());
+            }
+            return "(" + String.join(" " + OR + " ", parts) + ")";
+        }
+    }
+
+    /**
+     * An iterator over the documents that occur in all required iterators
+     * and in none of the excluded iterators. The required iterator with the
+     * lowest cost leads, the others are advanced to its documents.
+     * The matches carry no weight, they are scored by the search modes.
+     */
+    private static final class ConjunctionIterator
+            implements PostingIterator {
+
+        /**
+         * The required iterators, ordered by ascending cost.
+         */
+        private final PostingIterator[] required;
+
+        /**
+         * The excluded iterators.
+         */
+        private final PostingIterator[] excluded;
+
+        /**
+         * Creates a new conjunction of iterators.
+         *
+         * @param requiredIterators the required iterators, not empty.
+         * @param excludedIterators the excluded iterators.
+         */
+        ConjunctionIterator(final List<PostingIterator> requiredIterators,
+                final List<PostingIterator> excludedIterators) {
+            this.required = requiredIterators.stream()
+                    .sorted(Comparator.comparingInt(PostingIterator::cost))
+                    .toArray(PostingIterator[]::new);
+            this.excluded = excludedIterators.toArray(
+                    new PostingIterator[0]);
+        }
+
+        @Override
+        public int docId() {
+            return required[0].docId();
+        }
+
+        @Override
+        public int next() {
+            return align(required[0].next());
+        }
+
+        @Override
+        public int advance(final int target) {
+            return align(required[0].advance(target));
+        }
+
+        /**
+         * Moves the leading iterator forward until all iterators agree on a
+         * document that isn't excluded.
+         *
+         * @param leadDocId the current document of the leading iterator.
+         * @return the matching document or {@link #NO_MORE_DOCS}.
+         */
+        private int align(final int leadDocId) {
+            int candidate = leadDocId;
+            while (candidate != NO_MORE_DOCS) {
+                int mismatch = candidate;
+                for (int i = 1; i < required.length; i++) {
+                    int docId = required[i].docId();
+                    if (docId < candidate) {
+                        docId = required[i].advance(candidate);
+                    }
+                    if (docId > candidate) {
+                        mismatch = docId;
+                        break;
+                    }
+                }
+                if (mismatch > candidate) {
+                    candidate = required[0].advance(mismatch);
+                } else if (isExcluded(candidate)) {
+                    candidate = required[0].next();
+                } else {
+                    return candidate;
+                }
+            }
+            return NO_MORE_DOCS;
+        }
+
+        /**
+         * Checks whether a document occurs in an excluded iterator.
+         *
+         * @param candidate the document id.
+         * @return true if the document is excluded.
+         */
+        private boolean isExcluded(final int candidate) {
+            for (PostingIterator iterator : excluded) {
+                int docId = iterator.docId();
+                if (docId < candidate) {
+                    docId = iterator.advance(candidate);
+                }
+                if (docId == candidate) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public float weight() {
+            return 0.0f;
+        }
+
+        @Override
+        public int cost() {
+            return required[0].cost();
+        }
+    }
+
+    /**
+     * An iterator over the documents that occur in any of its iterators.
+     * The matches carry no weight, they are scored by the search modes.
+     */
+    private static final class DisjunctionIterator
+            implements PostingIterator {
+
+        /**
+         * The iterators.
+         */
+        private final PostingIterator[] iterators;
+
+        /**
+         * The current document id.
+         */
+        private int current = -1;
+
+        /**
+         * Creates a new disjunction of iterators.
+         *
+         * @param orIterators the iterators.
+         */
+        DisjunctionIterator(final List<PostingIterator> orIterators) {
+            this.iterators = orIterators.toArray(new PostingIterator[0]);
+        }
+
+        @Override
+        public int docId() {
+            return current;
+        }
+
+        @Override
+        public int next() {
+            for (PostingIterator iterator : iterators) {
+                if (iterator.docId() == current) {
+                    iterator.next();
+                }
+            }
+            return updateCurrent();
+        }
+
+        @Override
+        public int advance(final int target) {
+            for (PostingIterator iterator : iterators) {
+                if (iterator.docId() < target) {
+                    iterator.advance(target);
+                }
+            }
+            return updateCurrent();
+        }
+
+        /**
+         * Moves to the lowest document id of the iterators.
+         *
+         * @return the new current document id.
+         */
+        private int updateCurrent() {
+            current = NO_MORE_DOCS;
+            for (PostingIterator iterator : iterators) {
+                current = Math.min(current, iterator.docId());
+            }
+            return current;
+        }
+
+        @Override
+        public float weight() {
+            return 0.0f;
+        }
+
+        @Override
+        public int cost() {
+            long cost = 0;
+            for (PostingIterator iterator : iterators) {
+                cost += iterator.cost();
+            }
+            return (int) Math.min(cost, Integer.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingIterator;
+import de.fernunihagen.dbis.anguillasearch.indexing.SearchIndex;
+
+/**
+ * The {@code CountingIndex} class is a view of a snapshot of an index that
+ * counts the postings a search reads. Every posting an iterator of the view
+ * moves to with {@link PostingIterator#next()} or
+ * {@link PostingIterator#advance(int)} counts once, postings that are
+ * skipped by an advance don't count. Everything else is read from the
+ * snapshot unchanged.
+ *
+ * <p>
+ * The view is used for one profiled search on one thread and isn't
+ * thread-safe.
+ * </p>
+ */
+final class CountingIndex implements SearchIndex {
+
+    /**
+     * The snapshot the postings are read from.
+     */
+    private final SearchIndex snapshot;
+
+    /**
+     * The amount of postings that were read.
+     */
+    private long postingsRead;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code CountingIndex}.
+     *
+     * @param index the snapshot to count the postings of.
+     */
+    CountingIndex(final SearchIndex index) {
+        this.snapshot = index;
+    }
+
+    // ==============================methods==============================//
+
+    @Override
+    public PostingIterator postings(final String token) {
+        return new CountingIterator(snapshot.postings(token));
+    }
+
+    @Override
+    public int getDocumentFrequency(final String token) {
+        return snapshot.getDocumentFrequency(token);
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return snapshot.getDocumentCount();
+    }
+
+    @Override
+    public int getDocIdBound() {
+        return snapshot.getDocIdBound();
+    }
+
+    @Override
+    public String getUrl(final int docId) {
+        return snapshot.getUrl(docId);
+    }
+
+    @Override
+    public int getDocId(final String url) {
+        return snapshot.getDocId(url);
+    }
+
+    @Override
+    public int getDocumentLength(final int docId) {
+        return snapshot.getDocumentLength(docId);
+    }
+
+    @Override
+    public double getDocumentNorm(final int docId) {
+        return snapshot.getDocumentNorm(docId);
+    }
+
+    @Override
+    public WebsiteData getDocument(final int docId) {
+        return snapshot.getDocument(docId);
+    }
+
+    @Override
+    public double calculateIDFScore(final String token) {
+        return snapshot.calculateIDFScore(token);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the amount of postings that were read from the view.
+     *
+     * @return the amount of postings.
+     */
+    long getPostingsRead() {
+        return postingsRead;
+    }
+
+    /**
+     * An iterator that counts the postings it moves to.
+     */
+    private final class CountingIterator implements PostingIterator {
+
+        /**
+         * The counted postings.
+         */
+        private final PostingIterator postings;
+
+        /**
+         * Creates a new counting iterator.
+         *
+         * @param tokenPostings the postings to count.
+         */
+        CountingIterator(final PostingIterator tokenPostings) {
+            this.postings = tokenPostings;
+        }
+
+        /**
+         * Counts a posting that was moved to.
+         *
+         * @param docId the document id of the posting.
+         * @return the document id.
+         */
+        private int count(final int docId) {
+            if (docId != NO_MORE_DOCS) {
+                postingsRead++;
+            }
+            return docId;
+        }
+
+        @Override
+        public int docId() {
+            return postings.docId();
+        }
+
+        @Override
+        public int next() {
+            return count(postings.next());
+        }
+
+        @Override
+        public int advance(final int target) {
+            return count(postings.advance(target));
+        }
+
+        @Override
+        public float weight() {
+            return postings.weight();
+        }
+
+        @Override
+        public int cost() {
+            return postings.cost();
+        }
+
+        @Override
+        public float maxWeight() {
+            return postings.maxWeight();
+        }
+
+        @Override
+        public int blockLastDocId() {
+            return postings.blockLastDocId();
+        }
+
+        @Override
+        public float blockMaxWeight() {
+            return postings.blockMaxWeight();
+        }
+    }
+}
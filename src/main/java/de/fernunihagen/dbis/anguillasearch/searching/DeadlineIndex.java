@@ -0,0 +1,199 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingIterator;
+import de.fernunihagen.dbis.anguillasearch.indexing.SearchIndex;
+
+/**
+ * The {@code DeadlineIndex} class is a view of a snapshot of an index whose
+ * postings end once the {@link SearchDeadline} of a search expired. Every
+ * scorer stops when its postings are exhausted, so a search on the view
+ * stops as well and returns the best results of the websites it scored so
+ * far. The deadline is checked when the postings of a token are opened and
+ * then every {@value #CHECK_INTERVAL} postings, so reading the clock adds
+ * almost nothing to the search. Everything else is read from the snapshot
+ * unchanged.
+ */
+final class DeadlineIndex implements SearchIndex {
+
+    /**
+     * The amount of postings an iterator reads between two checks of the
+     * deadline, a power of two.
+     */
+    static final int CHECK_INTERVAL = 256;
+
+    /**
+     * The snapshot the postings are read from.
+     */
+    private final SearchIndex snapshot;
+
+    /**
+     * The deadline of the search.
+     */
+    private final SearchDeadline deadline;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code DeadlineIndex}.
+     *
+     * @param index          the snapshot to search.
+     * @param searchDeadline the deadline of the search.
+     */
+    DeadlineIndex(final SearchIndex index,
+            final SearchDeadline searchDeadline) {
+        this.snapshot = index;
+        this.deadline = searchDeadline;
+    }
+
+    // ==============================methods==============================//
+
+    @Override
+    public PostingIterator postings(final String token) {
+        DeadlineIterator iterator = new DeadlineIterator(
+                snapshot.postings(token));
+        if (deadline.isExpired()) {
+            iterator.stop();
+        }
+        return iterator;
+    }
+
+    @Override
+    public int getDocumentFrequency(final String token) {
+        return snapshot.getDocumentFrequency(token);
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return snapshot.getDocumentCount();
+    }
+
+    @Override
+    public int getDocIdBound() {
+        return snapshot.getDocIdBound();
+    }
+
+    @Override
+    public String getUrl(final int docId) {
+        return snapshot.getUrl(docId);
+    }
+
+    @Override
+    public int getDocId(final String url) {
+        return snapshot.getDocId(url);
+    }
+
+    @Override
+    public int getDocumentLength(final int docId) {
+        return snapshot.getDocumentLength(docId);
+    }
+
+    @Override
+    public double getDocumentNorm(final int docId) {
+        return snapshot.getDocumentNorm(docId);
+    }
+
+    @Override
+    public WebsiteData getDocument(final int docId) {
+        return snapshot.getDocument(docId);
+    }
+
+    @Override
+    public double calculateIDFScore(final String token) {
+        return snapshot.calculateIDFScore(token);
+    }
+
+    /**
+     * An iterator that is exhausted once the deadline expired.
+     */
+    private final class DeadlineIterator implements PostingIterator {
+
+        /**
+         * The postings of the token.
+         */
+        private final PostingIterator postings;
+
+        /**
+         * The amount of postings moved to since the last check.
+         */
+        private int movesSinceCheck;
+
+        /**
+         * Whether the iterator was stopped by the deadline.
+         */
+        private boolean stopped;
+
+        /**
+         * Creates a new iterator that checks the deadline.
+         *
+         * @param tokenPostings the postings of the token.
+         */
+        DeadlineIterator(final PostingIterator tokenPostings) {
+            this.postings = tokenPostings;
+        }
+
+        /**
+         * Ends the postings of this iterator and remembers that the search
+         * was stopped.
+         */
+        void stop() {
+            stopped = true;
+            deadline.markStopped();
+        }
+
+        /**
+         * Checks the deadline every {@link #CHECK_INTERVAL} moves.
+         *
+         * @return true if the iterator has to stop.
+         */
+        private boolean expired() {
+            if (++movesSinceCheck == CHECK_INTERVAL) {
+                movesSinceCheck = 0;
+                if (deadline.isExpired()) {
+                    stop();
+                }
+            }
+            return stopped;
+        }
+
+        @Override
+        public int docId() {
+            return stopped ? NO_MORE_DOCS : postings.docId();
+        }
+
+        @Override
+        public int next() {
+            return expired() ? NO_MORE_DOCS : postings.next();
+        }
+
+        @Override
+        public int advance(final int target) {
+            return expired() ? NO_MORE_DOCS : postings.advance(target);
+        }
+
+        @Override
+        public float weight() {
+            return postings.weight();
+        }
+
+        @Override
+        public int cost() {
+            return postings.cost();
+        }
+
+        @Override
+        public float maxWeight() {
+            return postings.maxWeight();
+        }
+
+        @Override
+        public int blockLastDocId() {
+            return stopped ? NO_MORE_DOCS : postings.blockLastDocId();
+        }
+
+        @Override
+        public float blockMaxWeight() {
+            return postings.blockMaxWeight();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingIterator;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingList;
+import de.fernunihagen.dbis.anguillasearch.indexing.SearchIndex;
+
+/**
+ * The {@code FilteredIndex} class is a view of a snapshot of an index that
+ * only contains the postings of a set of matching documents, e.g. the
+ * websites that match a {@link BooleanQuery}. The postings of a token are
+ * intersected with the matching documents while they are read: both
+ * iterators are advanced to the document of the other one, so the postings
+ * between two matching documents are skipped instead of read.
+ *
+ * <p>
+ * The document frequencies, IDF scores and norms are read from the
+ * snapshot, so the scorers of the search modes give the matching websites
+ * the same scores as an unfiltered search. The bounds of the weights are
+ * the ones of the unfiltered postings, which are still upper bounds of the
+ * filtered ones.
+ * </p>
+ */
+final class FilteredIndex implements SearchIndex {
+
+    /**
+     * The snapshot the postings are read from.
+     */
+    private final SearchIndex snapshot;
+
+    /**
+     * The ids of the matching documents.
+     */
+    private final PostingList matches;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code FilteredIndex}.
+     *
+     * @param index          the snapshot to filter.
+     * @param matchingDocIds the ids of the matching documents, the weights
+     *                       aren't read.
+     */
+    FilteredIndex(final SearchIndex index, final PostingList matchingDocIds) {
+        this.snapshot = index;
+        this.matches = matchingDocIds;
+    }
+
+    // ==============================methods==============================//
+
+    @Override
+    public PostingIterator postings(final String token) {
+        return new FilteredIterator(snapshot.postings(token),
+                matches.iterator());
+    }
+
+    @Override
+    public int getDocumentFrequency(final String token) {
+        return snapshot.getDocumentFrequency(token);
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return snapshot.getDocumentCount();
+    }
+
+    @Override
+    public int getDocIdBound() {
+        return snapshot.getDocIdBound();
+    }
+
+    @Override
+    public String getUrl(final int docId) {
+        return snapshot.getUrl(docId);
+    }
+
+    @Override
+    public int getDocId(final String url) {
+        return snapshot.getDocId(url);
+    }
+
+    @Override
+    public int getDocumentLength(final int docId) {
+        return snapshot.getDocumentLength(docId);
+    }
+
+    @Override
+    public double getDocumentNorm(final int docId) {
+        return snapshot.getDocumentNorm(docId);
+    }
+
+    @Override
+    public WebsiteData getDocument(final int docId) {
+        return snapshot.getDocument(docId);
+    }
+
+    @Override
+    public double calculateIDFScore(final String token) {
+        return snapshot.calculateIDFScore(token);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the amount of matching documents.
+     *
+     * @return the amount of documents the postings are filtered to.
+     */
+    int getMatchCount() {
+        return matches.size();
+    }
+
+    /**
+     * An iterator over the postings of a token in the matching documents.
+     */
+    private static final class FilteredIterator implements PostingIterator {
+
+        /**
+         * The postings of the token.
+         */
+        private final PostingIterator postings;
+
+        /**
+         * The matching documents.
+         */
+        private final PostingIterator filter;
+
+        /**
+         * Creates a new filtered iterator.
+         *
+         * @param tokenPostings  the postings of the token.
+         * @param matchingDocIds the matching documents.
+         */
+        FilteredIterator(final PostingIterator tokenPostings,
+                final PostingIterator matchingDocIds) {
+            this.postings = tokenPostings;
+            this.filter = matchingDocIds;
+        }
+
+        @Override
+        public int docId() {
+            return postings.docId();
+        }
+
+        @Override
+        public int next() {
+            return align(postings.next());
+        }
+
+        @Override
+        public int advance(final int target) {
+            return align(postings.advance(target));
+        }
+
+        /**
+         * Advances both iterators to each other until they are on the same
+         * document.
+         *
+         * @param docId the current document of the postings.
+         * @return the matching document or {@link #NO_MORE_DOCS}.
+         */
+        private int align(final int docId) {
+            int candidate = docId;
+            while (candidate != NO_MORE_DOCS) {
+                int match = filter.docId();
+                if (match < candidate) {
+                    match = filter.advance(candidate);
+                }
+                if (match == candidate) {
+                    return candidate;
+                }
+                candidate = postings.advance(match);
+            }
+            return NO_MORE_DOCS;
+        }
+
+        @Override
+        public float weight() {
+            return postings.weight();
+        }
+
+        @Override
+        public int cost() {
+            return Math.min(postings.cost(), filter.cost());
+        }
+
+        @Override
+        public float maxWeight() {
+            return postings.maxWeight();
+        }
+
+        @Override
+        public int blockLastDocId() {
+            return postings.blockLastDocId();
+        }
+
+        @Override
+        public float blockMaxWeight() {
+            return postings.blockMaxWeight();
+        }
+    }
+}
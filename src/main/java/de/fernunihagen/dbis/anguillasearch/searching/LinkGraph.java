@@ -0,0 +1,235 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+
+/**
+ * The {@code LinkGraph} class is the link graph of a list of crawled
+ * websites compiled into primitive arrays for the calculation of the page
+ * ranks. Every url, crawled or only linked to, is a node with a number; the
+ * crawled websites come first in the order of the list. The incoming links
+ * are stored in compressed sparse row form: the sources of the links to
+ * node {@code v} are {@code sources[offsets[v]]} up to
+ * {@code sources[offsets[v + 1]]} in ascending order. Every node further
+ * has the inverse of its amount of outgoing links, or 0 if it has none.
+ *
+ * <p>
+ * The arrays are returned by the getters without a copy and must not be
+ * changed.
+ * </p>
+ */
+final class LinkGraph {
+
+    /**
+     * The url of every node.
+     */
+    private final String[] urls;
+
+    /**
+     * The amount of crawled websites, duplicates included.
+     */
+    private final int crawledCount;
+
+    /**
+     * The amount of nodes of crawled websites, which are the first nodes.
+     */
+    private final int crawledNodeCount;
+
+    /**
+     * The start of the incoming links of every node in {@link #sources},
+     * followed by the amount of links.
+     */
+    private final int[] offsets;
+
+    /**
+     * The sources of the incoming links of all nodes.
+     */
+    private final int[] sources;
+
+    /**
+     * The inverse of the amount of outgoing links of every node.
+     */
+    private final double[] inverseOutDegrees;
+
+    // ============================constructors===========================//
+
+    /**
+     * Compiles the link graph of the websites.
+     *
+     * @param websites the crawled websites.
+     */
+    LinkGraph(final List<WebsiteData> websites) {
+        this.crawledCount = websites.size();
+        Map<String, Integer> nodeIds = new HashMap<>();
+        List<String> nodeUrls = new ArrayList<>();
+        int[] siteNodes = new int[websites.size()];
+        List<Set<String>> siteLinks = new ArrayList<>(websites.size());
+        for (int i = 0; i < websites.size(); i++) {
+            WebsiteData site = websites.get(i);
+            siteNodes[i] = nodeId(site.getUrlOfSite(), nodeIds, nodeUrls);
+            siteLinks.add(site.getLinks());
+        }
+        this.crawledNodeCount = nodeUrls.size();
+        /* the targets of the links, in the order of the websites */
+        int linkCount = 0;
+        for (Set<String> links : siteLinks) {
+            linkCount += links.size();
+        }
+        int[] targets = new int[linkCount];
+        int link = 0;
+        for (Set<String> links : siteLinks) {
+            for (String target : links) {
+                targets[link++] = nodeId(target, nodeIds, nodeUrls);
+            }
+        }
+        int nodeCount = nodeUrls.size();
+        this.urls = nodeUrls.toArray(new String[0]);
+        this.inverseOutDegrees = new double[nodeCount];
+        for (int i = 0; i < siteNodes.length; i++) {
+            /* a website crawled twice keeps the amount of its last links */
+            int outDegree = siteLinks.get(i).size();
+            if (outDegree > 0) {
+                inverseOutDegrees[siteNodes[i]] = 1.0 / outDegree;
+            }
+        }
+        /* counts the incoming links and sorts the sources by target */
+        int[] starts = new int[nodeCount + 1];
+        for (int target : targets) {
+            starts[target + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            starts[v + 1] += starts[v];
+        }
+        int[] unsorted = new int[linkCount];
+        int[] cursors = Arrays.copyOf(starts, nodeCount);
+        link = 0;
+        for (int i = 0; i < siteNodes.length; i++) {
+            for (int j = siteLinks.get(i).size(); j > 0; j--) {
+                unsorted[cursors[targets[link++]]++] = siteNodes[i];
+            }
+        }
+        /*
+         * sorts the sources of every node and drops the links a website
+         * that was crawled twice added twice
+         */
+        this.offsets = new int[nodeCount + 1];
+        int edgeCount = 0;
+        for (int v = 0; v < nodeCount; v++) {
+            Arrays.sort(unsorted, starts[v], starts[v + 1]);
+            for (int e = starts[v]; e < starts[v + 1]; e++) {
+                if (edgeCount == offsets[v]
+                        || unsorted[edgeCount - 1] != unsorted[e]) {
+                    unsorted[edgeCount++] = unsorted[e];
+                }
+            }
+            offsets[v + 1] = edgeCount;
+        }
+        this.sources = edgeCount == linkCount ? unsorted
+                : Arrays.copyOf(unsorted, edgeCount);
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Returns the number of the node of a url and adds a node for a new
+     * url.
+     *
+     * @param url      the url.
+     * @param nodeIds  the numbers of the urls so far.
+     * @param nodeUrls the urls of the nodes so far.
+     * @return the number of the node of the url.
+     */
+    private static int nodeId(final String url,
+            final Map<String, Integer> nodeIds, final List<String> nodeUrls) {
+        Integer nodeId = nodeIds.putIfAbsent(url, nodeUrls.size());
+        if (nodeId == null) {
+            nodeUrls.add(url);
+            return nodeUrls.size() - 1;
+        }
+        return nodeId;
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the amount of nodes.
+     *
+     * @return the amount of nodes.
+     */
+    int getNodeCount() {
+        return urls.length;
+    }
+
+    /**
+     * Returns the amount of links between the nodes.
+     *
+     * @return the amount of links.
+     */
+    int getEdgeCount() {
+        return sources.length;
+    }
+
+    /**
+     * Returns the amount of crawled websites, duplicates included, which
+     * is the N of the page rank formula.
+     *
+     * @return the amount of crawled websites.
+     */
+    int getCrawledCount() {
+        return crawledCount;
+    }
+
+    /**
+     * Returns the amount of nodes of crawled websites, which are the first
+     * nodes.
+     *
+     * @return the amount of nodes of crawled websites.
+     */
+    int getCrawledNodeCount() {
+        return crawledNodeCount;
+    }
+
+    /**
+     * Returns the url of a node.
+     *
+     * @param node the number of the node.
+     * @return the url of the node.
+     */
+    String getUrl(final int node) {
+        return urls[node];
+    }
+
+    /**
+     * Returns the start of the incoming links of every node, followed by
+     * the amount of links.
+     *
+     * @return the offsets of the incoming links.
+     */
+    int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Returns the sources of the incoming links of all nodes.
+     *
+     * @return the sources of the incoming links.
+     */
+    int[] getSources() {
+        return sources;
+    }
+
+    /**
+     * Returns the inverse of the amount of outgoing links of every node.
+     *
+     * @return the inverse out-degrees.
+     */
+    double[] getInverseOutDegrees() {
+        return inverseOutDegrees;
+    }
+}
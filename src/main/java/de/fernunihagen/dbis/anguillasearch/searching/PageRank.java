@@ -1,11 +1,12 @@
 package de.fernunihagen.dbis.anguillasearch.searching;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +20,15 @@ import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
  * of the website baed on the amount of incoming links to this site
  * iteratively. The algorithm stops when two consecutive iterations
  * differ by 0.0001 in total.
+ *
+ * <p>
+ * The links are compiled once into a {@link LinkGraph} of primitive arrays.
+ * Every iteration then reads the incoming links of every website from the
+ * arrays and writes the new page ranks into a second array, and the two
+ * arrays swap their roles for the next iteration. An iteration therefore
+ * neither looks up urls nor allocates anything. With a
+ * {@link ForkJoinPool} the iterations are calculated in parallel.
+ * </p>
  */
 public class PageRank {
 
@@ -34,27 +44,46 @@ public class PageRank {
     private static final double DAMPING_FACTOR = 0.85;
 
     /**
-     * A map of urls and their corresponding page rank.
-     * url -> page rank
+     * The total difference between two iterations below which the
+     * calculation stops.
      */
-    private Map<String, Double> pageRanksPerUrl;
+    private static final double CONVERGENCE_THRESHOLD = 0.0001;
+
+    /**
+     * The amount of ranges of nodes per thread of a pool.
+     */
+    private static final int RANGES_PER_THREAD = 4;
 
     /**
-     * A map of urls and their sets of corresponding incoming urls.
-     * (urls that link to the key url) url -> set(sites that link to url)
+     * The link graph of the crawled websites.
      */
-    private Map<String, Set<String>> incomingLinksPerUrl;
+    private final LinkGraph graph;
 
     /**
-     * A map of urls and their count of outgoing links.
-     * map -> amount of outgoing links
+     * The pool the iterations are calculated on, or null.
      */
-    private Map<String, Integer> outgoingLinksCount;
+    private final ForkJoinPool pool;
 
     /**
-     * A list of {@link WebsiteData} that contains all the crawled Data.
+     * The page rank of every node of the {@link #graph}.
      */
-    private List<WebsiteData> crawledData;
+    private double[] pageRanks;
+
+    /**
+     * The amount of iterations until the page ranks converged.
+     */
+    private int iterations;
+
+    /**
+     * The amount of links the iterations read per second.
+     */
+    private double edgesPerSecond;
+
+    /**
+     * A map of urls and their corresponding page rank.
+     * url -> page rank
+     */
+    private Map<String, Double> pageRanksPerUrl;
 
     // ============================constructors===========================//
     /**
@@ -65,20 +94,35 @@ public class PageRank {
      *                 {@link WebsiteData} objects.
      */
     public PageRank(final List<WebsiteData> websites) {
-        /* initialization of fields */
-        this.crawledData = new ArrayList<>(websites);
-        this.incomingLinksPerUrl = new HashMap<>();
-        this.outgoingLinksCount = new HashMap<>();
-        this.pageRanksPerUrl = new HashMap<>();
+        this(websites, null);
+    }
+
+    /**
+     * Creates a new {@code PageRank} object like
+     * {@link #PageRank(List)} but calculates every iteration in parallel
+     * on the given pool. The urls are split into ranges with about the
+     * same amount of incoming links, and the ranges are calculated and
+     * their differences summed on the pool. Every page rank is calculated
+     * exactly like without a pool, and the differences of the ranges are
+     * added in a fixed order, so the results don't depend on the pool.
+     *
+     * @param websites   the List of crawled website content in the form of
+     *                   {@link WebsiteData} objects.
+     * @param workerPool the pool to calculate the iterations on, or null to
+     *                   calculate them in the calling thread.
+     */
+    public PageRank(final List<WebsiteData> websites,
+            final ForkJoinPool workerPool) {
         /*
          * calculation of page rank, try catch in case something goes
          * wrong. Mitigation of half initialized object.
          */
         try {
-            calculateIncomingLinks();
+            this.graph = new LinkGraph(websites);
+            this.pool = workerPool;
             initializePageRank();
             calculatePageRanks();
-
+            mapPageRanks();
         } catch (Exception e) {
             throw new IllegalStateException(
                     "PageRank could not be initialized",
@@ -87,66 +131,15 @@ public class PageRank {
     }
 
     // ==============================methods==============================//
-    /**
-     * Creates a map of incoming links for every url in the crawled data.
-     */
-    private void calculateIncomingLinks() {
-        /*
-         * initializes the incoming links map for every url to make sure
-         * that even urls without incoming links are present
-         */
-        for (WebsiteData site : crawledData) {
-            incomingLinksPerUrl.put(site.getUrlOfSite(), new HashSet<>());
-        }
-
-        /*
-         * iterates over every site and maps its url to all existing incoming
-         * links to that site in the crawled data. url -> set(sites that
-         * linkto url).
-         * Also maps every site to the amount of outgoing links of that
-         * site. url -> amount of links on that site.
-         */
-        for (WebsiteData site : crawledData) {
-            String url = site.getUrlOfSite();
-            /* maps url to the amount of outgoing links of that url */
-            int outgoingLinksAmount = site.getLinks().size();
-            /* only if the site has at least 1 outgoing link */
-            if (outgoingLinksAmount >= 1) {
-                outgoingLinksCount.put(url, outgoingLinksAmount);
-            }
-
-            /*
-             * map url as incoming link to every site that url links to
-             * (outgoing links). site -> set(url as incoming link) for
-             * every outgoing link of url.
-             */
-            for (String outgoingLink : site.getLinks()) {
-                /*
-                 * if the outgoing link doesnt exist in the map yet
-                 * initialize an entry
-                 */
-                incomingLinksPerUrl.computeIfAbsent(outgoingLink, k -> new
-                 HashSet<>());
-                /*
-                 * map outgoing link of url -> url. For outgoing link of url
-                 * url is now an incoming link.
-                 */
-                incomingLinksPerUrl.get(outgoingLink).add(url);
-            }
-        }
-    }
-
     /**
      * Initialized the pagerank for every website with 1/N with N being the
-     * total amount of websites crawled.
+     * total amount of websites crawled. Urls that are linked to but weren't
+     * crawled start with 0.
      */
     private void initializePageRank() {
-        int n = crawledData.size();
-        double pageRank = 1.0 / n;
-
-        for (WebsiteData url : crawledData) {
-            pageRanksPerUrl.put(url.getUrlOfSite(), pageRank);
-        }
+        pageRanks = new double[graph.getNodeCount()];
+        Arrays.fill(pageRanks, 0, graph.getCrawledNodeCount(),
+                1.0 / graph.getCrawledCount());
     }
 
     /**
@@ -157,130 +150,186 @@ public class PageRank {
      * Site (j) / amounts of sites that j links to)
      */
     private void calculatePageRanks() {
+        int nodeCount = graph.getNodeCount();
+        double[] inverseOutDegrees = graph.getInverseOutDegrees();
+        double[] newPageRanks = new double[nodeCount];
+        /*
+         * the rank every node passes on to each of its outgoing links, the
+         * new contributions are written while the old ones are still read
+         */
+        double[] contributions = new double[nodeCount];
+        double[] newContributions = new double[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            contributions[node] = pageRanks[node] * inverseOutDegrees[node];
+        }
+        int[] ranges = partition();
+        double[] rangeDiffs = new double[ranges.length - 1];
+        long start = System.nanoTime();
         /* initialize with 1 so that while loop starts */
         double diffBetweenIterations = 1.0;
 
-        while (diffBetweenIterations > 0.0001) {
-
-            Map<String, Double> newPageRanks = new HashMap<>();
-
-            /*
-             * calculates the page rank for every url and puts it into
-             * newPageRanks map (url -> pagerank).
-             */
-            for (Map.Entry<String, Set<String>> entry : incomingLinksPerUrl.
-            entrySet()) {
-                String url = entry.getKey();
-                Set<String> incomingLinks = entry.getValue();
-                double pageRank = 0.0;
-                double pageRankwithDampening;
-                /*
-                 * iterates over every incoming link for the current url
-                 * and calculates the pagerank for url. empty sets of
-                 * urls that don't have any incoming urls get ignored-
-                 */
-                for (String incomingLink : incomingLinks) {
-                    int amountOutgoingLinks;
-                    /*
-                     * gets the amount of outgoing links of that incoming
-                     * link of url
-                     */
-                    amountOutgoingLinks = outgoingLinksCount.get(incomingLink);
-                    /*
-                     * calculates the total pagerank for for url by
-                     * summarizing (pagerank of incoming link / amount
-                     * of outgoing links of that link)
-                     */
-                    pageRank += pageRanksPerUrl.get(incomingLink)
-                            / amountOutgoingLinks;
-
+        while (diffBetweenIterations > CONVERGENCE_THRESHOLD) {
+            diffBetweenIterations = iterate(ranges, rangeDiffs, pageRanks,
+                    newPageRanks, contributions, newContributions);
+            iterations++;
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Iteration %d, difference: %.5f",
+                        iterations, diffBetweenIterations));
+            }
+            /* the new page ranks are the old ones of the next iteration */
+            double[] swap = pageRanks;
+            pageRanks = newPageRanks;
+            newPageRanks = swap;
+            swap = contributions;
+            contributions = newContributions;
+            newContributions = swap;
+        }
+        long nanos = System.nanoTime() - start;
+        edgesPerSecond = nanos == 0 ? 0.0
+                : (double) graph.getEdgeCount() * iterations
+                        * TimeUnit.SECONDS.toNanos(1) / nanos;
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format(
+                    "PageRank of %d urls with %d links converged after %d "
+                    + "iterations in %.1f ms on %d ranges, %.0f links per "
+                    + "second, difference: %.5f", nodeCount,
+                    graph.getEdgeCount(), iterations, nanos / 1e6,
+                    rangeDiffs.length, edgesPerSecond,
+                    diffBetweenIterations));
+        }
+    }
 
+    /**
+     * Splits the nodes into consecutive ranges that take about the same
+     * time to calculate, which is the amount of their incoming links plus
+     * one for every node. Without a pool all nodes are one range, with a
+     * pool there are {@value #RANGES_PER_THREAD} ranges per thread so that
+     * threads that finish early can take over a range of the others.
+     *
+     * @return the first node of every range, followed by the amount of
+     *         nodes.
+     */
+    private int[] partition() {
+        int nodeCount = graph.getNodeCount();
+        int[] offsets = graph.getOffsets();
+        int rangeCount = pool == null ? 1
+                : Math.max(1, Math.min(nodeCount,
+                        pool.getParallelism() * RANGES_PER_THREAD));
+        long totalCost = (long) offsets[nodeCount] + nodeCount;
+        int[] ranges = new int[rangeCount + 1];
+        ranges[rangeCount] = nodeCount;
+        for (int range = 1; range < rangeCount; range++) {
+            long cost = totalCost * range / rangeCount;
+            /* the first node whose links and nodes before reach the cost */
+            int low = ranges[range - 1];
+            int high = nodeCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if ((long) offsets[middle] + middle < cost) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
                 }
-                /* add dampening and ranksource to the pagerank */
-                pageRankwithDampening = DAMPING_FACTOR * pageRank
-                            + (1 - DAMPING_FACTOR) * (1.0 / crawledData.size(
-                            ));
-                /* puts the newly calculated pagerank to the temporary map */
-                newPageRanks.put(url, pageRankwithDampening);
             }
-
-            /*
-             * calculates a convergence value between the previous and
-             * current iteration if it is less than 0.0001 the loop will exit.
-             */
-            diffBetweenIterations = calculateConvergence(newPageRanks);
-
-            /*
-             * print the pageranks for this net and the total difference
-             * of pageranks. Iterantions stop if the total difference of
-             * pageranks from the previous iteration minus the current
-             * iteration is less than 0.0001.
-             */
-            printText(diffBetweenIterations, newPageRanks);
-
-            /* update values in the pernanent pageranks map */
-            pageRanksPerUrl.clear();
-            pageRanksPerUrl.putAll(newPageRanks);
-
+            ranges[range] = low;
         }
+        return ranges;
     }
 
     /**
-     * Calculates the total difference between the current and previous
-     * page rank calculations.
+     * Calculates one iteration of the page ranks, on the pool if there is
+     * one.
      *
-     * @param pageRanks A map of the current iteration of urls mapped to the
-     *                  pagerank. (url -> pagerank)
-     * @return The total difference the two iterations.
+     * @param ranges           the first node of every range, followed by
+     *                         the amount of nodes.
+     * @param rangeDiffs       an array for the difference of every range.
+     * @param oldPageRanks     the page ranks of the previous iteration.
+     * @param newPageRanks     the array the new page ranks are written to.
+     * @param contributions    the rank every node passes on to each of its
+     *                         outgoing links.
+     * @param newContributions the array the contributions of the new page
+     *                         ranks are written to.
+     * @return the total difference between the two iterations.
      */
-
-    private double calculateConvergence(final Map<String, Double> pageRanks) {
+    private double iterate(final int[] ranges, final double[] rangeDiffs,
+            final double[] oldPageRanks, final double[] newPageRanks,
+            final double[] contributions, final double[] newContributions) {
+        if (pool == null) {
+            return iterateRange(0, ranges[1], oldPageRanks, newPageRanks,
+                    contributions, newContributions);
+        }
+        pool.submit(() -> IntStream.range(0, rangeDiffs.length).parallel()
+                .forEach(range -> rangeDiffs[range] = iterateRange(
+                        ranges[range], ranges[range + 1], oldPageRanks,
+                        newPageRanks, contributions, newContributions)))
+                .join();
+        /* summed in order, so the result doesn't depend on the threads */
         double diffBetweenIterations = 0.0;
-        /* iterates over every url of the current pagerank iteration map */
-        for (Map.Entry<String, Double> entry : pageRanks.entrySet()) {
-            String url = entry.getKey();
-            /*
-             * sets the value for current page rank iteration for the url
-             * and for the previous one
-             */
-            double newPagerank = entry.getValue();
-            double oldPagerank = pageRanksPerUrl.getOrDefault(url, 0.0);
-            /* calculates the absolute difference between the two */
-            diffBetweenIterations += Math.abs(newPagerank - oldPagerank);
+        for (double rangeDiff : rangeDiffs) {
+            diffBetweenIterations += rangeDiff;
         }
         return diffBetweenIterations;
-
     }
 
     /**
-     * Prints out the total difference between the current and last iteration
-     * in pagerankscore, as well as the acutall pagerank for every url in the
-     * form of url --> pagerank.
-     * Method is used during each iteration of pagerank calculation
+     * Calculates the new page ranks of a range of nodes. Only the new page
+     * ranks and contributions of the range are written, so ranges can be
+     * calculated in parallel.
      *
-     * @param difference The total difference between two iterations.
-     * @param pageRanks  A map of urls mapped to their current page rank
-     *                   values. (url -> pagerank)
+     * @param from             the first node of the range.
+     * @param to               the node after the range.
+     * @param oldPageRanks     the page ranks of the previous iteration.
+     * @param newPageRanks     the array the new page ranks are written to.
+     * @param contributions    the rank every node passes on to each of its
+     *                         outgoing links.
+     * @param newContributions the array the contributions of the new page
+     *                         ranks are written to.
+     * @return the total difference of the page ranks of the range between
+     *         the two iterations.
      */
+    private double iterateRange(final int from, final int to,
+            final double[] oldPageRanks, final double[] newPageRanks,
+            final double[] contributions, final double[] newContributions) {
+        int[] offsets = graph.getOffsets();
+        int[] sources = graph.getSources();
+        double[] inverseOutDegrees = graph.getInverseOutDegrees();
+        double rankSource = (1 - DAMPING_FACTOR)
+                * (1.0 / graph.getCrawledCount());
+        double diffBetweenIterations = 0.0;
+        for (int node = from; node < to; node++) {
+            double pageRank = 0.0;
+            for (int link = offsets[node]; link < offsets[node + 1];
+                    link++) {
+                pageRank += contributions[sources[link]];
+            }
+            /* add dampening and ranksource to the pagerank */
+            double newPageRank = DAMPING_FACTOR * pageRank + rankSource;
+            newPageRanks[node] = newPageRank;
+            newContributions[node] = newPageRank * inverseOutDegrees[node];
+            diffBetweenIterations += Math.abs(newPageRank
+                    - oldPageRanks[node]);
+        }
+        return diffBetweenIterations;
+    }
 
-    private void printText(final double difference, final Map<String, Double>
-     pageRanks) {
-        if (LOGGER.isInfoEnabled()) {
-            /*
-             * prints out the difference between 2 consecutive iterations
-             * of pagerank calculation
-             */
-            LOGGER.info(String.format("Difference: %.5f", difference));
+    /**
+     * Maps the url of every node to its page rank and logs the page ranks.
+     */
+    private void mapPageRanks() {
+        pageRanksPerUrl = new HashMap<>();
+        for (int node = 0; node < pageRanks.length; node++) {
+            pageRanksPerUrl.put(graph.getUrl(node), pageRanks[node]);
+        }
+        if (LOGGER.isDebugEnabled()) {
             /* iterates over every url and prints out url --> pagerank */
-            for (Map.Entry<String, Double> entry : pageRanks.entrySet()) {
-                String url = entry.getKey();
-                double pagerank = entry.getValue();
-                LOGGER.info(String.format("   %s --> Pagerank=%.5f", url,
-                        pagerank));
+            for (Map.Entry<String, Double> entry : pageRanksPerUrl
+                    .entrySet()) {
+                LOGGER.debug(String.format("   %s --> Pagerank=%.5f",
+                        entry.getKey(), entry.getValue()));
             }
         }
-
     }
+
     // ============================getter/setter============================//
 
     /**
@@ -291,4 +340,23 @@ public class PageRank {
     public Map<String, Double> getPageRanksPerUrl() {
         return new HashMap<>(pageRanksPerUrl);
     }
+
+    /**
+     * Returns the amount of iterations until the page ranks converged.
+     *
+     * @return the amount of iterations.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the throughput of the iterations as the amount of links read
+     * per second.
+     *
+     * @return the amount of links read per second.
+     */
+    public double getEdgesPerSecond() {
+        return edgesPerSecond;
+    }
 }
@@ -0,0 +1,247 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingIterator;
+import de.fernunihagen.dbis.anguillasearch.indexing.SearchIndex;
+
+/**
+ * The {@code PriorCosineSearch} class finds the websites with the highest
+ * cosine similarity to a query times their page rank, which is used as a
+ * static prior of every document, without scoring every website that
+ * shares a token with the query.
+ *
+ * <p>
+ * The postings of the query tokens are walked through in ascending order
+ * of the document ids. Before a document is scored its score is bounded
+ * from the postings it occurs in only: by the Cauchy-Schwarz inequality
+ * the cosine similarity is at most the norm of the weights of the matching
+ * query tokens divided by the norm of the query vector, and the score is at
+ * most that bound times the page rank of the document. If the bound can't
+ * exceed the lowest of the best scores found so far, the weights and the
+ * norm of the document are never read. Documents with a low page rank are
+ * therefore skipped as soon as enough good documents were found.
+ * </p>
+ *
+ * <p>
+ * The scores of the documents that are scored are calculated exactly like
+ * an exhaustive search does it, and a document only enters the best scores
+ * with a higher score than the lowest one. Since the documents are scored
+ * in ascending order of their ids this gives the same best results,
+ * including the order of equal scores.
+ * </p>
+ */
+final class PriorCosineSearch {
+
+    /**
+     * Logger for the amount of scored documents.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            PriorCosineSearch.class);
+
+    /**
+     * The relative tolerance of the bounds against rounding errors of the
+     * scores.
+     */
+    private static final double BOUND_TOLERANCE = 1e-9;
+
+    /**
+     * The index to search.
+     */
+    private final SearchIndex index;
+
+    /**
+     * The page ranks by document id.
+     */
+    private final double[] priors;
+
+    /**
+     * The iterators of the weighted query tokens in the order of the query.
+     */
+    private final Cursor[] cursors;
+
+    /**
+     * The norm of the query vector.
+     */
+    private final double queryNorm;
+
+    /**
+     * The amount of best results to find.
+     */
+    private final int topN;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code PriorCosineSearch} for a query. The query vector
+     * gets the same weights as in an exhaustive cosine search.
+     *
+     * @param searchIndex the index to search.
+     * @param pageRanks   the page ranks by document id.
+     * @param queryTokens the tokens of the query.
+     * @param resultCount the amount of best results to find.
+     */
+    PriorCosineSearch(final SearchIndex searchIndex, final double[] pageRanks,
+            final List<String> queryTokens, final int resultCount) {
+        this.index = searchIndex;
+        this.priors = pageRanks;
+        this.topN = resultCount;
+        Map<String, Integer> frequencyInQuery = new LinkedHashMap<>();
+        for (String token : queryTokens) {
+            frequencyInQuery.merge(token, 1, Integer::sum);
+        }
+        List<Cursor> weighted = new ArrayList<>();
+        double squaredQueryNorm = 0.0;
+        for (Map.Entry<String, Integer> entry : frequencyInQuery.entrySet()) {
+            /* tokens that don't occur on any site have a weight of 0.0 */
+            if (searchIndex.getDocumentFrequency(entry.getKey()) == 0) {
+                continue;
+            }
+            double queryWeight = (double) entry.getValue()
+                    / frequencyInQuery.size()
+                    * searchIndex.calculateIDFScore(entry.getKey());
+            squaredQueryNorm += queryWeight * queryWeight;
+            PostingIterator postings = searchIndex.postings(entry.getKey());
+            /* tokens on every site have an IDF and a weight of 0.0 */
+            if (queryWeight != 0.0
+                    && postings.next() != PostingIterator.NO_MORE_DOCS) {
+                weighted.add(new Cursor(postings, queryWeight));
+            }
+        }
+        this.cursors = weighted.toArray(new Cursor[0]);
+        this.queryNorm = Math.sqrt(squaredQueryNorm);
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Scores the documents that can be among the best results. Every scored
+     * document is added to the returned accumulator with its cosine
+     * similarity times its page rank, documents that are skipped can't be
+     * among the best results.
+     *
+     * @return the scores of the documents that were scored.
+     */
+    ScoreAccumulator score() {
+        ScoreAccumulator scores = new ScoreAccumulator(
+                index.getDocIdBound());
+        if (topN == 0) {
+            return scores;
+        }
+        /* the best scores found so far, the lowest one at the head */
+        PriorityQueue<Double> bestScores = new PriorityQueue<>();
+        int scoredDocuments = 0;
+        int skippedDocuments = 0;
+        while (true) {
+            int docId = PostingIterator.NO_MORE_DOCS;
+            for (Cursor cursor : cursors) {
+                docId = Math.min(docId, cursor.postings.docId());
+            }
+            if (docId == PostingIterator.NO_MORE_DOCS) {
+                break;
+            }
+            /* websites without page rank can't get a score */
+            if (priors[docId] == 0.0 || bestScores.size() == topN
+                    && bound(docId) <= bestScores.peek()) {
+                skippedDocuments++;
+            } else if (scoreDocument(scores, docId)) {
+                scoredDocuments++;
+                double score = scores.getScore(docId);
+                if (bestScores.size() < topN || score > bestScores.peek()) {
+                    bestScores.add(score);
+                    if (bestScores.size() > topN) {
+                        bestScores.poll();
+                    }
+                }
+            }
+            for (Cursor cursor : cursors) {
+                if (cursor.postings.docId() == docId) {
+                    cursor.postings.next();
+                }
+            }
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Scored %s documents for the best %s, "
+                    + "skipped %s", scoredDocuments, topN, skippedDocuments));
+        }
+        return scores;
+    }
+
+    /**
+     * Calculates the upper bound of the score of a document from the query
+     * tokens it contains and its page rank, without reading its weights.
+     *
+     * @param docId the document id, all cursors on it are positioned.
+     * @return the upper bound of the score with some tolerance.
+     */
+    private double bound(final int docId) {
+        double squaredWeights = 0.0;
+        for (Cursor cursor : cursors) {
+            if (cursor.postings.docId() == docId) {
+                squaredWeights += cursor.queryWeight * cursor.queryWeight;
+            }
+        }
+        double cosineBound = Math.min(1.0, Math.sqrt(squaredWeights)
+                / queryNorm);
+        return cosineBound * priors[docId] * (1.0 + BOUND_TOLERANCE);
+    }
+
+    /**
+     * Calculates the cosine similarity of a document times its page rank
+     * in the same order of operations as an exhaustive search.
+     *
+     * @param scores the accumulator to add the score to.
+     * @param docId  the document id, all cursors on it are positioned.
+     * @return true if the document got a score, false if all of its
+     *         weights are 0.0.
+     */
+    private boolean scoreDocument(final ScoreAccumulator scores,
+            final int docId) {
+        for (Cursor cursor : cursors) {
+            if (cursor.postings.docId() == docId) {
+                scores.add(docId, cursor.queryWeight
+                        * cursor.postings.weight());
+            }
+        }
+        if (scores.getScore(docId) == 0.0) {
+            return false;
+        }
+        scores.divide(docId, queryNorm * index.getDocumentNorm(docId));
+        scores.multiply(docId, priors[docId]);
+        return true;
+    }
+
+    /**
+     * The iterator over the postings of one weighted query token.
+     */
+    private static final class Cursor {
+
+        /**
+         * The iterator over the postings of the token.
+         */
+        private final PostingIterator postings;
+
+        /**
+         * The weight of the token in the query vector.
+         */
+        private final double queryWeight;
+
+        /**
+         * Creates a new cursor on the first posting of a token.
+         *
+         * @param iterator the iterator over the postings of the token.
+         * @param weight   the weight of the token in the query vector.
+         */
+        Cursor(final PostingIterator iterator, final double weight) {
+            this.postings = iterator;
+            this.queryWeight = weight;
+        }
+    }
+}
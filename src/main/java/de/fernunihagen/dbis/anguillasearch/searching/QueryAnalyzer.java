@@ -0,0 +1,224 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fernunihagen.dbis.anguillasearch.util.CacheStats;
+import de.fernunihagen.dbis.anguillasearch.util.StringTokenizer;
+
+/**
+ * The {@code QueryAnalyzer} class turns a raw search query into the list of
+ * tokens that is used to look up the indexes.
+ *
+ * <p>
+ * Running the StanfordCoreNLP pipeline is by far the most expensive part of
+ * a search on a small query. Therefore the analyzer normalizes the raw query
+ * (lowercase, single spaces) and keeps a bounded, thread safe cache from the
+ * normalized query to its analyzed tokens. Repeated queries skip the
+ * pipeline completely. When the cache is full the oldest entries are
+ * evicted first.
+ * </p>
+ */
+public final class QueryAnalyzer {
+
+    /**
+     * Logger for the output or info or error messages.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            QueryAnalyzer.class);
+
+    /**
+     * Default amount of queries that are kept in the cache.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Maximum amount of cached queries.
+     */
+    private final int capacity;
+
+    /**
+     * A map of normalized queries and their analyzed tokens.
+     * normalized query -> tokens
+     */
+    private final Map<String, List<String>> cache;
+
+    /**
+     * The normalized queries in the order they were put into the cache,
+     * used to find the entry to evict.
+     */
+    private final Queue<String> insertionOrder;
+
+    /**
+     * Amount of queries that were answered from the cache.
+     */
+    private final LongAdder hits;
+
+    /**
+     * Amount of queries that had to be run through the pipeline.
+     */
+    private final LongAdder misses;
+
+    /**
+     * Amount of queries that were evicted from the cache.
+     */
+    private final LongAdder evictions;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code QueryAnalyzer} with the default capacity.
+     */
+    public QueryAnalyzer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@code QueryAnalyzer} that caches up to
+     * {@code maxEntries} queries.
+     *
+     * @param maxEntries the maximum amount of cached queries.
+     * @throws IllegalArgumentException if maxEntries is less than 1.
+     */
+    public QueryAnalyzer(final int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException(
+                    "the capacity of the cache must be at least 1");
+        }
+        this.capacity = maxEntries;
+        this.cache = new ConcurrentHashMap<>();
+        this.insertionOrder = new ConcurrentLinkedQueue<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Analyzes a query that is given as an array of words. The words are
+     * joined with whitespaces and processed like a single query string.
+     *
+     * @param query an array of strings which is the search query.
+     * @return an unmodifiable {@link List} of the tokens of the query.
+     */
+    public List<String> analyze(final String[] query) {
+        return analyze(String.join(" ", query));
+    }
+
+    /**
+     * Analyzes a raw query string. If the normalized query is found in the
+     * cache the cached tokens are returned, otherwise the query is
+     * tokenized and lemmatized by the {@link StringTokenizer} and the
+     * result is put into the cache.
+     *
+     * @param rawQuery the search query as typed by the user.
+     * @return an unmodifiable {@link List} of the tokens of the query.
+     */
+    public List<String> analyze(final String rawQuery) {
+        String key = normalize(rawQuery);
+        /* blank queries never need the pipeline */
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = cache.get(key);
+        if (tokens != null) {
+            hits.increment();
+            return tokens;
+        }
+        misses.increment();
+        /*
+         * the pipeline runs outside of the map so that a slow analysis
+         * doesn't block lookups of other queries
+         */
+        tokens = List.copyOf(StringTokenizer.tokenizeAndLemmatize(key));
+        if (cache.putIfAbsent(key, tokens) == null) {
+            insertionOrder.add(key);
+            evictIfNecessary();
+        }
+        return tokens;
+    }
+
+    /**
+     * Removes the oldest entries until the cache is within its capacity.
+     */
+    private void evictIfNecessary() {
+        while (cache.size() > capacity) {
+            String eldest = insertionOrder.poll();
+            if (eldest == null) {
+                return;
+            }
+            if (cache.remove(eldest) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Normalizes a raw query so that queries which only differ in case or
+     * in whitespaces share one cache entry. The tokenizer lowercases its
+     * input anyway so the tokens stay the same.
+     *
+     * @param rawQuery the search query as typed by the user.
+     * @return the trimmed and lowercased query with single spaces.
+     */
+    static String normalize(final String rawQuery) {
+        return rawQuery.trim().replaceAll("\\s+", " ").toLowerCase(
+                Locale.ROOT);
+    }
+
+    /**
+     * Writes the current cache statistics to the logger.
+     */
+    public void logStatistics() {
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format("Query cache: size=%d, %s",
+                    cache.size(), getStats()));
+        }
+    }
+
+    /**
+     * Removes all cached queries. The statistics are kept.
+     */
+    public void clear() {
+        cache.clear();
+        insertionOrder.clear();
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns a snapshot of the hit, miss and eviction counters.
+     *
+     * @return the current {@link CacheStats} of the query cache.
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Returns the amount of queries currently held in the cache.
+     *
+     * @return the size of the cache.
+     */
+    public int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the maximum amount of queries held in the cache.
+     *
+     * @return the capacity of the cache.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
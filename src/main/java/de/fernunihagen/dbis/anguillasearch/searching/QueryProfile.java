@@ -0,0 +1,114 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code QueryProfile} class is the immutable profile of one search:
+ * the time of every stage the search ran through, the amount of postings
+ * that were read and the amount of websites that were scored. A profile is
+ * only created for searches with
+ * {@link SearchEngine#profile(String[], SearchMode, int, int)}, where a
+ * query that reads many postings or scores many websites for a small page
+ * of results stands out.
+ */
+public final class QueryProfile {
+
+    /**
+     * The time per stage in nanoseconds, only stages the search ran
+     * through.
+     */
+    private final Map<SearchStage, Long> nanosPerStage;
+
+    /**
+     * The time of the whole search in nanoseconds.
+     */
+    private final long totalNanos;
+
+    /**
+     * The amount of postings that were read.
+     */
+    private final long postingsRead;
+
+    /**
+     * The amount of websites that got a score.
+     */
+    private final int documentsScored;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code QueryProfile}.
+     *
+     * @param stageNanos the time per stage in nanoseconds.
+     * @param nanos      the time of the whole search in nanoseconds.
+     * @param postings   the amount of postings that were read.
+     * @param documents  the amount of websites that got a score.
+     */
+    QueryProfile(final Map<SearchStage, Long> stageNanos, final long nanos,
+            final long postings, final int documents) {
+        this.nanosPerStage = Collections.unmodifiableMap(
+                new EnumMap<>(stageNanos));
+        this.totalNanos = nanos;
+        this.postingsRead = postings;
+        this.documentsScored = documents;
+    }
+
+    // ==============================methods==============================//
+
+    @Override
+    public String toString() {
+        double nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+        StringBuilder stages = new StringBuilder();
+        for (Map.Entry<SearchStage, Long> entry : nanosPerStage.entrySet()) {
+            stages.append(String.format("%s=%.3fms, ", entry.getKey(),
+                    entry.getValue() / nanosPerMilli));
+        }
+        return String.format("total=%.3fms, %spostingsRead=%d, "
+                + "documentsScored=%d", totalNanos / nanosPerMilli, stages,
+                postingsRead, documentsScored);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the time of every stage the search ran through.
+     *
+     * @return the unmodifiable map of the times in nanoseconds in the order
+     *         of the stages.
+     */
+    public Map<SearchStage, Long> getNanosPerStage() {
+        return nanosPerStage;
+    }
+
+    /**
+     * Returns the time of the whole search.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns the amount of postings that were read, each posting a search
+     * moved to counts once.
+     *
+     * @return the amount of postings.
+     */
+    public long getPostingsRead() {
+        return postingsRead;
+    }
+
+    /**
+     * Returns the amount of websites that got a score. Websites skipped by
+     * a search for the best results don't count.
+     *
+     * @return the amount of scored websites.
+     */
+    public int getDocumentsScored() {
+        return documentsScored;
+    }
+}
@@ -0,0 +1,442 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fernunihagen.dbis.anguillasearch.util.CacheStats;
+
+/**
+ * The {@code ResultCache} class keeps the results of repeated searches. An
+ * entry is found by the search mode, the analyzed tokens of the query and
+ * the requested page (offset and limit) of the results.
+ *
+ * <p>
+ * The cache is bounded and evicts with a segmented LRU policy: a new entry
+ * starts in the probationary segment and is promoted to the protected
+ * segment when it is found again. The protected segment holds at most
+ * {@link #PROTECTED_SHARE} of the entries, its least recently used entry is
+ * moved back to the probationary segment when it is full. An entry is
+ * evicted from the probationary segment first, so queries that were only
+ * searched once can't push out the queries that are searched repeatedly.
+ * </p>
+ *
+ * <p>
+ * When the index changes the {@link SearchEngine} invalidates the entries
+ * that depend on the changed tokens or on a search mode. Every invalidation
+ * starts a new generation, a result that was calculated in an earlier
+ * generation isn't put into the cache anymore, so a search that ran on an
+ * old snapshot can't bring back an invalidated result. All methods are
+ * synchronized.
+ * </p>
+ */
+public final class ResultCache {
+
+    /**
+     * Logger for the output or info or error messages.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            ResultCache.class);
+
+    /**
+     * Default amount of results that are kept in the cache.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The share of the capacity that the protected segment can hold.
+     */
+    private static final double PROTECTED_SHARE = 0.8;
+
+    /**
+     * Maximum amount of cached results.
+     */
+    private final int capacity;
+
+    /**
+     * Maximum amount of results in the protected segment.
+     */
+    private final int protectedCapacity;
+
+    /**
+     * The entries that were found at most once, least recently used first.
+     */
+    private final LinkedHashMap<Key, SearchResponse> probation;
+
+    /**
+     * The entries that were found again, least recently used first.
+     */
+    private final LinkedHashMap<Key, SearchResponse> protectedEntries;
+
+    /**
+     * The keys of the cached entries per token of their query.
+     */
+    private final Map<String, Set<Key>> keysPerToken;
+
+    /**
+     * The current generation, incremented by every invalidation.
+     */
+    private long generation;
+
+    /**
+     * Amount of searches that were answered from the cache.
+     */
+    private long hits;
+
+    /**
+     * Amount of searches that weren't found in the cache.
+     */
+    private long misses;
+
+    /**
+     * Amount of entries that were evicted to keep the cache bounded.
+     */
+    private long evictions;
+
+    /**
+     * Amount of entries that were removed by an invalidation.
+     */
+    private long invalidations;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code ResultCache} with the default capacity.
+     */
+    public ResultCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@code ResultCache} that keeps up to
+     * {@code maxEntries} results.
+     *
+     * @param maxEntries the maximum amount of cached results.
+     * @throws IllegalArgumentException if maxEntries is less than 1.
+     */
+    public ResultCache(final int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException(
+                    "the capacity of the cache must be at least 1");
+        }
+        this.capacity = maxEntries;
+        this.protectedCapacity = (int) (maxEntries * PROTECTED_SHARE);
+        this.probation = new LinkedHashMap<>();
+        this.protectedEntries = new LinkedHashMap<>();
+        this.keysPerToken = new HashMap<>();
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Looks up the results of a search. A result that is found is promoted
+     * to the protected segment, or moved to its end if it is already
+     * protected.
+     *
+     * @param mode        the search mode.
+     * @param queryTokens the analyzed tokens of the query.
+     * @param offset      the amount of skipped best results.
+     * @param limit       the maximum amount of results.
+     * @return the cached response or null if it isn't cached.
+     */
+    synchronized SearchResponse get(final SearchMode mode,
+            final List<String> queryTokens, final int offset,
+            final int limit) {
+        Key key = new Key(mode, queryTokens, offset, limit);
+        SearchResponse results = protectedEntries.remove(key);
+        if (results != null) {
+            protectedEntries.put(key, results);
+        } else {
+            results = probation.remove(key);
+            if (results == null) {
+                misses++;
+                return null;
+            }
+            promote(key, results);
+        }
+        hits++;
+        return results;
+    }
+
+    /**
+     * Moves an entry that was found again into the protected segment. The
+     * least recently used protected entry goes back to the probationary
+     * segment if the protected segment is full.
+     *
+     * @param key     the key of the entry.
+     * @param results the cached response.
+     */
+    private void promote(final Key key, final SearchResponse results) {
+        if (protectedCapacity == 0) {
+            probation.put(key, results);
+            return;
+        }
+        protectedEntries.put(key, results);
+        if (protectedEntries.size() > protectedCapacity) {
+            Iterator<Map.Entry<Key, SearchResponse>> eldest =
+                    protectedEntries.entrySet().iterator();
+            Map.Entry<Key, SearchResponse> demoted = eldest.next();
+            eldest.remove();
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+    }
+
+    /**
+     * Puts the results of a search into the probationary segment, unless
+     * the cache was invalidated since the given generation. The least
+     * recently used entries are evicted if the cache is full.
+     *
+     * @param mode              the search mode.
+     * @param queryTokens       the analyzed tokens of the query.
+     * @param offset            the amount of skipped best results.
+     * @param limit             the maximum amount of results.
+     * @param results           the response of the search.
+     * @param resultsGeneration the generation that was current before the
+     *                          search took its snapshot of the index.
+     */
+    synchronized void put(final SearchMode mode,
+            final List<String> queryTokens, final int offset, final int limit,
+            final SearchResponse results,
+            final long resultsGeneration) {
+        if (resultsGeneration != generation) {
+            return;
+        }
+        Key key = new Key(mode, queryTokens, offset, limit);
+        if (protectedEntries.containsKey(key)) {
+            protectedEntries.put(key, results);
+            return;
+        }
+        if (probation.put(key, results) != null) {
+            return;
+        }
+        for (String token : key.tokens) {
+            keysPerToken.computeIfAbsent(token, val -> new HashSet<>())
+                    .add(key);
+        }
+        while (probation.size() + protectedEntries.size() > capacity) {
+            LinkedHashMap<Key, SearchResponse> segment = probation;
+            if (segment.isEmpty()) {
+                segment = protectedEntries;
+            }
+            Iterator<Key> eldest = segment.keySet().iterator();
+            Key evicted = eldest.next();
+            eldest.remove();
+            removeFromTokens(evicted);
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes the results of all queries that contain one of the given
+     * tokens.
+     *
+     * @param tokens the tokens whose postings changed.
+     */
+    public synchronized void invalidate(final Collection<String> tokens) {
+        generation++;
+        Set<Key> keys = new HashSet<>();
+        for (String token : tokens) {
+            Set<Key> keysOfToken = keysPerToken.get(token);
+            if (keysOfToken != null) {
+                keys.addAll(keysOfToken);
+            }
+        }
+        for (Key key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Removes the results of all searches in the given mode.
+     *
+     * @param mode the search mode whose results are outdated.
+     */
+    public synchronized void invalidate(final SearchMode mode) {
+        generation++;
+        Set<Key> keys = new HashSet<>();
+        for (Key key : probation.keySet()) {
+            if (key.mode == mode) {
+                keys.add(key);
+            }
+        }
+        for (Key key : protectedEntries.keySet()) {
+            if (key.mode == mode) {
+                keys.add(key);
+            }
+        }
+        for (Key key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Removes all results.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations += probation.size() + protectedEntries.size();
+        probation.clear();
+        protectedEntries.clear();
+        keysPerToken.clear();
+    }
+
+    /**
+     * Removes an entry because it was invalidated.
+     *
+     * @param key the key of the entry.
+     */
+    private void remove(final Key key) {
+        if (probation.remove(key) != null
+                || protectedEntries.remove(key) != null) {
+            removeFromTokens(key);
+            invalidations++;
+        }
+    }
+
+    /**
+     * Removes a key from the keys per token.
+     *
+     * @param key the key of a removed entry.
+     */
+    private void removeFromTokens(final Key key) {
+        for (String token : key.tokens) {
+            Set<Key> keysOfToken = keysPerToken.get(token);
+            if (keysOfToken != null) {
+                keysOfToken.remove(key);
+                if (keysOfToken.isEmpty()) {
+                    keysPerToken.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the current cache statistics to the logger.
+     */
+    public void logStatistics() {
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format("Result cache: size=%d, %s, "
+                    + "invalidations=%d", getSize(), getStats(),
+                    getInvalidationCount()));
+        }
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the current generation. A search reads it before it takes its
+     * snapshot of the index and passes it to
+     * {@link #put(SearchMode, List, int, int, SearchResponse, long)}.
+     *
+     * @return the current generation.
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns a snapshot of the hit, miss and eviction counters.
+     *
+     * @return the current {@link CacheStats} of the result cache.
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions);
+    }
+
+    /**
+     * Returns the amount of entries that were removed by invalidations.
+     *
+     * @return the amount of invalidated entries.
+     */
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+    /**
+     * Returns the amount of results currently held in the cache.
+     *
+     * @return the size of the cache.
+     */
+    public synchronized int getSize() {
+        return probation.size() + protectedEntries.size();
+    }
+
+    /**
+     * Returns the maximum amount of results held in the cache.
+     *
+     * @return the capacity of the cache.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * The key of a cached result: the search mode, the analyzed tokens of
+     * the query and the page of the results.
+     */
+    private static final class Key {
+
+        /**
+         * The search mode.
+         */
+        private final SearchMode mode;
+
+        /**
+         * The analyzed tokens of the query.
+         */
+        private final List<String> tokens;
+
+        /**
+         * The amount of skipped best results.
+         */
+        private final int offset;
+
+        /**
+         * The maximum amount of results.
+         */
+        private final int limit;
+
+        /**
+         * Creates a new key.
+         *
+         * @param searchMode  the search mode.
+         * @param queryTokens the analyzed tokens of the query.
+         * @param skipped     the amount of skipped best results.
+         * @param maxResults  the maximum amount of results.
+         */
+        Key(final SearchMode searchMode, final List<String> queryTokens,
+                final int skipped, final int maxResults) {
+            this.mode = searchMode;
+            this.tokens = List.copyOf(queryTokens);
+            this.offset = skipped;
+            this.limit = maxResults;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return mode == key.mode && offset == key.offset
+                    && limit == key.limit && tokens.equals(key.tokens);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mode, tokens, offset, limit);
+        }
+    }
+}
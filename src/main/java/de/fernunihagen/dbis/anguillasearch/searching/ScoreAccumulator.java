@@ -0,0 +1,242 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.Arrays;
+
+/**
+ * The {@code ScoreAccumulator} class adds up the scores of the postings of
+ * a query per document id. Besides the score of every document it keeps
+ * the list of the documents that got a score, so the results can be read
+ * without looking at every document of the index.
+ *
+ * <p>
+ * The work of a query only grows with the length of the posting lists of
+ * its tokens, apart from allocating the score array once. A page of the
+ * best documents is selected with a bounded heap instead of sorting all
+ * scored documents.
+ * </p>
+ */
+final class ScoreAccumulator {
+
+    /**
+     * The initial capacity of the list of scored documents.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The added up scores, indexed by document id.
+     */
+    private final double[] scores;
+
+    /**
+     * The document ids that got a score, in the order of their first
+     * score.
+     */
+    private int[] touchedDocs;
+
+    /**
+     * The amount of document ids in {@link #touchedDocs}.
+     */
+    private int size;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new empty {@code ScoreAccumulator}.
+     *
+     * @param docIdBound the upper bound of the document ids to score.
+     */
+    ScoreAccumulator(final int docIdBound) {
+        this.scores = new double[docIdBound];
+        this.touchedDocs = new int[Math.min(docIdBound, INITIAL_CAPACITY)];
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Adds a score to a document. Scores must not be negative, a score of
+     * 0.0 is ignored so the document only counts as scored once it got a
+     * positive score.
+     *
+     * @param docId the document id.
+     * @param score the score to add.
+     */
+    void add(final int docId, final double score) {
+        if (score == 0.0) {
+            return;
+        }
+        if (scores[docId] == 0.0) {
+            if (size == touchedDocs.length) {
+                touchedDocs = Arrays.copyOf(touchedDocs,
+                        Math.max(INITIAL_CAPACITY, size * 2));
+            }
+            touchedDocs[size++] = docId;
+        }
+        scores[docId] += score;
+    }
+
+    /**
+     * Divides the score of a document by a divisor.
+     *
+     * @param docId   the document id.
+     * @param divisor the divisor, not 0.0.
+     */
+    void divide(final int docId, final double divisor) {
+        scores[docId] /= divisor;
+    }
+
+    /**
+     * Multiplies the score of a document with a factor.
+     *
+     * @param docId  the document id.
+     * @param factor the factor.
+     */
+    void multiply(final int docId, final double factor) {
+        scores[docId] *= factor;
+    }
+
+    /**
+     * Removes the documents whose score became 0.0 by a multiplication
+     * from the scored documents, so they aren't returned as results.
+     */
+    void removeZeroScores() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (scores[touchedDocs[i]] != 0.0) {
+                touchedDocs[kept++] = touchedDocs[i];
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * Selects the best scored documents of a page of results. A document
+     * ranks before another one if it has a higher score or, for equal
+     * scores, a lower document id. Only the first {@code offset + limit}
+     * documents are kept in a heap while the scored documents are read, so
+     * the selection takes O(n log (offset + limit)) for n scored documents.
+     *
+     * @param offset the amount of best documents to skip.
+     * @param limit  the maximum amount of documents to return.
+     * @return the document ids of the page, best first.
+     */
+    int[] topDocIds(final int offset, final int limit) {
+        int heapCapacity = (int) Math.min((long) offset + limit, size);
+        if (heapCapacity <= offset) {
+            return new int[0];
+        }
+        /* a heap with the worst kept document at the root */
+        int[] heap = new int[heapCapacity];
+        int heapSize = 0;
+        for (int i = 0; i < size; i++) {
+            int docId = touchedDocs[i];
+            if (heapSize < heapCapacity) {
+                heap[heapSize] = docId;
+                siftUp(heap, heapSize++);
+            } else if (ranksBefore(docId, heap[0])) {
+                heap[0] = docId;
+                siftDown(heap, heapSize);
+            }
+        }
+        /* removes the worst document until the heap is empty */
+        int[] ranked = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            ranked[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i);
+        }
+        return Arrays.copyOfRange(ranked, offset, heapCapacity);
+    }
+
+    /**
+     * Checks if a document ranks before another one.
+     *
+     * @param docId the document id to check.
+     * @param other the document id to compare with.
+     * @return true if {@code docId} has the higher score or the same score
+     *         and the lower id.
+     */
+    private boolean ranksBefore(final int docId, final int other) {
+        return scores[docId] > scores[other]
+                || scores[docId] == scores[other] && docId < other;
+    }
+
+    /**
+     * Moves the document at a position of the heap up until its parent
+     * ranks before it.
+     *
+     * @param heap     the heap with the worst document at the root.
+     * @param position the position of the document.
+     */
+    private void siftUp(final int[] heap, final int position) {
+        int child = position;
+        int docId = heap[child];
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            if (!ranksBefore(heap[parent], docId)) {
+                break;
+            }
+            heap[child] = heap[parent];
+            child = parent;
+        }
+        heap[child] = docId;
+    }
+
+    /**
+     * Moves the document at the root of the heap down until both children
+     * rank before it.
+     *
+     * @param heap     the heap with the worst document at the root.
+     * @param heapSize the amount of documents in the heap.
+     */
+    private void siftDown(final int[] heap, final int heapSize) {
+        int parent = 0;
+        int docId = heap[0];
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize
+                    && ranksBefore(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!ranksBefore(docId, heap[child])) {
+                break;
+            }
+            heap[parent] = heap[child];
+            parent = child;
+        }
+        heap[parent] = docId;
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the amount of documents that got a score.
+     *
+     * @return the amount of scored documents.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the document id of a scored document.
+     *
+     * @param index the position in the list of scored documents.
+     * @return the document id.
+     */
+    int getDocIdAt(final int index) {
+        return touchedDocs[index];
+    }
+
+    /**
+     * Returns the score of a document.
+     *
+     * @param docId the document id.
+     * @return the added up score, 0.0 for a document without score.
+     */
+    double getScore(final int docId) {
+        return scores[docId];
+    }
+}
@@ -0,0 +1,58 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+/**
+ * The {@code ScoredDocument} class is one result of a search: the url of a
+ * website and the score it got for the search query.
+ */
+public final class ScoredDocument {
+
+    /**
+     * The url of the website.
+     */
+    private final String url;
+
+    /**
+     * The score of the website for the query.
+     */
+    private final double score;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code ScoredDocument}.
+     *
+     * @param urlOfSite the url of the website.
+     * @param value     the score of the website.
+     */
+    ScoredDocument(final String urlOfSite, final double value) {
+        this.url = urlOfSite;
+        this.score = value;
+    }
+
+    // ==============================methods==============================//
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s)", url, score);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the url of the website.
+     *
+     * @return the url.
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Returns the score of the website for the query.
+     *
+     * @return the score.
+     */
+    public double getScore() {
+        return score;
+    }
+}
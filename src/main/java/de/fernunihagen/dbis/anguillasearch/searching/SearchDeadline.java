@@ -0,0 +1,83 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+/**
+ * The {@code SearchDeadline} class is the deadline of one asynchronous
+ * search. The search checks it while it reads postings and stops once the
+ * deadline passed or the search was cancelled. Whether a search was
+ * stopped is remembered, so its response can be flagged as partial.
+ *
+ * <p>
+ * A deadline can be checked and cancelled by different threads.
+ * </p>
+ */
+final class SearchDeadline {
+
+    /**
+     * The time the search was submitted.
+     */
+    private final long startNanos;
+
+    /**
+     * The time the search may take from its submission.
+     */
+    private final long timeoutNanos;
+
+    /**
+     * Whether the caller isn't waiting for the search any more.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Whether the search stopped reading postings because of the deadline.
+     */
+    private volatile boolean stopped;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code SearchDeadline} that starts now.
+     *
+     * @param nanos the time the search may take in nanoseconds.
+     */
+    SearchDeadline(final long nanos) {
+        this.startNanos = System.nanoTime();
+        this.timeoutNanos = nanos;
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Checks whether the search has to stop.
+     *
+     * @return true if the deadline passed or the search was cancelled.
+     */
+    boolean isExpired() {
+        return cancelled || System.nanoTime() - startNanos >= timeoutNanos;
+    }
+
+    /**
+     * Cancels the search, it stops at its next check of the deadline.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Remembers that the search stopped reading postings.
+     */
+    void markStopped() {
+        stopped = true;
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns whether the search stopped reading postings before they were
+     * exhausted.
+     *
+     * @return true if the results of the search are partial.
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+}
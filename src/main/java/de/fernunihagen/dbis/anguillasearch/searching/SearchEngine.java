@@ -1,22 +1,40 @@
 package de.fernunihagen.dbis.anguillasearch.searching;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import de.fernunihagen.dbis.anguillasearch.crawler.Crawler;
 import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.AnalysisCache;
 import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexSnapshot;
+import de.fernunihagen.dbis.anguillasearch.indexing.InvertedIndex;
+import de.fernunihagen.dbis.anguillasearch.indexing.MappedIndex;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingIterator;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingList;
+import de.fernunihagen.dbis.anguillasearch.indexing.SearchIndex;
 import de.fernunihagen.dbis.anguillasearch.util.StringTokenizer;
 
-import java.util.Set;
-
 /**
  * The {@code SearchEngine} class performs a search on an Array of seed urls
  * according to a search query. It looks which search results are the most
@@ -35,35 +53,139 @@ import java.util.Set;
  * determine which results are most fitting according to the query.
  * The results will be sorted in descending order starting
  * from the most relevant one.
+ *
+ * <p>
+ * All searches run on a {@link SearchIndex}. A {@code SearchEngine} that
+ * crawled the websites itself can write its index to a file with
+ * {@link #writeIndex(Path)}, which can later be opened with
+ * {@link #open(Path)} without crawling again.
+ * </p>
+ *
+ * <p>
+ * Every search takes a {@link SearchIndex#snapshot()} of the index first
+ * and reads only that snapshot, so it sees a consistent state while the
+ * index is updated. Updates of an {@link IndexBuilder} are searched once
+ * they are published with {@link IndexBuilder#refresh()}. The page ranks
+ * are kept in the order of the document ids of the snapshot and are
+ * ordered again when a new snapshot is published.
+ * </p>
+ *
+ * <p>
+ * The results of every search are kept in a {@link ResultCache}. When the
+ * {@link IndexBuilder} of this search engine publishes a new snapshot, the
+ * TFIDF results of the changed tokens are invalidated, the cosine results
+ * are invalidated completely since the norms of the websites depend on all
+ * of their tokens, and if the amount of websites changed every result is
+ * invalidated since the IDF scores of all tokens changed. An index without
+ * an {@link IndexBuilder} invalidates every result on a new snapshot. New
+ * page ranks only invalidate the results of
+ * {@link SearchMode#COSINE_PAGERANK}.
+ * </p>
+ *
+ * <p>
+ * Searches don't keep any state in the search engine, every search returns
+ * its own immutable {@link SearchResponse}. One search engine can serve
+ * searches on any number of threads at the same time.
+ * </p>
+ *
+ * <p>
+ * Many queries can be searched at once with
+ * {@link #executeBatch(List, SearchMode, int)}. The postings of every
+ * distinct token of the batch are decoded only once and shared by all
+ * queries that contain the token, and the queries are searched in parallel.
+ * </p>
+ *
+ * <p>
+ * Precise queries with {@code AND}, {@code OR}, {@code NOT} and parentheses
+ * are searched with {@link #executeBoolean(String, SearchMode, int, int)},
+ * which only scores the websites that match the query.
+ * </p>
+ *
+ * <p>
+ * The time of every {@link SearchStage} of every search is recorded in the
+ * {@link SearchMetrics} of the search engine. A single search can be
+ * profiled with {@link #profile(String[], SearchMode, int, int)}, which
+ * also counts the postings it reads and the websites it scores.
+ * </p>
+ *
+ * <p>
+ * {@link #executeAsync(String[], SearchMode, int, int, Duration)} searches
+ * on another thread with a deadline. A search that reaches its deadline or
+ * is cancelled stops reading postings and returns the best results found
+ * so far as a partial response.
+ * </p>
  */
 public class SearchEngine {
 
+    /**
+     * Logger for the output or info or error messages.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            SearchEngine.class);
+
+    /**
+     * The timeout from which on an asynchronous search has no deadline.
+     */
+    private static final Duration MAX_TIMEOUT = Duration.ofNanos(
+            Long.MAX_VALUE);
+
     /**
      * An instance of IndexBuilder that holds multiple different indexes
-     * and the TFIDF scores.
+     * and the TFIDF scores. It is null if the index was opened from a file.
      */
-    private IndexBuilder indexBuilder;
+    private final IndexBuilder indexBuilder;
     /**
-     * An instance of Crawler that holds the crawled website data.
+     * An instance of Crawler that holds the crawled website data. It is null
+     * if the index was opened from a file.
      */
-    private Crawler crawler;
+    private final Crawler crawler;
     /**
      * An instance of PageRank that holds a map of urls mapped to the
-     * corresponding page rank. (url -> page rank)
+     * corresponding page rank. (url -> page rank) It is null if the index
+     * was opened from a file.
+     */
+    private final PageRank pageRank;
+
+    /**
+     * The index all searches run on.
+     */
+    private final SearchIndex searchIndex;
+
+    /**
+     * The page ranks of the indexed websites. (url -> page rank) It is null
+     * if the index never changes and no page ranks were set, then the page
+     * ranks of {@link #rankedSnapshot} stay valid.
+     */
+    private volatile Map<String, Double> pageRanksPerUrl;
+
+    /**
+     * The snapshot of the index the last search ran on and the page ranks
+     * in the order of its document ids.
      */
-    private PageRank pageRank;
+    private final AtomicReference<RankedSnapshot> rankedSnapshot =
+            new AtomicReference<>();
 
     /**
-     * A map that holds the mapping of urls -> TFIDF scores of a
-     * search with searchQuery.
+     * An instance of QueryAnalyzer that tokenizes and lemmatizes the
+     * search queries and caches the results for repeated queries.
      */
-    private Map<String, Double> mapOfTfIdfSearch;
+    private final QueryAnalyzer queryAnalyzer;
 
     /**
-     * A map that holds the mapping of urls -> combined cosine and
-     * pagerank scores.
+     * The cache of the results of repeated searches.
      */
-    private Map<String, Double> mapOfCosineAndPagerankSearch;
+    private final ResultCache resultCache = new ResultCache();
+
+    /**
+     * The latencies of the stages of all searches.
+     */
+    private final SearchMetrics metrics = new SearchMetrics();
+
+    /**
+     * Whether the {@link IndexBuilder} reports the changed tokens of every
+     * new snapshot, otherwise a new snapshot invalidates all results.
+     */
+    private final boolean tokenChangesReported;
 
     // ============================constructors===========================//
     /**
@@ -85,35 +207,625 @@ public class SearchEngine {
      */
 
     public SearchEngine(final String[] seedUrls, final int crawlLimit) {
+        this(seedUrls, crawlLimit, null);
+    }
+
+    /**
+     * Creates a new instanze of {@link SearchEngine} like
+     * {@link #SearchEngine(String[], int)} but lets the
+     * {@link IndexBuilder} take the analyzed content of unchanged websites
+     * from the given {@link AnalysisCache}.
+     *
+     * @param seedUrls      an array of urls which are the seed urls for the
+     *                      crawler of this SearchEngine.
+     * @param crawlLimit    the limit of sites to crawl by the internal crawler
+     * @param analysisCache the cache of analyzed website contents, or null
+     *                      to process every website.
+     */
+    public SearchEngine(final String[] seedUrls, final int crawlLimit,
+            final AnalysisCache analysisCache) {
         this.crawler = new Crawler(crawlLimit);
         crawler.crawl(Arrays.asList(seedUrls));
-        this.indexBuilder = new IndexBuilder(crawler.getCrawledDataAsList());
+        this.indexBuilder = new IndexBuilder(crawler.getCrawledDataAsList(),
+                analysisCache);
         this.pageRank = new PageRank(crawler.getCrawledDataAsList());
+        this.queryAnalyzer = new QueryAnalyzer();
+        this.searchIndex = indexBuilder.getSearchIndex();
+        this.pageRanksPerUrl = pageRank.getPageRanksPerUrl();
+        this.tokenChangesReported = true;
+        indexBuilder.addRefreshListener(this::invalidateResults);
+    }
 
+    /**
+     * Creates a new instanze of {@link SearchEngine} that searches the index
+     * of an {@link IndexBuilder} without crawling. Updates of the builder
+     * are searched once they are published with
+     * {@link IndexBuilder#refresh()}. {@link #getCrawler()} and
+     * {@link #getPageRank()} return null for such a search engine.
+     *
+     * @param builder   the builder of the index to search.
+     * @param pageRanks the page ranks of the indexed websites.
+     *                  (url -> page rank)
+     */
+    public SearchEngine(final IndexBuilder builder,
+            final Map<String, Double> pageRanks) {
+        this.crawler = null;
+        this.indexBuilder = builder;
+        this.pageRank = null;
+        this.queryAnalyzer = new QueryAnalyzer();
+        this.searchIndex = builder.getSearchIndex();
+        this.pageRanksPerUrl = new HashMap<>(pageRanks);
+        this.tokenChangesReported = true;
+        builder.addRefreshListener(this::invalidateResults);
+    }
+
+    /**
+     * Creates a new instanze of {@link SearchEngine} that searches an
+     * already built index without crawling. {@link #getCrawler()},
+     * {@link #getIndexBuilder()} and {@link #getPageRank()} return null for
+     * such a search engine.
+     *
+     * @param index           the index to search.
+     * @param pageRanksPerDoc the page ranks of the indexed websites, indexed
+     *                        by document id.
+     * @throws IllegalArgumentException if there isn't exactly one page rank
+     *                                  per document.
+     */
+    public SearchEngine(final SearchIndex index,
+            final double[] pageRanksPerDoc) {
+        if (pageRanksPerDoc.length != index.getDocIdBound()) {
+            throw new IllegalArgumentException(
+                    "every document needs exactly one page rank");
+        }
+        this.crawler = null;
+        this.indexBuilder = null;
+        this.pageRank = null;
+        this.searchIndex = index;
+        this.queryAnalyzer = new QueryAnalyzer();
+        this.tokenChangesReported = false;
+        if (index.snapshot() == index) {
+            rankedSnapshot.set(new RankedSnapshot(index,
+                    pageRanksPerDoc.clone(), null));
+        } else {
+            /* the ids of later snapshots differ, the urls stay the same */
+            this.pageRanksPerUrl = new HashMap<>();
+            for (int docId = 0; docId < pageRanksPerDoc.length; docId++) {
+                if (index.getUrl(docId) != null) {
+                    pageRanksPerUrl.put(index.getUrl(docId),
+                            pageRanksPerDoc[docId]);
+                }
+            }
+        }
     }
     // ==============================methods==============================//
 
+    /**
+     * Opens an index file written by {@link #writeIndex(Path)} and creates a
+     * {@link SearchEngine} that searches directly on the mapped file.
+     *
+     * @param indexFile the index file.
+     * @return the search engine of the index.
+     * @throws IOException           if the file can't be read.
+     * @throws IllegalStateException if the file isn't a valid index file.
+     */
+    public static SearchEngine open(final Path indexFile) throws IOException {
+        MappedIndex index = MappedIndex.open(indexFile);
+        return new SearchEngine(index, index.getPageRanks());
+    }
+
+    /**
+     * Writes the index and the page ranks of this search engine to a file,
+     * which can be opened with {@link #open(Path)}. The updates of the
+     * {@link IndexBuilder} are published before.
+     *
+     * @param indexFile the file to write.
+     * @throws IOException           if the file can't be written.
+     * @throws IllegalStateException if the index wasn't built in memory.
+     */
+    public void writeIndex(final Path indexFile) throws IOException {
+        if (indexBuilder != null) {
+            indexBuilder.refresh();
+        }
+        RankedSnapshot ranked = acquireSnapshot();
+        if (!(ranked.getIndex() instanceof InvertedIndex)) {
+            throw new IllegalStateException(
+                    "only an index built in memory can be written");
+        }
+        MappedIndex.write(indexFile, (InvertedIndex) ranked.getIndex(),
+                ranked.getPageRanks());
+    }
+
+    /**
+     * Takes the current snapshot of the index together with the page ranks
+     * in the order of its document ids. The page ranks are only ordered
+     * again if the snapshot or the page ranks changed since the last
+     * search. Websites that were added after the page ranks were calculated
+     * have no page rank and get 0.0. If the index doesn't report its
+     * changed tokens, a new snapshot invalidates all cached results.
+     *
+     * @return the current snapshot and its page ranks.
+     */
+    private RankedSnapshot acquireSnapshot() {
+        SearchIndex index = searchIndex.snapshot();
+        Map<String, Double> pageRanks = pageRanksPerUrl;
+        RankedSnapshot ranked = rankedSnapshot.get();
+        if (ranked == null || ranked.getIndex() != index
+                || ranked.getPageRanksPerUrl() != pageRanks) {
+            if (ranked != null && ranked.getIndex() != index
+                    && !tokenChangesReported) {
+                resultCache.invalidateAll();
+            }
+            double[] pageRanksPerDoc = new double[index.getDocIdBound()];
+            for (int docId = 0; docId < pageRanksPerDoc.length; docId++) {
+                String url = index.getUrl(docId);
+                if (url != null) {
+                    pageRanksPerDoc[docId] = pageRanks.getOrDefault(url,
+                            0.0);
+                }
+            }
+            ranked = new RankedSnapshot(index, pageRanksPerDoc, pageRanks);
+            rankedSnapshot.set(ranked);
+        }
+        return ranked;
+    }
+
+    /**
+     * Invalidates the cached results that depend on the changes of a new
+     * snapshot published by the {@link IndexBuilder}.
+     *
+     * @param previous      the replaced snapshot.
+     * @param current       the published snapshot.
+     * @param changedTokens the tokens whose postings changed.
+     */
+    private void invalidateResults(final IndexSnapshot previous,
+            final IndexSnapshot current, final Set<String> changedTokens) {
+        if (previous == null || previous.getInvertedIndex()
+                .getDocumentCount() != current.getInvertedIndex()
+                        .getDocumentCount()) {
+            /* the IDF scores of all tokens changed */
+            resultCache.invalidateAll();
+            return;
+        }
+        resultCache.invalidate(changedTokens);
+        /* the norms of the websites depend on all of their tokens */
+        resultCache.invalidate(SearchMode.COSINE);
+        resultCache.invalidate(SearchMode.COSINE_PAGERANK);
+    }
+
     /**
      * Tokenizes and lemmatizes the search query by using the
-     * {@link StringTokenizer} class. Joins the query {@link String[]} to
-     * a {@link String} and feeds it to the {@link StringTokenizer}.
+     * {@link QueryAnalyzer} of this search engine. The query
+     * {@link String[]} gets joined to a {@link String} and is only fed to
+     * the {@link StringTokenizer} if it isn't cached already.
      *
      * @param query an array of strings which is the search query.
-     * @return a {@link List} of the tokens of the query.
+     * @return an unmodifiable {@link List} of the tokens of the query.
      */
 
     private List<String> tokenizeQuery(final String[] query) {
         /*
-         * joins the strings in the given array to a single string with
-         * whitespaces inbetween
+         * tokenizes and lemmatizes the string (search query) and removes stop
+         * words and emojis, repeated queries are answered from the cache
          */
-        String queryString = String.join(" ", query);
+        return queryAnalyzer.analyze(query);
+    }
+
+    /**
+     * Searches the indexed websites for the search query and returns one
+     * page of the results, sorted in descending order by their score in the
+     * given mode. Websites with equal scores are sorted by their document
+     * id. Only the results up to the end of the page are selected from the
+     * scored websites, the others are never sorted. Repeated searches are
+     * answered from the {@link ResultCache}.
+     *
+     * @param query  an array of query tokens to search for in the
+     *               processed url websites. (the search request)
+     * @param mode   the way the websites are scored.
+     * @param offset the amount of best results to skip.
+     * @param limit  the maximum amount of results to return.
+     * @return the response with the results of the page, best first.
+     * @throws IllegalArgumentException if the offset or the limit is
+     *                                  negative.
+     */
+    public SearchResponse execute(final String[] query,
+            final SearchMode mode, final int offset, final int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid page of results: offset %s, limit %s", offset,
+                    limit));
+        }
+        return execute(query, mode, offset, limit, null);
+    }
+
+    /**
+     * Searches the indexed websites for the search query on the common pool
+     * like {@link #executeAsync(String[], SearchMode, int, int, Duration,
+     * Executor)}.
+     *
+     * @param query   an array of query tokens to search for in the
+     *                processed url websites. (the search request)
+     * @param mode    the way the websites are scored.
+     * @param offset  the amount of best results to skip.
+     * @param limit   the maximum amount of results to return.
+     * @param timeout the time the search may take from now.
+     * @return the future response with the results of the page.
+     * @throws IllegalArgumentException if the offset, the limit or the
+     *                                  timeout is negative.
+     */
+    public CompletableFuture<SearchResponse> executeAsync(
+            final String[] query, final SearchMode mode, final int offset,
+            final int limit, final Duration timeout) {
+        return executeAsync(query, mode, offset, limit, timeout,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Searches the indexed websites for the search query on an executor and
+     * returns one page of the results like
+     * {@link #execute(String[], SearchMode, int, int)} once the search is
+     * done. The search has a deadline: once the timeout passed, the
+     * postings end and the search returns the best results among the
+     * websites it scored so far, flagged with
+     * {@link SearchResponse#isPartial()}. The timeout includes the time the
+     * search waits for the executor, a search that starts too late returns
+     * an empty partial response right away. Cancelling the returned future
+     * stops the search the same way, so an abandoned search stops using the
+     * executor. Partial responses are never kept in the
+     * {@link ResultCache}.
+     *
+     * @param query    an array of query tokens to search for in the
+     *                 processed url websites. (the search request)
+     * @param mode     the way the websites are scored.
+     * @param offset   the amount of best results to skip.
+     * @param limit    the maximum amount of results to return.
+     * @param timeout  the time the search may take from now.
+     * @param executor the executor to search on.
+     * @return the future response with the results of the page.
+     * @throws IllegalArgumentException if the offset, the limit or the
+     *                                  timeout is negative.
+     */
+    public CompletableFuture<SearchResponse> executeAsync(
+            final String[] query, final SearchMode mode, final int offset,
+            final int limit, final Duration timeout,
+            final Executor executor) {
+        if (offset < 0 || limit < 0 || timeout.isNegative()) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid search: offset %s, limit %s, timeout %s",
+                    offset, limit, timeout));
+        }
+        long timeoutNanos = timeout.compareTo(MAX_TIMEOUT) >= 0
+                ? Long.MAX_VALUE : timeout.toNanos();
+        SearchDeadline deadline = new SearchDeadline(timeoutNanos);
+        CompletableFuture<SearchResponse> future = CompletableFuture
+                .supplyAsync(() -> execute(query, mode, offset, limit,
+                        deadline), executor);
+        /* a cancelled search stops at its next check of the deadline */
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled()) {
+                deadline.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Searches the indexed websites for the search query, optionally with a
+     * deadline, and answers repeated searches from the {@link ResultCache}.
+     *
+     * @param query    an array of query tokens to search for.
+     * @param mode     the way the websites are scored.
+     * @param offset   the amount of best results to skip.
+     * @param limit    the maximum amount of results to return.
+     * @param deadline the deadline of the search, or null to score all
+     *                 websites.
+     * @return the response with the results of the page, best first.
+     */
+    private SearchResponse execute(final String[] query,
+            final SearchMode mode, final int offset, final int limit,
+            final SearchDeadline deadline) {
+        StageTimer timer = new StageTimer(metrics);
+        List<String> queryTokens = tokenizeQuery(query);
+        timer.lap(SearchStage.ANALYSIS);
         /*
-         * tokenizes and lemmatizes the string (search query) and removes stop
-         * words and emojis
+         * the generation is read before the snapshot, so the results of an
+         * outdated snapshot are rejected by the cache
          */
-        return StringTokenizer.tokenizeAndLemmatize(
-                queryString);
+        long generation = resultCache.getGeneration();
+        RankedSnapshot ranked = acquireSnapshot();
+        timer.lap(SearchStage.SNAPSHOT);
+        SearchResponse cached = resultCache.get(mode, queryTokens, offset,
+                limit);
+        timer.lap(SearchStage.CACHE);
+        if (cached != null) {
+            timer.finish();
+            return cached;
+        }
+        if (deadline == null) {
+            SearchResponse response = respond(ranked, mode, queryTokens,
+                    offset, limit, timer);
+            resultCache.put(mode, queryTokens, offset, limit, response,
+                    generation);
+            timer.finish();
+            return response;
+        }
+        SearchResponse response = respond(new RankedSnapshot(
+                new DeadlineIndex(ranked.getIndex(), deadline),
+                ranked.getPageRanks(), ranked.getPageRanksPerUrl()), mode,
+                queryTokens, offset, limit, timer);
+        timer.finish();
+        if (deadline.isStopped()) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Search for %s stopped by its "
+                        + "deadline", queryTokens));
+            }
+            return response.asPartial();
+        }
+        resultCache.put(mode, queryTokens, offset, limit, response,
+                generation);
+        return response;
+    }
+
+    /**
+     * Searches the indexed websites for the search query like
+     * {@link #execute(String[], SearchMode, int, int)} and returns the
+     * response with the {@link QueryProfile} of the search: the time of
+     * every stage, the amount of postings that were read and the amount of
+     * websites that were scored. A profiled search always scores the
+     * websites, it neither reads nor fills the {@link ResultCache}. Reading
+     * the postings through a counter makes it a bit slower than a normal
+     * search.
+     *
+     * @param query  an array of query tokens to search for in the
+     *               processed url websites. (the search request)
+     * @param mode   the way the websites are scored.
+     * @param offset the amount of best results to skip.
+     * @param limit  the maximum amount of results to return.
+     * @return the response with the results of the page and the profile.
+     * @throws IllegalArgumentException if the offset or the limit is
+     *                                  negative.
+     */
+    public SearchResponse profile(final String[] query,
+            final SearchMode mode, final int offset, final int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid page of results: offset %s, limit %s", offset,
+                    limit));
+        }
+        StageTimer timer = new StageTimer(metrics);
+        List<String> queryTokens = tokenizeQuery(query);
+        timer.lap(SearchStage.ANALYSIS);
+        RankedSnapshot ranked = acquireSnapshot();
+        CountingIndex countingIndex = new CountingIndex(ranked.getIndex());
+        timer.lap(SearchStage.SNAPSHOT);
+        SearchResponse response = respond(new RankedSnapshot(countingIndex,
+                ranked.getPageRanks(), ranked.getPageRanksPerUrl()), mode,
+                queryTokens, offset, limit, timer);
+        QueryProfile queryProfile = timer.toProfile(timer.finish(),
+                countingIndex.getPostingsRead());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Profile of %s: %s", queryTokens,
+                    queryProfile));
+        }
+        return response.withProfile(queryProfile);
+    }
+
+    /**
+     * Scores the websites of a snapshot for the tokens of a query and
+     * selects one page of the results.
+     *
+     * @param ranked      the snapshot of the index and its page ranks.
+     * @param mode        the way the websites are scored.
+     * @param queryTokens the tokens of the search query.
+     * @param offset      the amount of best results to skip.
+     * @param limit       the maximum amount of results to return.
+     * @param timer       the timer of the stages of the search.
+     * @return the response with the results of the page, best first.
+     */
+    private SearchResponse respond(final RankedSnapshot ranked,
+            final SearchMode mode, final List<String> queryTokens,
+            final int offset, final int limit, final StageTimer timer) {
+        SearchIndex index = ranked.getIndex();
+        ScoreAccumulator scores = calculateScores(ranked, mode, queryTokens,
+                (int) Math.min((long) offset + limit, Integer.MAX_VALUE));
+        timer.setDocumentsScored(scores.size());
+        timer.lap(SearchStage.SCORING);
+        int[] topDocIds = scores.topDocIds(offset, limit);
+        timer.lap(SearchStage.SELECTION);
+        List<ScoredDocument> results = new ArrayList<>(topDocIds.length);
+        for (int docId : topDocIds) {
+            results.add(new ScoredDocument(index.getUrl(docId),
+                    scores.getScore(docId)));
+        }
+        SearchResponse response = new SearchResponse(mode, queryTokens,
+                results);
+        timer.lap(SearchStage.RESPONSE);
+        return response;
+    }
+
+    /**
+     * Searches the indexed websites for many queries at once like
+     * {@link #executeBatch(List, SearchMode, int, ForkJoinPool)} on the
+     * common pool.
+     *
+     * @param queries the queries to search for.
+     * @param mode    the way the websites are scored.
+     * @param limit   the maximum amount of results per query.
+     * @return the responses of the queries and the throughput of the batch.
+     * @throws IllegalArgumentException if the limit is negative.
+     */
+    public BatchResponse executeBatch(final List<String[]> queries,
+            final SearchMode mode, final int limit) {
+        return executeBatch(queries, mode, limit, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Searches the indexed websites for many queries at once and returns
+     * the best results of every query. All queries run on the same snapshot
+     * of the index. The postings of every distinct token of the batch are
+     * decoded once and shared by all queries that contain the token. With a
+     * pool the postings are decoded and the queries are searched in
+     * parallel. The batch neither reads nor fills the {@link ResultCache},
+     * so a bulk job doesn't push out the results of interactive searches.
+     *
+     * @param queries    the queries to search for.
+     * @param mode       the way the websites are scored.
+     * @param limit      the maximum amount of results per query.
+     * @param workerPool the pool to search on, or null to search the
+     *                   queries one after another.
+     * @return the responses of the queries and the throughput of the batch.
+     * @throws IllegalArgumentException if the limit is negative.
+     */
+    public BatchResponse executeBatch(final List<String[]> queries,
+            final SearchMode mode, final int limit,
+            final ForkJoinPool workerPool) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid amount of results: %s", limit));
+        }
+        long start = System.nanoTime();
+        RankedSnapshot ranked = acquireSnapshot();
+        List<List<String>> tokensPerQuery = new ArrayList<>(queries.size());
+        /* the queries are grouped by their tokens */
+        Set<String> distinctTokens = new TreeSet<>();
+        for (String[] query : queries) {
+            List<String> queryTokens = tokenizeQuery(query);
+            tokensPerQuery.add(queryTokens);
+            distinctTokens.addAll(queryTokens);
+        }
+        SearchIndex index = ranked.getIndex();
+        Function<String, PostingList> decode = token -> SharedPostingsIndex
+                .decode(index.postings(token));
+        Map<String, PostingList> decoded;
+        if (workerPool != null) {
+            decoded = workerPool.submit(() -> distinctTokens.parallelStream()
+                    .collect(Collectors.toMap(Function.identity(), decode)))
+                    .join();
+        } else {
+            decoded = distinctTokens.stream().collect(Collectors.toMap(
+                    Function.identity(), decode));
+        }
+        RankedSnapshot shared = new RankedSnapshot(new SharedPostingsIndex(
+                index, decoded), ranked.getPageRanks(),
+                ranked.getPageRanksPerUrl());
+        IntStream queryNumbers = IntStream.range(0, tokensPerQuery.size());
+        List<SearchResponse> responses;
+        if (workerPool != null) {
+            responses = workerPool.submit(() -> queryNumbers.parallel()
+                    .mapToObj(i -> respondInBatch(shared, mode,
+                            tokensPerQuery.get(i), limit))
+                    .collect(Collectors.toList())).join();
+        } else {
+            responses = queryNumbers.mapToObj(i -> respondInBatch(shared,
+                    mode, tokensPerQuery.get(i), limit))
+                    .collect(Collectors.toList());
+        }
+        BatchResponse batch = new BatchResponse(responses,
+                System.nanoTime() - start, decoded.size());
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format("Batch search: %s", batch));
+        }
+        return batch;
+    }
+
+    /**
+     * Scores the websites for one query of a batch and records the stages
+     * of its search. The analysis of the query and the decoding of the
+     * postings are shared by the batch and not part of the search.
+     *
+     * @param shared      the snapshot with the decoded postings.
+     * @param mode        the way the websites are scored.
+     * @param queryTokens the tokens of the query.
+     * @param limit       the maximum amount of results.
+     * @return the response with the best results.
+     */
+    private SearchResponse respondInBatch(final RankedSnapshot shared,
+            final SearchMode mode, final List<String> queryTokens,
+            final int limit) {
+        StageTimer timer = new StageTimer(metrics);
+        SearchResponse response = respond(shared, mode, queryTokens, 0,
+                limit, timer);
+        timer.finish();
+        return response;
+    }
+
+    /**
+     * Searches the indexed websites for the search query and returns all
+     * results, sorted in descending order by their score in the given mode.
+     *
+     * @param query an array of query tokens to search for in the
+     *              processed url websites. (the search request)
+     * @param mode  the way the websites are scored.
+     * @return the response with all results, best first.
+     */
+    public SearchResponse execute(final String[] query,
+            final SearchMode mode) {
+        return execute(query, mode, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches the indexed websites that match a query of the boolean query
+     * language of {@link BooleanQuery}, e.g.
+     * {@code house AND (garden OR pool) NOT swim}, and returns one page of
+     * the results. The matching websites are found by intersecting and
+     * merging the postings of the tokens, then they are scored in the given
+     * mode by the tokens that aren't excluded, with the same scores as in
+     * {@link #execute(String[], SearchMode, int, int)}. Matching websites
+     * without a score aren't returned, like in every other search. Boolean
+     * searches neither read nor fill the {@link ResultCache}.
+     *
+     * @param query  the boolean query.
+     * @param mode   the way the matching websites are scored.
+     * @param offset the amount of best results to skip.
+     * @param limit  the maximum amount of results to return.
+     * @return the response with the results of the page, best first.
+     * @throws IllegalArgumentException if the query isn't valid or the
+     *                                  offset or the limit is negative.
+     */
+    public SearchResponse executeBoolean(final String query,
+            final SearchMode mode, final int offset, final int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid page of results: offset %s, limit %s", offset,
+                    limit));
+        }
+        StageTimer timer = new StageTimer(metrics);
+        BooleanQuery booleanQuery = BooleanQuery.parse(query, queryAnalyzer);
+        timer.lap(SearchStage.ANALYSIS);
+        RankedSnapshot ranked = acquireSnapshot();
+        timer.lap(SearchStage.SNAPSHOT);
+        FilteredIndex matchingIndex = new FilteredIndex(ranked.getIndex(),
+                SharedPostingsIndex.decode(booleanQuery.matches(
+                        ranked.getIndex())));
+        timer.lap(SearchStage.MATCHING);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Boolean query %s matched %s "
+                    + "websites", booleanQuery,
+                    matchingIndex.getMatchCount()));
+        }
+        SearchResponse response = respond(new RankedSnapshot(matchingIndex,
+                ranked.getPageRanks(), ranked.getPageRanksPerUrl()), mode,
+                booleanQuery.getScoredTokens(), offset, limit, timer);
+        timer.finish();
+        return response;
+    }
+
+    /**
+     * Searches the indexed websites for the search query and returns one
+     * page of the results like
+     * {@link #execute(String[], SearchMode, int, int)}.
+     *
+     * @param query  an array of query tokens to search for in the
+     *               processed url websites. (the search request)
+     * @param mode   the way the websites are scored.
+     * @param offset the amount of best results to skip.
+     * @param limit  the maximum amount of results to return.
+     * @return the unmodifiable results of the page, best first.
+     * @throws IllegalArgumentException if the offset or the limit is
+     *                                  negative.
+     */
+    public List<ScoredDocument> search(final String[] query,
+            final SearchMode mode, final int offset, final int limit) {
+        return execute(query, mode, offset, limit).getResults();
     }
 
     /**
@@ -124,23 +836,12 @@ public class SearchEngine {
      * @param query an array of query tokens to search for in the
      *              processed url websites. (the search request)
      *
-     * @return a list of urls sorted in descending order by a combination
-     *         of cosine similarity and page rank.
+     * @return an unmodifiable list of urls sorted in descending order by a
+     *         combination of cosine similarity and page rank.
      */
 
     public List<String> searchQueryPageRankAndCosine(final String[] query) {
-        Map<String, Double> cosineMap = processQueryAndSearchCosine(query);
-        Map<String, Double> pageRankMap = pageRank.getPageRanksPerUrl();
-        Map<String, Double> combinedScores = new HashMap<>();
-        for (Map.Entry<String, Double> entry : cosineMap.entrySet()) {
-            String url = entry.getKey();
-            Double similarityScore = entry.getValue();
-            Double combinedScore = similarityScore * pageRankMap.get(url);
-            combinedScores.put(url, combinedScore);
-        }
-        mapOfCosineAndPagerankSearch = sortScores(
-                combinedScores);
-        return extractUrlsToList(mapOfCosineAndPagerankSearch);
+        return execute(query, SearchMode.COSINE_PAGERANK).getUrls();
     }
 
     /**
@@ -150,14 +851,12 @@ public class SearchEngine {
      *
      * @param query an array of query tokens to search for in the
      *              processed url websites. (the search request)
-     * @return a list of urls sorted in descending order by TFIDF scores
-     *         in regard to the query.
+     * @return an unmodifiable list of urls sorted in descending order by
+     *         TFIDF scores in regard to the query.
      */
 
     public List<String> searchQuery(final String[] query) {
-        mapOfTfIdfSearch = sortScores(
-                processQueryAndSearchTFIDF(query));
-        return extractUrlsToList(mapOfTfIdfSearch);
+        return execute(query, SearchMode.TFIDF).getUrls();
     }
 
     /**
@@ -167,297 +866,156 @@ public class SearchEngine {
      *
      * @param query an array of query tokens to search for in the
      *              processed url websites. (the search request)
-     * @return a list of urls sorted in descending order by cosine similarity
-     *         in regard to the query.
+     * @return an unmodifiable list of urls sorted in descending order by
+     *         cosine similarity in regard to the query.
      */
 
     public List<String> searchQueryCosine(final String[] query) {
-        Map<String, Double> sortedUrls = sortScores(
-                processQueryAndSearchCosine(query));
-        return extractUrlsToList(sortedUrls);
+        return execute(query, SearchMode.COSINE).getUrls();
     }
 
     /**
-     * Processes the search query to to calculate the relevance of urls fitting
-     * the query. It tokenizes and lemmatizes the query and then for every url
-     * in
-     * the reverse index of the {@link #indexBuilder} and for every token of
-     * the
-     * search query the matching url TFIDF scores are added up so that every
-     * url
-     * has once final total score representing the relevance of the site for
-     * the given search query.
+     * Scores the websites of a snapshot for the tokens of a query in the
+     * given mode. If less results are needed than websites are indexed, a
+     * TFIDF search only scores the websites that can be among the best
+     * results with {@link BlockMaxWand}, and a search with page rank uses
+     * the page ranks as a prior to skip websites with
+     * {@link PriorCosineSearch}.
      *
-     * @param query an array of strings which is the search query.
-     * @return a map of urls and their corresponding relevance scores.
+     * @param ranked      the snapshot of the index and its page ranks.
+     * @param mode        the way the websites are scored.
+     * @param queryTokens the tokens of the search query.
+     * @param resultCount the amount of best results that are needed.
+     * @return the scores of the websites that match the query, at least of
+     *         the best ones.
      */
-    private Map<String, Double> processQueryAndSearchTFIDF(final String[]
-     query) {
-        List<String> queryTokens = tokenizeQuery(query);
-        // retrieves the calculated reverseindex
-        Map<String, Map<String, Double>> reverseIndex = indexBuilder
-                .getReverseIndex();
-        /*
-         * initializes a Map for adding up TFIDF scores per url who match
-         * the tokens
-         */
-        Map<String, Double> addedScoresPerUrl = new HashMap<>();
-
-        for (String token : queryTokens) {
-            // gets the map with urls and scores for the token
-            Map<String, Double> tokenScores = reverseIndex.get(token);
-            // if token exists in map
-            if (tokenScores != null) {
-                /* add up the scores for every url for this token */
-                addScores(addedScoresPerUrl, tokenScores);
-                /* sort the map */
-            }
-        }
-
-        Iterator<Map.Entry<String, Double>> iterator = addedScoresPerUrl.
-        entrySet().iterator();
-        while (iterator.hasNext()) {
-            if (iterator.next().getValue() == 0.0) {
-                iterator.remove();
-            }
+    private ScoreAccumulator calculateScores(final RankedSnapshot ranked,
+            final SearchMode mode, final List<String> queryTokens,
+            final int resultCount) {
+        switch (mode) {
+            case TFIDF:
+                if (resultCount < ranked.getIndex().getDocumentCount()) {
+                    return new BlockMaxWand(ranked.getIndex(), queryTokens,
+                            resultCount).score();
+                }
+                return calculateTfIdfScores(ranked.getIndex(), queryTokens);
+            case COSINE:
+                return calculateCosineScores(ranked.getIndex(), queryTokens);
+            default:
+                if (resultCount < ranked.getIndex().getDocumentCount()) {
+                    return new PriorCosineSearch(ranked.getIndex(),
+                            ranked.getPageRanks(), queryTokens, resultCount)
+                            .score();
+                }
+                ScoreAccumulator scores = calculateCosineScores(
+                        ranked.getIndex(), queryTokens);
+                /* weights the cosine similarity with the page rank */
+                for (int i = 0; i < scores.size(); i++) {
+                    int docId = scores.getDocIdAt(i);
+                    scores.multiply(docId, ranked.getPageRanks()[docId]);
+                }
+                /* websites without page rank aren't results */
+                scores.removeZeroScores();
+                return scores;
         }
-
-        return addedScoresPerUrl;
     }
 
     /**
-     * Processes the search query to to calculate the relevance of urls fitting
-     * the query. It tokenizes and lemmatizes the query. It then creates a
-     * vector ({@link TokenVector}) for the search query. Then for every url
-     * in
-     * the forward index with TFIDF scores of the {@link #indexBuilder} creates
-     * a vector ({@link TokenVector}) of all the tokens and their TFIDF scores.
-     * Then it calculates the cosine similarity of the query vector and the
-     * url vector for every url and returns a map of (url -> cosine similarity)
+     * Calculates the relevance of the websites for the tokens of a query. It
+     * walks through the posting lists of the query tokens in the index. The
+     * TFIDF scores of every posting are added up per document so that every
+     * website has once final total score representing the relevance of the
+     * site for the given search query.
      *
-     * @param query an array of strings which is the search query.
-     * @return a map of urls and their corresponding relevance scores
+     * @param index       the snapshot of the index to search.
+     * @param queryTokens the tokens of the search query.
+     * @return the added up TFIDF scores of the websites that contain a
+     *         token of the query.
      */
-    private Map<String, Double> processQueryAndSearchCosine(final String[]
-     query) {
-        /* tokenizes and lemmatizes the query */
-        List<String> queryTokens = tokenizeQuery(query);
+    private ScoreAccumulator calculateTfIdfScores(final SearchIndex index,
+            final List<String> queryTokens) {
         /*
-         * creates a TokenVector for the query (calculates the vector of the
-         * query)
+         * initializes an accumulator for adding up TFIDF scores per document
+         * id who match the tokens
          */
-        TokenVector queryVector = calculateQueryVector(queryTokens);
+        ScoreAccumulator addedScoresPerDoc = new ScoreAccumulator(
+                index.getDocIdBound());
 
-        /* gets the forward indexes ith TFIDF scores of the crawled websites */
-        Map<String, Map<String, Double>> urlVectorsMap = indexBuilder.
-        getForwardIndexTfIdf();
-        /*
-         * creates a result map for urls and cosine similarity scores
-         * (url -> (cosine similarity of url and query))
-         */
-        Map<String, Double> similarityScores = new LinkedHashMap<>();
-        /*
-         * iterates over every url in the index and creates a tokenvector for
-         * that url. Then the cosine similarity of the url vector and the
-         * query vector gets calculated and the result gets put into the
-         * map. (url -> (cosine similarity of url and query))
-         */
-        for (Entry<String, Map<String, Double>> url : urlVectorsMap.
-        entrySet()) {
-            TokenVector urlVector = new TokenVector(urlVectorsMap.get(url.
-            getKey()));
-            /* calculates the cosine similarity for */
-            double cosineSimilarity = queryVector.computeCosineSimilarity(
-                    urlVector);
-            similarityScores.put(url.getKey(), cosineSimilarity);
-        }
-        /*
-         * iterates over the resulting map and removes every entry
-         * that has a value of 0 so that only the results remain in
-         * the map that have a cosine similarity > 0.0.
-         */
-        Iterator<Map.Entry<String, Double>> iterator = similarityScores.
-        entrySet().iterator();
-        while (iterator.hasNext()) {
-            if (iterator.next().getValue() == 0.0) {
-                iterator.remove();
+        for (String token : queryTokens) {
+            /*
+             * add up the scores for every document in the posting list of
+             * the token, tokens that don't exist have no postings
+             */
+            PostingIterator postings = index.postings(token);
+            while (postings.next() != PostingIterator.NO_MORE_DOCS) {
+                addedScoresPerDoc.add(postings.docId(), postings.weight());
             }
         }
-
-        return similarityScores;
+        return addedScoresPerDoc;
     }
 
     /**
-     * Helper method to calculate a {@link TokenVector} vector for the query.
-     * It gets a {@link Set} of all tokens from the {@link #indexBuilder},
-     * then for every Token of that set it puts an entry into a {@link Map}
-     * with the value 0.0 if this token doesn't exist in the query and 1.0 if
-     * it does. Then it creates a {@link TokenVector} object with this map and
-     * returns it.
+     * Calculates the cosine similarity of the query and every indexed
+     * website from the postings of the query tokens. The query vector gets
+     * the TF score of a token in the query times the IDF score of the token
+     * as weight. The weights of the query tokens times the TFIDF weights of
+     * their postings are added up per document, which gives the dot product
+     * of the query vector and the vector of the website. Divided by the norm
+     * of the query vector and the precalculated norm of the website vector
+     * this is the cosine similarity. Only the postings of the query tokens
+     * and the websites that occur in them are read.
      *
-     * @param queryTokens a List of Srings which is the search query.
-     * @return a {@link TokenVector} object which represents the vector for
-     *         the search query.
+     * @param index       the snapshot of the index to search.
+     * @param queryTokens the tokens of the search query.
+     * @return the cosine similarities of the websites that share a token
+     *         with the query.
      */
-    private TokenVector calculateQueryVector(final List<String> queryTokens) {
-        /*
-         * get a set of all tokens from the indexbuilder and
-         * initialize a map for the query vector.
-         */
-        Set<String> allTokens = indexBuilder.getSetOfAllTokens();
-        Map<String, Double> queryVector = new HashMap<>();
-
-        /*
-         * map amount of occurences of the tokens in the query to the token
-         * for later code expansion of this method. This maps keyset can
-         * then be used like a set of the tokens of queryTokens of the search.
-         */
-        Map<String, Integer> frequencyInQuery = new HashMap<>();
+    private ScoreAccumulator calculateCosineScores(final SearchIndex index,
+            final List<String> queryTokens) {
+        ScoreAccumulator dotProducts = new ScoreAccumulator(
+                index.getDocIdBound());
         /*
-         * iterates over all query tokens and puts them into the map with a
-         * value of 1. If the entry already exists the value will be incremented
-         * by 1.
+         * map amount of occurences of the tokens in the query to the token.
+         * This maps keyset can then be used like a set of the tokens of
+         * queryTokens of the search.
          */
+        Map<String, Integer> frequencyInQuery = new LinkedHashMap<>();
         for (String token : queryTokens) {
-            if (!queryTokens.isEmpty()) {
-                if (frequencyInQuery.containsKey(token)) {
-                    frequencyInQuery.put(token, frequencyInQuery.get(token)
-                            + 1);
-                } else {
-                    frequencyInQuery.put(token, 1);
-                }
-            }
+            frequencyInQuery.merge(token, 1, Integer::sum);
         }
-
-        /*
-         * iterate over every token of the reverse index which represents
-         * every possible token in all crawled websites.
-         */
-        if (!queryTokens.isEmpty()) {
-            /* for every token */
-            for (String token : allTokens) {
-                /*
-                 * calulates the TF score for the query
-                 * TF = frequenc of Token in query / amount of tokens in query.
-                 */
-                double tfScoreQuery;
-                if (!frequencyInQuery.containsKey(token)) {
-                    tfScoreQuery = 0.0;
-
-                } else {
-                    tfScoreQuery = (double) frequencyInQuery.get(token)
-                    / frequencyInQuery.size();
-                }
-                /*
-                 * gets the idf score for this token and multiplys it
-                 * with the tf score for this token for the query to apply
-                 * a weight to the query token instead of just using 1 or 0
-                 */
-                double idfScoreToken = indexBuilder.calculateIDFScore(token);
-                double tfIdfScoreToken = tfScoreQuery * idfScoreToken;
-                queryVector.put(token, tfIdfScoreToken);
+        double squaredQueryNorm = 0.0;
+        for (Map.Entry<String, Integer> entry : frequencyInQuery.entrySet()) {
+            /* tokens that don't occur on any site have a weight of 0.0 */
+            if (index.getDocumentFrequency(entry.getKey()) == 0) {
+                continue;
             }
-        }
-
-        return new TokenVector(queryVector);
-    }
-
-    /**
-     * Adds the TFIDF scores for the given token to the cumulative scores per
-     * url.
-     *
-     * @param addedScoresPerUrl a map of urls and their added scores so far.
-     * @param tokenScores       a map of urls and scores for the current token.
-     */
-    private void addScores(
-            Map<String, Double> addedScoresPerUrl,
-            final Map<String, Double> tokenScores) {
-        /*
-         * iterates over the map with urls and scores and adds up the scores to
-         * the provided map which may or may not contain the url with some added
-         * up scores for earlier processed tokens of the search
-         */
-        for (Map.Entry<String, Double> entry : tokenScores.entrySet()) {
-            String url = entry.getKey();
-            Double tfidfScore = entry.getValue();
             /*
-             * if the url already exists in the map, get the value and add the
-             * new
-             * value for the current token ontop, otherwise create a new entry
-             * and put the url as key and score as value
+             * calulates the TF score for the query
+             * TF = frequenc of Token in query / amount of tokens in query.
+             * and multiplys it with the idf score for this token to apply
+             * a weight to the query token instead of just using 1 or 0
              */
-            if (addedScoresPerUrl.containsKey(url)) {
-                addedScoresPerUrl.put(
-                        url,
-                        addedScoresPerUrl.get(url) + tfidfScore);
-            } else {
-                addedScoresPerUrl.put(url, tfidfScore);
+            double queryWeight = (double) entry.getValue()
+                    / frequencyInQuery.size()
+                    * index.calculateIDFScore(entry.getKey());
+            squaredQueryNorm += queryWeight * queryWeight;
+            PostingIterator postings = index.postings(entry.getKey());
+            while (postings.next() != PostingIterator.NO_MORE_DOCS) {
+                dotProducts.add(postings.docId(), queryWeight
+                        * postings.weight());
             }
         }
-    }
-
-    /**
-     * Sorts the map by values in descending order.
-     *
-     * @param addedScoresPerUrl a map of urls and their added up scores.
-     * @return a sorted map of urls and scores in descending order of scores.
-     */
-    private Map<String, Double> sortScores(
-            final Map<String, Double> addedScoresPerUrl) {
-        /*
-         * retrievs a list of scores (values) from the given map of urls and
-         * values
-         * and sorts them in descending order
-         */
-        List<Double> values = new ArrayList<>(addedScoresPerUrl.values());
-        values.sort((value1, value2) -> Double.compare(value2, value1));
         /*
-         * sorts the map in the same order (descending by score) as the earlier
-         * list by adding the orls and corresponding scores to a new map in
-         * the right order by iterating over the list values (which is sorted
-         * in descending order)
+         * a query without any weighted token doesn't score a site, so only
+         * sites with a positive dot product and norm are divided
          */
-        Map<String, Double> sortedMap = new LinkedHashMap<>();
-        /* iterates over the list */
-        for (Double value : values) {
-            /* iterates over the given map */
-            for (Map.Entry<String, Double> entry : addedScoresPerUrl
-                    .entrySet()) {
-                /*
-                 * if the score in the map equals the score in the list and
-                 * the url
-                 * isn't already in the list put it in, otherwise skip this url
-                 * (makes sure every url is added only once while equal values
-                 * could be mapped to different urls
-                 */
-                if (entry.getValue().equals(value)
-                        && !sortedMap.containsKey(entry.getKey())) {
-                    sortedMap.put(entry.getKey(), value);
-                    break;
-                }
-            }
+        double queryNorm = Math.sqrt(squaredQueryNorm);
+        for (int i = 0; i < dotProducts.size(); i++) {
+            int docId = dotProducts.getDocIdAt(i);
+            dotProducts.divide(docId,
+                    queryNorm * index.getDocumentNorm(docId));
         }
-        return sortedMap;
-    }
-
-    /**
-     * Extracts the urls from the sorted map into a list.
-     *
-     * @param sortedMapWithUrlsAndScores a map of urls and scores, sorted by
-     *                                   scores
-     *                                   in descending order.
-     * @return a list of urls sorted by relevance according to the scores in
-     *         descending order.
-     */
-    private List<String> extractUrlsToList(
-            final Map<String, Double> sortedMapWithUrlsAndScores) {
-        List<String> sortedUrls = new ArrayList<>();
-        /* extracts the keys from the map and puts them into a list */
-        for (Map.Entry<String, Double> entry : sortedMapWithUrlsAndScores
-                .entrySet()) {
-            sortedUrls.add(entry.getKey());
-        }
-        return sortedUrls;
+        return dotProducts;
     }
 
     /**
@@ -498,43 +1056,67 @@ public class SearchEngine {
         return "";
     }
 
+    /**
+     * Creates a short snippet of the website body that contains one of the
+     * tokens of the query like
+     * {@link #createTextForSearchResult(WebsiteData, List)} and records the
+     * time it took in the {@link SearchMetrics} of this search engine.
+     *
+     * @param data        the {@link WebsiteData} object that contains the body
+     *                    for the snippet.
+     * @param queryTokens the search query tokens that is looked for in
+     *                    the body of the website.
+     * @return a short snippet of the website body
+     */
+    public String createSnippet(final WebsiteData data,
+            final List<String> queryTokens) {
+        long start = System.nanoTime();
+        String snippet = createTextForSearchResult(data, queryTokens);
+        metrics.record(SearchStage.SNIPPET, System.nanoTime() - start);
+        return snippet;
+    }
+
     // ============================getter/setter============================//
 
     /**
      * Retrieves a map of website data of all crawled sites from the
      * internal crawler.
      * The key is the url and the value is the data in a structured format
-     * in the datastructure class {@link WebsiteData}
+     * in the datastructure class {@link WebsiteData}. If the index was
+     * opened from a file the websites are read from the index.
      *
      * @return a copy of the map of website data of the internal
      *         crawler
      */
     public Map<String, WebsiteData> getCrawledData() {
-        return new LinkedHashMap<>(crawler.getCrawledData());
-    }
-
-    /**
-     * Retrieves a sorted map of the result of the TFIDF search.
-     * The key is the url and the value is summed up TFIDF score for
-     * the last search with searchQuery(); (url -> TFIDF sum)
-     *
-     * @return a copy of the sorted map of the result of the TFIDF search
-     *         (descending order).
-     */
-    public Map<String, Double> getTfIdfMap() {
-        return new LinkedHashMap<>(mapOfTfIdfSearch);
+        if (crawler != null) {
+            return new LinkedHashMap<>(crawler.getCrawledData());
+        }
+        SearchIndex index = searchIndex.snapshot();
+        Map<String, WebsiteData> crawledData = new LinkedHashMap<>();
+        for (int docId = 0; docId < index.getDocIdBound(); docId++) {
+            /* deleted websites have no url */
+            if (index.getUrl(docId) != null) {
+                crawledData.put(index.getUrl(docId), index.getDocument(docId));
+            }
+        }
+        return crawledData;
     }
 
     /**
-     * Retrieves a sorted map of the result of the TFIDF search.
-     * The key is the url and the value is summed up TFIDF score for
-     * the last search with searchQuery(); (url -> TFIDF sum)
+     * Retrieves the website data of one indexed url from the index.
      *
-     * @return a copy of the sorted map of the result of the combined
-     * search with cosine similarity and page rank.(descending order).
+     * @param url the url of the website.
+     * @return the {@link WebsiteData} of the url or null if the url isn't
+     *         indexed.
      */
-    public Map<String, Double> getCosineAndPagerankMap() {
-        return new LinkedHashMap<>(mapOfCosineAndPagerankSearch);
+    public WebsiteData getDocument(final String url) {
+        SearchIndex index = searchIndex.snapshot();
+        int docId = index.getDocId(url);
+        if (docId < 0) {
+            return null;
+        }
+        return index.getDocument(docId);
     }
 
     /**
@@ -563,4 +1145,121 @@ public class SearchEngine {
     public PageRank getPageRank() {
         return pageRank;
     }
+
+    /**
+     * Retrieves the index all searches run on.
+     *
+     * @return the {@link SearchIndex} of this search engine.
+     */
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Replaces the page ranks of the indexed websites, e.g. after they were
+     * calculated again. Only the cached results of
+     * {@link SearchMode#COSINE_PAGERANK} are invalidated.
+     *
+     * @param pageRanks the page ranks of the indexed websites.
+     *                  (url -> page rank)
+     */
+    public void setPageRanks(final Map<String, Double> pageRanks) {
+        pageRanksPerUrl = new HashMap<>(pageRanks);
+        resultCache.invalidate(SearchMode.COSINE_PAGERANK);
+    }
+
+    /**
+     * Retrieves the cache of the search results, e.g. to read its hit
+     * ratio.
+     *
+     * @return the internal {@link ResultCache} object.
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Retrieves the latencies of the searches and their stages.
+     *
+     * @return the internal {@link SearchMetrics} object.
+     */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Retrieves the internal {@link QueryAnalyzer} object, e.g. to read
+     * the hit ratio of its query cache.
+     *
+     * @return the internal {@link QueryAnalyzer} object.
+     */
+    public QueryAnalyzer getQueryAnalyzer() {
+        return queryAnalyzer;
+    }
+
+    /**
+     * A snapshot of the index together with the page ranks of its websites
+     * in the order of its document ids.
+     */
+    private static final class RankedSnapshot {
+
+        /**
+         * The snapshot of the index.
+         */
+        private final SearchIndex index;
+
+        /**
+         * The page ranks. (document id -> page rank)
+         */
+        private final double[] pageRanks;
+
+        /**
+         * The page ranks per url the page ranks were ordered from, null if
+         * they were given by document id.
+         */
+        private final Map<String, Double> pageRanksPerUrl;
+
+        /**
+         * Creates a new {@code RankedSnapshot}.
+         *
+         * @param snapshot        the snapshot of the index.
+         * @param pageRanksPerDoc the page ranks by document id.
+         * @param source          the page ranks per url they were ordered
+         *                        from, or null.
+         */
+        RankedSnapshot(final SearchIndex snapshot,
+                final double[] pageRanksPerDoc,
+                final Map<String, Double> source) {
+            this.index = snapshot;
+            this.pageRanks = pageRanksPerDoc;
+            this.pageRanksPerUrl = source;
+        }
+
+        /**
+         * Returns the snapshot of the index.
+         *
+         * @return the snapshot.
+         */
+        SearchIndex getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the page ranks by document id of the snapshot.
+         *
+         * @return the page ranks, must not be changed.
+         */
+        double[] getPageRanks() {
+            return pageRanks;
+        }
+
+        /**
+         * Returns the page ranks per url the page ranks were ordered from.
+         *
+         * @return the page ranks per url, or null.
+         */
+        Map<String, Double> getPageRanksPerUrl() {
+            return pageRanksPerUrl;
+        }
+    }
 }
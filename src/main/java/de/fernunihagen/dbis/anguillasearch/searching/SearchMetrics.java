@@ -0,0 +1,111 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fernunihagen.dbis.anguillasearch.util.LatencyHistogram;
+
+/**
+ * The {@code SearchMetrics} class collects the latencies of the searches of
+ * a {@link SearchEngine}: one {@link LatencyHistogram} per
+ * {@link SearchStage} and one of the whole searches. Every search records
+ * its stages, so a slow stage shows up in the percentiles of its histogram
+ * and a latency regression can be traced to the stage that caused it.
+ *
+ * <p>
+ * The metrics can be recorded by any amount of threads at once.
+ * </p>
+ */
+public final class SearchMetrics {
+
+    /**
+     * Logger for the latencies.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            SearchMetrics.class);
+
+    /**
+     * The latencies per stage.
+     */
+    private final Map<SearchStage, LatencyHistogram> latencyPerStage =
+            new EnumMap<>(SearchStage.class);
+
+    /**
+     * The latencies of the whole searches.
+     */
+    private final LatencyHistogram searchLatency = new LatencyHistogram();
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates new {@code SearchMetrics} without any recorded latency.
+     */
+    SearchMetrics() {
+        for (SearchStage stage : SearchStage.values()) {
+            latencyPerStage.put(stage, new LatencyHistogram());
+        }
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Records the latency of a stage.
+     *
+     * @param stage the stage.
+     * @param nanos the time the stage took in nanoseconds.
+     */
+    void record(final SearchStage stage, final long nanos) {
+        latencyPerStage.get(stage).record(nanos);
+    }
+
+    /**
+     * Records the latency of a whole search.
+     *
+     * @param nanos the time the search took in nanoseconds.
+     */
+    void recordSearch(final long nanos) {
+        searchLatency.record(nanos);
+    }
+
+    /**
+     * Logs the latencies of the searches and of every stage that was
+     * recorded at least once.
+     */
+    public void logStatistics() {
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format("Search latency: %s", searchLatency));
+            for (Map.Entry<SearchStage, LatencyHistogram> entry
+                    : latencyPerStage.entrySet()) {
+                if (entry.getValue().getCount() > 0) {
+                    LOGGER.info(String.format("  %s: %s", entry.getKey(),
+                            entry.getValue()));
+                }
+            }
+        }
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the latencies of one stage.
+     *
+     * @param stage the stage.
+     * @return the histogram of the latencies of the stage.
+     */
+    public LatencyHistogram getStageLatency(final SearchStage stage) {
+        return latencyPerStage.get(stage);
+    }
+
+    /**
+     * Returns the latencies of the whole searches, from the analysis of
+     * the query to the response.
+     *
+     * @return the histogram of the search latencies.
+     */
+    public LatencyHistogram getSearchLatency() {
+        return searchLatency;
+    }
+}
@@ -0,0 +1,24 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+/**
+ * The {@code SearchMode} enum names the ways the {@link SearchEngine} can
+ * score the websites for a search query.
+ */
+public enum SearchMode {
+
+    /**
+     * The TFIDF scores of the query tokens are added up per website.
+     */
+    TFIDF,
+
+    /**
+     * The cosine similarity of the query vector and the vector of the
+     * website.
+     */
+    COSINE,
+
+    /**
+     * The cosine similarity multiplied with the page rank of the website.
+     */
+    COSINE_PAGERANK
+}
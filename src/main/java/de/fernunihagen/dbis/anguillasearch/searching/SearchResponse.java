@@ -0,0 +1,196 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code SearchResponse} class is the immutable result of one search:
+ * the search mode, the analyzed tokens of the query and the scored
+ * websites, best first. Every search gets its own response, so searches on
+ * several threads never see the results of each other and a response can
+ * be shared between threads and kept in the {@link ResultCache}.
+ */
+public final class SearchResponse {
+
+    /**
+     * The way the websites were scored.
+     */
+    private final SearchMode mode;
+
+    /**
+     * The analyzed tokens of the query.
+     */
+    private final List<String> queryTokens;
+
+    /**
+     * The scored websites, best first.
+     */
+    private final List<ScoredDocument> results;
+
+    /**
+     * The urls of the results, best first.
+     */
+    private final List<String> urls;
+
+    /**
+     * The scores of the results. (url -> score) in the order of the results.
+     */
+    private final Map<String, Double> scoresPerUrl;
+
+    /**
+     * The profile of the search, null if it wasn't profiled.
+     */
+    private final QueryProfile profile;
+
+    /**
+     * Whether the search was stopped by its deadline before all websites
+     * were scored.
+     */
+    private final boolean partial;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code SearchResponse}.
+     *
+     * @param searchMode the way the websites were scored.
+     * @param tokens     the analyzed tokens of the query.
+     * @param documents  the scored websites, best first.
+     */
+    SearchResponse(final SearchMode searchMode, final List<String> tokens,
+            final List<ScoredDocument> documents) {
+        this.mode = searchMode;
+        this.queryTokens = List.copyOf(tokens);
+        this.results = List.copyOf(documents);
+        List<String> urlsOfResults = new ArrayList<>(documents.size());
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (ScoredDocument result : documents) {
+            urlsOfResults.add(result.getUrl());
+            scores.put(result.getUrl(), result.getScore());
+        }
+        this.urls = Collections.unmodifiableList(urlsOfResults);
+        this.scoresPerUrl = Collections.unmodifiableMap(scores);
+        this.profile = null;
+        this.partial = false;
+    }
+
+    /**
+     * Creates a new {@code SearchResponse} with the results of another
+     * response.
+     *
+     * @param response     the response of the search.
+     * @param queryProfile the profile of the search, or null.
+     * @param stopped      whether the search was stopped by its deadline.
+     */
+    private SearchResponse(final SearchResponse response,
+            final QueryProfile queryProfile, final boolean stopped) {
+        this.mode = response.mode;
+        this.queryTokens = response.queryTokens;
+        this.results = response.results;
+        this.urls = response.urls;
+        this.scoresPerUrl = response.scoresPerUrl;
+        this.profile = queryProfile;
+        this.partial = stopped;
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Returns a response with the same results and the profile of the
+     * search.
+     *
+     * @param queryProfile the profile of the search.
+     * @return the profiled response.
+     */
+    SearchResponse withProfile(final QueryProfile queryProfile) {
+        return new SearchResponse(this, queryProfile, partial);
+    }
+
+    /**
+     * Returns a response with the same results that is flagged as partial.
+     *
+     * @return the partial response.
+     */
+    SearchResponse asPartial() {
+        return new SearchResponse(this, profile, true);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s%s: %s", mode, queryTokens,
+                partial ? " (partial)" : "", results);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the way the websites were scored.
+     *
+     * @return the search mode.
+     */
+    public SearchMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the analyzed tokens of the query.
+     *
+     * @return the unmodifiable list of the query tokens.
+     */
+    public List<String> getQueryTokens() {
+        return queryTokens;
+    }
+
+    /**
+     * Returns the scored websites.
+     *
+     * @return the unmodifiable list of the results, best first.
+     */
+    public List<ScoredDocument> getResults() {
+        return results;
+    }
+
+    /**
+     * Returns the urls of the results.
+     *
+     * @return the unmodifiable list of the urls, best first.
+     */
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    /**
+     * Returns the scores of the results.
+     *
+     * @return the unmodifiable map (url -> score) in the order of the
+     *         results.
+     */
+    public Map<String, Double> getScoresPerUrl() {
+        return scoresPerUrl;
+    }
+
+    /**
+     * Returns the profile of the search, which is only created by
+     * {@link SearchEngine#profile(String[], SearchMode, int, int)}.
+     *
+     * @return the profile or null if the search wasn't profiled.
+     */
+    public QueryProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Returns whether the search was stopped by its deadline. The results
+     * of a partial response are the best ones among the websites that were
+     * scored until then, their scores may be lower than the ones of a
+     * complete search.
+     *
+     * @return true if not all websites were scored.
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+}
@@ -0,0 +1,50 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+/**
+ * The {@code SearchStage} enum names the stages a search of the
+ * {@link SearchEngine} runs through. The time of every stage is recorded
+ * in the {@link SearchMetrics} of the search engine.
+ */
+public enum SearchStage {
+
+    /**
+     * The query is tokenized and lemmatized or parsed.
+     */
+    ANALYSIS,
+
+    /**
+     * The current snapshot of the index and its page ranks are taken.
+     */
+    SNAPSHOT,
+
+    /**
+     * The response is looked up in the {@link ResultCache}.
+     */
+    CACHE,
+
+    /**
+     * The websites that match a boolean query are found in the postings.
+     */
+    MATCHING,
+
+    /**
+     * The postings of the query tokens are read and the websites are
+     * scored.
+     */
+    SCORING,
+
+    /**
+     * The best scores of the requested page are selected and sorted.
+     */
+    SELECTION,
+
+    /**
+     * The urls of the results are looked up and the response is created.
+     */
+    RESPONSE,
+
+    /**
+     * A snippet of a result is cut out of the website body.
+     */
+    SNIPPET
+}
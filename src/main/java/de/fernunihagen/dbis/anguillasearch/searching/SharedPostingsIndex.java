@@ -0,0 +1,143 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingIterator;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingList;
+import de.fernunihagen.dbis.anguillasearch.indexing.SearchIndex;
+
+/**
+ * The {@code SharedPostingsIndex} class is a view of a snapshot of an index
+ * whose postings were decoded once for a batch of queries. The postings of
+ * every token of the batch are read from a {@link PostingList}, so queries
+ * that share a token iterate over the same decoded arrays instead of
+ * decoding the compressed postings again. Everything else is read from the
+ * snapshot.
+ *
+ * <p>
+ * The view is immutable and can be searched by several threads at once.
+ * </p>
+ */
+final class SharedPostingsIndex implements SearchIndex {
+
+    /**
+     * The snapshot the postings were decoded from.
+     */
+    private final SearchIndex snapshot;
+
+    /**
+     * The decoded postings of the tokens of the batch.
+     */
+    private final Map<String, PostingList> postingsPerToken;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code SharedPostingsIndex}. The map is taken over
+     * without a copy and must not be changed afterwards.
+     *
+     * @param index   the snapshot the postings were decoded from.
+     * @param decoded the decoded postings per token.
+     */
+    SharedPostingsIndex(final SearchIndex index,
+            final Map<String, PostingList> decoded) {
+        this.snapshot = index;
+        this.postingsPerToken = decoded;
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Decodes all postings of an iterator into a {@link PostingList}.
+     *
+     * @param postings the iterator positioned before the first posting.
+     * @return the decoded postings.
+     */
+    static PostingList decode(final PostingIterator postings) {
+        int[] docIds = new int[postings.cost()];
+        float[] weights = new float[docIds.length];
+        int size = 0;
+        while (postings.next() != PostingIterator.NO_MORE_DOCS) {
+            /* the cost is only an upper bound for a live index */
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, Math.max(1, size * 2));
+                weights = Arrays.copyOf(weights, docIds.length);
+            }
+            docIds[size] = postings.docId();
+            weights[size] = postings.weight();
+            size++;
+        }
+        if (size < docIds.length) {
+            docIds = Arrays.copyOf(docIds, size);
+            weights = Arrays.copyOf(weights, size);
+        }
+        return new PostingList(docIds, weights);
+    }
+
+    @Override
+    public PostingIterator postings(final String token) {
+        PostingList postings = postingsPerToken.get(token);
+        if (postings == null) {
+            return snapshot.postings(token);
+        }
+        return postings.iterator();
+    }
+
+    @Override
+    public int getDocumentFrequency(final String token) {
+        return snapshot.getDocumentFrequency(token);
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return snapshot.getDocumentCount();
+    }
+
+    @Override
+    public int getDocIdBound() {
+        return snapshot.getDocIdBound();
+    }
+
+    @Override
+    public String getUrl(final int docId) {
+        return snapshot.getUrl(docId);
+    }
+
+    @Override
+    public int getDocId(final String url) {
+        return snapshot.getDocId(url);
+    }
+
+    @Override
+    public int getDocumentLength(final int docId) {
+        return snapshot.getDocumentLength(docId);
+    }
+
+    @Override
+    public double getDocumentNorm(final int docId) {
+        return snapshot.getDocumentNorm(docId);
+    }
+
+    @Override
+    public WebsiteData getDocument(final int docId) {
+        return snapshot.getDocument(docId);
+    }
+
+    @Override
+    public double calculateIDFScore(final String token) {
+        return snapshot.calculateIDFScore(token);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the amount of tokens whose postings were decoded.
+     *
+     * @return the amount of decoded posting lists.
+     */
+    int getDecodedTokenCount() {
+        return postingsPerToken.size();
+    }
+}
@@ -0,0 +1,106 @@
+package de.fernunihagen.dbis.anguillasearch.searching;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The {@code StageTimer} class measures the stages of one search. Every
+ * call of {@link #lap(SearchStage)} ends the current stage, records its
+ * time in the {@link SearchMetrics} and starts the next one. The times are
+ * kept per search, so a profiled search can return them in its
+ * {@link QueryProfile}.
+ *
+ * <p>
+ * A timer belongs to one search and isn't thread-safe.
+ * </p>
+ */
+final class StageTimer {
+
+    /**
+     * The metrics the times are recorded in.
+     */
+    private final SearchMetrics metrics;
+
+    /**
+     * The time the search started.
+     */
+    private final long start;
+
+    /**
+     * The time the current stage started.
+     */
+    private long stageStart;
+
+    /**
+     * The times of the stages the search ran through.
+     */
+    private final Map<SearchStage, Long> nanosPerStage =
+            new EnumMap<>(SearchStage.class);
+
+    /**
+     * The amount of websites that got a score.
+     */
+    private int documentsScored;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code StageTimer} and starts the first stage.
+     *
+     * @param searchMetrics the metrics to record the times in.
+     */
+    StageTimer(final SearchMetrics searchMetrics) {
+        this.metrics = searchMetrics;
+        this.start = System.nanoTime();
+        this.stageStart = start;
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Ends the current stage and starts the next one.
+     *
+     * @param stage the stage that ended.
+     */
+    void lap(final SearchStage stage) {
+        long now = System.nanoTime();
+        long nanos = now - stageStart;
+        nanosPerStage.merge(stage, nanos, Long::sum);
+        metrics.record(stage, nanos);
+        stageStart = now;
+    }
+
+    /**
+     * Ends the search and records its whole time.
+     *
+     * @return the time of the search in nanoseconds.
+     */
+    long finish() {
+        long nanos = System.nanoTime() - start;
+        metrics.recordSearch(nanos);
+        return nanos;
+    }
+
+    /**
+     * Creates the profile of the search, which has to be finished.
+     *
+     * @param totalNanos   the time of the whole search.
+     * @param postingsRead the amount of postings that were read.
+     * @return the profile of the search.
+     */
+    QueryProfile toProfile(final long totalNanos, final long postingsRead) {
+        return new QueryProfile(nanosPerStage, totalNanos, postingsRead,
+                documentsScored);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Sets the amount of websites that got a score.
+     *
+     * @param documents the amount of scored websites.
+     */
+    void setDocumentsScored(final int documents) {
+        this.documentsScored = documents;
+    }
+}
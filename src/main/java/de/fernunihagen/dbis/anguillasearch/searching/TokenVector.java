@@ -1,5 +1,7 @@
 package de.fernunihagen.dbis.anguillasearch.searching;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -11,14 +13,55 @@ import java.util.Map;
  * This class can calculate the cosine similarity between two vectors.
  * </p>
  *
+ * <p>
+ * The vector is sparse and stored in three parallel primitive arrays: the
+ * hash codes of the tokens, the tokens and their normalized weights. Only
+ * tokens with a weight different from 0.0 are stored. The entries are
+ * sorted by the hash code of their token and then by the token, so the dot
+ * product walks through both vectors once (merge join) and mostly compares
+ * ints, the tokens are only compared if their hash codes are equal. The
+ * euclidean norm is calculated once when the vector is created.
+ * </p>
+ *
+ * <p>
+ * There is intentionally no dense path with SIMD instructions: the Vector
+ * API is still an incubator module and would need
+ * {@code --add-modules jdk.incubator.vector} at compile time and at run
+ * time, which this build doesn't set. The vectors of websites are also
+ * sparse, so a dense vector over all tokens would mostly hold zeros.
+ * </p>
+ *
  */
 
 public final class TokenVector {
 
     /**
-     * Contains a mapping of every Token to its corresponding TFIDF value.
+     * The order of the entries: by the hash code of the token, then by the
+     * token.
+     */
+    private static final Comparator<String> ENTRY_ORDER = Comparator
+            .comparingInt(String::hashCode)
+            .thenComparing(Comparator.naturalOrder());
+
+    /**
+     * The hash codes of the tokens in ascending order.
+     */
+    private final int[] hashes;
+
+    /**
+     * The tokens, tokens[i] has the hash code hashes[i].
+     */
+    private final String[] tokens;
+
+    /**
+     * The normalized TFIDF values, weights[i] belongs to tokens[i].
      */
-    private final Map<String, Double> tfIdfPerToken;
+    private final double[] weights;
+
+    /**
+     * The euclidean norm of the vector before it was normalized.
+     */
+    private final double norm;
 
     // ============================constructors===========================//
 
@@ -26,34 +69,47 @@ public final class TokenVector {
      * Creates a new {@code TokenVector} object for a given map
      * of tokens -> TFIDF scores.
      *
-     * @param tokenTfIdf the pageLimit at which the crawler stops crawling
-     *                   outgoing links recursively.
+     * @param tokenTfIdf the map of tokens and their TFIDF scores, tokens
+     *                   with a score of 0.0 are left out.
      */
 
     public TokenVector(final Map<String, Double> tokenTfIdf) {
-        this.tfIdfPerToken = new HashMap<>(tokenTfIdf);
-        normalizeVector();
+        String[] sortedTokens = tokenTfIdf.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0.0)
+                .map(Map.Entry::getKey)
+                .sorted(ENTRY_ORDER)
+                .toArray(String[]::new);
+        this.tokens = sortedTokens;
+        this.hashes = new int[sortedTokens.length];
+        this.weights = new double[sortedTokens.length];
+        for (int i = 0; i < sortedTokens.length; i++) {
+            hashes[i] = sortedTokens[i].hashCode();
+            weights[i] = tokenTfIdf.get(sortedTokens[i]);
+        }
+        this.norm = normalizeVector();
     }
     // ==============================methods==============================//
 
     /**
      * Normalizes the Vector.
+     *
+     * @return the euclidean norm of the vector before normalizing.
      */
 
-    private void normalizeVector() {
+    private double normalizeVector() {
         /* calculate the sum of squares of all urlvector values of an url */
         double squareSumOfTfIdf = 0.0;
-        for (double value : tfIdfPerToken.values()) {
+        for (double value : weights) {
             squareSumOfTfIdf += value * value;
         }
         /* the value to normalize the urlvector values with */
         double normalizeValue = Math.sqrt(squareSumOfTfIdf);
 
-        // * iterate over url vector map and normalize it */
-        for (Map.Entry<String, Double> entry : tfIdfPerToken.entrySet()) {
-            entry.setValue(entry.getValue() / normalizeValue);
+        /* a vector without entries stays empty */
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] /= normalizeValue;
         }
-
+        return normalizeValue;
     }
 
     /**
@@ -68,6 +124,9 @@ public final class TokenVector {
      * i = 1 - n
      * </pre>
      *
+     * Both vectors are normalized already, so the cosine similarity is the
+     * dot product of their normalized weights.
+     *
      * @param vectorB the second vector for the calculation.
      *                If vectorB is {@code null}, the method returns 0.0.
      *
@@ -84,31 +143,30 @@ public final class TokenVector {
         if (vectorB == null) {
             return 0.0;
         }
-        /* retrieve the map (vector) for vector B */
-        Map<String, Double> tfIdfPerTokenVectorB = vectorB.getTfIdfMap();
-
         /* calculates the dot product of vector A and vector B */
         double dotProduct = 0.0;
-        /* for every token in vector A (this) */
-        for (Map.Entry<String, Double> entry : tfIdfPerToken.entrySet()) {
-            /* get key and value of vector A for this entry */
-            String token = entry.getKey();
-            double tfIdfA = entry.getValue();
-            double tfIdfB;
-            /*
-             * if this token also exists in vector B initialize it with
-             * the corresponding value else initialize it with 0.0
-             */
-            if (tfIdfPerTokenVectorB.containsKey(token)) {
-                tfIdfB = tfIdfPerTokenVectorB.get(token);
+        int i = 0;
+        int j = 0;
+        while (i < hashes.length && j < vectorB.hashes.length) {
+            int hashA = hashes[i];
+            int hashB = vectorB.hashes[j];
+            if (hashA < hashB) {
+                i++;
+            } else if (hashA > hashB) {
+                j++;
             } else {
-                tfIdfB = 0.0;
+                /* equal hash codes, the tokens decide */
+                int order = tokens[i].compareTo(vectorB.tokens[j]);
+                if (order == 0) {
+                    dotProduct += weights[i] * vectorB.weights[j];
+                    i++;
+                    j++;
+                } else if (order < 0) {
+                    i++;
+                } else {
+                    j++;
+                }
             }
-            /*
-             * calculate the dotproduct for this token and add it to the
-             * total sum
-             */
-            dotProduct += (tfIdfA * tfIdfB);
         }
         return dotProduct;
     }
@@ -117,12 +175,49 @@ public final class TokenVector {
 
     /**
      * Returns a mapping of every Token to its corresponding TFIDF value.
-     * Basically the vector.
+     * Basically the vector. Tokens with a TFIDF value of 0.0 are not part
+     * of the map.
      *
      * @return A map with a mapping token -> TFIDF value. (the vector)
      */
     public Map<String, Double> getTfIdfMap() {
-        return new HashMap<>(tfIdfPerToken);
+        Map<String, Double> tfIdfPerToken = new HashMap<>();
+        for (int i = 0; i < tokens.length; i++) {
+            tfIdfPerToken.put(tokens[i], weights[i]);
+        }
+        return tfIdfPerToken;
+    }
+
+    /**
+     * Returns the amount of tokens with a TFIDF value different from 0.0.
+     *
+     * @return the amount of entries of the vector.
+     */
+    public int size() {
+        return tokens.length;
+    }
+
+    /**
+     * Returns the euclidean norm of the vector before it was normalized.
+     *
+     * @return the norm of the vector.
+     */
+    public double getNorm() {
+        return norm;
     }
 
+    /**
+     * Returns the normalized TFIDF value of a token.
+     *
+     * @param token the token to look up.
+     * @return the normalized value or 0.0 if the token isn't part of the
+     *         vector.
+     */
+    public double getWeight(final String token) {
+        int position = Arrays.binarySearch(tokens, token, ENTRY_ORDER);
+        if (position < 0) {
+            return 0.0;
+        }
+        return weights[position];
+    }
 }
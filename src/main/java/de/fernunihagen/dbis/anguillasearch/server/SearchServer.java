@@ -0,0 +1,482 @@
+package de.fernunihagen.dbis.anguillasearch.server;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.fernunihagen.dbis.anguillasearch.searching.ScoredDocument;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchResponse;
+
+/**
+ * The {@code SearchServer} class answers search queries of a
+ * {@link SearchEngine} over HTTP with the HTTP server of the JDK. A search
+ * is requested with {@code GET /search?q=<query>} and the optional
+ * parameters {@code mode} ({@code tfidf}, {@code cosine} or
+ * {@code pagerank}, the default), {@code offset} and {@code limit}. The
+ * response is a JSON object with the analyzed query tokens, whether the
+ * results are partial and the results with their urls and scores.
+ *
+ * <p>
+ * The server thread only reads the request line and hands the exchange to
+ * a bounded pool of worker threads with a bounded queue. A request that
+ * finds the queue full, or that waited in the queue longer than the
+ * allowed queue wait, is answered with {@code 503 Service Unavailable}
+ * right away instead of being searched. Under overload the server
+ * therefore sheds the requests it can't answer in time and keeps the
+ * latency of the others bounded. Every search runs with a deadline of the
+ * search timeout minus the time it waited, so it returns partial results
+ * rather than exceed the timeout.
+ * </p>
+ *
+ * <p>
+ * Connections are kept alive between requests as usual for HTTP/1.1. The
+ * JSON is streamed straight into the response body with chunked transfer
+ * encoding, so a response is never built as a string first.
+ * </p>
+ */
+public final class SearchServer implements AutoCloseable {
+
+    /**
+     * Logger for the start and the statistics of the server.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            SearchServer.class);
+
+    /**
+     * The path of the search endpoint.
+     */
+    private static final String SEARCH_PATH = "/search";
+
+    /**
+     * The amount of results of a request without a limit.
+     */
+    private static final int DEFAULT_LIMIT = 10;
+
+    /**
+     * The highest amount of results of one request.
+     */
+    private static final int MAX_LIMIT = 1000;
+
+    /**
+     * The HTTP status of a successful search.
+     */
+    private static final int STATUS_OK = 200;
+
+    /**
+     * The HTTP status of an invalid request.
+     */
+    private static final int STATUS_BAD_REQUEST = 400;
+
+    /**
+     * The HTTP status of an unknown path.
+     */
+    private static final int STATUS_NOT_FOUND = 404;
+
+    /**
+     * The HTTP status of a request with another method than GET.
+     */
+    private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+
+    /**
+     * The HTTP status of a failed search.
+     */
+    private static final int STATUS_INTERNAL_ERROR = 500;
+
+    /**
+     * The HTTP status of a request that was shed.
+     */
+    private static final int STATUS_UNAVAILABLE = 503;
+
+    /**
+     * The search engine that answers the queries.
+     */
+    private final SearchEngine searchEngine;
+
+    /**
+     * The HTTP server of the JDK.
+     */
+    private final HttpServer server;
+
+    /**
+     * The workers that answer the requests.
+     */
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * The longest time a request may wait for a worker.
+     */
+    private final long maxQueueWaitNanos;
+
+    /**
+     * The time a search may take from the arrival of its request.
+     */
+    private final Duration searchTimeout;
+
+    /**
+     * The amount of answered searches.
+     */
+    private final LongAdder servedCount = new LongAdder();
+
+    /**
+     * The amount of requests that were answered with 503.
+     */
+    private final LongAdder shedCount = new LongAdder();
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code SearchServer} that is bound to the address but
+     * doesn't accept requests until it is started.
+     *
+     * @param engine        the search engine that answers the queries.
+     * @param address       the address to bind to, port 0 picks a free
+     *                      port.
+     * @param workerThreads the amount of worker threads.
+     * @param queueCapacity the amount of requests that can wait for a
+     *                      worker.
+     * @param maxQueueWait  the longest time a request may wait for a
+     *                      worker before it is shed.
+     * @param timeout       the time a search may take from the arrival of
+     *                      its request.
+     * @throws IOException              if the address can't be bound.
+     * @throws IllegalArgumentException if the amount of workers or the
+     *                                  capacity isn't positive.
+     */
+    public SearchServer(final SearchEngine engine,
+            final InetSocketAddress address, final int workerThreads,
+            final int queueCapacity, final Duration maxQueueWait,
+            final Duration timeout) throws IOException {
+        if (workerThreads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid worker pool: %s threads, queue of %s",
+                    workerThreads, queueCapacity));
+        }
+        this.searchEngine = engine;
+        this.maxQueueWaitNanos = maxQueueWait.toNanos();
+        this.searchTimeout = timeout;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "search-worker-"
+                            + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.server = HttpServer.create(address, 0);
+        /* the server thread only hands the exchanges to the workers */
+        server.createContext("/", this::dispatch);
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format("Search server listening on %s",
+                    getAddress()));
+        }
+    }
+
+    /**
+     * Stops accepting requests, lets the workers finish the queued ones
+     * and logs how many requests were served and shed.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        workers.shutdown();
+        try {
+            workers.awaitTermination(searchTimeout.toMillis() + 1,
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format("Search server stopped: served=%d, "
+                    + "shed=%d", getServedCount(), getShedCount()));
+        }
+    }
+
+    /**
+     * Hands an exchange to the workers, or sheds it if the queue is full.
+     *
+     * @param exchange the exchange of the request.
+     * @throws IOException if the response can't be sent.
+     */
+    private void dispatch(final HttpExchange exchange) throws IOException {
+        long arrival = System.nanoTime();
+        try {
+            workers.execute(() -> handle(exchange, arrival));
+        } catch (RejectedExecutionException e) {
+            shed(exchange);
+        }
+    }
+
+    /**
+     * Answers a request on a worker thread.
+     *
+     * @param exchange the exchange of the request.
+     * @param arrival  the time the request arrived.
+     */
+    private void handle(final HttpExchange exchange, final long arrival) {
+        try (exchange) {
+            long queueWait = System.nanoTime() - arrival;
+            if (queueWait > maxQueueWaitNanos) {
+                shed(exchange);
+                return;
+            }
+            if (!SEARCH_PATH.equals(exchange.getRequestURI().getPath())) {
+                sendError(exchange, STATUS_NOT_FOUND, "Unknown path");
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, STATUS_METHOD_NOT_ALLOWED,
+                        "Only GET is allowed");
+                return;
+            }
+            search(exchange, searchTimeout.minusNanos(queueWait));
+        } catch (IOException e) {
+            /* the client closed the connection */
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Failed to answer request: %s",
+                        e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Searches the query of a request and sends the results.
+     *
+     * @param exchange the exchange of the request.
+     * @param timeout  the time the search may still take.
+     * @throws IOException if the response can't be sent.
+     */
+    private void search(final HttpExchange exchange, final Duration timeout)
+            throws IOException {
+        Map<String, String> parameters = parseQuery(
+                exchange.getRequestURI().getRawQuery());
+        String query = parameters.get("q");
+        SearchMode mode = parseMode(parameters.get("mode"));
+        int offset = parseNumber(parameters.get("offset"), 0);
+        int limit = parseNumber(parameters.get("limit"), DEFAULT_LIMIT);
+        if (query == null || query.isBlank() || mode == null || offset < 0
+                || limit < 0 || limit > MAX_LIMIT) {
+            sendError(exchange, STATUS_BAD_REQUEST, String.format(
+                    "Expected q=<query>, mode=tfidf|cosine|pagerank, "
+                            + "offset>=0 and 0<=limit<=%d", MAX_LIMIT));
+            return;
+        }
+        SearchResponse response;
+        try {
+            /* the search runs on this worker, only with a deadline */
+            response = searchEngine.executeAsync(query.trim().split("\\s+"),
+                    mode, offset, limit, timeout.isNegative()
+                            ? Duration.ZERO : timeout, Runnable::run)
+                    .join();
+        } catch (RuntimeException e) {
+            if (LOGGER.isErrorEnabled()) {
+                LOGGER.error(String.format("Search for '%s' failed: %s",
+                        query, e.getMessage()));
+            }
+            sendError(exchange, STATUS_INTERNAL_ERROR, "Search failed");
+            return;
+        }
+        servedCount.increment();
+        exchange.getResponseHeaders().set("Content-Type",
+                "application/json; charset=utf-8");
+        /* length 0 streams the body with chunked transfer encoding */
+        exchange.sendResponseHeaders(STATUS_OK, 0);
+        try (JsonWriter writer = createWriter(exchange)) {
+            writer.beginObject();
+            writer.name("query").value(query);
+            writer.name("mode").value(mode.name());
+            writer.name("tokens").beginArray();
+            for (String token : response.getQueryTokens()) {
+                writer.value(token);
+            }
+            writer.endArray();
+            writer.name("partial").value(response.isPartial());
+            writer.name("results").beginArray();
+            for (ScoredDocument result : response.getResults()) {
+                writer.beginObject();
+                writer.name("url").value(result.getUrl());
+                writer.name("score").value(result.getScore());
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+    }
+
+    /**
+     * Answers a request with {@code 503 Service Unavailable}.
+     *
+     * @param exchange the exchange of the request.
+     * @throws IOException if the response can't be sent.
+     */
+    private void shed(final HttpExchange exchange) throws IOException {
+        shedCount.increment();
+        try (exchange) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, STATUS_UNAVAILABLE, "Server overloaded");
+        }
+    }
+
+    /**
+     * Sends a JSON object with an error message.
+     *
+     * @param exchange the exchange of the request.
+     * @param status   the HTTP status.
+     * @param message  the error message.
+     * @throws IOException if the response can't be sent.
+     */
+    private static void sendError(final HttpExchange exchange,
+            final int status, final String message) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type",
+                "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        try (JsonWriter writer = createWriter(exchange)) {
+            writer.beginObject();
+            writer.name("error").value(message);
+            writer.endObject();
+        }
+    }
+
+    /**
+     * Creates a JSON writer on the response body of an exchange.
+     *
+     * @param exchange the exchange of the request.
+     * @return the writer, closing it ends the response.
+     */
+    private static JsonWriter createWriter(final HttpExchange exchange) {
+        return new JsonWriter(new BufferedWriter(new OutputStreamWriter(
+                exchange.getResponseBody(), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Splits the query string of a request into its decoded parameters.
+     *
+     * @param rawQuery the encoded query string, or null.
+     * @return the parameters, the first value of a repeated one.
+     */
+    private static Map<String, String> parseQuery(final String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(
+                    separator + 1);
+            try {
+                parameters.putIfAbsent(URLDecoder.decode(name,
+                        StandardCharsets.UTF_8), URLDecoder.decode(value,
+                                StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                /* a malformed parameter is left out */
+                continue;
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Parses the search mode of a request.
+     *
+     * @param value the value of the parameter, or null.
+     * @return the search mode or null if the value is unknown.
+     */
+    private static SearchMode parseMode(final String value) {
+        if (value == null) {
+            return SearchMode.COSINE_PAGERANK;
+        }
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "tfidf":
+                return SearchMode.TFIDF;
+            case "cosine":
+                return SearchMode.COSINE;
+            case "pagerank":
+                return SearchMode.COSINE_PAGERANK;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Parses a number parameter of a request.
+     *
+     * @param value        the value of the parameter, or null.
+     * @param defaultValue the number if the parameter is missing.
+     * @return the number or -1 if the value isn't a number.
+     */
+    private static int parseNumber(final String value,
+            final int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the address the server is bound to.
+     *
+     * @return the address with the actual port.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Returns the amount of searches that were answered.
+     *
+     * @return the amount of served searches.
+     */
+    public long getServedCount() {
+        return servedCount.sum();
+    }
+
+    /**
+     * Returns the amount of requests that were answered with
+     * {@code 503 Service Unavailable} because the queue was full or they
+     * waited too long.
+     *
+     * @return the amount of shed requests.
+     */
+    public long getShedCount() {
+        return shedCount.sum();
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains the embedded HTTP server that answers search
+ * queries as JSON.
+ */
+package de.fernunihagen.dbis.anguillasearch.server;
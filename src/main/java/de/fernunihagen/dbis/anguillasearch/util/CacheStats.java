@@ -0,0 +1,92 @@
+package de.fernunihagen.dbis.anguillasearch.util;
+
+/**
+ * The {@code CacheStats} class is an immutable snapshot of the counters of
+ * a cache at one point in time. It holds the amount of hits, misses and
+ * evictions and can calculate the hit ratio from them.
+ */
+public final class CacheStats {
+
+    /**
+     * Amount of lookups that were answered from the cache.
+     */
+    private final long hitCount;
+
+    /**
+     * Amount of lookups that were not found in the cache.
+     */
+    private final long missCount;
+
+    /**
+     * Amount of entries that were removed to keep the cache bounded.
+     */
+    private final long evictionCount;
+
+    // ============================constructors===========================//
+
+    /**
+     * Creates a new {@code CacheStats} snapshot.
+     *
+     * @param hits      the amount of cache hits.
+     * @param misses    the amount of cache misses.
+     * @param evictions the amount of evicted entries.
+     */
+    public CacheStats(final long hits, final long misses,
+            final long evictions) {
+        this.hitCount = hits;
+        this.missCount = misses;
+        this.evictionCount = evictions;
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Returns the ratio of hits to all lookups. Returns 0.0 if there were
+     * no lookups at all.
+     *
+     * @return the hit ratio between 0.0 and 1.0.
+     */
+    public double hitRatio() {
+        long requests = hitCount + missCount;
+        if (requests == 0) {
+            return 0.0;
+        }
+        return (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, evictions=%d, "
+                + "hitRatio=%.3f", hitCount, missCount, evictionCount,
+                hitRatio());
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the amount of cache hits.
+     *
+     * @return the amount of hits.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the amount of cache misses.
+     *
+     * @return the amount of misses.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the amount of evicted entries.
+     *
+     * @return the amount of evictions.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+}
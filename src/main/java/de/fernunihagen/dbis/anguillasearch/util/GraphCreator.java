@@ -24,6 +24,8 @@ import com.mxgraph.view.mxGraph;
 import de.fernunihagen.dbis.anguillasearch.crawler.Crawler;
 import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
 import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchResponse;
 
 /**
  * This class creates four cicrled graphs of some predefined net of urls which
@@ -204,8 +206,8 @@ public final class GraphCreator {
          * Then get a Map of url -> TFIDF score from the search engine
          */
         List<WebsiteData> crawledData = crawler.getCrawledDataAsList();
-        searchEngine.searchQuery(query);
-        Map<String, Double> tfIdfMap = searchEngine.getTfIdfMap();
+        Map<String, Double> tfIdfMap = searchEngine.execute(query,
+                SearchMode.TFIDF).getScoresPerUrl();
 
         /*
          * map every url to a newly created corresponding node and put
@@ -473,10 +475,11 @@ public final class GraphCreator {
          * pagerank. list (url) and map (url -> score), both sorted
          * in descending order according to score.
          */
-        List<String> sortedResults = searchEngine.
-        searchQueryPageRankAndCosine(query);
-        Map<String, Double> cosineAndPageRankMap = searchEngine.
-        getCosineAndPagerankMap();
+        SearchResponse response = searchEngine.execute(query,
+                SearchMode.COSINE_PAGERANK);
+        List<String> sortedResults = response.getUrls();
+        Map<String, Double> cosineAndPageRankMap = response
+                .getScoresPerUrl();
 
         /* Create a mxGraph object and retrieve a parent object. */
         mxGraph graph = new mxGraph();
@@ -0,0 +1,188 @@
+package de.fernunihagen.dbis.anguillasearch.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code LatencyHistogram} class counts latencies in buckets whose
+ * width grows with the latency. Every power of two of nanoseconds is split
+ * into four buckets, so a recorded latency is known with an error of at
+ * most 25 percent while the histogram has a fixed size of a few hundred
+ * counters for latencies from one nanosecond to centuries.
+ *
+ * <p>
+ * Recording is lock free and can be done by any amount of threads at
+ * once. The percentiles are read from the counters while they are
+ * recorded, so they reflect a state in between concurrent recordings.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The amount of bits of a latency that select the bucket within its
+     * power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 2;
+
+    /**
+     * The amount of buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The amount of buckets of positive long latencies.
+     */
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS)
+            * SUB_BUCKETS;
+
+    /**
+     * The amount of recorded latencies per bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * The amount of recorded latencies.
+     */
+    private final LongAdder totalCount = new LongAdder();
+
+    /**
+     * The sum of the recorded latencies in nanoseconds.
+     */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * The highest recorded latency in nanoseconds.
+     */
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max,
+            0L);
+
+    // ==============================methods==============================//
+
+    /**
+     * Records a latency. Negative latencies are recorded as 0.
+     *
+     * @param nanos the latency in nanoseconds.
+     */
+    public void record(final long nanos) {
+        long latency = Math.max(0L, nanos);
+        counts.incrementAndGet(bucketOf(latency));
+        totalCount.increment();
+        totalNanos.add(latency);
+        maxNanos.accumulate(latency);
+    }
+
+    /**
+     * Returns the bucket of a latency.
+     *
+     * @param nanos the latency, not negative.
+     * @return the index of the bucket.
+     */
+    private static int bucketOf(final long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS))
+                & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the highest latency of a bucket.
+     *
+     * @param bucket the index of the bucket.
+     * @return the upper bound of the bucket in nanoseconds.
+     */
+    private static long upperBoundOf(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowerBound = (SUB_BUCKETS + bucket % SUB_BUCKETS) * width;
+        return lowerBound + (width - 1);
+    }
+
+    /**
+     * Returns the latency that the given share of the recorded latencies
+     * doesn't exceed, e.g. 0.99 for the 99th percentile. The result is the
+     * upper bound of the bucket the percentile falls into, but never more
+     * than the highest recorded latency.
+     *
+     * @param quantile the share of the latencies between 0.0 and 1.0.
+     * @return the latency in nanoseconds, 0 if nothing was recorded.
+     * @throws IllegalArgumentException if the share isn't between 0.0 and
+     *                                  1.0.
+     */
+    public long getPercentileNanos(final double quantile) {
+        if (!(quantile >= 0.0 && quantile <= 1.0)) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid quantile: %s", quantile));
+        }
+        long[] snapshot = new long[BUCKETS];
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            recorded += snapshot[i];
+        }
+        if (recorded == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    @Override
+    public String toString() {
+        double nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+        return String.format("count=%d, mean=%.3fms, p50=%.3fms, "
+                + "p99=%.3fms, max=%.3fms", getCount(),
+                getMeanNanos() / nanosPerMilli,
+                getPercentileNanos(0.5) / nanosPerMilli,
+                getPercentileNanos(0.99) / nanosPerMilli,
+                getMaxNanos() / nanosPerMilli);
+    }
+
+    // ============================getter/setter============================//
+
+    /**
+     * Returns the amount of recorded latencies.
+     *
+     * @return the amount of latencies.
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Returns the mean of the recorded latencies.
+     *
+     * @return the mean latency in nanoseconds, 0.0 if nothing was recorded.
+     */
+    public double getMeanNanos() {
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0.0;
+        }
+        return (double) totalNanos.sum() / count;
+    }
+
+    /**
+     * Returns the highest recorded latency.
+     *
+     * @return the highest latency in nanoseconds, 0 if nothing was
+     *         recorded.
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+}
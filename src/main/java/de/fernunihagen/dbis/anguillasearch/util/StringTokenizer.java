@@ -19,6 +19,13 @@ import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 
 public final class StringTokenizer {
 
+    /**
+     * Version of the analysis. It must be increased whenever a change of the
+     * pipeline, the stop words or the filters changes the tokens of a text,
+     * so that stored analysis results are not used anymore.
+     */
+    public static final int ANALYZER_VERSION = 1;
+
     /**
      * A static set with stop words which will get removed from the tokenized
      * and lemmatized strings after processing.
@@ -0,0 +1,117 @@
+package de.fernunihagen.dbis.anguillasearch.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This is a utility class which writes and reads non negative integers in
+ * the variable byte format. Every byte carries seven bits of the value, the
+ * highest bit is set if another byte follows. Small values like term ids or
+ * gaps between document ids therefore only need one or two bytes instead of
+ * four.
+ */
+public final class VarInt {
+
+    /**
+     * Mask for the seven payload bits of a byte.
+     */
+    private static final int PAYLOAD_MASK = 0x7F;
+
+    /**
+     * Flag that marks that another byte follows.
+     */
+    private static final int CONTINUATION_BIT = 0x80;
+
+    /**
+     * Mask to read a byte as unsigned value.
+     */
+    private static final int BYTE_MASK = 0xFF;
+
+    /**
+     * Amount of payload bits per byte.
+     */
+    private static final int BITS_PER_BYTE = 7;
+
+    private VarInt() {
+    }
+
+    // ==============================methods==============================//
+
+    /**
+     * Writes a non negative integer in the variable byte format.
+     *
+     * @param out   the output to write to.
+     * @param value the value to write, must not be negative.
+     * @throws IOException if the output can't be written.
+     */
+    public static void write(final DataOutput out, final int value)
+            throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException(
+                    "negative values can not be encoded: " + value);
+        }
+        int rest = value;
+        while (rest > PAYLOAD_MASK) {
+            out.writeByte((rest & PAYLOAD_MASK) | CONTINUATION_BIT);
+            rest >>>= BITS_PER_BYTE;
+        }
+        out.writeByte(rest);
+    }
+
+    /**
+     * Reads a non negative integer in the variable byte format.
+     *
+     * @param in the input to read from.
+     * @return the decoded value.
+     * @throws IOException if the input can't be read.
+     */
+    public static int read(final DataInput in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & PAYLOAD_MASK) << shift;
+            shift += BITS_PER_BYTE;
+        } while ((b & CONTINUATION_BIT) != 0);
+        return value;
+    }
+
+    /**
+     * Reads a non negative integer in the variable byte format at the
+     * current position of the buffer and moves the position behind it.
+     *
+     * @param buffer the buffer to read from.
+     * @return the decoded value.
+     */
+    public static int read(final ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer.get() & BYTE_MASK;
+            value |= (b & PAYLOAD_MASK) << shift;
+            shift += BITS_PER_BYTE;
+        } while ((b & CONTINUATION_BIT) != 0);
+        return value;
+    }
+
+    /**
+     * Returns the amount of bytes the value needs in the variable byte
+     * format.
+     *
+     * @param value a non negative integer.
+     * @return the encoded length in bytes (1 to 5).
+     */
+    public static int encodedLength(final int value) {
+        int length = 1;
+        int rest = value >>> BITS_PER_BYTE;
+        while (rest != 0) {
+            length++;
+            rest >>>= BITS_PER_BYTE;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,106 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.AnalysisCache;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.util.StringTokenizer;
+
+/**
+ * Unit tests for the persistent analysis cache.
+ */
+class AnalysisCacheTests {
+
+    static List<WebsiteData> pages;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        pages = TestCorpus.tfIdfPages();
+    }
+
+    @Test
+    void rebuildUsesCachedTokens(@TempDir Path tempDir) throws IOException {
+        Path cacheFile = tempDir.resolve("analysis-cache.bin");
+
+        AnalysisCache firstCache = AnalysisCache.open(cacheFile);
+        IndexBuilder firstBuild = new IndexBuilder(pages, firstCache);
+        assertEquals(pages.size(), firstCache.getStats().getMissCount());
+        firstCache.save();
+
+        // A second build with the saved cache must not analyze any page again
+        AnalysisCache secondCache = AnalysisCache.open(cacheFile);
+        assertEquals(pages.size(), secondCache.getSize());
+        IndexBuilder secondBuild = new IndexBuilder(pages, secondCache);
+        assertEquals(pages.size(), secondCache.getStats().getHitCount());
+        assertEquals(0, secondCache.getStats().getMissCount());
+
+        assertEquals(firstBuild.getForwardIndex(), secondBuild.getForwardIndex());
+        assertEquals(firstBuild.getReverseIndex(), secondBuild.getReverseIndex());
+    }
+
+    @Test
+    void changedPageIsAnalyzedAgain(@TempDir Path tempDir) throws IOException {
+        Path cacheFile = tempDir.resolve("analysis-cache.bin");
+        AnalysisCache cache = AnalysisCache.open(cacheFile);
+        new IndexBuilder(pages, cache);
+        cache.save();
+
+        WebsiteData changed = new WebsiteData(pages.get(0).getUrlOfSite());
+        changed.setTitle(pages.get(0).getTitle());
+        changed.setHeader(pages.get(0).getHeader());
+        changed.setBody(pages.get(0).getBody() + " camembert");
+        List<WebsiteData> recrawl = new ArrayList<>(pages);
+        recrawl.set(0, changed);
+
+        AnalysisCache reopened = AnalysisCache.open(cacheFile);
+        new IndexBuilder(recrawl, reopened);
+        assertEquals(1, reopened.getStats().getMissCount());
+        assertEquals(pages.size() - 1, reopened.getStats().getHitCount());
+    }
+
+    @Test
+    void cacheOfAnotherAnalyzerVersionIsDropped(@TempDir Path tempDir) throws IOException {
+        Path cacheFile = tempDir.resolve("analysis-cache.bin");
+        AnalysisCache cache = AnalysisCache.open(cacheFile);
+        new IndexBuilder(pages, cache);
+        cache.save();
+
+        /* the analyzer version follows the magic number and the file version */
+        byte[] bytes = Files.readAllBytes(cacheFile);
+        ByteBuffer.wrap(bytes).putInt(8, StringTokenizer.ANALYZER_VERSION + 1);
+        Files.write(cacheFile, bytes);
+
+        AnalysisCache reopened = AnalysisCache.open(cacheFile);
+        assertEquals(0, reopened.getSize());
+        new IndexBuilder(pages, reopened);
+        assertEquals(pages.size(), reopened.getStats().getMissCount());
+    }
+
+    @Test
+    void failedSavesDontLeaveTemporaryFiles(@TempDir Path tempDir) throws IOException {
+        /* a non-empty directory can't be replaced by the saved file */
+        Path cacheFile = tempDir.resolve("analysis-cache.bin");
+        Files.createDirectories(cacheFile);
+        Files.writeString(cacheFile.resolve("other"), "other");
+        AnalysisCache cache = AnalysisCache.open(cacheFile);
+        new IndexBuilder(pages.subList(0, 1), cache);
+        assertThrows(IOException.class, cache::save);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(cacheFile), files.toList());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchResponse;
+
+/**
+ * Unit tests for asynchronous searches with deadlines.
+ */
+class AsyncSearchTests {
+
+    static final String[] QUERY = {"house", "river", "stone"};
+
+    SearchEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        List<WebsiteData> pages = TestCorpus.random(9, 2000, TestCorpus.words(6));
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        double[] pageRanks = new double[indexBuilder.getTotalWebsites()];
+        for (int i = 0; i < pageRanks.length; i++) {
+            pageRanks[i] = 1.0 / (i % 5 + 1);
+        }
+        engine = new SearchEngine(indexBuilder.getInvertedIndex(), pageRanks);
+    }
+
+    @Test
+    void searchesWithinTheirDeadlineAreComplete() throws InterruptedException, ExecutionException {
+        for (SearchMode mode : SearchMode.values()) {
+            SearchResponse response = engine.executeAsync(QUERY, mode, 0, 10, Duration.ofMinutes(1)).get();
+            assertFalse(response.isPartial());
+            assertFalse(response.getResults().isEmpty());
+            assertEquals(BlockMaxWandTests.toString(engine.execute(QUERY, mode, 0, 10).getResults()),
+                    BlockMaxWandTests.toString(response.getResults()));
+        }
+        /* complete responses are cached */
+        assertEquals(3, engine.getResultCache().getSize());
+    }
+
+    @Test
+    void expiredSearchesReturnPartialResults() throws InterruptedException, ExecutionException {
+        for (SearchMode mode : SearchMode.values()) {
+            SearchResponse response = engine.executeAsync(QUERY, mode, 0, 10, Duration.ZERO).get();
+            assertTrue(response.isPartial());
+            assertTrue(response.getResults().isEmpty());
+        }
+        /* partial responses are not cached */
+        assertEquals(0, engine.getResultCache().getSize());
+        assertFalse(engine.execute(QUERY, SearchMode.TFIDF, 0, 10).isPartial());
+    }
+
+    @Test
+    void cancelledSearchesDontRun() {
+        List<Runnable> queued = new ArrayList<>();
+        CompletableFuture<SearchResponse> future = engine.executeAsync(QUERY, SearchMode.COSINE, 0, 10,
+                Duration.ofMinutes(1), queued::add);
+        assertTrue(future.cancel(true));
+        /* a search that is cancelled before it started never runs */
+        queued.forEach(Runnable::run);
+        assertTrue(future.isCancelled());
+        assertEquals(0, engine.getResultCache().getSize());
+        assertEquals(0, engine.getMetrics().getSearchLatency().getCount());
+    }
+
+    @Test
+    void invalidSearchesAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.executeAsync(QUERY, SearchMode.TFIDF, 0, 10, Duration.ofMillis(-1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.executeAsync(QUERY, SearchMode.TFIDF, 0, -1, Duration.ofSeconds(1)));
+        assertFalse(engine.executeAsync(QUERY, SearchMode.TFIDF, 0, 10, Duration.ofSeconds(Long.MAX_VALUE)).join()
+                .isPartial());
+    }
+}
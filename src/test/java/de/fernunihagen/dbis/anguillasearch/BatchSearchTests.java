@@ -0,0 +1,105 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.searching.BatchResponse;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchResponse;
+
+/**
+ * Unit tests for searching batches of queries with shared postings.
+ */
+class BatchSearchTests {
+
+    static final String[] WORDS = TestCorpus.words(8);
+
+    static List<WebsiteData> pages;
+
+    static List<String[]> queries;
+
+    @BeforeAll
+    static void setUp() {
+        pages = TestCorpus.random(7, 300, WORDS);
+        /* queries that share their tokens with each other */
+        queries = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            queries.add(new String[] {WORDS[i % WORDS.length], WORDS[(i * 3 + 1) % WORDS.length]});
+        }
+        queries.add(new String[] {"notatoken"});
+    }
+
+    static void assertSameAsSingleSearches(SearchEngine engine, BatchResponse batch, SearchMode mode, int limit) {
+        assertEquals(queries.size(), batch.getResponses().size());
+        for (int i = 0; i < queries.size(); i++) {
+            SearchResponse expected = engine.execute(queries.get(i), mode, 0, limit);
+            SearchResponse actual = batch.getResponses().get(i);
+            assertEquals(expected.getQueryTokens(), actual.getQueryTokens());
+            assertEquals(expected.getUrls(), actual.getUrls());
+            assertEquals(expected.getScoresPerUrl(), actual.getScoresPerUrl());
+        }
+    }
+
+    @Test
+    void batchesReturnTheResultsOfSingleSearches() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        double[] pageRanks = new double[indexBuilder.getTotalWebsites()];
+        for (int i = 0; i < pageRanks.length; i++) {
+            pageRanks[i] = 1.0 / (i % 7 + 1);
+        }
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(), pageRanks);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (SearchMode mode : SearchMode.values()) {
+                for (int limit : new int[] {0, 1, 10, 1000}) {
+                    assertSameAsSingleSearches(engine, engine.executeBatch(queries, mode, limit, pool), mode, limit);
+                    assertSameAsSingleSearches(engine, engine.executeBatch(queries, mode, limit, null), mode, limit);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void everyTokenIsDecodedOnce() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(),
+                new double[indexBuilder.getTotalWebsites()]);
+        BatchResponse batch = engine.executeBatch(queries, SearchMode.TFIDF, 10);
+        assertEquals(WORDS.length + 1, batch.getDecodedTokenCount());
+        assertTrue(batch.queriesPerSecond() > 0.0);
+        assertFalse(batch.getResponses().get(0).getResults().isEmpty());
+        /* the batch doesn't fill the result cache */
+        assertEquals(0, engine.getResultCache().getSize());
+        assertThrows(IllegalArgumentException.class, () -> engine.executeBatch(queries, SearchMode.TFIDF, -1));
+    }
+
+    @Test
+    void batchesSearchTheLastPublishedUpdates() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        Map<String, Double> pageRanks = new HashMap<>();
+        SearchEngine engine = new SearchEngine(indexBuilder, pageRanks);
+        for (int i = 0; i < 100; i += 3) {
+            indexBuilder.deleteDocument(pages.get(i).getUrlOfSite());
+        }
+        indexBuilder.refresh();
+        for (SearchMode mode : new SearchMode[] {SearchMode.TFIDF, SearchMode.COSINE}) {
+            assertSameAsSingleSearches(engine, engine.executeBatch(queries, mode, 20), mode, 20);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.indexing.SegmentedIndex;
+import de.fernunihagen.dbis.anguillasearch.searching.ScoredDocument;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+
+/**
+ * Unit tests for the TFIDF search of the best results with Block-Max WAND.
+ */
+class BlockMaxWandTests {
+
+    static final String[][] QUERIES = {{"house"}, {"garden", "river"}, {"stone", "cloud", "apple"},
+        {"house", "house", "forest"}, {"mountain", "window", "table", "bridge"}, {"pool", "notatoken"}};
+
+    static List<WebsiteData> pages;
+
+    @BeforeAll
+    static void setUp() {
+        /* enough websites for several blocks of postings per token */
+        pages = TestCorpus.random(42, 600, TestCorpus.WORDS);
+    }
+
+    static void assertPagesMatchFullRanking(SearchEngine engine) {
+        for (String[] query : QUERIES) {
+            List<ScoredDocument> all = engine.search(query, SearchMode.TFIDF, 0, Integer.MAX_VALUE);
+            assertFalse(all.isEmpty());
+            for (int limit : new int[] {1, 3, 10, 50}) {
+                for (int offset : new int[] {0, 7, 40}) {
+                    List<ScoredDocument> page = engine.search(query, SearchMode.TFIDF, offset, limit);
+                    List<ScoredDocument> expected = all.subList(Math.min(offset, all.size()),
+                            Math.min(offset + limit, all.size()));
+                    assertEquals(toString(expected), toString(page), String.join(" ", query));
+                }
+            }
+        }
+    }
+
+    static List<String> toString(List<ScoredDocument> results) {
+        List<String> strings = new ArrayList<>();
+        for (ScoredDocument result : results) {
+            strings.add(result.toString());
+        }
+        return strings;
+    }
+
+    @Test
+    void bestResultsMatchExhaustiveSearch() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        assertPagesMatchFullRanking(new SearchEngine(indexBuilder.getInvertedIndex(),
+                new double[indexBuilder.getTotalWebsites()]));
+    }
+
+    @Test
+    void bestResultsMatchExhaustiveSearchOnSegments() throws InterruptedException {
+        try (SegmentedIndex index = new SegmentedIndex(100, 4, null)) {
+            for (WebsiteData page : pages) {
+                index.addDocument(page);
+            }
+            for (int i = 0; i < pages.size(); i += 9) {
+                index.deleteDocument(pages.get(i).getUrlOfSite());
+            }
+            index.flush();
+            index.awaitMerges();
+            assertPagesMatchFullRanking(new SearchEngine(index, new double[index.getDocIdBound()]));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.indexing.SegmentedIndex;
+import de.fernunihagen.dbis.anguillasearch.searching.ScoredDocument;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchResponse;
+
+/**
+ * Unit tests for the boolean query language and its evaluation on the
+ * postings.
+ */
+class BooleanQueryTests {
+
+    /**
+     * The queries with a test of the words of the websites they match.
+     */
+    static final Map<String, Predicate<Set<String>>> QUERIES = new LinkedHashMap<>();
+
+    /**
+     * The words that score the websites of a query.
+     */
+    static final Map<String, String[]> SCORED_WORDS = new HashMap<>();
+
+    static List<WebsiteData> pages;
+
+    static Map<String, Set<String>> wordsPerUrl;
+
+    static void addQuery(String query, Predicate<Set<String>> matches, String... scoredWords) {
+        QUERIES.put(query, matches);
+        SCORED_WORDS.put(query, scoredWords);
+    }
+
+    @BeforeAll
+    static void setUp() {
+        pages = TestCorpus.random(5, 400, TestCorpus.words(8));
+        wordsPerUrl = new HashMap<>();
+        for (WebsiteData page : pages) {
+            wordsPerUrl.put(page.getUrlOfSite(), new HashSet<>(Arrays.asList(page.getBody().split(" "))));
+        }
+        addQuery("house AND garden", words -> words.contains("house") && words.contains("garden"), "house",
+                "garden");
+        addQuery("house garden NOT river",
+                words -> words.contains("house") && words.contains("garden") && !words.contains("river"), "house",
+                "garden");
+        addQuery("(stone OR cloud) AND NOT (house OR garden)",
+                words -> (words.contains("stone") || words.contains("cloud")) && !words.contains("house")
+                        && !words.contains("garden"),
+                "stone", "cloud");
+        addQuery("river OR bridge OR forest",
+                words -> words.contains("river") || words.contains("bridge") || words.contains("forest"), "river",
+                "bridge", "forest");
+        addQuery("pool AND (NOT house NOT garden)",
+                words -> words.contains("pool") && !words.contains("house") && !words.contains("garden"), "pool");
+        addQuery("NOT NOT house AND forest", words -> words.contains("house") && words.contains("forest"), "house",
+                "forest");
+        addQuery("house OR (garden AND NOT pool)",
+                words -> words.contains("house") || words.contains("garden") && !words.contains("pool"), "house",
+                "garden");
+        addQuery("house AND notatoken", words -> false, "house", "notatoken");
+    }
+
+    static void assertMatchesFilteredSearch(SearchEngine engine, Set<String> indexedUrls) {
+        for (Map.Entry<String, Predicate<Set<String>>> query : QUERIES.entrySet()) {
+            Set<String> matching = indexedUrls.stream()
+                    .filter(url -> query.getValue().test(wordsPerUrl.get(url)))
+                    .collect(Collectors.toSet());
+            for (SearchMode mode : SearchMode.values()) {
+                /* the matching websites keep the scores and the order of a search for their words */
+                List<ScoredDocument> expected = engine
+                        .execute(SCORED_WORDS.get(query.getKey()), mode).getResults().stream()
+                        .filter(result -> matching.contains(result.getUrl()))
+                        .collect(Collectors.toList());
+                SearchResponse all = engine.executeBoolean(query.getKey(), mode, 0, Integer.MAX_VALUE);
+                assertEquals(BlockMaxWandTests.toString(expected), BlockMaxWandTests.toString(all.getResults()),
+                        query.getKey() + " " + mode);
+                for (int limit : new int[] {1, 5, 20}) {
+                    for (int offset : new int[] {0, 3, 30}) {
+                        List<ScoredDocument> page = engine.executeBoolean(query.getKey(), mode, offset, limit)
+                                .getResults();
+                        List<ScoredDocument> expectedPage = expected.subList(Math.min(offset, expected.size()),
+                                Math.min(offset + limit, expected.size()));
+                        assertEquals(BlockMaxWandTests.toString(expectedPage), BlockMaxWandTests.toString(page),
+                                query.getKey() + " " + mode);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchingWebsitesAreRankedLikeTheirSearch() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        double[] pageRanks = new double[indexBuilder.getTotalWebsites()];
+        for (int i = 0; i < pageRanks.length; i++) {
+            pageRanks[i] = 1.0 / (i % 11 + 1);
+        }
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(), pageRanks);
+        assertMatchesFilteredSearch(engine, wordsPerUrl.keySet());
+        int cachedResults = engine.getResultCache().getSize();
+        SearchResponse response = engine.executeBoolean("house AND garden", SearchMode.TFIDF, 0, 10);
+        assertFalse(response.getResults().isEmpty());
+        assertEquals(List.of("house", "garden"), response.getQueryTokens());
+        /* boolean searches don't fill the result cache */
+        assertEquals(cachedResults, engine.getResultCache().getSize());
+    }
+
+    @Test
+    void matchingWebsitesAreRankedLikeTheirSearchOnSegments() throws InterruptedException {
+        try (SegmentedIndex index = new SegmentedIndex(64, 4, null)) {
+            for (WebsiteData page : pages) {
+                index.addDocument(page);
+            }
+            Set<String> indexedUrls = new HashSet<>(wordsPerUrl.keySet());
+            for (int i = 0; i < pages.size(); i += 7) {
+                index.deleteDocument(pages.get(i).getUrlOfSite());
+                indexedUrls.remove(pages.get(i).getUrlOfSite());
+            }
+            index.flush();
+            index.awaitMerges();
+            double[] pageRanks = new double[index.getDocIdBound()];
+            Arrays.fill(pageRanks, 0.5);
+            assertMatchesFilteredSearch(new SearchEngine(index, pageRanks), indexedUrls);
+        }
+    }
+
+    @Test
+    void invalidQueriesAreRejected() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(),
+                new double[indexBuilder.getTotalWebsites()]);
+        for (String query : new String[] {"house AND", "(house", "house)", "NOT house", "house OR NOT garden",
+            "AND house", "()"}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> engine.executeBoolean(query, SearchMode.TFIDF, 0, 10), query);
+        }
+        assertThrows(IllegalArgumentException.class, () -> engine.executeBoolean("house", SearchMode.TFIDF, -1, 10));
+        assertTrue(engine.executeBoolean("", SearchMode.COSINE, 0, 10).getResults().isEmpty());
+    }
+}
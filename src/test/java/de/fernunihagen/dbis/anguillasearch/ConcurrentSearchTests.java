@@ -0,0 +1,97 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchResponse;
+
+/**
+ * Unit tests for searches of one search engine on several threads.
+ */
+class ConcurrentSearchTests {
+
+    static List<WebsiteData> pages;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        pages = TestCorpus.tfIdfPages();
+    }
+
+    @Test
+    void responsesDontChangeWithLaterSearches() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(),
+                new double[indexBuilder.getTotalWebsites()]);
+        SearchResponse house = engine.execute(new String[] {"house"}, SearchMode.TFIDF);
+        List<String> urls = new ArrayList<>(house.getUrls());
+        engine.execute(new String[] {"swim"}, SearchMode.TFIDF);
+
+        assertEquals(urls, house.getUrls());
+        assertEquals(List.of("house"), house.getQueryTokens());
+        assertEquals(house.getUrls(), new ArrayList<>(house.getScoresPerUrl().keySet()));
+        assertThrows(UnsupportedOperationException.class, () -> house.getUrls().clear());
+        assertThrows(UnsupportedOperationException.class, () -> house.getScoresPerUrl().clear());
+    }
+
+    @Test
+    void concurrentSearchesGetTheirOwnResults() throws Exception {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        double[] pageRanks = new double[indexBuilder.getTotalWebsites()];
+        for (int i = 0; i < pageRanks.length; i++) {
+            pageRanks[i] = 1.0 / (i + 1);
+        }
+        String[][] queries = {{"house"}, {"garden"}, {"swim"}, {"house", "swim"}, {"garden", "pool"}};
+        SearchEngine expectedEngine = new SearchEngine(indexBuilder.getInvertedIndex(), pageRanks);
+        List<SearchResponse> expected = new ArrayList<>();
+        for (String[] query : queries) {
+            for (SearchMode mode : SearchMode.values()) {
+                expected.add(expectedEngine.execute(query, mode));
+            }
+        }
+
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(), pageRanks);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<SearchResponse>>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int first = thread;
+                futures.add(executor.submit(() -> {
+                    List<SearchResponse> responses = new ArrayList<>();
+                    for (int i = 0; i < expected.size(); i++) {
+                        /* every thread starts with another query */
+                        int position = (first + i) % expected.size();
+                        String[] query = queries[position / SearchMode.values().length];
+                        SearchMode mode = SearchMode.values()[position % SearchMode.values().length];
+                        responses.add(engine.execute(query, mode));
+                    }
+                    return responses;
+                }));
+            }
+            for (int thread = 0; thread < futures.size(); thread++) {
+                List<SearchResponse> responses = futures.get(thread).get();
+                for (int i = 0; i < responses.size(); i++) {
+                    SearchResponse want = expected.get((thread + i) % expected.size());
+                    assertEquals(want.getMode(), responses.get(i).getMode());
+                    assertEquals(want.getScoresPerUrl(), responses.get(i).getScoresPerUrl());
+                    assertEquals(want.getUrls(), responses.get(i).getUrls());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.TokenVector;
+import de.fernunihagen.dbis.anguillasearch.util.StringTokenizer;
+
+/**
+ * Unit tests for the cosine search over the posting lists.
+ */
+class CosineSearchTests {
+
+    static List<WebsiteData> pages;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        pages = TestCorpus.tfIdfPages();
+    }
+
+    /**
+     * Calculates the cosine similarity of the query and every website the
+     * way it was done before the search walked the posting lists: a query
+     * vector over the whole vocabulary compared to the full vector of every
+     * website.
+     */
+    static Map<String, Double> bruteForceCosine(IndexBuilder indexBuilder, String[] query) {
+        List<String> queryTokens = StringTokenizer.tokenizeAndLemmatize(String.join(" ", query));
+        Map<String, Integer> frequencyInQuery = new HashMap<>();
+        for (String token : queryTokens) {
+            frequencyInQuery.merge(token, 1, Integer::sum);
+        }
+        Map<String, Double> queryVector = new HashMap<>();
+        for (String token : indexBuilder.getSetOfAllTokens()) {
+            double weight = 0.0;
+            if (frequencyInQuery.containsKey(token)) {
+                weight = (double) frequencyInQuery.get(token) / frequencyInQuery.size()
+                        * indexBuilder.calculateIDFScore(token);
+            }
+            queryVector.put(token, weight);
+        }
+        TokenVector queryTokenVector = new TokenVector(queryVector);
+        Map<String, Double> similarities = new HashMap<>();
+        for (Map.Entry<String, Map<String, Double>> entry : indexBuilder.getForwardIndexTfIdf().entrySet()) {
+            Map<String, Double> urlVector = new HashMap<>();
+            for (String token : indexBuilder.getSetOfAllTokens()) {
+                urlVector.put(token, entry.getValue().getOrDefault(token, 0.0));
+            }
+            double similarity = queryTokenVector.computeCosineSimilarity(new TokenVector(urlVector));
+            if (similarity > 0.0) {
+                similarities.put(entry.getKey(), similarity);
+            }
+        }
+        return similarities;
+    }
+
+    @Test
+    void rankingMatchesFullVectorComparison() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(),
+                new double[indexBuilder.getTotalWebsites()]);
+        String[][] queries = {{"house"}, {"garden"}, {"swim", "pool"}, {"house", "garden", "garden"},
+            {"pool", "house", "notatoken"}};
+        for (String[] query : queries) {
+            Map<String, Double> expected = bruteForceCosine(indexBuilder, query);
+            assertFalse(expected.isEmpty(), String.join(" ", query));
+            List<String> result = engine.searchQueryCosine(query);
+            assertEquals(expected.keySet(), new HashSet<>(result));
+            for (int i = 1; i < result.size(); i++) {
+                assertTrue(expected.get(result.get(i - 1)) >= expected.get(result.get(i)) - 1e-6,
+                        String.join(" ", query));
+            }
+        }
+    }
+
+    @Test
+    void unknownTokensMatchNothing() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(),
+                new double[indexBuilder.getTotalWebsites()]);
+        assertTrue(engine.searchQueryCosine(new String[] {"notatoken"}).isEmpty());
+        assertTrue(engine.searchQueryCosine(new String[] {"the"}).isEmpty());
+    }
+}
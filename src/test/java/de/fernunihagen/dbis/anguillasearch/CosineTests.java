@@ -147,4 +147,32 @@ class CosineTests {
 
       
     }
+
+    @Test
+    void tokensWithEqualHashCodes() {
+        // "Aa" and "BB" have the same hash code but are different tokens
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        Map<String, Double> map1 = new HashMap<>(Map.of("Aa", 1.0, "pool", 0.0));
+        Map<String, Double> map2 = new HashMap<>(Map.of("BB", 1.0, "Aa", 1.0));
+        TokenVector tokenVectorA = new TokenVector(map1);
+        TokenVector tokenVectorB = new TokenVector(map2);
+
+        // Tokens with a value of 0.0 are not stored
+        assertEquals(1, tokenVectorA.size());
+        assertEquals(Math.sqrt(2.0), tokenVectorB.getNorm(), 1e-12);
+        assertEquals(1.0 / Math.sqrt(2.0), tokenVectorB.getWeight("BB"), 1e-12);
+        assertEquals(0.0, tokenVectorA.getWeight("BB"));
+        assertEquals(1.0 / Math.sqrt(2.0), tokenVectorA.computeCosineSimilarity(tokenVectorB), 1e-12);
+        assertEquals(tokenVectorA.computeCosineSimilarity(tokenVectorB),
+                tokenVectorB.computeCosineSimilarity(tokenVectorA), 1e-12);
+    }
+
+    @Test
+    void vectorWithoutValues() {
+        TokenVector empty = new TokenVector(Map.of("house", 0.0));
+        TokenVector vector = new TokenVector(Map.of("house", 1.0));
+        assertEquals(0.0, empty.computeCosineSimilarity(vector));
+        assertEquals(0.0, vector.computeCosineSimilarity(null));
+        assertTrue(empty.getTfIdfMap().isEmpty());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexSnapshot;
+import de.fernunihagen.dbis.anguillasearch.indexing.InvertedIndex;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+
+/**
+ * Unit tests for the immutable snapshots of an index.
+ */
+class IndexSnapshotTests {
+
+    static List<WebsiteData> pages;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        pages = TestCorpus.tfIdfPages();
+    }
+
+    @Test
+    void gettersDontCopyTheIndex() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        assertSame(indexBuilder.getReverseIndex(), indexBuilder.getReverseIndex());
+        assertSame(indexBuilder.getForwardIndexTfIdf(), indexBuilder.getForwardIndexTfIdf());
+        assertSame(indexBuilder.getSetOfAllTokens(), indexBuilder.getSetOfAllTokens());
+        assertThrows(UnsupportedOperationException.class, () -> indexBuilder.getReverseIndex().clear());
+        assertThrows(UnsupportedOperationException.class,
+                () -> indexBuilder.getForwardIndexTfIdf().values().iterator().next().clear());
+        assertThrows(UnsupportedOperationException.class, () -> indexBuilder.getSetOfAllTokens().add("token"));
+    }
+
+    @Test
+    void updatesArePublishedByRefresh() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        IndexSnapshot before = indexBuilder.getSnapshot();
+        String url = pages.get(0).getUrlOfSite();
+        assertTrue(indexBuilder.deleteDocument(url));
+
+        /* the update isn't visible until it is published */
+        assertSame(before, indexBuilder.getSnapshot());
+        IndexSnapshot after = indexBuilder.refresh();
+        assertNotSame(before, after);
+        assertSame(after, indexBuilder.getSnapshot());
+        assertSame(after, indexBuilder.refresh());
+
+        /* the old snapshot keeps its state */
+        assertEquals(pages.size(), before.getInvertedIndex().getDocumentCount());
+        assertTrue(before.getForwardIndex().containsKey(url));
+        assertEquals(pages.size() - 1, after.getInvertedIndex().getDocumentCount());
+        assertEquals(new IndexBuilder(pages.subList(1, pages.size())).getReverseIndex(),
+                after.getReverseIndex());
+    }
+
+    @Test
+    void refreshKeepsTheIdsOfUnchangedTokensAndWebsites() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        IndexSnapshot before = indexBuilder.getSnapshot();
+        WebsiteData added = new WebsiteData("https://www.lake.local");
+        added.setTitle("Lake");
+        added.setHeader("Swimming in the lake");
+        added.setBody("The lake is cold but swimming in the lake is fun.");
+        indexBuilder.deleteDocument(pages.get(0).getUrlOfSite());
+        indexBuilder.addDocument(added);
+        IndexSnapshot after = indexBuilder.refresh();
+
+        /* only the new tokens and the new website get new ids, the id of the deleted website stays unused */
+        for (String token : before.getTokens()) {
+            assertEquals(before.getTermDictionary().getId(token), after.getTermDictionary().getId(token));
+        }
+        InvertedIndex index = after.getInvertedIndex();
+        assertEquals(pages.size() + 1, index.getDocIdBound());
+        assertEquals(pages.size(), index.getDocumentCount());
+        assertNull(index.getUrl(0));
+        assertNull(index.getDocument(0));
+        for (int docId = 1; docId < pages.size(); docId++) {
+            assertEquals(before.getInvertedIndex().getUrl(docId), index.getUrl(docId));
+        }
+        assertEquals(pages.size(), index.getDocId(added.getUrlOfSite()));
+
+        List<WebsiteData> expectedPages = new ArrayList<>(pages.subList(1, pages.size()));
+        expectedPages.add(added);
+        IndexBuilder expected = new IndexBuilder(expectedPages);
+        assertEquals(expected.getSetOfAllTokens(), after.getTokens());
+        assertEquals(expected.getReverseIndex(), after.getReverseIndex());
+        assertEquals(expected.getForwardIndex(), after.getForwardIndex());
+        assertEquals(expected.getForwardIndexTfIdf(), after.getForwardIndexTfIdf());
+        InvertedIndex expectedIndex = expected.getInvertedIndex();
+        for (int docId = 0; docId < expectedIndex.getDocIdBound(); docId++) {
+            int actualDocId = index.getDocId(expectedIndex.getUrl(docId));
+            assertEquals(expectedIndex.getDocumentNorm(docId), index.getDocumentNorm(actualDocId), 1e-12);
+        }
+    }
+
+    @Test
+    void searchesReadConsistentSnapshotsDuringUpdates() throws Exception {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(indexBuilder.getSearchIndex(),
+                new double[indexBuilder.getSearchIndex().getDocIdBound()]);
+        String[] query = {"house"};
+        Set<String> allPages = new HashSet<>(engine.searchQuery(query));
+        IndexBuilder withoutFirst = new IndexBuilder(pages.subList(1, pages.size()));
+        Set<String> withoutFirstPage = new HashSet<>(new SearchEngine(withoutFirst.getInvertedIndex(),
+                new double[withoutFirst.getTotalWebsites()]).searchQuery(query));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> updates = executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    indexBuilder.deleteDocument(pages.get(0).getUrlOfSite());
+                    indexBuilder.refresh();
+                    indexBuilder.addDocument(pages.get(0));
+                    indexBuilder.refresh();
+                }
+            });
+            while (!updates.isDone()) {
+                Set<String> result = new HashSet<>(engine.searchQuery(query));
+                assertTrue(result.equals(allPages) || result.equals(withoutFirstPage), result.toString());
+            }
+            updates.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
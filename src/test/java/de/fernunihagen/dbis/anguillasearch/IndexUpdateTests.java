@@ -0,0 +1,134 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingIterator;
+import de.fernunihagen.dbis.anguillasearch.indexing.SearchIndex;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+
+/**
+ * Unit tests for adding, replacing and deleting websites of an index.
+ */
+class IndexUpdateTests {
+
+    static List<WebsiteData> pages;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        pages = TestCorpus.tfIdfPages();
+    }
+
+    /**
+     * Asserts that the live index of an updated builder holds the same
+     * postings, weights and norms as the index of a fresh build.
+     */
+    static void assertSameIndex(IndexBuilder expected, IndexBuilder actual) {
+        assertEquals(expected.getTotalWebsites(), actual.getTotalWebsites());
+        assertEquals(expected.getSetOfAllTokens(), actual.getSetOfAllTokens());
+        assertEquals(expected.getReverseIndex(), actual.getReverseIndex());
+
+        SearchIndex expectedIndex = expected.getSearchIndex();
+        SearchIndex actualIndex = actual.getSearchIndex();
+        for (String token : expected.getSetOfAllTokens()) {
+            assertEquals(expectedIndex.getDocumentFrequency(token), actualIndex.getDocumentFrequency(token));
+            assertEquals(weightsPerUrl(expectedIndex, token), weightsPerUrl(actualIndex, token));
+        }
+        for (int docId = 0; docId < expectedIndex.getDocIdBound(); docId++) {
+            String url = expectedIndex.getUrl(docId);
+            assertEquals(expectedIndex.getDocumentNorm(docId),
+                    actualIndex.getDocumentNorm(actualIndex.getDocId(url)), 1e-12);
+        }
+    }
+
+    static Map<String, Float> weightsPerUrl(SearchIndex index, String token) {
+        Map<String, Float> weights = new HashMap<>();
+        PostingIterator postings = index.postings(token);
+        while (postings.next() != PostingIterator.NO_MORE_DOCS) {
+            weights.put(index.getUrl(postings.docId()), postings.weight());
+        }
+        return weights;
+    }
+
+    @Test
+    void addedDocumentMatchesFullBuild() {
+        IndexBuilder updated = new IndexBuilder(pages.subList(0, pages.size() - 1));
+        updated.addDocument(pages.get(pages.size() - 1));
+        assertSameIndex(new IndexBuilder(pages), updated);
+        assertThrows(IllegalArgumentException.class, () -> updated.addDocument(pages.get(0)));
+    }
+
+    @Test
+    void deletedDocumentMatchesFullBuild() {
+        IndexBuilder updated = new IndexBuilder(pages);
+        String url = pages.get(0).getUrlOfSite();
+        assertTrue(updated.deleteDocument(url));
+        assertFalse(updated.deleteDocument(url));
+        assertSameIndex(new IndexBuilder(pages.subList(1, pages.size())), updated);
+
+        SearchIndex liveIndex = updated.getSearchIndex();
+        assertEquals(-1, liveIndex.getDocId(url));
+        assertNull(liveIndex.getUrl(0));
+        assertEquals(pages.size() - 1, updated.getInvertedIndex().getDocumentCount());
+    }
+
+    @Test
+    void replacedDocumentMatchesFullBuild() {
+        IndexBuilder updated = new IndexBuilder(pages);
+        WebsiteData changed = new WebsiteData(pages.get(1).getUrlOfSite());
+        changed.setTitle("Swim");
+        changed.setHeader("Swimming in the lake");
+        changed.setBody("The lake is cold but swimming in the lake is fun.");
+        assertTrue(updated.replaceDocument(changed));
+
+        List<WebsiteData> expectedPages = new ArrayList<>(pages);
+        expectedPages.set(1, changed);
+        IndexBuilder expected = new IndexBuilder(expectedPages);
+        assertSameIndex(expected, updated);
+
+        /* searches only read the published snapshot */
+        updated.refresh();
+        double[] noPageRanks = new double[updated.getSearchIndex().getDocIdBound()];
+        SearchEngine updatedEngine = new SearchEngine(updated.getSearchIndex(), noPageRanks);
+        SearchEngine expectedEngine = new SearchEngine(expected.getInvertedIndex(),
+                new double[expected.getTotalWebsites()]);
+        String[] query = {"lake", "swim", "house"};
+        assertEquals(expectedEngine.searchQuery(query), updatedEngine.searchQuery(query));
+        assertEquals(expectedEngine.execute(query, SearchMode.TFIDF).getScoresPerUrl(),
+                updatedEngine.execute(query, SearchMode.TFIDF).getScoresPerUrl());
+    }
+
+    @Test
+    void updatesAreSearchedAfterRefresh() {
+        IndexBuilder updated = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(updated, Map.of());
+        String[] query = {"swimming"};
+        assertTrue(engine.searchQuery(query).isEmpty());
+
+        WebsiteData added = new WebsiteData("https://www.swimming.local");
+        added.setTitle("Swim");
+        added.setHeader("Swimming in the lake");
+        added.setBody("The lake is cold but swimming in the lake is fun.");
+        updated.addDocument(added);
+        assertEquals(1, updated.getSearchIndex().getDocumentFrequency("swimming"));
+        assertTrue(engine.searchQuery(query).isEmpty());
+
+        updated.refresh();
+        assertEquals(List.of(added.getUrlOfSite()), engine.searchQuery(query));
+    }
+}
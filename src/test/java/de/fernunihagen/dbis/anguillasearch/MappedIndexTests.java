@@ -0,0 +1,150 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.indexing.InvertedIndex;
+import de.fernunihagen.dbis.anguillasearch.indexing.MappedIndex;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingIterator;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+
+/**
+ * Unit tests for the memory mapped index file.
+ */
+class MappedIndexTests {
+
+    static List<WebsiteData> pages;
+    static IndexBuilder indexBuilder;
+    static double[] pageRanks;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        pages = TestCorpus.tfIdfPages();
+        indexBuilder = new IndexBuilder(pages);
+        pageRanks = new double[indexBuilder.getInvertedIndex().getDocumentCount()];
+        for (int docId = 0; docId < pageRanks.length; docId++) {
+            pageRanks[docId] = 1.0 / (docId + 1);
+        }
+    }
+
+    @Test
+    void mappedIndexMatchesInMemoryIndex(@TempDir Path tempDir) throws IOException {
+        Path indexFile = tempDir.resolve("anguilla.idx");
+        InvertedIndex memoryIndex = indexBuilder.getInvertedIndex();
+        MappedIndex.write(indexFile, memoryIndex, pageRanks);
+        MappedIndex mappedIndex = MappedIndex.open(indexFile);
+
+        assertEquals(memoryIndex.getDocumentCount(), mappedIndex.getDocumentCount());
+        assertEquals(indexBuilder.getSetOfAllTokens().size(), mappedIndex.getTermCount());
+        for (String token : indexBuilder.getSetOfAllTokens()) {
+            assertEquals(memoryIndex.getDocumentFrequency(token), mappedIndex.getDocumentFrequency(token));
+            PostingIterator expected = memoryIndex.postings(token);
+            PostingIterator actual = mappedIndex.postings(token);
+            while (expected.next() != PostingIterator.NO_MORE_DOCS) {
+                assertEquals(expected.docId(), actual.next());
+                assertEquals(expected.weight(), actual.weight());
+            }
+            assertEquals(PostingIterator.NO_MORE_DOCS, actual.next());
+        }
+        assertEquals(0, mappedIndex.getDocumentFrequency("notatoken"));
+        assertEquals(PostingIterator.NO_MORE_DOCS, mappedIndex.postings("notatoken").next());
+
+        for (int docId = 0; docId < memoryIndex.getDocumentCount(); docId++) {
+            String url = memoryIndex.getUrl(docId);
+            assertEquals(url, mappedIndex.getUrl(docId));
+            assertEquals(docId, mappedIndex.getDocId(url));
+            assertEquals(memoryIndex.getDocumentLength(docId), mappedIndex.getDocumentLength(docId));
+            assertEquals(memoryIndex.getDocumentNorm(docId), mappedIndex.getDocumentNorm(docId));
+            assertEquals(pageRanks[docId], mappedIndex.getPageRank(docId));
+
+            WebsiteData expectedData = memoryIndex.getDocument(docId);
+            WebsiteData actualData = mappedIndex.getDocument(docId);
+            assertEquals(expectedData.getUrlOfSite(), actualData.getUrlOfSite());
+            assertEquals(expectedData.getTitle(), actualData.getTitle());
+            assertEquals(expectedData.getHeader(), actualData.getHeader());
+            assertEquals(expectedData.getBody(), actualData.getBody());
+            assertEquals(new ArrayList<>(expectedData.getLinks()), new ArrayList<>(actualData.getLinks()));
+        }
+        assertEquals(-1, mappedIndex.getDocId("http://not.indexed"));
+    }
+
+    @Test
+    void searchOnMappedIndexMatchesInMemoryIndex(@TempDir Path tempDir) throws IOException {
+        Path indexFile = tempDir.resolve("anguilla.idx");
+        SearchEngine memoryEngine = new SearchEngine(indexBuilder.getInvertedIndex(), pageRanks);
+        memoryEngine.writeIndex(indexFile);
+        SearchEngine mappedEngine = SearchEngine.open(indexFile);
+
+        String[][] queries = {{"house"}, {"flavor", "cheese"}, {"crisp", "bread", "house"}, {"notatoken"}};
+        for (String[] query : queries) {
+            assertEquals(memoryEngine.searchQuery(query), mappedEngine.searchQuery(query));
+            assertEquals(memoryEngine.searchQueryCosine(query), mappedEngine.searchQueryCosine(query));
+            assertEquals(memoryEngine.searchQueryPageRankAndCosine(query),
+                    mappedEngine.searchQueryPageRankAndCosine(query));
+        }
+        String url = indexBuilder.getInvertedIndex().getUrl(0);
+        assertEquals(url, mappedEngine.getDocument(url).getUrlOfSite());
+        assertNull(mappedEngine.getDocument("http://not.indexed"));
+        assertNull(mappedEngine.getCrawler());
+    }
+
+    @Test
+    void indexWithDeletedWebsitesCanBeWritten(@TempDir Path tempDir) throws IOException {
+        IndexBuilder updated = new IndexBuilder(pages);
+        String deletedUrl = pages.get(0).getUrlOfSite();
+        updated.deleteDocument(deletedUrl);
+        InvertedIndex memoryIndex = updated.getInvertedIndex();
+        double[] ranks = new double[memoryIndex.getDocIdBound()];
+        Arrays.fill(ranks, 1, ranks.length, 0.5);
+        SearchEngine memoryEngine = new SearchEngine(memoryIndex, ranks);
+        Path indexFile = tempDir.resolve("anguilla.idx");
+        memoryEngine.writeIndex(indexFile);
+        MappedIndex mappedIndex = MappedIndex.open(indexFile);
+
+        assertEquals(memoryIndex.getDocumentCount(), mappedIndex.getDocumentCount());
+        assertEquals(memoryIndex.getDocIdBound(), mappedIndex.getDocIdBound());
+        assertEquals(updated.getSetOfAllTokens().size(), mappedIndex.getTermCount());
+        assertNull(mappedIndex.getUrl(0));
+        assertNull(mappedIndex.getDocument(0));
+        assertEquals(-1, mappedIndex.getDocId(deletedUrl));
+        for (int docId = 1; docId < memoryIndex.getDocIdBound(); docId++) {
+            assertEquals(docId, mappedIndex.getDocId(memoryIndex.getUrl(docId)));
+            assertEquals(memoryIndex.getDocumentNorm(docId), mappedIndex.getDocumentNorm(docId));
+        }
+        SearchEngine mappedEngine = SearchEngine.open(indexFile);
+        String[][] queries = {{"house"}, {"flavor", "cheese"}, {"crisp", "bread", "house"}};
+        for (String[] query : queries) {
+            assertEquals(memoryEngine.searchQuery(query), mappedEngine.searchQuery(query));
+            assertEquals(memoryEngine.searchQueryPageRankAndCosine(query),
+                    mappedEngine.searchQueryPageRankAndCosine(query));
+        }
+    }
+
+    @Test
+    void failedWritesDontLeaveTemporaryFiles(@TempDir Path tempDir) throws IOException {
+        /* a non-empty directory can't be replaced by the written file */
+        Path indexFile = tempDir.resolve("anguilla.idx");
+        Files.createDirectories(indexFile);
+        Files.writeString(indexFile.resolve("other"), "other");
+        assertThrows(IOException.class,
+                () -> MappedIndex.write(indexFile, indexBuilder.getInvertedIndex(), pageRanks));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(indexFile), files.toList());
+        }
+    }
+}
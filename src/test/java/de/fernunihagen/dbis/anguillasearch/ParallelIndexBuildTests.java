@@ -0,0 +1,77 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.indexing.InvertedIndex;
+
+/**
+ * Unit tests for the parallel build of the index in shards.
+ */
+class ParallelIndexBuildTests {
+
+    static List<WebsiteData> pages;
+    static ForkJoinPool pool;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        List<WebsiteData> originals = TestCorpus.tfIdfPages();
+        /* enough websites for several shards */
+        pages = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            for (WebsiteData original : originals) {
+                WebsiteData copy = new WebsiteData(original.getUrlOfSite() + "?copy=" + i);
+                copy.setTitle(original.getTitle());
+                copy.setHeader(original.getHeader());
+                copy.setBody(i % 2 == 0 ? original.getBody() : original.getBody() + " copy" + i);
+                pages.add(copy);
+            }
+        }
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelBuildMatchesSequentialBuild() {
+        IndexBuilder sequential = new IndexBuilder(pages, null);
+        IndexBuilder parallel = new IndexBuilder(pages, null, pool);
+        assertEquals(sequential.getTotalWebsites(), parallel.getTotalWebsites());
+        assertEquals(sequential.getSetOfAllTokens(), parallel.getSetOfAllTokens());
+        assertEquals(sequential.getReverseIndex(), parallel.getReverseIndex());
+        assertEquals(sequential.getForwardIndexTfIdf(), parallel.getForwardIndexTfIdf());
+
+        InvertedIndex expected = sequential.getInvertedIndex();
+        InvertedIndex actual = parallel.getInvertedIndex();
+        assertEquals(expected.getDocumentCount(), actual.getDocumentCount());
+        for (int docId = 0; docId < expected.getDocumentCount(); docId++) {
+            assertEquals(expected.getUrl(docId), actual.getUrl(docId));
+            assertEquals(expected.getDocumentLength(docId), actual.getDocumentLength(docId));
+            assertEquals(expected.getDocumentNorm(docId), actual.getDocumentNorm(docId));
+        }
+    }
+
+    @Test
+    void parallelBuildCanBeUpdated() {
+        IndexBuilder parallel = new IndexBuilder(pages, null, pool);
+        String url = pages.get(0).getUrlOfSite();
+        parallel.deleteDocument(url);
+        parallel.addDocument(pages.get(0));
+        List<WebsiteData> reordered = new ArrayList<>(pages.subList(1, pages.size()));
+        reordered.add(pages.get(0));
+        assertEquals(new IndexBuilder(reordered, null).getReverseIndex(), parallel.getReverseIndex());
+    }
+}
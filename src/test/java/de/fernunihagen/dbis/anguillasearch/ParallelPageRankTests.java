@@ -0,0 +1,70 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.searching.PageRank;
+
+/**
+ * Unit tests for the parallel calculation of the page ranks.
+ */
+class ParallelPageRankTests {
+
+    static List<WebsiteData> sites;
+    static ForkJoinPool pool;
+
+    @BeforeAll
+    static void setUp() {
+        sites = SparsePageRankTests.createWebsites(8000, 5);
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelPageRanksMatchSequentialPageRanks() {
+        PageRank sequential = new PageRank(sites);
+        PageRank parallel = new PageRank(sites, pool);
+        assertEquals(sequential.getIterations(), parallel.getIterations());
+        Map<String, Double> expected = sequential.getPageRanksPerUrl();
+        Map<String, Double> actual = parallel.getPageRanksPerUrl();
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, Double> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), actual.get(entry.getKey()), 1e-12, entry.getKey());
+        }
+        assertTrue(parallel.getEdgesPerSecond() > 0);
+    }
+
+    @Test
+    void parallelPageRanksAreReproducible() {
+        Map<String, Double> first = new PageRank(sites, pool).getPageRanksPerUrl();
+        for (int threads : new int[] {1, 3, 8}) {
+            ForkJoinPool otherPool = new ForkJoinPool(threads);
+            try {
+                assertEquals(first, new PageRank(sites, otherPool).getPageRanksPerUrl());
+            } finally {
+                otherPool.shutdown();
+            }
+        }
+        assertEquals(first, new PageRank(sites, pool).getPageRanksPerUrl());
+    }
+
+    @Test
+    void smallGraphsHaveMoreThreadsThanUrls() {
+        List<WebsiteData> few = SparsePageRankTests.createWebsites(3, 1);
+        assertEquals(new PageRank(few).getPageRanksPerUrl(), new PageRank(few, pool).getPageRanksPerUrl());
+        assertTrue(new PageRank(List.of(), pool).getPageRanksPerUrl().isEmpty());
+    }
+}
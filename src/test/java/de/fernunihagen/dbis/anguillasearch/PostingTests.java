@@ -0,0 +1,107 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.indexing.CompressedPostingList;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingIterator;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingList;
+
+/**
+ * Unit tests for the posting lists and their iterators.
+ */
+class PostingTests {
+
+    static PostingList createPostingList(int size, int gap) {
+        int[] docIds = new int[size];
+        float[] weights = new float[size];
+        for (int i = 0; i < size; i++) {
+            docIds[i] = i * gap + 1;
+            weights[i] = i / 10.0f;
+        }
+        return new PostingList(docIds, weights);
+    }
+
+    @Test
+    void nextReadsAllPostings() {
+        PostingList postingList = createPostingList(1000, 3);
+        PostingIterator iterator = postingList.iterator();
+        assertEquals(-1, iterator.docId());
+        for (int i = 0; i < postingList.size(); i++) {
+            assertEquals(postingList.getDocIdAt(i), iterator.next());
+            assertEquals(postingList.getWeightAt(i), iterator.weight());
+        }
+        assertEquals(PostingIterator.NO_MORE_DOCS, iterator.next());
+        assertEquals(1000, iterator.cost());
+    }
+
+    @Test
+    void advanceFindsFirstDocumentNotBeforeTarget() {
+        PostingList postingList = createPostingList(1000, 3);
+        PostingIterator iterator = postingList.iterator();
+        // Exact hit
+        assertEquals(301, iterator.advance(301));
+        // Between two postings
+        assertEquals(304, iterator.advance(303));
+        // Far jump
+        assertEquals(2998, iterator.advance(2998));
+        assertEquals(999 / 10.0f, iterator.weight());
+        // Behind the last posting
+        assertEquals(PostingIterator.NO_MORE_DOCS, iterator.advance(5000));
+        assertEquals(PostingIterator.NO_MORE_DOCS, iterator.next());
+    }
+
+    @Test
+    void compressedPostingsMatchUncompressed() {
+        Random random = new Random(42);
+        int[] docLengths = new int[100_000];
+        Arrays.fill(docLengths, 10);
+        // Sizes around the block boundaries
+        for (int size : new int[] { 0, 1, 127, 128, 129, 1000 }) {
+            int[] docIds = new int[size];
+            int[] frequencies = new int[size];
+            float[] weights = new float[size];
+            int docId = random.nextInt(5);
+            for (int i = 0; i < size; i++) {
+                docIds[i] = docId;
+                frequencies[i] = 1 + random.nextInt(9);
+                weights[i] = (float) ((double) frequencies[i] / 10 * 2.0);
+                docId += 1 + random.nextInt(50);
+            }
+            PostingList expected = new PostingList(docIds, weights);
+            CompressedPostingList compressed = new CompressedPostingList(
+                    ByteBuffer.wrap(CompressedPostingList.encode(docIds, frequencies, docLengths, size)), size);
+            IntBuffer lengths = IntBuffer.wrap(docLengths);
+
+            // Sequential reading
+            PostingIterator iterator = compressed.iterator(2.0, lengths);
+            for (int i = 0; i < size; i++) {
+                assertEquals(expected.getDocIdAt(i), iterator.next());
+                assertEquals(expected.getWeightAt(i), iterator.weight());
+                // The bounds of the block and of all postings hold the weight
+                assertTrue(iterator.docId() <= iterator.blockLastDocId());
+                assertTrue(iterator.weight() <= iterator.blockMaxWeight());
+                assertTrue(iterator.blockMaxWeight() <= iterator.maxWeight());
+            }
+            assertEquals(PostingIterator.NO_MORE_DOCS, iterator.next());
+
+            // Skipping to random targets behaves like the uncompressed iterator
+            PostingIterator expectedIterator = expected.iterator();
+            iterator = compressed.iterator(2.0, lengths);
+            int target = 0;
+            while (target != PostingIterator.NO_MORE_DOCS) {
+                target += 1 + random.nextInt(400);
+                int expectedDoc = expectedIterator.advance(target);
+                assertEquals(expectedDoc, iterator.advance(target));
+                target = expectedDoc;
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.indexing.SegmentedIndex;
+import de.fernunihagen.dbis.anguillasearch.searching.ScoredDocument;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+
+/**
+ * Unit tests for the search with page ranks as prior that skips websites
+ * which can't be among the best results.
+ */
+class PriorCosineSearchTests {
+
+    static final String[][] QUERIES = {{"house"}, {"garden", "river"}, {"stone", "cloud", "apple"},
+        {"house", "house", "forest"}, {"window", "bridge"}, {"pool", "notatoken"}};
+
+    static List<WebsiteData> pages;
+
+    static double[] pageRanks;
+
+    @BeforeAll
+    static void setUp() {
+        pages = TestCorpus.random(11, 500, TestCorpus.words(10));
+        Random random = new Random(11);
+        pageRanks = new double[pages.size()];
+        for (int i = 0; i < pageRanks.length; i++) {
+            /* a few websites with a high page rank, some without one */
+            pageRanks[i] = i % 13 == 0 ? 0.0 : Math.pow(random.nextDouble(), 4);
+        }
+    }
+
+    static void assertPagesMatchFullRanking(SearchEngine engine) {
+        for (String[] query : QUERIES) {
+            List<ScoredDocument> all = engine.search(query, SearchMode.COSINE_PAGERANK, 0, Integer.MAX_VALUE);
+            assertFalse(all.isEmpty());
+            for (int limit : new int[] {1, 3, 10, 50}) {
+                for (int offset : new int[] {0, 7, 40}) {
+                    List<ScoredDocument> page = engine.search(query, SearchMode.COSINE_PAGERANK, offset, limit);
+                    List<ScoredDocument> expected = all.subList(Math.min(offset, all.size()),
+                            Math.min(offset + limit, all.size()));
+                    assertEquals(BlockMaxWandTests.toString(expected), BlockMaxWandTests.toString(page),
+                            String.join(" ", query));
+                }
+            }
+        }
+    }
+
+    @Test
+    void bestResultsMatchExhaustiveSearch() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        assertPagesMatchFullRanking(new SearchEngine(indexBuilder.getInvertedIndex(), pageRanks));
+    }
+
+    @Test
+    void websitesWithoutPageRankAreNoResults() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(), pageRanks);
+        for (String[] query : QUERIES) {
+            /* more results than match, but less than websites, to score every match without skipping */
+            List<ScoredDocument> bounded = engine.search(query, SearchMode.COSINE_PAGERANK, 0, pages.size() - 1);
+            List<ScoredDocument> exhaustive = engine.search(query, SearchMode.COSINE_PAGERANK, 0, Integer.MAX_VALUE);
+            assertEquals(BlockMaxWandTests.toString(exhaustive), BlockMaxWandTests.toString(bounded));
+            for (ScoredDocument document : exhaustive) {
+                assertTrue(document.getScore() > 0.0, document.getUrl());
+            }
+        }
+        /* the first website has no page rank but matches */
+        assertTrue(engine.search(new String[] {pages.get(0).getBody().split(" ")[0]}, SearchMode.COSINE, 0,
+                Integer.MAX_VALUE).stream().anyMatch(document -> document.getUrl().equals(pages.get(0).getUrlOfSite())));
+        assertTrue(engine.search(new String[] {pages.get(0).getBody().split(" ")[0]}, SearchMode.COSINE_PAGERANK, 0,
+                Integer.MAX_VALUE).stream().noneMatch(document -> document.getUrl().equals(pages.get(0).getUrlOfSite())));
+    }
+
+    @Test
+    void bestResultsMatchExhaustiveSearchOnSegments() throws InterruptedException {
+        try (SegmentedIndex index = new SegmentedIndex(100, 4, null)) {
+            for (WebsiteData page : pages) {
+                index.addDocument(page);
+            }
+            for (int i = 0; i < pages.size(); i += 9) {
+                index.deleteDocument(pages.get(i).getUrlOfSite());
+            }
+            index.flush();
+            index.awaitMerges();
+            double[] ranks = new double[index.getDocIdBound()];
+            for (int docId = 0; docId < ranks.length; docId++) {
+                String url = index.getUrl(docId);
+                if (url != null) {
+                    ranks[docId] = pageRanks[Integer.parseInt(url.replaceAll("\\D", ""))];
+                }
+            }
+            assertPagesMatchFullRanking(new SearchEngine(index, ranks));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.searching.QueryAnalyzer;
+import de.fernunihagen.dbis.anguillasearch.util.StringTokenizer;
+
+/**
+ * Unit tests for the query analyzer and its cache.
+ */
+class QueryAnalyzerTests {
+
+    @Test
+    void sameTokensAsTokenizer() {
+        QueryAnalyzer analyzer = new QueryAnalyzer();
+        String query = "Flavorful cheeses from the mountains";
+        assertEquals(StringTokenizer.tokenizeAndLemmatize(query), analyzer.analyze(query));
+    }
+
+    @Test
+    void repeatedQueriesAreCached() {
+        QueryAnalyzer analyzer = new QueryAnalyzer();
+        List<String> first = analyzer.analyze(new String[] { "Aged", "Cheddar" });
+        // Differs only in case and whitespaces, so it shares the cache entry
+        List<String> second = analyzer.analyze("  aged   cheddar ");
+        assertSame(first, second);
+        assertEquals(1, analyzer.getStats().getHitCount());
+        assertEquals(1, analyzer.getStats().getMissCount());
+        assertEquals(0.5, analyzer.getStats().hitRatio());
+    }
+
+    @Test
+    void cacheStaysBounded() {
+        QueryAnalyzer analyzer = new QueryAnalyzer(2);
+        analyzer.analyze("brie");
+        analyzer.analyze("gouda");
+        analyzer.analyze("cheddar");
+        assertEquals(2, analyzer.getSize());
+        assertEquals(1, analyzer.getStats().getEvictionCount());
+        assertTrue(analyzer.analyze("").isEmpty());
+    }
+}
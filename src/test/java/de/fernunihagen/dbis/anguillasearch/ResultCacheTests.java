@@ -0,0 +1,165 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.searching.ResultCache;
+import de.fernunihagen.dbis.anguillasearch.searching.ScoredDocument;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+import de.fernunihagen.dbis.anguillasearch.util.CacheStats;
+
+/**
+ * Unit tests for the cache of search results and its invalidation.
+ */
+class ResultCacheTests {
+
+    static List<WebsiteData> pages;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        pages = TestCorpus.tfIdfPages();
+    }
+
+    private static Map<String, Double> equalPageRanks(List<WebsiteData> websites) {
+        Map<String, Double> pageRanks = new HashMap<>();
+        for (WebsiteData website : websites) {
+            pageRanks.put(website.getUrlOfSite(), 1.0);
+        }
+        return pageRanks;
+    }
+
+    private static Map<String, Double> scoresPerUrl(List<ScoredDocument> results) {
+        Map<String, Double> scores = new HashMap<>();
+        for (ScoredDocument result : results) {
+            scores.put(result.getUrl(), result.getScore());
+        }
+        return scores;
+    }
+
+    @Test
+    void repeatedSearchesAreAnsweredFromTheCache() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(),
+                new double[indexBuilder.getTotalWebsites()]);
+        String[] query = {"house", "garden"};
+        List<ScoredDocument> first = engine.search(query, SearchMode.TFIDF, 0, 10);
+        assertFalse(first.isEmpty());
+        assertSame(first, engine.search(query, SearchMode.TFIDF, 0, 10));
+        /* another mode or page is another entry */
+        assertNotSame(first, engine.search(query, SearchMode.COSINE, 0, 10));
+        assertNotSame(first, engine.search(query, SearchMode.TFIDF, 0, 2));
+
+        CacheStats stats = engine.getResultCache().getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(3, stats.getMissCount());
+        assertEquals(3, engine.getResultCache().getSize());
+    }
+
+    @Test
+    void repeatedSearchesSurviveOneTimeSearches() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(),
+                new double[indexBuilder.getTotalWebsites()]);
+        ResultCache cache = engine.getResultCache();
+        String[] query = {"swim"};
+        List<ScoredDocument> repeated = engine.search(query, SearchMode.TFIDF, 0, 10);
+        engine.search(query, SearchMode.TFIDF, 0, 10);
+        List<ScoredDocument> onceOnly = engine.search(query, SearchMode.TFIDF, 0, 1);
+        assertFalse(onceOnly.isEmpty());
+
+        /* more one-time searches than the cache can hold */
+        for (int limit = 11; limit < 11 + 2 * cache.getCapacity(); limit++) {
+            engine.search(query, SearchMode.TFIDF, 0, limit);
+        }
+        assertEquals(cache.getCapacity(), cache.getSize());
+        assertTrue(cache.getStats().getEvictionCount() > 0);
+        assertSame(repeated, engine.search(query, SearchMode.TFIDF, 0, 10));
+        assertNotSame(onceOnly, engine.search(query, SearchMode.TFIDF, 0, 1));
+    }
+
+    @Test
+    void updatesOnlyInvalidateResultsOfChangedTokens() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(indexBuilder, equalPageRanks(pages));
+        String[] unchanged = {"house", "garden"};
+        String[] changed = {"swim"};
+        List<ScoredDocument> unchangedResults = engine.search(unchanged, SearchMode.TFIDF, 0, 10);
+        List<ScoredDocument> changedResults = engine.search(changed, SearchMode.TFIDF, 0, 10);
+        List<ScoredDocument> cosineResults = engine.search(unchanged, SearchMode.COSINE, 0, 10);
+
+        /* p2 only contains swim and pool, the amount of websites stays */
+        WebsiteData replacement = new WebsiteData("https://www.p2.local");
+        replacement.setTitle("Pool");
+        replacement.setHeader("Pool");
+        replacement.setBody("Pool");
+        indexBuilder.replaceDocument(replacement);
+        /* nothing changes until the update is published */
+        assertSame(changedResults, engine.search(changed, SearchMode.TFIDF, 0, 10));
+        indexBuilder.refresh();
+
+        assertSame(unchangedResults, engine.search(unchanged, SearchMode.TFIDF, 0, 10));
+        List<ScoredDocument> refreshedResults = engine.search(changed, SearchMode.TFIDF, 0, 10);
+        assertNotSame(changedResults, refreshedResults);
+        assertNotSame(cosineResults, engine.search(unchanged, SearchMode.COSINE, 0, 10));
+
+        List<WebsiteData> updatedPages = new ArrayList<>(pages);
+        updatedPages.removeIf(page -> page.getUrlOfSite().equals("https://www.p2.local"));
+        updatedPages.add(replacement);
+        IndexBuilder updated = new IndexBuilder(updatedPages);
+        SearchEngine fresh = new SearchEngine(updated.getInvertedIndex(),
+                new double[updated.getTotalWebsites()]);
+        assertEquals(scoresPerUrl(fresh.search(unchanged, SearchMode.TFIDF, 0, 10)),
+                scoresPerUrl(unchangedResults));
+        assertEquals(scoresPerUrl(fresh.search(changed, SearchMode.TFIDF, 0, 10)),
+                scoresPerUrl(refreshedResults));
+    }
+
+    @Test
+    void changedAmountOfWebsitesInvalidatesAllResults() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages.subList(0, 3));
+        SearchEngine engine = new SearchEngine(indexBuilder, equalPageRanks(pages));
+        String[] query = {"house"};
+        List<ScoredDocument> before = engine.search(query, SearchMode.TFIDF, 0, 10);
+
+        /* p3 contains house as well, but the IDF of every token changes */
+        indexBuilder.addDocument(pages.get(3));
+        indexBuilder.refresh();
+        assertEquals(0, engine.getResultCache().getSize());
+        List<ScoredDocument> after = engine.search(query, SearchMode.TFIDF, 0, 10);
+        assertNotSame(before, after);
+        assertEquals(before.size() + 1, after.size());
+    }
+
+    @Test
+    void newPageRanksOnlyInvalidateResultsWithPageRank() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(indexBuilder, equalPageRanks(pages));
+        String[] query = {"house", "pool"};
+        List<ScoredDocument> cosine = engine.search(query, SearchMode.COSINE, 0, 10);
+        List<ScoredDocument> ranked = engine.search(query, SearchMode.COSINE_PAGERANK, 0, 10);
+
+        Map<String, Double> pageRanks = equalPageRanks(pages);
+        pageRanks.put("https://www.p0.local", 0.5);
+        engine.setPageRanks(pageRanks);
+        assertSame(cosine, engine.search(query, SearchMode.COSINE, 0, 10));
+        List<ScoredDocument> reranked = engine.search(query, SearchMode.COSINE_PAGERANK, 0, 10);
+        assertNotSame(ranked, reranked);
+        assertEquals(scoresPerUrl(ranked).get("https://www.p0.local") * 0.5,
+                scoresPerUrl(reranked).get("https://www.p0.local"), 1e-12);
+    }
+}
@@ -1,5 +1,6 @@
 package de.fernunihagen.dbis.anguillasearch;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -17,7 +18,10 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.DocumentVector;
 import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.indexing.TermDictionary;
+import de.fernunihagen.dbis.anguillasearch.searching.TokenVector;
 import de.fernunihagen.dbis.anguillasearch.util.Utils;
 
 /**
@@ -95,4 +99,26 @@ class ReverseIndexTests {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void sparseDocumentVectors() {
+        Map<String, DocumentVector> vectors = indexBuilder.getDocumentVectors();
+        TermDictionary dictionary = indexBuilder.getTermDictionary();
+        for (Entry<String, Map<String, Double>> entry : indexBuilder.getReverseIndex().entrySet()) {
+            int termId = dictionary.getId(entry.getKey());
+            for (Entry<String, Double> posting : entry.getValue().entrySet()) {
+                // Every TF-IDF score of the reverse index is part of the sparse vector
+                assertEquals(posting.getValue(), vectors.get(posting.getKey()).getWeight(termId), 1e-6);
+            }
+        }
+        // The cosine similarity matches the one of the map based vectors
+        Map<String, Map<String, Double>> forwardIndexTfIdf = indexBuilder.getForwardIndexTfIdf();
+        for (String urlA : vectors.keySet()) {
+            for (String urlB : vectors.keySet()) {
+                double expected = new TokenVector(forwardIndexTfIdf.get(urlA))
+                        .computeCosineSimilarity(new TokenVector(forwardIndexTfIdf.get(urlB)));
+                assertTrue(Math.abs(expected - vectors.get(urlA).cosineSimilarity(vectors.get(urlB))) < 1e-9);
+            }
+        }
+    }
+}
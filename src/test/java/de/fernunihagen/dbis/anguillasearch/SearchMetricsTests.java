@@ -0,0 +1,95 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.searching.QueryProfile;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchResponse;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchStage;
+import de.fernunihagen.dbis.anguillasearch.util.LatencyHistogram;
+
+/**
+ * Unit tests for the latency histograms of the search stages and the
+ * profiles of single searches.
+ */
+class SearchMetricsTests {
+
+    static SearchEngine createEngine() {
+        List<WebsiteData> pages = TestCorpus.random(3, 300, TestCorpus.words(6));
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        return new SearchEngine(indexBuilder.getInvertedIndex(), new double[indexBuilder.getTotalWebsites()]);
+    }
+
+    @Test
+    void histogramPercentilesAreWithinOneBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getPercentileNanos(0.99));
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            histogram.record(nanos * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500.0, histogram.getMeanNanos(), 1e-6);
+        assertEquals(1_000_000L, histogram.getMaxNanos());
+        long median = histogram.getPercentileNanos(0.5);
+        assertTrue(median >= 500_000 && median <= 500_000 * 1.25, Long.toString(median));
+        long p99 = histogram.getPercentileNanos(0.99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, Long.toString(p99));
+        assertEquals(1_000_000L, histogram.getPercentileNanos(1.0));
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentileNanos(1.0));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentileNanos(1.5));
+    }
+
+    @Test
+    void everySearchRecordsItsStages() {
+        SearchEngine engine = createEngine();
+        String[] query = {"house", "river"};
+        engine.execute(query, SearchMode.COSINE, 0, 10);
+        /* the second search is answered from the cache and doesn't score */
+        engine.execute(query, SearchMode.COSINE, 0, 10);
+        assertEquals(2, engine.getMetrics().getSearchLatency().getCount());
+        assertEquals(2, engine.getMetrics().getStageLatency(SearchStage.ANALYSIS).getCount());
+        assertEquals(2, engine.getMetrics().getStageLatency(SearchStage.CACHE).getCount());
+        assertEquals(1, engine.getMetrics().getStageLatency(SearchStage.SCORING).getCount());
+        assertEquals(1, engine.getMetrics().getStageLatency(SearchStage.SELECTION).getCount());
+        assertEquals(0, engine.getMetrics().getStageLatency(SearchStage.MATCHING).getCount());
+        engine.executeBoolean("house AND river", SearchMode.TFIDF, 0, 10);
+        assertEquals(1, engine.getMetrics().getStageLatency(SearchStage.MATCHING).getCount());
+        engine.executeBatch(List.of(query, new String[] {"pool"}), SearchMode.TFIDF, 5, null);
+        assertEquals(4, engine.getMetrics().getStageLatency(SearchStage.SCORING).getCount());
+        assertEquals(5, engine.getMetrics().getSearchLatency().getCount());
+    }
+
+    @Test
+    void profilesCountPostingsAndScoredWebsites() {
+        SearchEngine engine = createEngine();
+        String[] query = {"house", "garden", "stone"};
+        assertNull(engine.execute(query, SearchMode.TFIDF, 0, 10).getProfile());
+        SearchResponse full = engine.profile(query, SearchMode.TFIDF, 0, Integer.MAX_VALUE);
+        QueryProfile fullProfile = full.getProfile();
+        assertNotNull(fullProfile);
+        assertEquals(BlockMaxWandTests.toString(engine.execute(query, SearchMode.TFIDF).getResults()),
+                BlockMaxWandTests.toString(full.getResults()));
+        assertEquals(full.getResults().size(), fullProfile.getDocumentsScored());
+        assertTrue(fullProfile.getPostingsRead() >= fullProfile.getDocumentsScored());
+        assertTrue(fullProfile.getNanosPerStage().keySet().containsAll(
+                List.of(SearchStage.ANALYSIS, SearchStage.SCORING, SearchStage.SELECTION, SearchStage.RESPONSE)));
+        assertTrue(fullProfile.getTotalNanos() > 0);
+        /* a search for the best result skips websites that can't be among the best */
+        QueryProfile topProfile = engine.profile(query, SearchMode.TFIDF, 0, 1).getProfile();
+        assertTrue(topProfile.getDocumentsScored() < fullProfile.getDocumentsScored(), topProfile.toString());
+        /* profiled searches don't use the result cache */
+        assertEquals(2, engine.getResultCache().getSize());
+    }
+}
@@ -0,0 +1,125 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.searching.ScoredDocument;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+import de.fernunihagen.dbis.anguillasearch.server.SearchServer;
+
+/**
+ * Unit tests for the HTTP search server.
+ */
+class SearchServerTests {
+
+    static SearchEngine engine;
+
+    static HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void setUp() {
+        List<WebsiteData> pages = TestCorpus.random(13, 200, TestCorpus.words(6));
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        double[] pageRanks = new double[indexBuilder.getTotalWebsites()];
+        for (int i = 0; i < pageRanks.length; i++) {
+            pageRanks[i] = 1.0 / (i % 3 + 1);
+        }
+        engine = new SearchEngine(indexBuilder.getInvertedIndex(), pageRanks);
+    }
+
+    static SearchServer startServer(Duration maxQueueWait) throws IOException {
+        SearchServer server = new SearchServer(engine, new InetSocketAddress("localhost", 0), 2, 8, maxQueueWait,
+                Duration.ofMinutes(1));
+        server.start();
+        return server;
+    }
+
+    static HttpResponse<String> get(SearchServer server, String pathAndQuery) throws IOException, InterruptedException {
+        URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + pathAndQuery);
+        return client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void searchesOfAllModesAreAnsweredAsJson() throws IOException, InterruptedException {
+        try (SearchServer server = startServer(Duration.ofMinutes(1))) {
+            String[][] modes = {{"tfidf", "TFIDF"}, {"cosine", "COSINE"}, {"pagerank", "COSINE_PAGERANK"}};
+            for (String[] mode : modes) {
+                HttpResponse<String> response = get(server, "/search?q="
+                        + URLEncoder.encode("house river", StandardCharsets.UTF_8) + "&mode=" + mode[0] + "&limit=5");
+                assertEquals(200, response.statusCode());
+                assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+                JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
+                assertEquals(mode[1], json.get("mode").getAsString());
+                assertFalse(json.get("partial").getAsBoolean());
+                List<ScoredDocument> expected = engine.search(new String[] {"house", "river"},
+                        SearchMode.valueOf(mode[1]), 0, 5);
+                JsonArray results = json.getAsJsonArray("results");
+                assertEquals(expected.size(), results.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    JsonObject result = results.get(i).getAsJsonObject();
+                    assertEquals(expected.get(i).getUrl(), result.get("url").getAsString());
+                    assertEquals(expected.get(i).getScore(), result.get("score").getAsDouble(), 1e-12);
+                }
+                List<String> tokens = new ArrayList<>();
+                for (JsonElement token : json.getAsJsonArray("tokens")) {
+                    tokens.add(token.getAsString());
+                }
+                assertEquals(List.of("house", "river"), tokens);
+            }
+            assertEquals(3, server.getServedCount());
+            assertEquals(0, server.getShedCount());
+        }
+    }
+
+    @Test
+    void invalidRequestsAreRejected() throws IOException, InterruptedException {
+        try (SearchServer server = startServer(Duration.ofMinutes(1))) {
+            assertEquals(400, get(server, "/search").statusCode());
+            assertEquals(400, get(server, "/search?q=house&mode=bm25").statusCode());
+            assertEquals(400, get(server, "/search?q=house&limit=abc").statusCode());
+            assertEquals(400, get(server, "/search?q=house&offset=-1").statusCode());
+            assertEquals(404, get(server, "/index").statusCode());
+            URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/search?q=house");
+            HttpResponse<String> post = client.send(HttpRequest.newBuilder(uri)
+                    .POST(HttpRequest.BodyPublishers.ofString("house")).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(405, post.statusCode());
+            assertEquals(0, server.getServedCount());
+        }
+    }
+
+    @Test
+    void requestsThatWaitTooLongAreShed() throws IOException, InterruptedException {
+        /* every request waits for a worker a little, which exceeds a maximum wait of 0 */
+        try (SearchServer server = startServer(Duration.ZERO)) {
+            HttpResponse<String> response = get(server, "/search?q=house");
+            assertEquals(503, response.statusCode());
+            assertTrue(response.headers().firstValue("Retry-After").isPresent());
+            assertEquals(1, server.getShedCount());
+            assertEquals(0, server.getServedCount());
+        }
+    }
+}
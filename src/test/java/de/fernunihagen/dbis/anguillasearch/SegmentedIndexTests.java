@@ -0,0 +1,150 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.indexing.PostingIterator;
+import de.fernunihagen.dbis.anguillasearch.indexing.SearchIndex;
+import de.fernunihagen.dbis.anguillasearch.indexing.SegmentedIndex;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+
+/**
+ * Unit tests for the segmented index and its background merges.
+ */
+class SegmentedIndexTests {
+
+    static List<WebsiteData> pages;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        pages = TestCorpus.tfIdfPages();
+    }
+
+    /**
+     * Asserts that a segmented index holds the same postings, weights and
+     * norms as the index of a single build.
+     */
+    static void assertSameIndex(IndexBuilder expected, SearchIndex actual) {
+        SearchIndex expectedIndex = expected.getInvertedIndex();
+        assertEquals(expectedIndex.getDocumentCount(), actual.getDocumentCount());
+        for (String token : expected.getSetOfAllTokens()) {
+            assertEquals(expectedIndex.getDocumentFrequency(token), actual.getDocumentFrequency(token));
+            assertEquals(weightsPerUrl(expectedIndex, token), weightsPerUrl(actual, token));
+        }
+        for (int docId = 0; docId < expectedIndex.getDocumentCount(); docId++) {
+            String url = expectedIndex.getUrl(docId);
+            int actualId = actual.getDocId(url);
+            assertEquals(url, actual.getDocument(actualId).getUrlOfSite());
+            assertEquals(expectedIndex.getDocumentLength(docId), actual.getDocumentLength(actualId));
+            assertEquals(expectedIndex.getDocumentNorm(docId), actual.getDocumentNorm(actualId), 1e-12);
+        }
+    }
+
+    static Map<String, Float> weightsPerUrl(SearchIndex index, String token) {
+        Map<String, Float> weights = new HashMap<>();
+        PostingIterator postings = index.postings(token);
+        while (postings.next() != PostingIterator.NO_MORE_DOCS) {
+            weights.put(index.getUrl(postings.docId()), postings.weight());
+        }
+        return weights;
+    }
+
+    @Test
+    void mergedSegmentsMatchSingleIndex() throws InterruptedException {
+        try (SegmentedIndex index = new SegmentedIndex(1, 2, null)) {
+            for (WebsiteData page : pages) {
+                index.addDocument(page);
+            }
+            index.awaitMerges();
+            assertEquals(1, index.getSegmentCount());
+            assertSameIndex(new IndexBuilder(pages), index.snapshot());
+            assertThrows(IllegalArgumentException.class, () -> index.addDocument(pages.get(0)));
+        }
+    }
+
+    @Test
+    void bufferedDocumentsAreSearchableAfterFlush() {
+        try (SegmentedIndex index = new SegmentedIndex(10, 2, null)) {
+            for (WebsiteData page : pages) {
+                index.addDocument(page);
+            }
+            assertEquals(0, index.getDocumentCount());
+            assertEquals(pages.size(), index.getBufferedDocumentCount());
+            assertTrue(index.deleteDocument(pages.get(0).getUrlOfSite()));
+
+            index.flush();
+            assertEquals(0, index.getBufferedDocumentCount());
+            assertEquals(1, index.getSegmentCount());
+            assertSameIndex(new IndexBuilder(pages.subList(1, pages.size())), index.snapshot());
+        }
+    }
+
+    @Test
+    void deletedDocumentsArePurgedByMerge() throws InterruptedException {
+        try (SegmentedIndex index = new SegmentedIndex(pages.size(), 2, null)) {
+            for (WebsiteData page : pages) {
+                index.addDocument(page);
+            }
+            SearchIndex before = index.snapshot();
+            String url = pages.get(0).getUrlOfSite();
+            assertTrue(index.deleteDocument(url));
+            assertFalse(index.deleteDocument(url));
+            assertEquals(-1, index.getDocId(url));
+            assertNull(index.getUrl(before.getDocId(url)));
+            /* the old snapshot doesn't see the deletion */
+            assertEquals(pages.size(), before.getDocumentCount());
+            assertEquals(url, before.getUrl(before.getDocId(url)));
+
+            List<WebsiteData> remaining = new ArrayList<>(pages.subList(1, pages.size()));
+            assertSameIndex(new IndexBuilder(remaining), index.snapshot());
+
+            /* more than half deleted, the segment is merged on its own */
+            for (int i = 1; i < pages.size() - 1; i++) {
+                assertTrue(index.deleteDocument(pages.get(i).getUrlOfSite()));
+            }
+            index.awaitMerges();
+            WebsiteData last = pages.get(pages.size() - 1);
+            assertEquals(1, index.getDocIdBound());
+            assertEquals(last.getUrlOfSite(), index.getUrl(0));
+            assertSameIndex(new IndexBuilder(List.of(last)), index.snapshot());
+        }
+    }
+
+    @Test
+    void searchOnSegmentsMatchesSingleIndex() throws InterruptedException {
+        try (SegmentedIndex index = new SegmentedIndex(1, 3, null)) {
+            for (WebsiteData page : pages) {
+                index.addDocument(page);
+            }
+            index.awaitMerges();
+            assertTrue(index.getSegmentCount() > 1);
+
+            IndexBuilder expected = new IndexBuilder(pages);
+            SearchEngine expectedEngine = new SearchEngine(expected.getInvertedIndex(),
+                    new double[expected.getTotalWebsites()]);
+            SearchEngine segmentedEngine = new SearchEngine(index, new double[index.getDocIdBound()]);
+            String[][] queries = {{"house"}, {"flavor", "cheese"}, {"crisp", "bread", "house"}, {"notatoken"}};
+            for (String[] query : queries) {
+                assertEquals(expectedEngine.searchQuery(query), segmentedEngine.searchQuery(query));
+                assertEquals(expectedEngine.execute(query, SearchMode.TFIDF).getScoresPerUrl(),
+                        segmentedEngine.execute(query, SearchMode.TFIDF).getScoresPerUrl());
+                assertEquals(expectedEngine.searchQueryCosine(query), segmentedEngine.searchQueryCosine(query));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.searching.PageRank;
+
+/**
+ * Unit tests for the page rank calculation on the compiled link graph.
+ */
+class SparsePageRankTests {
+
+    static List<WebsiteData> createWebsites(int count, long seed) {
+        Random random = new Random(seed);
+        List<WebsiteData> sites = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            WebsiteData site = new WebsiteData("https://www.rank" + i + ".local");
+            /* some websites have no links, popular websites get more links */
+            int links = i % 7 == 0 ? 0 : 1 + random.nextInt(8);
+            for (int j = 0; j < links; j++) {
+                double r = random.nextDouble();
+                int target = (int) (count * r * r);
+                site.addLink(j == 0 && i % 11 == 0 ? "https://www.uncrawled" + i + ".local"
+                        : "https://www.rank" + target + ".local");
+            }
+            sites.add(site);
+        }
+        return sites;
+    }
+
+    /**
+     * The page ranks as calculated on maps of urls before the links were compiled.
+     */
+    static Map<String, Double> referencePageRanks(List<WebsiteData> sites) {
+        Map<String, Set<String>> incoming = new HashMap<>();
+        Map<String, Integer> outgoing = new HashMap<>();
+        Map<String, Double> ranks = new HashMap<>();
+        for (WebsiteData site : sites) {
+            incoming.put(site.getUrlOfSite(), new HashSet<>());
+        }
+        for (WebsiteData site : sites) {
+            if (!site.getLinks().isEmpty()) {
+                outgoing.put(site.getUrlOfSite(), site.getLinks().size());
+            }
+            for (String link : site.getLinks()) {
+                incoming.computeIfAbsent(link, k -> new HashSet<>()).add(site.getUrlOfSite());
+            }
+            ranks.put(site.getUrlOfSite(), 1.0 / sites.size());
+        }
+        double difference = 1.0;
+        while (difference > 0.0001) {
+            Map<String, Double> newRanks = new HashMap<>();
+            for (Map.Entry<String, Set<String>> entry : incoming.entrySet()) {
+                double rank = 0.0;
+                for (String source : entry.getValue()) {
+                    rank += ranks.get(source) / outgoing.get(source);
+                }
+                newRanks.put(entry.getKey(), 0.85 * rank + 0.15 * (1.0 / sites.size()));
+            }
+            difference = 0.0;
+            for (Map.Entry<String, Double> entry : newRanks.entrySet()) {
+                difference += Math.abs(entry.getValue() - ranks.getOrDefault(entry.getKey(), 0.0));
+            }
+            ranks = newRanks;
+        }
+        return ranks;
+    }
+
+    @Test
+    void pageRanksMatchTheCalculationOnMaps() {
+        for (long seed = 1; seed <= 3; seed++) {
+            List<WebsiteData> sites = createWebsites(1500, seed);
+            /* a website crawled twice */
+            sites.add(sites.get(3));
+            Map<String, Double> expected = referencePageRanks(sites);
+            Map<String, Double> actual = new PageRank(sites).getPageRanksPerUrl();
+            assertEquals(expected.keySet(), actual.keySet());
+            for (Map.Entry<String, Double> entry : expected.entrySet()) {
+                assertEquals(entry.getValue(), actual.get(entry.getKey()), 1e-12, entry.getKey());
+            }
+        }
+    }
+
+    @Test
+    void pageRanksOfASmallGraph() {
+        WebsiteData a = new WebsiteData("https://a.local");
+        WebsiteData b = new WebsiteData("https://b.local");
+        WebsiteData c = new WebsiteData("https://c.local");
+        a.addLink(b.getUrlOfSite());
+        a.addLink(c.getUrlOfSite());
+        b.addLink(c.getUrlOfSite());
+        c.addLink(a.getUrlOfSite());
+        PageRank pageRank = new PageRank(List.of(a, b, c));
+        Map<String, Double> ranks = pageRank.getPageRanksPerUrl();
+        /* the fixed point of the damped iteration */
+        double rankA = ranks.get("https://a.local");
+        double rankB = ranks.get("https://b.local");
+        double rankC = ranks.get("https://c.local");
+        assertEquals(0.05 + 0.85 * rankC, rankA, 1e-3);
+        assertEquals(0.05 + 0.85 * rankA / 2, rankB, 1e-3);
+        assertEquals(0.05 + 0.85 * (rankA / 2 + rankB), rankC, 1e-3);
+        assertEquals(1.0, rankA + rankB + rankC, 1e-3);
+        assertTrue(pageRank.getIterations() > 1);
+    }
+
+    @Test
+    void noWebsitesHaveNoPageRanks() {
+        assertTrue(new PageRank(List.of()).getPageRanksPerUrl().isEmpty());
+    }
+}
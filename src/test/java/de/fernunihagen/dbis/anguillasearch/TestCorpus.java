@@ -0,0 +1,73 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.util.Utils;
+
+/**
+ * The websites for the tests of the index and the searches.
+ */
+final class TestCorpus {
+
+    static final String[] WORDS = {"house", "garden", "pool", "river", "stone", "bridge", "cloud", "forest",
+        "apple", "window", "table", "mountain"};
+
+    private TestCorpus() {
+    }
+
+    /**
+     * The first words of {@link #WORDS}.
+     */
+    static String[] words(int count) {
+        return Arrays.copyOf(WORDS, count);
+    }
+
+    /**
+     * Websites with the urls {@code https://www.page<i>.local}, an empty title and header and a body of 3 to 22
+     * random words. The first words are more frequent than the last ones.
+     */
+    static List<WebsiteData> random(long seed, int pageCount, String... words) {
+        Random random = new Random(seed);
+        List<WebsiteData> pages = new ArrayList<>();
+        for (int i = 0; i < pageCount; i++) {
+            WebsiteData data = new WebsiteData("https://www.page" + i + ".local");
+            StringBuilder body = new StringBuilder();
+            int length = 3 + random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                body.append(words[(int) (words.length * random.nextDouble() * random.nextDouble())]).append(' ');
+            }
+            data.setTitle("");
+            data.setHeader("");
+            data.setBody(body.toString());
+            pages.add(data);
+        }
+        return pages;
+    }
+
+    /**
+     * The websites of {@code src/test/resources/tf-idf/pages} with their title, header, body and outgoing links.
+     */
+    static List<WebsiteData> tfIdfPages() throws IOException {
+        List<WebsiteData> pages = new ArrayList<>();
+        for (JsonObject jsonObject : Utils.parseAllJSONFiles(Optional.of("src/test/resources/tf-idf/pages"))) {
+            WebsiteData data = new WebsiteData(jsonObject.get("url").getAsString());
+            data.setTitle(jsonObject.get("title").getAsString());
+            data.setHeader(jsonObject.get("headings").getAsString());
+            data.setBody(jsonObject.get("paragraphs").getAsString());
+            for (JsonElement link : jsonObject.get("outgoingLinks").getAsJsonArray()) {
+                data.addLink(link.getAsString());
+            }
+            pages.add(data);
+        }
+        return pages;
+    }
+}
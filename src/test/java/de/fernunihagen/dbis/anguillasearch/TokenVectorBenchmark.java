@@ -0,0 +1,122 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.fernunihagen.dbis.anguillasearch.searching.TokenVector;
+
+/**
+ * JMH benchmark of the cosine similarity of two {@link TokenVector}s, the sorted merge join on primitive arrays
+ * against the former calculation on hash maps. Every invocation compares all pairs of {@value #VECTORS} vectors
+ * with fixed random entries.
+ *
+ * <p>
+ * Run it with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=TokenVectorBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenVectorBenchmark {
+
+    static final int VECTORS = 64;
+
+    static final int VOCABULARY = 5000;
+
+    @Param({"30", "300"})
+    int entries;
+
+    TokenVector[] vectors;
+
+    MapTokenVector[] mapVectors;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(17);
+        vectors = new TokenVector[VECTORS];
+        mapVectors = new MapTokenVector[VECTORS];
+        for (int v = 0; v < VECTORS; v++) {
+            Map<String, Double> tfIdf = new HashMap<>();
+            while (tfIdf.size() < entries) {
+                /* frequent tokens are shared by many vectors */
+                double r = random.nextDouble();
+                tfIdf.put("token" + (int) (VOCABULARY * r * r), random.nextDouble());
+            }
+            vectors[v] = new TokenVector(tfIdf);
+            mapVectors[v] = new MapTokenVector(tfIdf);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VECTORS * VECTORS)
+    public double sortedArrays() {
+        double sum = 0.0;
+        for (TokenVector a : vectors) {
+            for (TokenVector b : vectors) {
+                sum += a.computeCosineSimilarity(b);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VECTORS * VECTORS)
+    public double hashMaps() {
+        double sum = 0.0;
+        for (MapTokenVector a : mapVectors) {
+            for (MapTokenVector b : mapVectors) {
+                sum += a.computeCosineSimilarity(b);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * The former {@link TokenVector}: a normalized copy of the map, and a cosine similarity that looks up every token
+     * of one vector in a copy of the map of the other one.
+     */
+    static final class MapTokenVector {
+
+        final Map<String, Double> tfIdfPerToken;
+
+        MapTokenVector(Map<String, Double> tokenTfIdf) {
+            tfIdfPerToken = new HashMap<>(tokenTfIdf);
+            double squareSum = 0.0;
+            for (double value : tfIdfPerToken.values()) {
+                squareSum += value * value;
+            }
+            double norm = Math.sqrt(squareSum);
+            for (Map.Entry<String, Double> entry : tfIdfPerToken.entrySet()) {
+                entry.setValue(entry.getValue() / norm);
+            }
+        }
+
+        double computeCosineSimilarity(MapTokenVector vectorB) {
+            Map<String, Double> tfIdfPerTokenB = new HashMap<>(vectorB.tfIdfPerToken);
+            double dotProduct = 0.0;
+            for (Map.Entry<String, Double> entry : tfIdfPerToken.entrySet()) {
+                Double tfIdfB = tfIdfPerTokenB.get(entry.getKey());
+                dotProduct += entry.getValue() * (tfIdfB == null ? 0.0 : tfIdfB);
+            }
+            return dotProduct;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package de.fernunihagen.dbis.anguillasearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.fernunihagen.dbis.anguillasearch.crawler.WebsiteData;
+import de.fernunihagen.dbis.anguillasearch.indexing.IndexBuilder;
+import de.fernunihagen.dbis.anguillasearch.indexing.SearchIndex;
+import de.fernunihagen.dbis.anguillasearch.searching.ScoredDocument;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchEngine;
+import de.fernunihagen.dbis.anguillasearch.searching.SearchMode;
+
+/**
+ * Unit tests for the selection of pages of search results.
+ */
+class TopKSearchTests {
+
+    static List<WebsiteData> pages;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        List<WebsiteData> originals = TestCorpus.tfIdfPages();
+        /* every page three times, so there are ties in every ranking */
+        pages = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            for (WebsiteData original : originals) {
+                WebsiteData copy = new WebsiteData(original.getUrlOfSite() + "?copy=" + i);
+                copy.setTitle(original.getTitle());
+                copy.setHeader(original.getHeader());
+                copy.setBody(original.getBody());
+                pages.add(copy);
+            }
+        }
+    }
+
+    @Test
+    void pagesConcatenateToTheFullRanking() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        double[] pageRanks = new double[indexBuilder.getTotalWebsites()];
+        for (int i = 0; i < pageRanks.length; i++) {
+            pageRanks[i] = 1.0 / (i % 4 + 1);
+        }
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(), pageRanks);
+        String[] query = {"house", "garden", "pool"};
+        for (SearchMode mode : SearchMode.values()) {
+            List<ScoredDocument> all = engine.search(query, mode, 0, Integer.MAX_VALUE);
+            assertFalse(all.isEmpty());
+            for (int limit = 1; limit <= 5; limit++) {
+                List<ScoredDocument> concatenated = new ArrayList<>();
+                for (int offset = 0; offset < all.size() + limit; offset += limit) {
+                    List<ScoredDocument> page = engine.search(query, mode, offset, limit);
+                    assertTrue(page.size() <= limit);
+                    concatenated.addAll(page);
+                }
+                assertEquals(urls(all), urls(concatenated));
+            }
+        }
+    }
+
+    @Test
+    void tiesAreOrderedByDocumentId() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchIndex index = indexBuilder.getInvertedIndex();
+        SearchEngine engine = new SearchEngine(index, new double[indexBuilder.getTotalWebsites()]);
+        List<ScoredDocument> results = engine.search(new String[] {"house", "pool"}, SearchMode.COSINE, 0, 100);
+        assertFalse(results.isEmpty());
+        for (int i = 1; i < results.size(); i++) {
+            ScoredDocument before = results.get(i - 1);
+            ScoredDocument after = results.get(i);
+            assertTrue(before.getScore() >= after.getScore());
+            if (before.getScore() == after.getScore()) {
+                assertTrue(index.getDocId(before.getUrl()) < index.getDocId(after.getUrl()));
+            }
+        }
+        assertEquals(urls(results), engine.searchQueryCosine(new String[] {"house", "pool"}));
+    }
+
+    @Test
+    void invalidPagesAreRejected() {
+        IndexBuilder indexBuilder = new IndexBuilder(pages);
+        SearchEngine engine = new SearchEngine(indexBuilder.getInvertedIndex(),
+                new double[indexBuilder.getTotalWebsites()]);
+        String[] query = {"garden"};
+        assertTrue(engine.search(query, SearchMode.TFIDF, 0, 0).isEmpty());
+        assertTrue(engine.search(query, SearchMode.TFIDF, 1000, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> engine.search(query, SearchMode.TFIDF, -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> engine.search(query, SearchMode.TFIDF, 0, -1));
+    }
+
+    static List<String> urls(List<ScoredDocument> results) {
+        List<String> urls = new ArrayList<>();
+        for (ScoredDocument result : results) {
+            urls.add(result.getUrl());
+        }
+        return urls;
+    }
+}